@@ -275,6 +275,14 @@ public final class MappingSpec {
     return ClassName.get(packageName, headerEntity + "CsvWriter");
   }
 
+  /**
+   * @return the {@link ClassName} for the class to be built that will contain JDBC writing for the
+   *     layout
+   */
+  public ClassName getJdbcWriterClass() {
+    return ClassName.get(packageName, headerEntity + "JdbcWriter");
+  }
+
   /** @see java.lang.Object#toString() */
   @Override
   public String toString() {
@@ -354,6 +354,12 @@ public final class RifLayoutsProcessor extends AbstractProcessor {
      * files, for use with PostgreSQL's copy APIs.
      */
     generateCsvWriter(mappingSpec, headerEntity, lineEntity);
+
+    /*
+     * Finally, create code that can be used to write the JPA Entity out via
+     * plain JDBC batches, bypassing Hibernate entirely.
+     */
+    generateJdbcWriter(mappingSpec, headerEntity, lineEntity);
   }
 
   /**
@@ -795,6 +801,10 @@ public final class RifLayoutsProcessor extends AbstractProcessor {
   /**
    * Generates a Java class that can handle RIF-to-Entity parsing.
    *
+   * <p>Column positions are resolved (and validated against the {@link RifLayout}) once per file,
+   * by the generated <code>resolveColumnIndexes(...)</code> method. The generated <code>
+   * parseRif(...)</code> method then reads each field by its position, rather than by name.
+   *
    * @param mappingSpec the {@link MappingSpec} of the layout to generate code for
    * @param columnEnum the RIF column {@link Enum} that was generated for the layout
    * @param headerEntity the Java {@link Entity} that was generated for the header fields
@@ -816,20 +826,67 @@ public final class RifLayoutsProcessor extends AbstractProcessor {
     // Grab some common types we'll need.
     ClassName csvRecordType = ClassName.get("org.apache.commons.csv", "CSVRecord");
     ClassName parseUtilsType = ClassName.get("gov.cms.bfd.model.rif.parse", "RifParsingUtils");
+    ClassName invalidFormatType =
+        ClassName.get("gov.cms.bfd.model.rif.parse", "InvalidRifFileFormatException");
+
+    /*
+     * Generate the method that resolves each column's position from the file
+     * header. Note that the column Enum's constants are in the same order as
+     * the RifLayout's fields, so their ordinals are also the field indices.
+     */
+    MethodSpec.Builder resolveMethod =
+        MethodSpec.methodBuilder("resolveColumnIndexes")
+            .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+            .returns(int[].class)
+            .addParameter(
+                ParameterizedTypeName.get(Map.class, String.class, Integer.class), "headerMap");
+    resolveMethod.addStatement("$T.requireNonNull(headerMap)", Objects.class);
+    resolveMethod.addStatement(
+        "int[] columnIndexes = new int[$T.values().length]", mappingSpec.getColumnEnum());
+    resolveMethod.beginControlFlow("for ($1T column : $1T.values())", mappingSpec.getColumnEnum());
+    resolveMethod.addStatement("$T columnIndex = headerMap.get(column.name())", Integer.class);
+    resolveMethod
+        .beginControlFlow("if (columnIndex == null)")
+        .addStatement(
+            "throw new $T($T.format($S, column))",
+            invalidFormatType,
+            String.class,
+            "Missing column: '%s'.")
+        .endControlFlow();
+    resolveMethod.addStatement("columnIndexes[column.ordinal()] = columnIndex");
+    resolveMethod.endControlFlow();
+    resolveMethod.addStatement("return columnIndexes");
+    parsingClass.addMethod(resolveMethod.build());
 
     MethodSpec.Builder parseMethod =
         MethodSpec.methodBuilder("parseRif")
             .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
             .returns(mappingSpec.getHeaderEntity())
             .addParameter(
-                ParameterizedTypeName.get(ClassName.get(List.class), csvRecordType), "csvRecords");
+                ParameterizedTypeName.get(ClassName.get(List.class), csvRecordType), "csvRecords")
+            .addParameter(int[].class, "columnIndexes");
 
     parseMethod.addComment("Verify the inputs.");
     parseMethod.addStatement("$T.requireNonNull(csvRecords)", Objects.class);
+    parseMethod.addStatement("$T.requireNonNull(columnIndexes)", Objects.class);
     parseMethod
         .beginControlFlow("if (csvRecords.size() < 1)")
         .addStatement("throw new $T()", IllegalArgumentException.class)
         .endControlFlow();
+    parseMethod.addStatement("int maxColumnIndex = -1");
+    parseMethod.addStatement(
+        "for (int columnIndex : columnIndexes) maxColumnIndex = $T.max(maxColumnIndex, columnIndex)",
+        Math.class);
+    parseMethod
+        .beginControlFlow("for ($T csvRecord : csvRecords)", csvRecordType)
+        .beginControlFlow("if (csvRecord.size() <= maxColumnIndex)")
+        .addStatement(
+            "throw new $T($T.format($S, csvRecord.getRecordNumber(), csvRecord.size()))",
+            invalidFormatType,
+            String.class,
+            "Record '%d' only has '%d' values.")
+        .endControlFlow()
+        .endControlFlow();
 
     parseMethod.addCode("\n$1T header = new $1T();\n", mappingSpec.getHeaderEntity());
 
@@ -923,7 +980,7 @@ public final class RifLayoutsProcessor extends AbstractProcessor {
       valueAssignmentArgs.put("record", recordName);
       valueAssignmentArgs.put("parseUtilsType", parseUtilsType);
       valueAssignmentArgs.put("parseUtilsMethod", parseUtilsMethodName);
-      valueAssignmentArgs.put("columnEnumType", mappingSpec.getColumnEnum());
+      valueAssignmentArgs.put("fieldIndex", fieldIndex);
       valueAssignmentArgs.put("columnEnumConstant", rifField.getRifColumnName());
       parseMethod.addCode(
           CodeBlock.builder()
@@ -931,7 +988,7 @@ public final class RifLayoutsProcessor extends AbstractProcessor {
                   "$entity:L.$entitySetter:L("
                       + "$parseUtilsType:T.$parseUtilsMethod:L("
                       + "$record:L.get("
-                      + "$columnEnumType:T.$columnEnumConstant:L)));\n",
+                      + "columnIndexes[$fieldIndex:L] /* $columnEnumConstant:L */)));\n",
                   valueAssignmentArgs)
               .build());
     }
@@ -962,6 +1019,11 @@ public final class RifLayoutsProcessor extends AbstractProcessor {
    * Generates a Java class that can be used to write the JPA Entity out to CSV files, for use with
    * PostgreSQL's copy APIs.
    *
+   * <p>The generated <code>toCsvRecordsByTable(...)</code> method returns one entry per SQL table.
+   * The first row of each entry contains the SQL column identifiers (quoted exactly as the schema
+   * expects them), and each subsequent row contains the matching column values: only persisted
+   * columns are included, and {@link Optional}s are unwrapped to their value or <code>null</code>.
+   *
    * @param mappingSpec the {@link MappingSpec} of the layout to generate code for
    * @param headerEntity the Java {@link Entity} that was generated for the header fields
    * @param lineEntity the Java {@link Entity} that was generated for the line fields, if any
@@ -1001,24 +1063,14 @@ public final class RifLayoutsProcessor extends AbstractProcessor {
     csvWriterMethod.addStatement("$T headerRecords = new $T[2][]", recordsListType, Object.class);
     String headerColumnsList =
         headerEntity.fieldSpecs.stream()
-            .filter(
-                f -> {
-                  if (mappingSpec.getHasLines()
-                      && f.name.equals(mappingSpec.getHeaderEntityLinesField())) return false;
-                  return true;
-                })
-            .map(f -> "\"" + f.name + "\"")
+            .filter(f -> isPersistedColumn(f))
+            .map(f -> CodeBlock.of("$S", calculateSqlColumnIdentifier(f)).toString())
             .collect(Collectors.joining(", "));
     csvWriterMethod.addStatement(
         "headerRecords[0] = new $1T{ $2L }", recordType, headerColumnsList);
     String headerGettersList =
         headerEntity.fieldSpecs.stream()
-            .filter(
-                f -> {
-                  if (mappingSpec.getHasLines()
-                      && f.name.equals(mappingSpec.getHeaderEntityLinesField())) return false;
-                  return true;
-                })
+            .filter(f -> isPersistedColumn(f))
             .map(f -> calculateFieldToCsvValueCode("entity", f, mappingSpec, null, null))
             .collect(Collectors.joining(", "));
     csvWriterMethod.addStatement(
@@ -1046,7 +1098,8 @@ public final class RifLayoutsProcessor extends AbstractProcessor {
           "csvRecordsByTable.put($S, lineRecords)", mappingSpec.getLineTable());
       String lineColumnsList =
           lineEntity.get().fieldSpecs.stream()
-              .map(f -> "\"" + f.name + "\"")
+              .filter(f -> isPersistedColumn(f))
+              .map(f -> CodeBlock.of("$S", calculateSqlColumnIdentifier(f)).toString())
               .collect(Collectors.joining(", "));
       csvWriterMethod.addStatement("lineRecords[0] = new $1T{ $2L }", recordType, lineColumnsList);
       csvWriterMethod.beginControlFlow(
@@ -1067,6 +1120,7 @@ public final class RifLayoutsProcessor extends AbstractProcessor {
               .get();
       String lineGettersList =
           lineEntity.get().fieldSpecs.stream()
+              .filter(f -> isPersistedColumn(f))
               .map(
                   f -> {
                     return calculateFieldToCsvValueCode(
@@ -1112,17 +1166,13 @@ public final class RifLayoutsProcessor extends AbstractProcessor {
     code.append(instanceName);
     code.append(".");
 
-    Optional<RifField> rifField =
-        mappingSpec.getRifLayout().getRifFields().stream()
-            .filter(f -> field.name.equals(f.getJavaFieldName()))
-            .findAny();
     if (field == parentField) {
       // This is the line-level "parent" field.
       code.append(calculateGetterName(parentField));
       code.append("().");
       code.append(calculateGetterName(headerIdField));
       code.append("()");
-    } else if (rifField.isPresent() && rifField.get().isRifColumnOptional()) {
+    } else if (isPropertyOptional(field, mappingSpec)) {
       code.append(calculateGetterName(field));
       code.append("().orElse(null)");
     } else {
@@ -1133,6 +1183,364 @@ public final class RifLayoutsProcessor extends AbstractProcessor {
     return code.toString();
   }
 
+  /**
+   * Generates a Java class that can be used to write the JPA Entity out via plain JDBC {@link
+   * java.sql.PreparedStatement} batches, without going through Hibernate.
+   *
+   * <p>The generated class contains the <code>INSERT</code>/<code>UPDATE</code> SQL for the header
+   * table (and the <code>INSERT</code>/<code>DELETE</code> SQL for the line table, if any), along
+   * with <code>add*Batch(...)</code> methods that bind an entity's values to those statements via
+   * positional setters and then call {@link java.sql.PreparedStatement#addBatch()}. Updating a
+   * claim is modeled as updating its header row, deleting its old line rows, and then inserting its
+   * new line rows, which matches what a JPA merge with orphan removal ends up doing.
+   *
+   * @param mappingSpec the {@link MappingSpec} of the layout to generate code for
+   * @param headerEntity the Java {@link Entity} that was generated for the header fields
+   * @param lineEntity the Java {@link Entity} that was generated for the line fields, if any
+   * @return the Java JDBC writing class that was generated
+   * @throws IOException An {@link IOException} may be thrown if errors are encountered trying to
+   *     generate source files.
+   */
+  private TypeSpec generateJdbcWriter(
+      MappingSpec mappingSpec, TypeSpec headerEntity, Optional<TypeSpec> lineEntity)
+      throws IOException {
+    TypeSpec.Builder jdbcWriterClass =
+        TypeSpec.classBuilder(mappingSpec.getJdbcWriterClass())
+            .addModifiers(Modifier.PUBLIC, Modifier.FINAL);
+    ClassName statementType = ClassName.get("java.sql", "PreparedStatement");
+    ClassName sqlExceptionType = ClassName.get("java.sql", "SQLException");
+
+    List<FieldSpec> headerColumns =
+        headerEntity.fieldSpecs.stream()
+            .filter(f -> isPersistedColumn(f))
+            .collect(Collectors.toList());
+    String headerIdFieldName =
+        mappingSpec.getHeaderEntityGeneratedIdField() != null
+            ? mappingSpec.getHeaderEntityGeneratedIdField()
+            : mappingSpec.getHeaderEntityIdField();
+    FieldSpec headerIdField =
+        headerColumns.stream().filter(f -> f.name.equals(headerIdFieldName)).findAny().get();
+    List<FieldSpec> headerNonIdColumns =
+        headerColumns.stream().filter(f -> f != headerIdField).collect(Collectors.toList());
+    String headerTable = "\"" + mappingSpec.getHeaderTable() + "\"";
+
+    // Generate the header INSERT.
+    jdbcWriterClass.addField(
+        FieldSpec.builder(
+                String.class, "HEADER_INSERT_SQL", Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+            .initializer("$S", calculateInsertSql(headerTable, headerColumns))
+            .build());
+    MethodSpec.Builder headerInsertMethod =
+        MethodSpec.methodBuilder("addHeaderInsertBatch")
+            .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+            .addParameter(statementType, "statement")
+            .addParameter(mappingSpec.getHeaderEntity(), "entity")
+            .addException(sqlExceptionType);
+    for (int columnIndex = 0; columnIndex < headerColumns.size(); columnIndex++)
+      headerInsertMethod.addStatement(
+          "$L",
+          calculateFieldToJdbcSetterCode(
+              "entity", headerColumns.get(columnIndex), columnIndex + 1, mappingSpec, null, null));
+    headerInsertMethod.addStatement("statement.addBatch()");
+    jdbcWriterClass.addMethod(headerInsertMethod.build());
+
+    // Generate the header UPDATE.
+    jdbcWriterClass.addField(
+        FieldSpec.builder(
+                String.class, "HEADER_UPDATE_SQL", Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+            .initializer(
+                "$S",
+                String.format(
+                    "UPDATE %s SET %s WHERE %s = ?",
+                    headerTable,
+                    headerNonIdColumns.stream()
+                        .map(f -> calculateSqlColumnIdentifier(f) + " = ?")
+                        .collect(Collectors.joining(", ")),
+                    calculateSqlColumnIdentifier(headerIdField)))
+            .build());
+    MethodSpec.Builder headerUpdateMethod =
+        MethodSpec.methodBuilder("addHeaderUpdateBatch")
+            .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+            .addParameter(statementType, "statement")
+            .addParameter(mappingSpec.getHeaderEntity(), "entity")
+            .addException(sqlExceptionType);
+    for (int columnIndex = 0; columnIndex < headerNonIdColumns.size(); columnIndex++)
+      headerUpdateMethod.addStatement(
+          "$L",
+          calculateFieldToJdbcSetterCode(
+              "entity",
+              headerNonIdColumns.get(columnIndex),
+              columnIndex + 1,
+              mappingSpec,
+              null,
+              null));
+    headerUpdateMethod.addStatement(
+        "$L",
+        calculateFieldToJdbcSetterCode(
+            "entity", headerIdField, headerNonIdColumns.size() + 1, mappingSpec, null, null));
+    headerUpdateMethod.addStatement("statement.addBatch()");
+    jdbcWriterClass.addMethod(headerUpdateMethod.build());
+
+    if (mappingSpec.getHasLines()) {
+      List<FieldSpec> lineColumns =
+          lineEntity.get().fieldSpecs.stream()
+              .filter(f -> isPersistedColumn(f))
+              .collect(Collectors.toList());
+      FieldSpec parentField =
+          lineColumns.stream()
+              .filter(f -> f.name.equals(mappingSpec.getLineEntityParentField()))
+              .findAny()
+              .get();
+      FieldSpec linesField =
+          headerEntity.fieldSpecs.stream()
+              .filter(f -> f.name.equals(mappingSpec.getHeaderEntityLinesField()))
+              .findAny()
+              .get();
+      String lineTable = "\"" + mappingSpec.getLineTable() + "\"";
+
+      // Generate the line DELETE, which removes all of a claim's lines.
+      jdbcWriterClass.addField(
+          FieldSpec.builder(
+                  String.class, "LINE_DELETE_SQL", Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+              .initializer(
+                  "$S",
+                  String.format(
+                      "DELETE FROM %s WHERE %s = ?",
+                      lineTable, calculateSqlColumnIdentifier(parentField)))
+              .build());
+      MethodSpec.Builder lineDeleteMethod =
+          MethodSpec.methodBuilder("addLineDeleteBatch")
+              .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+              .addParameter(statementType, "statement")
+              .addParameter(mappingSpec.getHeaderEntity(), "entity")
+              .addException(sqlExceptionType);
+      lineDeleteMethod.addStatement(
+          "$L",
+          calculateFieldToJdbcSetterCode("entity", headerIdField, 1, mappingSpec, null, null));
+      lineDeleteMethod.addStatement("statement.addBatch()");
+      jdbcWriterClass.addMethod(lineDeleteMethod.build());
+
+      // Generate the line INSERTs.
+      jdbcWriterClass.addField(
+          FieldSpec.builder(
+                  String.class, "LINE_INSERT_SQL", Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+              .initializer("$S", calculateInsertSql(lineTable, lineColumns))
+              .build());
+      MethodSpec.Builder lineInsertMethod =
+          MethodSpec.methodBuilder("addLineInsertBatches")
+              .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+              .addParameter(statementType, "statement")
+              .addParameter(mappingSpec.getHeaderEntity(), "entity")
+              .addException(sqlExceptionType);
+      lineInsertMethod.beginControlFlow(
+          "for ($T lineEntity : entity.$L())",
+          mappingSpec.getLineEntity(),
+          calculateGetterName(linesField));
+      for (int columnIndex = 0; columnIndex < lineColumns.size(); columnIndex++)
+        lineInsertMethod.addStatement(
+            "$L",
+            calculateFieldToJdbcSetterCode(
+                "lineEntity",
+                lineColumns.get(columnIndex),
+                columnIndex + 1,
+                mappingSpec,
+                parentField,
+                headerIdField));
+      lineInsertMethod.addStatement("statement.addBatch()");
+      lineInsertMethod.endControlFlow();
+      jdbcWriterClass.addMethod(lineInsertMethod.build());
+    }
+
+    TypeSpec jdbcWriterClassFinal = jdbcWriterClass.build();
+    JavaFile jdbcWriterClassFile =
+        JavaFile.builder(mappingSpec.getPackageName(), jdbcWriterClassFinal).build();
+    jdbcWriterClassFile.writeTo(processingEnv.getFiler());
+
+    return jdbcWriterClassFinal;
+  }
+
+  /**
+   * @param tableIdentifier the (already quoted) SQL identifier of the table to insert into
+   * @param columns the JPA entity {@link FieldSpec}s of the columns to insert, all of which must be
+   *     ones that {@link #isPersistedColumn(FieldSpec)} accepts
+   * @return a parameterized SQL <code>INSERT</code> statement for the specified table and columns
+   */
+  private static String calculateInsertSql(String tableIdentifier, List<FieldSpec> columns) {
+    return String.format(
+        "INSERT INTO %s (%s) VALUES (%s)",
+        tableIdentifier,
+        columns.stream()
+            .map(f -> calculateSqlColumnIdentifier(f))
+            .collect(Collectors.joining(", ")),
+        columns.stream().map(f -> "?").collect(Collectors.joining(", ")));
+  }
+
+  /**
+   * Used in {@link #generateJdbcWriter(MappingSpec, TypeSpec, Optional)} and generates the code
+   * that binds the specified field's value to a <code>statement</code> parameter, using the
+   * type-specific {@link java.sql.PreparedStatement} setter that Hibernate would have used for it.
+   *
+   * @param instanceName the name of the object that the value will be pulled from
+   * @param field the field to generate binding code for
+   * @param parameterIndex the (1-based) index of the statement parameter to bind
+   * @param mappingSpec the {@link MappingSpec} of the field to generate binding code for
+   * @param parentField the {@link MappingSpec#getLineEntityParentField()} field, or <code>null
+   *     </code> if this is a header field
+   * @param headerIdField the {@link MappingSpec#getHeaderEntityIdField()} field, or <code>null
+   *     </code> if this is a header field
+   * @return the binding code for the specified field
+   */
+  private static CodeBlock calculateFieldToJdbcSetterCode(
+      String instanceName,
+      FieldSpec field,
+      int parameterIndex,
+      MappingSpec mappingSpec,
+      FieldSpec parentField,
+      FieldSpec headerIdField) {
+    String getterCode;
+    TypeName valueType;
+    boolean optional;
+    if (field == parentField) {
+      // This is the line-level "parent" field, which is bound as the parent's ID.
+      getterCode =
+          String.format(
+              "%s.%s().%s()",
+              instanceName, calculateGetterName(parentField), calculateGetterName(headerIdField));
+      valueType = headerIdField.type;
+      optional = false;
+    } else {
+      getterCode = String.format("%s.%s()", instanceName, calculateGetterName(field));
+      valueType = field.type;
+      optional = isPropertyOptional(field, mappingSpec);
+    }
+
+    ClassName sqlDateType = ClassName.get("java.sql", "Date");
+    ClassName sqlTimestampType = ClassName.get("java.sql", "Timestamp");
+    ClassName sqlTypesType = ClassName.get("java.sql", "Types");
+    if (optional) {
+      if (valueType.equals(ClassName.get(String.class)))
+        return CodeBlock.of("statement.setString($L, $L.orElse(null))", parameterIndex, getterCode);
+      else if (valueType.equals(ClassName.get(Character.class)))
+        return CodeBlock.of(
+            "statement.setString($L, $L.map($T::valueOf).orElse(null))",
+            parameterIndex,
+            getterCode,
+            String.class);
+      else if (valueType.equals(ClassName.get(BigDecimal.class)))
+        return CodeBlock.of(
+            "statement.setBigDecimal($L, $L.orElse(null))", parameterIndex, getterCode);
+      else if (valueType.equals(ClassName.get(Integer.class)))
+        return CodeBlock.of(
+            "statement.setObject($L, $L.orElse(null), $T.INTEGER)",
+            parameterIndex,
+            getterCode,
+            sqlTypesType);
+      else if (valueType.equals(ClassName.get(LocalDate.class)))
+        return CodeBlock.of(
+            "statement.setDate($L, $L.map($T::valueOf).orElse(null))",
+            parameterIndex,
+            getterCode,
+            sqlDateType);
+      else if (valueType.equals(ClassName.get(Instant.class)))
+        return CodeBlock.of(
+            "statement.setTimestamp($L, $L.map($T::from).orElse(null))",
+            parameterIndex,
+            getterCode,
+            sqlTimestampType);
+      else if (valueType.equals(ClassName.get(Date.class)))
+        return CodeBlock.of(
+            "statement.setTimestamp($L, $L.map(d -> new $T(d.getTime())).orElse(null))",
+            parameterIndex,
+            getterCode,
+            sqlTimestampType);
+    } else {
+      if (valueType.equals(ClassName.get(String.class)))
+        return CodeBlock.of("statement.setString($L, $L)", parameterIndex, getterCode);
+      else if (valueType.equals(TypeName.CHAR))
+        return CodeBlock.of(
+            "statement.setString($L, $T.valueOf($L))", parameterIndex, String.class, getterCode);
+      else if (valueType.equals(ClassName.get(Character.class)))
+        return CodeBlock.of(
+            "statement.setString($L, $T.toString($L, null))",
+            parameterIndex,
+            Objects.class,
+            getterCode);
+      else if (valueType.equals(ClassName.get(BigDecimal.class)))
+        return CodeBlock.of("statement.setBigDecimal($L, $L)", parameterIndex, getterCode);
+      else if (valueType.equals(TypeName.INT))
+        return CodeBlock.of("statement.setInt($L, $L)", parameterIndex, getterCode);
+      else if (valueType.equals(ClassName.get(Integer.class)))
+        return CodeBlock.of(
+            "statement.setObject($L, $L, $T.INTEGER)", parameterIndex, getterCode, sqlTypesType);
+      else if (valueType.equals(TypeName.LONG))
+        return CodeBlock.of("statement.setLong($L, $L)", parameterIndex, getterCode);
+      else if (valueType.equals(ClassName.get(Long.class)))
+        return CodeBlock.of(
+            "statement.setObject($L, $L, $T.BIGINT)", parameterIndex, getterCode, sqlTypesType);
+      else if (valueType.equals(ClassName.get(LocalDate.class)))
+        return CodeBlock.of(
+            "statement.setDate($L, $T.valueOf($L))", parameterIndex, sqlDateType, getterCode);
+      else if (valueType.equals(ClassName.get(Instant.class)))
+        return CodeBlock.of(
+            "statement.setTimestamp($L, $T.from($L))",
+            parameterIndex,
+            sqlTimestampType,
+            getterCode);
+    }
+
+    throw new IllegalArgumentException("Unhandled field type: " + field);
+  }
+
+  /**
+   * @param field the JPA entity {@link FieldSpec} to check
+   * @param mappingSpec the {@link MappingSpec} of the field to check
+   * @return <code>true</code> if the specified field's getter returns an {@link Optional}, <code>
+   *     false</code> if it doesn't
+   */
+  private static boolean isPropertyOptional(FieldSpec field, MappingSpec mappingSpec) {
+    if (field.name.equals("lastUpdated")) return true;
+
+    Optional<RifField> rifField =
+        Stream.concat(
+                mappingSpec.getRifLayout().getRifFields().stream(),
+                mappingSpec.getHeaderEntityAdditionalDatabaseFields().stream())
+            .filter(f -> field.name.equals(f.getJavaFieldName()))
+            .findAny();
+    return rifField.isPresent() && rifField.get().isRifColumnOptional();
+  }
+
+  /**
+   * @param field the JPA entity {@link FieldSpec} to check
+   * @return <code>true</code> if the specified field is stored in its own SQL column, <code>false
+   *     </code> if it's {@link Transient} or is the non-owning side of a relationship
+   */
+  private static boolean isPersistedColumn(FieldSpec field) {
+    if (field.name.equals("lastUpdated")) return true;
+
+    return field.annotations.stream()
+        .anyMatch(
+            a ->
+                a.type.equals(ClassName.get(Column.class))
+                    || a.type.equals(ClassName.get(JoinColumn.class)));
+  }
+
+  /**
+   * @param field the JPA entity {@link FieldSpec} to get the SQL column identifier for, which must
+   *     be one that {@link #isPersistedColumn(FieldSpec)} accepts
+   * @return the SQL column identifier for the specified field, as it should appear in a SQL
+   *     statement
+   */
+  private static String calculateSqlColumnIdentifier(FieldSpec field) {
+    /*
+     * The "lastUpdated" column is the odd one out: it doesn't have an @Column annotation and so
+     * Hibernate leaves its name unquoted, which means that PostgreSQL folds it to lower case.
+     */
+    if (field.name.equals("lastUpdated")) return field.name;
+
+    // All of the other @Column and @JoinColumn names are just the quoted Java field name.
+    return "\"" + field.name + "\"";
+  }
+
   /**
    * @param fields the fields that should be hashed
    * @return a new <code>hashCode()</code> implementation that uses the specified fields
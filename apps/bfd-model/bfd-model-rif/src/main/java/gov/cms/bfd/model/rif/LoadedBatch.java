@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 import javax.persistence.*;
 
@@ -28,10 +29,19 @@ public class LoadedBatch {
   @Column(name = "`beneficiaries`", columnDefinition = "varchar", nullable = false)
   private String beneficiaries;
 
+  @Column(name = "`beneficiariesEncoded`", nullable = true)
+  private byte[] beneficiariesEncoded;
+
   @Column(name = "`created`", nullable = false)
   @Temporal(TemporalType.TIMESTAMP)
   private Date created;
 
+  @Column(name = "`recordNumbers`", nullable = true)
+  private byte[] recordNumbers;
+
+  @Column(name = "`maxRecordNumber`", nullable = true)
+  private Long maxRecordNumber;
+
   /** default constructor */
   public LoadedBatch() {}
 
@@ -64,10 +74,30 @@ public class LoadedBatch {
     this();
     this.loadedBatchId = loadedBatchId;
     this.loadedFileId = loadedFileId;
-    this.beneficiaries = convertToString(beneficiaries);
+    setBeneficiaries(beneficiaries);
     this.created = created;
   }
 
+  /**
+   * Create with known values, e.g. from a query that selects only the beneficiaries that are
+   * needed
+   *
+   * @param loadedBatchId unique sequence id
+   * @param loadedFileId associated file
+   * @param beneficiaries the value to use for {@link #getBeneficiaries()}
+   * @param beneficiariesEncoded the value to use for {@link #getBeneficiariesEncoded()}
+   * @param created batch creation date
+   */
+  public LoadedBatch(
+      long loadedBatchId,
+      long loadedFileId,
+      String beneficiaries,
+      byte[] beneficiariesEncoded,
+      Date created) {
+    this(loadedBatchId, loadedFileId, beneficiaries, created);
+    this.beneficiariesEncoded = beneficiariesEncoded;
+  }
+
   /** @return the loadedBatchId */
   public long getLoadedBatchId() {
     return loadedFileId;
@@ -88,7 +118,11 @@ public class LoadedBatch {
     this.loadedFileId = loadedFileId;
   }
 
-  /** @return the beneficiaries */
+  /**
+   * @return the beneficiaries, as comma-separated text, which will be empty for batches that are
+   *     stored in {@link #getBeneficiariesEncoded()} instead (unless the loader was also asked to
+   *     write the text, for older server builds)
+   */
   public String getBeneficiaries() {
     return beneficiaries;
   }
@@ -98,6 +132,21 @@ public class LoadedBatch {
     this.beneficiaries = beneficiaries;
   }
 
+  /**
+   * @return the beneficiaries, in the compact binary form produced by {@link
+   *     LoadedBatchCodec#encode(java.util.Collection)}, or <code>null</code> if they're only stored
+   *     in {@link #getBeneficiaries()} (as all batches created before that encoding was introduced
+   *     are)
+   */
+  public byte[] getBeneficiariesEncoded() {
+    return beneficiariesEncoded;
+  }
+
+  /** @param beneficiariesEncoded the value to set for {@link #getBeneficiariesEncoded()} */
+  public void setBeneficiariesEncoded(byte[] beneficiariesEncoded) {
+    this.beneficiariesEncoded = beneficiariesEncoded;
+  }
+
   /** @return the creation time stamp */
   public Date getCreated() {
     return created;
@@ -109,23 +158,68 @@ public class LoadedBatch {
   }
 
   /**
-   * Set the beneficiaries from a list
+   * @return the {@link RifFilePosition#getRecordNumber()}s of the records that were committed in
+   *     this batch, as encoded by {@link LoadedBatchCodec#encode(long[])}, or <code>null</code> if
+   *     they weren't tracked
+   */
+  public byte[] getRecordNumbers() {
+    return recordNumbers;
+  }
+
+  /** @param recordNumbers the value to set for {@link #getRecordNumbers()} */
+  public void setRecordNumbers(byte[] recordNumbers) {
+    this.recordNumbers = recordNumbers;
+  }
+
+  /**
+   * @return the highest of this batch's {@link #getRecordNumbers()}, which allows the batches that
+   *     might have committed records past a checkpoint to be found cheaply, or <code>null</code> if
+   *     they weren't tracked
+   */
+  public Long getMaxRecordNumber() {
+    return maxRecordNumber;
+  }
+
+  /** @param maxRecordNumber the value to set for {@link #getMaxRecordNumber()} */
+  public void setMaxRecordNumber(Long maxRecordNumber) {
+    this.maxRecordNumber = maxRecordNumber;
+  }
+
+  /**
+   * Set the beneficiaries from a list, which will be stored in {@link #getBeneficiariesEncoded()}
+   * if possible, and otherwise in {@link #getBeneficiaries()}.
    *
    * @param beneficiaries list to convert
    */
   public void setBeneficiaries(List<String> beneficiaries) {
-    this.beneficiaries = convertToString(beneficiaries);
+    Optional<byte[]> encoded =
+        beneficiaries != null ? LoadedBatchCodec.encode(beneficiaries) : Optional.empty();
+    this.beneficiaries = encoded.isPresent() ? "" : convertToString(beneficiaries);
+    this.beneficiariesEncoded = encoded.orElse(null);
   }
 
   /**
-   * Get the beneficiaries as a list
+   * Get the beneficiaries as a list. Note that encoded batches have been de-duplicated and sorted.
    *
    * @return beneficiaries as list
    */
   public List<String> getBeneficiariesAsList() {
+    if (beneficiariesEncoded != null) return LoadedBatchCodec.decodeToList(beneficiariesEncoded);
     return convertToList(this.beneficiaries);
   }
 
+  /** @return the number of beneficiaries in this batch, without decoding or splitting them */
+  public int getBeneficiaryCount() {
+    if (beneficiariesEncoded != null) return LoadedBatchCodec.getCount(beneficiariesEncoded);
+    if (beneficiaries == null || beneficiaries.isEmpty()) return 0;
+
+    int count = 1;
+    for (int i = beneficiaries.indexOf(SEPARATOR);
+        i >= 0;
+        i = beneficiaries.indexOf(SEPARATOR, i + 1)) count++;
+    return count;
+  }
+
   /**
    * Utility function to combine to batch into a larger batch. Useful for small number of batches.
    *
@@ -139,12 +233,18 @@ public class LoadedBatch {
     LoadedBatch sum = new LoadedBatch();
     sum.loadedBatchId = a.loadedBatchId;
     sum.loadedFileId = a.loadedFileId;
-    sum.beneficiaries =
-        a.beneficiaries.isEmpty()
-            ? b.beneficiaries
-            : b.beneficiaries.isEmpty()
-                ? a.beneficiaries
-                : a.beneficiaries + SEPARATOR + b.beneficiaries;
+    if (a.beneficiariesEncoded == null && b.beneficiariesEncoded == null) {
+      sum.beneficiaries =
+          a.beneficiaries.isEmpty()
+              ? b.beneficiaries
+              : b.beneficiaries.isEmpty()
+                  ? a.beneficiaries
+                  : a.beneficiaries + SEPARATOR + b.beneficiaries;
+    } else {
+      List<String> beneficiaries = new ArrayList<>(a.getBeneficiariesAsList());
+      beneficiaries.addAll(b.getBeneficiariesAsList());
+      sum.setBeneficiaries(beneficiaries);
+    }
     sum.created = (a.created.after(b.created)) ? a.created : b.created;
     return sum;
   }
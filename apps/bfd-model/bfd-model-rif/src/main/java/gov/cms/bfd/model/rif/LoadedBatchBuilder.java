@@ -1,12 +1,15 @@
 package gov.cms.bfd.model.rif;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
 /** Class to build a LoadedBatch. Thread safe. */
 public class LoadedBatchBuilder {
   private final List<String> beneficiaries;
+  private long[] recordNumbers;
+  private int recordNumbersCount;
   private final long loadedFileId;
   private final Date timestamp;
 
@@ -19,6 +22,8 @@ public class LoadedBatchBuilder {
   public LoadedBatchBuilder(long loadedFileId, int capacityIncrement) {
     this.loadedFileId = loadedFileId;
     this.beneficiaries = new ArrayList<>(capacityIncrement);
+    this.recordNumbers = null;
+    this.recordNumbersCount = 0;
     this.timestamp = new Date();
   }
 
@@ -34,6 +39,19 @@ public class LoadedBatchBuilder {
     beneficiaries.add(beneficiaryId);
   }
 
+  /**
+   * Associate a record's {@link RifFilePosition#getRecordNumber()} with this batch, so that it can
+   * be skipped if loading is resumed from a checkpoint before it
+   *
+   * @param recordNumber of a record that's being committed in this batch
+   */
+  public synchronized void associateRecordNumber(long recordNumber) {
+    if (recordNumbers == null) recordNumbers = new long[Math.max(16, beneficiaries.size())];
+    else if (recordNumbersCount == recordNumbers.length)
+      recordNumbers = Arrays.copyOf(recordNumbers, recordNumbersCount * 2);
+    recordNumbers[recordNumbersCount++] = recordNumber;
+  }
+
   /**
    * Create a LoadedBatch from the data in the builder
    *
@@ -44,9 +62,23 @@ public class LoadedBatchBuilder {
     loadedBatch.setLoadedFileId(loadedFileId);
     loadedBatch.setBeneficiaries(beneficiaries);
     loadedBatch.setCreated(timestamp);
+    if (recordNumbersCount > 0) {
+      long[] committed = Arrays.copyOf(recordNumbers, recordNumbersCount);
+      loadedBatch.setRecordNumbers(LoadedBatchCodec.encode(committed));
+      loadedBatch.setMaxRecordNumber(Arrays.stream(committed).max().getAsLong());
+    }
     return loadedBatch;
   }
 
+  /**
+   * Return the beneficiaries associated with the batch so far
+   *
+   * @return a copy of the beneficiaryIds, which may include duplicates
+   */
+  public synchronized List<String> getBeneficiaries() {
+    return new ArrayList<>(beneficiaries);
+  }
+
   /**
    * Return the Batch's timestamp
    *
@@ -0,0 +1,178 @@
+package gov.cms.bfd.model.rif;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.LongConsumer;
+
+/**
+ * Encodes and decodes the compact binary form of a {@link LoadedBatch}'s beneficiaries, as stored
+ * in {@link LoadedBatch#getBeneficiariesEncoded()}.
+ *
+ * <p>The format is a single format version byte, followed by the number of beneficiaries, the first
+ * (i.e. lowest) beneficiary ID, and then the difference between each of the remaining beneficiary
+ * IDs and the one before it. Those are all encoded as variable-length integers, seven bits per byte
+ * with the high bit set on all but the last byte, with the first beneficiary ID being zig-zag
+ * encoded (as it may be negative). The beneficiary IDs are de-duplicated and sorted first, so all
+ * of the differences are positive, and most are small. For a typical batch, that takes a few bytes
+ * per beneficiary, versus the sixteen or so needed when they're stored as comma-separated text.
+ *
+ * <p>Only beneficiary IDs that are the canonical decimal form of a <code>long</code> can be encoded
+ * this way (which is true of all real and synthetic beneficiary IDs): see {@link
+ * #encode(Collection)}.
+ */
+public final class LoadedBatchCodec {
+  /** The only format version currently supported. */
+  static final byte FORMAT_SORTED_DELTAS = 1;
+
+  /** This class only has static methods, and so is not meant to be instantiated. */
+  private LoadedBatchCodec() {}
+
+  /**
+   * @param beneficiaryIds the beneficiary IDs to encode, which may include duplicates
+   * @return the encoded form of the specified beneficiary IDs, or {@link Optional#empty()} if any
+   *     of them aren't the canonical decimal form of a <code>long</code> (in which case the batch
+   *     will have to be stored as text)
+   */
+  public static Optional<byte[]> encode(Collection<String> beneficiaryIds) {
+    long[] ids = new long[beneficiaryIds.size()];
+    int idsCount = 0;
+    for (String beneficiaryId : beneficiaryIds) {
+      Optional<Long> id = parseCanonicalLong(beneficiaryId);
+      if (!id.isPresent()) return Optional.empty();
+      ids[idsCount++] = id.get();
+    }
+    Arrays.sort(ids);
+    return Optional.of(encodeSorted(ids));
+  }
+
+  /**
+   * Encodes the specified numbers, which (unlike beneficiary IDs) are always numeric. This is used
+   * for {@link LoadedBatch#getRecordNumbers()}, and is decoded the same way as the beneficiaries.
+   *
+   * @param values the values to encode, which may include duplicates, and which will be sorted in
+   *     place
+   * @return the encoded form of the specified values
+   */
+  public static byte[] encode(long[] values) {
+    Arrays.sort(values);
+    return encodeSorted(values);
+  }
+
+  /**
+   * @param ids the values to encode, which must already be sorted
+   * @return the encoded form of the specified values
+   */
+  private static byte[] encodeSorted(long[] ids) {
+    int distinctCount = 0;
+    for (int i = 0; i < ids.length; i++) if (i == 0 || ids[i] != ids[i - 1]) distinctCount++;
+
+    ByteArrayOutputStream encoded = new ByteArrayOutputStream(1 + 5 + (3 * distinctCount));
+    encoded.write(FORMAT_SORTED_DELTAS);
+    writeVarLong(encoded, distinctCount);
+    for (int i = 0; i < ids.length; i++) {
+      if (i == 0) writeVarLong(encoded, (ids[0] << 1) ^ (ids[0] >> 63));
+      else if (ids[i] != ids[i - 1]) writeVarLong(encoded, ids[i] - ids[i - 1]);
+    }
+    return encoded.toByteArray();
+  }
+
+  /**
+   * @param encoded the output of {@link #encode(Collection)} to read
+   * @return the number of beneficiaries in the specified encoded batch
+   */
+  public static int getCount(byte[] encoded) {
+    return (int) new Reader(encoded).readVarLong();
+  }
+
+  /**
+   * Passes each of the beneficiary IDs in the specified encoded batch to the specified {@link
+   * LongConsumer}, in ascending order, without allocating anything per beneficiary.
+   *
+   * @param encoded the output of {@link #encode(Collection)} to read
+   * @param consumer the {@link LongConsumer} to pass each beneficiary ID to
+   */
+  public static void decode(byte[] encoded, LongConsumer consumer) {
+    Reader reader = new Reader(encoded);
+    long count = reader.readVarLong();
+    long id = 0;
+    for (long i = 0; i < count; i++) {
+      if (i == 0) {
+        long zigZagged = reader.readVarLong();
+        id = (zigZagged >>> 1) ^ -(zigZagged & 1);
+      } else {
+        id += reader.readVarLong();
+      }
+      consumer.accept(id);
+    }
+  }
+
+  /**
+   * @param encoded the output of {@link #encode(Collection)} to read
+   * @return the beneficiary IDs in the specified encoded batch, in ascending order
+   */
+  public static List<String> decodeToList(byte[] encoded) {
+    List<String> beneficiaryIds = new ArrayList<>(getCount(encoded));
+    decode(encoded, id -> beneficiaryIds.add(Long.toString(id)));
+    return beneficiaryIds;
+  }
+
+  /**
+   * @param text the text to parse
+   * @return the <code>long</code> that the specified text is the canonical decimal form of (e.g.
+   *     <code>"-12"</code>, but not <code>"012"</code> or <code>"+12"</code>), or {@link
+   *     Optional#empty()} if it's not one
+   */
+  private static Optional<Long> parseCanonicalLong(String text) {
+    try {
+      long value = Long.parseLong(text);
+      return Long.toString(value).equals(text) ? Optional.of(value) : Optional.empty();
+    } catch (NumberFormatException e) {
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * @param output the {@link ByteArrayOutputStream} to write to
+   * @param value the value to write, which will be treated as unsigned
+   */
+  private static void writeVarLong(ByteArrayOutputStream output, long value) {
+    while ((value & ~0x7FL) != 0) {
+      output.write((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    output.write((int) value);
+  }
+
+  /** Reads the values from an encoded batch, in order. */
+  private static final class Reader {
+    private final byte[] encoded;
+    private int position;
+
+    /**
+     * Constructs a new {@link Reader}, positioned just after the format version.
+     *
+     * @param encoded the output of {@link #encode(Collection)} to read
+     */
+    Reader(byte[] encoded) {
+      if (encoded.length == 0 || encoded[0] != FORMAT_SORTED_DELTAS)
+        throw new IllegalArgumentException("Unsupported encoding.");
+
+      this.encoded = encoded;
+      this.position = 1;
+    }
+
+    /** @return the next variable-length integer, as an unsigned value */
+    long readVarLong() {
+      long value = 0;
+      for (int shift = 0; ; shift += 7) {
+        byte next = encoded[position++];
+        value |= (long) (next & 0x7F) << shift;
+        if ((next & 0x80) == 0) return value;
+      }
+    }
+  }
+}
@@ -2,6 +2,7 @@ package gov.cms.bfd.model.rif;
 
 import java.util.Date;
 import java.util.HashSet;
+import java.util.Optional;
 import java.util.Set;
 import javax.persistence.*;
 
@@ -24,6 +25,23 @@ public class LoadedFile {
   @Temporal(TemporalType.TIMESTAMP)
   private Date created;
 
+  @Column(name = "`dataSetTimestamp`", nullable = true)
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date dataSetTimestamp;
+
+  @Column(name = "`rifFileName`", nullable = true)
+  private String rifFileName;
+
+  @Column(name = "`checkpointRecordNumber`", nullable = true)
+  private Long checkpointRecordNumber;
+
+  @Column(name = "`checkpointByteOffset`", nullable = true)
+  private Long checkpointByteOffset;
+
+  @Column(name = "`completed`", nullable = true)
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date completed;
+
   @OneToMany(
       mappedBy = "loadedFileId",
       orphanRemoval = false,
@@ -87,6 +105,61 @@ public class LoadedFile {
     this.created = created;
   }
 
+  /**
+   * @return the {@link RifFilesEvent#getTimestamp()} of the data set that this file was loaded
+   *     from, or <code>null</code> for files loaded before that was recorded
+   */
+  public Date getDataSetTimestamp() {
+    return dataSetTimestamp;
+  }
+
+  /** @param dataSetTimestamp the value to set for {@link #getDataSetTimestamp()} */
+  public void setDataSetTimestamp(Date dataSetTimestamp) {
+    this.dataSetTimestamp = dataSetTimestamp;
+  }
+
+  /**
+   * @return the {@link RifFile#getDisplayName()} of the file that was loaded, or <code>null</code>
+   *     for files loaded before that was recorded
+   */
+  public String getRifFileName() {
+    return rifFileName;
+  }
+
+  /** @param rifFileName the value to set for {@link #getRifFileName()} */
+  public void setRifFileName(String rifFileName) {
+    this.rifFileName = rifFileName;
+  }
+
+  /**
+   * @return the position of the first record in this file that may not have been committed yet,
+   *     which is where loading will resume if it's interrupted, or {@link Optional#empty()} if no
+   *     checkpoint has been recorded
+   */
+  public Optional<RifFilePosition> getCheckpoint() {
+    if (checkpointRecordNumber == null || checkpointByteOffset == null) return Optional.empty();
+    return Optional.of(new RifFilePosition(checkpointRecordNumber, checkpointByteOffset));
+  }
+
+  /** @param checkpoint the value to set for {@link #getCheckpoint()} */
+  public void setCheckpoint(RifFilePosition checkpoint) {
+    this.checkpointRecordNumber = checkpoint != null ? checkpoint.getRecordNumber() : null;
+    this.checkpointByteOffset = checkpoint != null ? checkpoint.getByteOffset() : null;
+  }
+
+  /**
+   * @return when all of this file's records were successfully loaded, or <code>null</code> if that
+   *     hasn't happened (yet) or wasn't recorded
+   */
+  public Date getCompleted() {
+    return completed;
+  }
+
+  /** @param completed the value to set for {@link #getCompleted()} */
+  public void setCompleted(Date completed) {
+    this.completed = completed;
+  }
+
   /** @return the batches associated with this file */
   public Set<LoadedBatch> getBatches() {
     return batches;
@@ -0,0 +1,91 @@
+package gov.cms.bfd.model.rif;
+
+import java.util.Date;
+import javax.persistence.*;
+
+/**
+ * JPA class for the LoadedFileBloomFilters table, which holds the serialized {@link
+ * ScalableBloomFilter} of the beneficiaries in each {@link LoadedFile}, as published by the loader
+ * once it has finished loading that file.
+ */
+@Entity
+@Table(name = "`LoadedFileBloomFilters`")
+public class LoadedFileBloomFilter {
+  @Id
+  @Column(name = "`loadedFileId`", nullable = false)
+  private long loadedFileId;
+
+  @Column(name = "`batchCount`", nullable = false)
+  private int batchCount;
+
+  @Column(name = "`lastBatchCreated`", nullable = false)
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date lastBatchCreated;
+
+  @Column(name = "`bloomFilter`", nullable = false)
+  private byte[] bloomFilter;
+
+  /** default constructor */
+  public LoadedFileBloomFilter() {}
+
+  /**
+   * Create with known values
+   *
+   * @param loadedFileId associated file
+   * @param batchCount the number of batches in the filter
+   * @param lastBatchCreated the latest creation date of those batches
+   * @param bloomFilter the {@link ScalableBloomFilter#toByteArray()} form of the filter
+   */
+  public LoadedFileBloomFilter(
+      long loadedFileId, int batchCount, Date lastBatchCreated, byte[] bloomFilter) {
+    this();
+    this.loadedFileId = loadedFileId;
+    this.batchCount = batchCount;
+    this.lastBatchCreated = lastBatchCreated;
+    this.bloomFilter = bloomFilter;
+  }
+
+  /** @return the loadedFileId */
+  public long getLoadedFileId() {
+    return loadedFileId;
+  }
+
+  /** @param loadedFileId the identifier to set */
+  public void setLoadedFileId(long loadedFileId) {
+    this.loadedFileId = loadedFileId;
+  }
+
+  /** @return the number of {@link LoadedBatch}es that were put into the filter */
+  public int getBatchCount() {
+    return batchCount;
+  }
+
+  /** @param batchCount the batch count to set */
+  public void setBatchCount(int batchCount) {
+    this.batchCount = batchCount;
+  }
+
+  /**
+   * @return the latest {@link LoadedBatch#getCreated()} of the batches that were put into the
+   *     filter, which a reader can compare against the file's batches to tell whether the filter is
+   *     complete
+   */
+  public Date getLastBatchCreated() {
+    return lastBatchCreated;
+  }
+
+  /** @param lastBatchCreated time stamp to set */
+  public void setLastBatchCreated(Date lastBatchCreated) {
+    this.lastBatchCreated = lastBatchCreated;
+  }
+
+  /** @return the {@link ScalableBloomFilter#toByteArray()} form of the filter */
+  public byte[] getBloomFilter() {
+    return bloomFilter;
+  }
+
+  /** @param bloomFilter the serialized filter to set */
+  public void setBloomFilter(byte[] bloomFilter) {
+    this.bloomFilter = bloomFilter;
+  }
+}
@@ -0,0 +1,62 @@
+package gov.cms.bfd.model.rif;
+
+import java.util.Collection;
+import java.util.Date;
+
+/**
+ * Class to build a {@link LoadedFileBloomFilter} incrementally, one batch at a time, as a file is
+ * loaded. Thread safe.
+ */
+public class LoadedFileBloomFilterBuilder {
+  /** The number of distinct beneficiaries that the filter's first segment is sized for. */
+  public static final long INITIAL_CAPACITY = 100_000;
+
+  /** The maximum false positive probability of the filters. Matches the server's own filters. */
+  public static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+
+  private final long loadedFileId;
+  private final ScalableBloomFilter filter;
+  private int batchCount;
+  private Date lastBatchCreated;
+
+  /**
+   * Create a builder for a particular file
+   *
+   * @param loadedFileId of the {@link LoadedFile} to build a filter for
+   */
+  public LoadedFileBloomFilterBuilder(long loadedFileId) {
+    this.loadedFileId = loadedFileId;
+    this.filter = new ScalableBloomFilter(INITIAL_CAPACITY, FALSE_POSITIVE_PROBABILITY);
+    this.batchCount = 0;
+    this.lastBatchCreated = null;
+  }
+
+  /**
+   * Put a loaded batch's beneficiaries into the filter
+   *
+   * @param beneficiaries the batch's beneficiary IDs, which may include duplicates
+   * @param created the batch's {@link LoadedBatch#getCreated()} time stamp
+   */
+  public synchronized void addBatch(Collection<String> beneficiaries, Date created) {
+    for (String beneficiary : beneficiaries) filter.putString(beneficiary);
+    batchCount++;
+    if (lastBatchCreated == null || created.after(lastBatchCreated)) lastBatchCreated = created;
+  }
+
+  /** @return the number of batches added so far */
+  public synchronized int getBatchCount() {
+    return batchCount;
+  }
+
+  /**
+   * Create a LoadedFileBloomFilter from the batches added so far
+   *
+   * @return a new {@link LoadedFileBloomFilter}
+   * @throws IllegalStateException if no batches have been added
+   */
+  public synchronized LoadedFileBloomFilter build() {
+    if (batchCount == 0) throw new IllegalStateException("No batches for the filter");
+    return new LoadedFileBloomFilter(
+        loadedFileId, batchCount, lastBatchCreated, filter.toByteArray());
+  }
+}
@@ -2,6 +2,8 @@ package gov.cms.bfd.model.rif;
 
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.Optional;
 
 /** Represents a RIF file that can be read and deleted. */
 public interface RifFile {
@@ -21,4 +23,13 @@ public interface RifFile {
 
   /** @return a new {@link InputStream} to the RIF file's contents */
   InputStream open();
+
+  /**
+   * @return the {@link Path} of a local file with the RIF file's contents, which can be read in
+   *     place (e.g. memory-mapped), or {@link Optional#empty()} if the contents are only available
+   *     via {@link #open()}
+   */
+  default Optional<Path> getLocalPath() {
+    return Optional.empty();
+  }
 }
@@ -0,0 +1,53 @@
+package gov.cms.bfd.model.rif;
+
+/**
+ * The position of a {@link RifRecordEvent} within its {@link RifFile}: its sequential record
+ * number (where each group of claim lines counts as one record), and the byte offset that its first
+ * line starts at. Loading can be resumed from any such position, without having to re-read the
+ * file's earlier records.
+ */
+public final class RifFilePosition {
+  /** The position of a file's first record, which is where loading normally starts. */
+  public static final RifFilePosition START = new RifFilePosition(0L, 0L);
+
+  private final long recordNumber;
+  private final long byteOffset;
+
+  /**
+   * Constructs a new {@link RifFilePosition} instance.
+   *
+   * @param recordNumber the value to use for {@link #getRecordNumber()}
+   * @param byteOffset the value to use for {@link #getByteOffset()}
+   */
+  public RifFilePosition(long recordNumber, long byteOffset) {
+    if (recordNumber < 0) throw new IllegalArgumentException();
+    if (byteOffset < 0) throw new IllegalArgumentException();
+
+    this.recordNumber = recordNumber;
+    this.byteOffset = byteOffset;
+  }
+
+  /** @return the zero-based number of the record within its file */
+  public long getRecordNumber() {
+    return recordNumber;
+  }
+
+  /**
+   * @return the offset, in bytes from the start of the file, of the record's first line, or <code>0
+   *     </code> for {@link #START} (which is before the file's header)
+   */
+  public long getByteOffset() {
+    return byteOffset;
+  }
+
+  /** @return <code>true</code> if this is the {@link #START} of the file */
+  public boolean isStart() {
+    return recordNumber == 0L && byteOffset == 0L;
+  }
+
+  /** @see java.lang.Object#toString() */
+  @Override
+  public String toString() {
+    return "RifFilePosition [recordNumber=" + recordNumber + ", byteOffset=" + byteOffset + "]";
+  }
+}
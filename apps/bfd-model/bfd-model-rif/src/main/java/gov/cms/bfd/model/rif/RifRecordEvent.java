@@ -1,5 +1,7 @@
 package gov.cms.bfd.model.rif;
 
+import java.util.Optional;
+
 /**
  * Models a single beneficiary/claim/drug event that was contained in a {@link RifFile}. Please note
  * that all lines/revenue centers for a single claim will be grouped together into a single {@link
@@ -12,6 +14,7 @@ public final class RifRecordEvent<R extends RifRecordBase> {
   private final RecordAction recordAction;
   private final String beneficiaryId;
   private final R record;
+  private final RifFilePosition position;
 
   /**
    * Constructs a new {@link RifRecordEvent} instance.
@@ -31,6 +34,23 @@ public final class RifRecordEvent<R extends RifRecordBase> {
     this.recordAction = recordAction;
     this.beneficiaryId = beneficiaryId;
     this.record = record;
+    this.position = null;
+  }
+
+  /**
+   * Constructs a new {@link RifRecordEvent} instance, for {@link #withPosition(RifFilePosition)}.
+   *
+   * @param source the {@link RifRecordEvent} to copy
+   * @param position the value to use for {@link #getPosition()}
+   */
+  private RifRecordEvent(RifRecordEvent<R> source, RifFilePosition position) {
+    if (position == null) throw new IllegalArgumentException();
+
+    this.fileEvent = source.fileEvent;
+    this.recordAction = source.recordAction;
+    this.beneficiaryId = source.beneficiaryId;
+    this.record = source.record;
+    this.position = position;
   }
 
   /** @return the {@link RifFileEvent} that this is a child of */
@@ -53,6 +73,22 @@ public final class RifRecordEvent<R extends RifRecordBase> {
     return record;
   }
 
+  /**
+   * @return the {@link RifFilePosition} of this record within its {@link RifFile}, or {@link
+   *     Optional#empty()} if it wasn't tracked when the file was read
+   */
+  public Optional<RifFilePosition> getPosition() {
+    return Optional.ofNullable(position);
+  }
+
+  /**
+   * @param position the value to use for {@link #getPosition()}
+   * @return a copy of this {@link RifRecordEvent}, with the specified {@link RifFilePosition}
+   */
+  public RifRecordEvent<R> withPosition(RifFilePosition position) {
+    return new RifRecordEvent<>(this, position);
+  }
+
   /** @see java.lang.Object#toString() */
   @Override
   public String toString() {
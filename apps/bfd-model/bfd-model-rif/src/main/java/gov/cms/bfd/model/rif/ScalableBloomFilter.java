@@ -0,0 +1,158 @@
+package gov.cms.bfd.model.rif;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.spark.util.sketch.BloomFilter;
+
+/**
+ * A Bloom filter that can grow to hold any number of entries, without knowing that number up
+ * front, while keeping its overall false positive probability under a fixed bound. The loader uses
+ * these to build the filter for each file as it goes, as it doesn't know how many beneficiaries a
+ * file has until it's done.
+ *
+ * <p>It's made up of one or more segments, each a standard {@link BloomFilter}. Once the newest
+ * segment is full, a new one is added that is {@link #GROWTH_FACTOR} times larger, with a false
+ * positive probability that is {@link #TIGHTENING_RATIO} times smaller. The segments' false
+ * positive probabilities form a geometric series, which sums to less than the requested
+ * probability. See "Scalable Bloom Filters" (Almeida et al., 2007) for the details.
+ *
+ * <p>Puts are thread safe. Lookups are meant for filters that are no longer being added to, as the
+ * server's are.
+ */
+public final class ScalableBloomFilter {
+  /** The only serialized format version currently supported. */
+  static final int FORMAT_SEGMENTS = 1;
+
+  /** Each new segment's capacity, relative to the one before it. */
+  static final int GROWTH_FACTOR = 2;
+
+  /** Each new segment's false positive probability, relative to the one before it. */
+  static final double TIGHTENING_RATIO = 0.8;
+
+  private final boolean readOnly;
+  private final List<BloomFilter> segments;
+  private long segmentCapacity;
+  private double segmentFalsePositiveProbability;
+  private long segmentCount;
+
+  /**
+   * Constructs a new, empty {@link ScalableBloomFilter}.
+   *
+   * @param initialCapacity the number of entries that the first segment should be sized for
+   * @param falsePositiveProbability the maximum overall false positive probability to allow
+   */
+  public ScalableBloomFilter(long initialCapacity, double falsePositiveProbability) {
+    if (initialCapacity <= 0) throw new IllegalArgumentException();
+    if (falsePositiveProbability <= 0.0 || falsePositiveProbability >= 1.0)
+      throw new IllegalArgumentException();
+
+    this.readOnly = false;
+    this.segments = new ArrayList<>();
+    this.segmentCapacity = initialCapacity;
+    this.segmentFalsePositiveProbability = falsePositiveProbability * (1.0 - TIGHTENING_RATIO);
+    this.segments.add(BloomFilter.create(segmentCapacity, segmentFalsePositiveProbability));
+    this.segmentCount = 0;
+  }
+
+  /**
+   * Constructs a {@link ScalableBloomFilter} from previously-built segments, as read back in by
+   * {@link #readFrom(byte[])}. Nothing may be put into these.
+   *
+   * @param segments the segments to use
+   */
+  private ScalableBloomFilter(List<BloomFilter> segments) {
+    this.readOnly = true;
+    this.segments = segments;
+    this.segmentCapacity = 0;
+    this.segmentFalsePositiveProbability = 0.0;
+    this.segmentCount = 0;
+  }
+
+  /**
+   * Puts the specified value into this filter, unless it (probably) already contains it. Values
+   * that are already present don't use up any capacity, which matters for claim files, where most
+   * beneficiaries appear many times.
+   *
+   * @param value the value to put
+   * @return <code>true</code> if the value was added, or <code>false</code> if it might already
+   *     have been present
+   */
+  public synchronized boolean putString(String value) {
+    if (readOnly) throw new IllegalStateException("Filter is read-only.");
+    if (mightContainString(value)) return false;
+
+    if (segmentCount >= segmentCapacity) {
+      segmentCapacity *= GROWTH_FACTOR;
+      segmentFalsePositiveProbability *= TIGHTENING_RATIO;
+      segments.add(BloomFilter.create(segmentCapacity, segmentFalsePositiveProbability));
+      segmentCount = 0;
+    }
+
+    segments.get(segments.size() - 1).putString(value);
+    segmentCount++;
+    return true;
+  }
+
+  /**
+   * @param value the value to check for
+   * @return <code>true</code> if the value might have been put into this filter, or <code>false
+   *     </code> if it definitely hasn't been
+   */
+  public synchronized boolean mightContainString(String value) {
+    for (BloomFilter segment : segments) if (segment.mightContainString(value)) return true;
+    return false;
+  }
+
+  /** @return the {@link BloomFilter} segments that make up this filter, oldest first */
+  public synchronized List<BloomFilter> getSegments() {
+    return Collections.unmodifiableList(new ArrayList<>(segments));
+  }
+
+  /**
+   * @return this filter, serialized as a format version and the number of segments, followed by
+   *     each segment's {@link BloomFilter#writeTo(java.io.OutputStream)} form
+   */
+  public synchronized byte[] toByteArray() {
+    long bitSize = 0;
+    for (BloomFilter segment : segments) bitSize += segment.bitSize();
+
+    ByteArrayOutputStream bytes =
+        new ByteArrayOutputStream((int) Math.min(Integer.MAX_VALUE - 8, 64 + (bitSize / 8)));
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(FORMAT_SEGMENTS);
+      out.writeInt(segments.size());
+      for (BloomFilter segment : segments) segment.writeTo(out);
+    } catch (IOException e) {
+      // Can't happen, as the bytes are only written to memory.
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * @param serialized the {@link #toByteArray()} form of a {@link ScalableBloomFilter}
+   * @return a read-only copy of the {@link ScalableBloomFilter} that was serialized
+   */
+  public static ScalableBloomFilter readFrom(byte[] serialized) {
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(serialized))) {
+      int format = in.readInt();
+      if (format != FORMAT_SEGMENTS)
+        throw new IllegalArgumentException(
+            String.format("Unsupported %s format: %d", ScalableBloomFilter.class, format));
+
+      int segmentsCount = in.readInt();
+      List<BloomFilter> segments = new ArrayList<>(segmentsCount);
+      for (int i = 0; i < segmentsCount; i++) segments.add(BloomFilter.readFrom(in));
+      return new ScalableBloomFilter(segments);
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Unable to read serialized filter.", e);
+    }
+  }
+}
@@ -9,6 +9,9 @@ import java.nio.charset.Charset;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.Month;
+import java.time.Year;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeFormatterBuilder;
@@ -30,6 +33,28 @@ public final class RifParsingUtils {
           .appendPattern("dd-MMM-yyyy HH:mm:ss")
           .toFormatter();
 
+  private static final DateTimeFormatter RIF_DATE_FORMATTER =
+      new DateTimeFormatterBuilder()
+          .parseCaseInsensitive()
+          .appendPattern("dd-MMM-yyyy")
+          .toFormatter();
+
+  private static final DateTimeFormatter RIF_DATE_FORMATTER_NUMERIC =
+      new DateTimeFormatterBuilder().parseCaseInsensitive().appendPattern("yyyyMMdd").toFormatter();
+
+  /** The (upper case) month abbreviations used in RIF dates, e.g. "<code>01-MAR-2019</code>". */
+  private static final String[] MONTH_ABBREVIATIONS =
+      new String[] {
+        "JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG", "SEP", "OCT", "NOV", "DEC"
+      };
+
+  /**
+   * The maximum number of digits that {@link #parseDecimal(String)} will handle without falling
+   * back to {@link BigDecimal#BigDecimal(String)}, such that the unscaled value always fits in a
+   * <code>long</code>.
+   */
+  private static final int MAX_FAST_DECIMAL_DIGITS = 18;
+
   /**
    * @param file the {@link RifFile} to parse
    * @return a {@link CSVParser} for the specified {@link RifFile}
@@ -131,15 +156,62 @@ public final class RifParsingUtils {
      * to read, and ensures that this parsing is standardized.
      */
     if (decimalText.isEmpty()) {
-      return new BigDecimal(0);
-    } else {
-      try {
-        return new BigDecimal(decimalText);
-      } catch (NumberFormatException e) {
-        throw new InvalidRifValueException(
-            String.format("Unable to parse decimal value: '%s'.", decimalText), e);
+      return BigDecimal.ZERO;
+    }
+
+    /*
+     * Nearly all RIF decimals are short, plain fixed-point values (e.g.
+     * "-123.45"), which can be parsed straight into an unscaled long, without
+     * the garbage that the BigDecimal(String) constructor creates. Anything
+     * else (exponents, very long values, etc.) takes the slow path.
+     */
+    BigDecimal fastValue = parseFixedPointDecimal(decimalText);
+    if (fastValue != null) {
+      return fastValue;
+    }
+
+    try {
+      return new BigDecimal(decimalText);
+    } catch (NumberFormatException e) {
+      throw new InvalidRifValueException(
+          String.format("Unable to parse decimal value: '%s'.", decimalText), e);
+    }
+  }
+
+  /**
+   * @param decimalText the decimal string to parse, which must not be empty
+   * @return the specified text parsed into a {@link BigDecimal} with the same value and scale as
+   *     {@link BigDecimal#BigDecimal(String)} would produce, or <code>null</code> if the text is
+   *     not a plain fixed-point value of at most {@link #MAX_FAST_DECIMAL_DIGITS} digits
+   */
+  private static BigDecimal parseFixedPointDecimal(String decimalText) {
+    int length = decimalText.length();
+    int index = 0;
+    boolean negative = false;
+    if (decimalText.charAt(0) == '-') {
+      negative = true;
+      index++;
+    }
+
+    long unscaledValue = 0;
+    int digitCount = 0;
+    int scale = 0;
+    boolean pastPoint = false;
+    for (; index < length; index++) {
+      char c = decimalText.charAt(index);
+      if (c >= '0' && c <= '9') {
+        if (++digitCount > MAX_FAST_DECIMAL_DIGITS) return null;
+        unscaledValue = unscaledValue * 10 + (c - '0');
+        if (pastPoint) scale++;
+      } else if (c == '.' && !pastPoint) {
+        pastPoint = true;
+      } else {
+        return null;
       }
     }
+    if (digitCount == 0) return null;
+
+    return BigDecimal.valueOf(negative ? -unscaledValue : unscaledValue, scale);
   }
 
   /**
@@ -165,26 +237,24 @@ public final class RifParsingUtils {
      * to read, and ensures that this parsing is standardized.
      */
 
-    DateTimeFormatter rifDateFormatter;
     /*
      * Incoming dates usually are in the format of dd-MMM-yyyy (01-MAR-2019). There
      * are a couple instances where a date may come in the format of yyyyMMdd
-     * (20190301). Thus the reason for the following code.
+     * (20190301). Both are parsed directly from the text when they're
+     * well-formed and valid, and anything else falls back to the (cached)
+     * formatters, so that unusual values are handled exactly as they always
+     * have been.
      */
-    if (dateText.matches("\\d{8}")) {
-      rifDateFormatter =
-          new DateTimeFormatterBuilder()
-              .parseCaseInsensitive()
-              .appendPattern("yyyyMMdd")
-              .toFormatter();
-    } else {
-      rifDateFormatter =
-          new DateTimeFormatterBuilder()
-              .parseCaseInsensitive()
-              .appendPattern("dd-MMM-yyyy")
-              .toFormatter();
+    LocalDate fastValue =
+        dateText.length() == 8 || dateText.length() == 11
+            ? parseDateFast(dateText, dateText.length())
+            : null;
+    if (fastValue != null) {
+      return fastValue;
     }
 
+    DateTimeFormatter rifDateFormatter =
+        isNumericDate(dateText) ? RIF_DATE_FORMATTER_NUMERIC : RIF_DATE_FORMATTER;
     try {
       LocalDate dateFrom = LocalDate.parse(dateText, rifDateFormatter);
       return dateFrom;
@@ -194,6 +264,86 @@ public final class RifParsingUtils {
     }
   }
 
+  /**
+   * @param dateText the date string to check
+   * @return <code>true</code> if the specified text is exactly eight digits (i.e. a <code>yyyyMMdd
+   *     </code> date), <code>false</code> if not
+   */
+  private static boolean isNumericDate(String dateText) {
+    if (dateText.length() != 8) return false;
+    for (int i = 0; i < 8; i++) if (digit(dateText, i) < 0) return false;
+    return true;
+  }
+
+  /**
+   * @param text the text to parse a date from, which must start with the date
+   * @param length the length of the date, which must be either <code>8</code> for a <code>yyyyMMdd
+   *     </code> date or <code>11</code> for a <code>dd-MMM-yyyy</code> date
+   * @return the {@link LocalDate} parsed from the specified text, or <code>null</code> if it's not
+   *     a well-formed and valid date (in which case the formatters should be used instead)
+   */
+  private static LocalDate parseDateFast(String text, int length) {
+    int year;
+    int month;
+    int day;
+    if (length == 8) {
+      year = digits(text, 0, 4);
+      month = digits(text, 4, 2);
+      day = digits(text, 6, 2);
+    } else if (length == 11 && text.charAt(2) == '-' && text.charAt(6) == '-') {
+      day = digits(text, 0, 2);
+      month = parseMonthAbbreviation(text, 3);
+      year = digits(text, 7, 4);
+    } else {
+      return null;
+    }
+
+    // Leave anything unusual to the formatters, which handle it as they always have.
+    if (year < 1 || month < 1 || month > 12 || day < 1) return null;
+    if (day > 28 && day > Month.of(month).length(Year.isLeap(year))) return null;
+    return LocalDate.of(year, month, day);
+  }
+
+  /**
+   * @param text the text to parse from
+   * @param offset the offset of the three-letter month abbreviation in the text
+   * @return the (1-based) month number for the abbreviation, matched case-insensitively, or <code>
+   *     -1</code> if it isn't one
+   */
+  private static int parseMonthAbbreviation(String text, int offset) {
+    for (int month = 0; month < MONTH_ABBREVIATIONS.length; month++) {
+      if (text.regionMatches(true, offset, MONTH_ABBREVIATIONS[month], 0, 3)) return month + 1;
+    }
+    return -1;
+  }
+
+  /**
+   * @param text the text to parse from
+   * @param offset the offset of the first digit in the text
+   * @param count the number of digits to parse
+   * @return the non-negative value of the specified digits, or <code>-1</code> if any of those
+   *     characters aren't ASCII digits
+   */
+  private static int digits(String text, int offset, int count) {
+    int value = 0;
+    for (int i = offset; i < offset + count; i++) {
+      int digit = digit(text, i);
+      if (digit < 0) return -1;
+      value = value * 10 + digit;
+    }
+    return value;
+  }
+
+  /**
+   * @param text the text to parse from
+   * @param index the index of the character to parse
+   * @return the value of the specified character, or <code>-1</code> if it isn't an ASCII digit
+   */
+  private static int digit(String text, int index) {
+    char c = text.charAt(index);
+    return c >= '0' && c <= '9' ? c - '0' : -1;
+  }
+
   /**
    * @param timestampText the timestamp string to parse
    * @return the specified text as a {@link Instant}, parsed using {@link #RIF_TIMESTAMP_FORMATTER}
@@ -204,6 +354,29 @@ public final class RifParsingUtils {
      * read, and ensures that this parsing is standardized.
      */
 
+    /*
+     * As with dates, well-formed and valid timestamps (dd-MMM-yyyy HH:mm:ss)
+     * are parsed directly, and everything else is left to the formatter.
+     */
+    if (timestampText.length() == 20
+        && timestampText.charAt(11) == ' '
+        && timestampText.charAt(14) == ':'
+        && timestampText.charAt(17) == ':') {
+      LocalDate date = parseDateFast(timestampText, 11);
+      int hour = digits(timestampText, 12, 2);
+      int minute = digits(timestampText, 15, 2);
+      int second = digits(timestampText, 18, 2);
+      if (date != null
+          && hour >= 0
+          && hour < 24
+          && minute >= 0
+          && minute < 60
+          && second >= 0
+          && second < 60) {
+        return LocalDateTime.of(date, LocalTime.of(hour, minute, second)).toInstant(ZoneOffset.UTC);
+      }
+    }
+
     try {
       LocalDateTime localDateTime = LocalDateTime.parse(timestampText, RIF_TIMESTAMP_FORMATTER);
       Instant instantFormatted = localDateTime.toInstant(ZoneOffset.UTC);
@@ -0,0 +1,11 @@
+/*
+ * Adds a column for storing each batch's beneficiaries in a compact binary form: sorted,
+ * delta-encoded variable-length integers (see LoadedBatchCodec). The loader writes new batches
+ * there, with an empty "beneficiaries" value, unless a batch has IDs that can't be encoded, in
+ * which case it's written to the old text column only. While server builds that only read the
+ * text column are still deployed, the loader can be configured (LOADED_BATCHES_TEXT_ENABLED) to
+ * also fill in "beneficiaries" for encoded batches. Existing batches are left as-is, and are still
+ * read from the text column.
+ */
+
+alter table "LoadedBatches" add column "beneficiariesEncoded" ${type.bytea};
@@ -0,0 +1,21 @@
+/*
+ * Adds a table for the Bloom filter of each loaded file's beneficiaries, which the pipeline builds
+ * as it loads the file and publishes here once it's done. Servers download these ready-made
+ * filters, rather than building them from every one of the file's LoadedBatches rows.
+ *
+ * The lastBatchCreated column is the latest LoadedBatches.created that went into the filter, so
+ * readers can tell if more batches have been added to the file since.
+ */
+create table "LoadedFileBloomFilters" (
+  "loadedFileId" bigint primary key,
+  "batchCount" ${type.int4} not null,
+  "lastBatchCreated" timestamp with time zone not null,
+  "bloomFilter" ${type.bytea} not null
+)
+${logic.tablespaces-escape} tablespace "loadedfiles_ts"
+;
+
+alter table "LoadedFileBloomFilters"
+  add constraint "loadedFileBloomFilters_loadedFileId"
+    foreign key ("loadedFileId")
+    references "LoadedFiles";
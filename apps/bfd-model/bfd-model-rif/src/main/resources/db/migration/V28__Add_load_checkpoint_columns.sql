@@ -0,0 +1,27 @@
+/*
+ * Adds the columns that let the pipeline resume loading a file after a crash, rather than starting
+ * it over again:
+ *
+ * * LoadedFiles gets the data set and file name that it was loaded from (so that a restarted load
+ *   can find its earlier attempt), a checkpoint (the position of the first record that may not have
+ *   been committed yet), and the time at which it was completely loaded.
+ * * LoadedBatches gets the record numbers that each batch committed (in the same compact form as
+ *   "beneficiariesEncoded"), so that the records after the checkpoint that were committed anyway
+ *   aren't inserted a second time.
+ *
+ * All of these are null for files loaded before this. Only the data set and file name are set for
+ * files loaded with checkpoints disabled. LoadedFiles is small, so its new index is created here,
+ * rather than concurrently in a separate migration.
+ */
+
+alter table "LoadedFiles" add column "dataSetTimestamp" timestamp with time zone;
+alter table "LoadedFiles" add column "rifFileName" varchar(1024);
+alter table "LoadedFiles" add column "checkpointRecordNumber" bigint;
+alter table "LoadedFiles" add column "checkpointByteOffset" bigint;
+alter table "LoadedFiles" add column "completed" timestamp with time zone;
+
+alter table "LoadedBatches" add column "recordNumbers" ${type.bytea};
+alter table "LoadedBatches" add column "maxRecordNumber" bigint;
+
+create index "LoadedFiles_dataSetTimestamp_rifFileName_index"
+  on "LoadedFiles" ("dataSetTimestamp", "rifFileName");
@@ -0,0 +1,21 @@
+/*
+ * Adds a table for the progress of the pipeline's background maintenance jobs (e.g. the mbiHash
+ * backfill), which split each table into primary key ranges and walk each range in key order.
+ * Each row is one range of one job: its bounds ("lowKey" is inclusive, "highKey" is exclusive, and
+ * null means unbounded), the last key that's been processed in it, and when it was finished. Keys
+ * are stored as text, whatever the type of the table's primary key.
+ *
+ * The pipeline updates a range's row in the same transaction as each batch of its work, so jobs
+ * resume exactly where they left off, across both idle time slices and restarts.
+ */
+create table "MaintenanceJobRanges" (
+  "jobName" varchar(100) not null,
+  "rangeNumber" ${type.int4} not null,
+  "lowKey" varchar(64),
+  "highKey" varchar(64),
+  "cursorKey" varchar(64),
+  "completed" timestamp with time zone,
+  constraint "MaintenanceJobRanges_pkey" primary key ("jobName", "rangeNumber")
+)
+${logic.tablespaces-escape} tablespace "loadedfiles_ts"
+;
@@ -0,0 +1,111 @@
+package gov.cms.bfd.model.rif;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Unit tests for {@link LoadedBatchCodec}. */
+public final class LoadedBatchCodecTest {
+  /**
+   * Verifies that {@link LoadedBatchCodec#encode(java.util.Collection)} output round-trips back to
+   * the same (de-duplicated and sorted) beneficiary IDs, including negative (synthetic) ones and
+   * the extreme values.
+   */
+  @Test
+  public void roundTrip() {
+    List<String> beneficiaryIds =
+        Arrays.asList(
+            "567834",
+            "-19990000000001",
+            "1",
+            "567834",
+            "0",
+            "-1",
+            "9223372036854775807",
+            "-9223372036854775808",
+            "100000");
+    byte[] encoded = LoadedBatchCodec.encode(beneficiaryIds).get();
+
+    Assert.assertEquals(8, LoadedBatchCodec.getCount(encoded));
+    Assert.assertEquals(
+        Arrays.asList(
+            "-9223372036854775808",
+            "-19990000000001",
+            "-1",
+            "0",
+            "1",
+            "100000",
+            "567834",
+            "9223372036854775807"),
+        LoadedBatchCodec.decodeToList(encoded));
+  }
+
+  /** Verifies that sequential beneficiary IDs are encoded compactly. */
+  @Test
+  public void sequentialIdsAreCompact() {
+    List<String> beneficiaryIds = new ArrayList<>();
+    for (long id = 10_000_000L; id < 10_001_000L; id++) beneficiaryIds.add(Long.toString(id));
+    Collections.shuffle(beneficiaryIds);
+
+    byte[] encoded = LoadedBatchCodec.encode(beneficiaryIds).get();
+    Assert.assertTrue(encoded.length < 1_100);
+    Assert.assertEquals(
+        beneficiaryIds.stream().sorted().toArray(),
+        LoadedBatchCodec.decodeToList(encoded).stream().sorted().toArray());
+  }
+
+  /** Verifies that empty batches can be encoded. */
+  @Test
+  public void empty() {
+    byte[] encoded = LoadedBatchCodec.encode(Collections.emptyList()).get();
+    Assert.assertEquals(0, LoadedBatchCodec.getCount(encoded));
+    Assert.assertEquals(Collections.emptyList(), LoadedBatchCodec.decodeToList(encoded));
+  }
+
+  /**
+   * Verifies that {@link LoadedBatchCodec#encode(java.util.Collection)} refuses beneficiary IDs
+   * that wouldn't round-trip, and that {@link LoadedBatch} falls back to text for those.
+   */
+  @Test
+  public void nonCanonicalIdsAreNotEncoded() {
+    for (String beneficiaryId : new String[] {"abc", "012", "+12", "", "99999999999999999999"})
+      Assert.assertEquals(
+          beneficiaryId,
+          Optional.empty(),
+          LoadedBatchCodec.encode(Arrays.asList("1", beneficiaryId)));
+
+    LoadedBatch batch = new LoadedBatch(1, 1, Arrays.asList("2", "abc"), new java.util.Date());
+    Assert.assertNull(batch.getBeneficiariesEncoded());
+    Assert.assertEquals("2,abc", batch.getBeneficiaries());
+    Assert.assertEquals(2, batch.getBeneficiaryCount());
+
+    LoadedBatch encodedBatch = new LoadedBatch(2, 1, Arrays.asList("3", "1"), new java.util.Date());
+    Assert.assertNotNull(encodedBatch.getBeneficiariesEncoded());
+    Assert.assertEquals("", encodedBatch.getBeneficiaries());
+    Assert.assertEquals(2, encodedBatch.getBeneficiaryCount());
+    Assert.assertEquals(
+        Arrays.asList("1", "3", "2", "abc"),
+        LoadedBatch.combine(encodedBatch, batch).getBeneficiariesAsList());
+  }
+
+  /**
+   * Verifies that {@link LoadedBatch#setBeneficiariesEncoded(byte[])} and {@link
+   * LoadedBatch#setBeneficiaries(String)} only set their own column, and that the encoded one is
+   * preferred when a batch has both.
+   */
+  @Test
+  public void encodedBeneficiariesArePreferred() {
+    LoadedBatch batch = new LoadedBatch(1, 1, "", new java.util.Date());
+    batch.setBeneficiariesEncoded(LoadedBatchCodec.encode(Arrays.asList("3", "1")).get());
+    Assert.assertEquals("", batch.getBeneficiaries());
+
+    batch.setBeneficiaries("3,1,3");
+    Assert.assertNotNull(batch.getBeneficiariesEncoded());
+    Assert.assertEquals(Arrays.asList("1", "3"), batch.getBeneficiariesAsList());
+    Assert.assertEquals(2, batch.getBeneficiaryCount());
+  }
+}
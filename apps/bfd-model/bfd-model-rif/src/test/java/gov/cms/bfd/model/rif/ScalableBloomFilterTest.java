@@ -0,0 +1,49 @@
+package gov.cms.bfd.model.rif;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Unit tests for {@link ScalableBloomFilter}. */
+public final class ScalableBloomFilterTest {
+  /**
+   * Verifies that a {@link ScalableBloomFilter} grows new segments as it fills up, never loses
+   * anything that was put into it, and keeps its false positive rate under the requested bound.
+   */
+  @Test
+  public void growsWithoutLosingEntries() {
+    ScalableBloomFilter filter = new ScalableBloomFilter(100, 0.01);
+    for (int i = 0; i < 5_000; i++) Assert.assertTrue(filter.putString(String.valueOf(i)));
+
+    // Entries that are already (probably) present don't use up any capacity.
+    Assert.assertFalse(filter.putString("42"));
+
+    Assert.assertTrue(filter.getSegments().size() > 1);
+    for (int i = 0; i < 5_000; i++) Assert.assertTrue(filter.mightContainString(String.valueOf(i)));
+
+    int falsePositives = 0;
+    for (int i = 5_000; i < 105_000; i++)
+      if (filter.mightContainString(String.valueOf(i))) falsePositives++;
+    Assert.assertTrue("False positives: " + falsePositives, falsePositives < 1_000);
+  }
+
+  /**
+   * Verifies that {@link ScalableBloomFilter#toByteArray()} output round-trips through {@link
+   * ScalableBloomFilter#readFrom(byte[])}, and that the result is read-only.
+   */
+  @Test
+  public void roundTrip() {
+    ScalableBloomFilter filter = new ScalableBloomFilter(10, 0.01);
+    for (int i = 0; i < 100; i++) filter.putString("bene" + i);
+
+    ScalableBloomFilter copy = ScalableBloomFilter.readFrom(filter.toByteArray());
+    Assert.assertEquals(filter.getSegments(), copy.getSegments());
+    for (int i = 0; i < 100; i++) Assert.assertTrue(copy.mightContainString("bene" + i));
+
+    try {
+      copy.putString("another");
+      Assert.fail();
+    } catch (IllegalStateException e) {
+      // Expected.
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package gov.cms.bfd.model.rif.parse;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Unit tests for {@link RifParsingUtils}. */
+public final class RifParsingUtilsTest {
+  /** Verifies that {@link RifParsingUtils#parseDecimal(String)} matches {@link BigDecimal}. */
+  @Test
+  public void parseDecimal() {
+    String[] decimalTexts =
+        new String[] {
+          "0",
+          "-0",
+          "0.00",
+          "-0.00",
+          "1",
+          "12345.67",
+          "-12345.67",
+          ".5",
+          "-.5",
+          "5.",
+          "007.10",
+          "123456789012345678",
+          "1234567890123456789",
+          "99999999999999999999.99",
+          "1E3",
+          "+5"
+        };
+    for (String decimalText : decimalTexts) {
+      BigDecimal expected = new BigDecimal(decimalText);
+      BigDecimal actual = RifParsingUtils.parseDecimal(decimalText);
+      Assert.assertEquals(decimalText, expected, actual);
+      Assert.assertEquals(decimalText, expected.scale(), actual.scale());
+    }
+
+    Assert.assertEquals(BigDecimal.ZERO, RifParsingUtils.parseDecimal(""));
+  }
+
+  /**
+   * Verifies that {@link RifParsingUtils#parseDecimal(String)} rejects malformed values with an
+   * {@link InvalidRifValueException}.
+   */
+  @Test
+  public void parseDecimalRejectsMalformed() {
+    for (String decimalText : new String[] {"-", ".", "1.2.3", "12a", " 1"}) {
+      try {
+        RifParsingUtils.parseDecimal(decimalText);
+        Assert.fail("Expected failure for: " + decimalText);
+      } catch (InvalidRifValueException e) {
+        // Expected.
+      }
+    }
+  }
+
+  /** Verifies that {@link RifParsingUtils#parseDate(String)} handles both RIF date formats. */
+  @Test
+  public void parseDate() {
+    Assert.assertEquals(LocalDate.of(2019, 3, 1), RifParsingUtils.parseDate("01-MAR-2019"));
+    Assert.assertEquals(LocalDate.of(2019, 3, 1), RifParsingUtils.parseDate("01-mar-2019"));
+    Assert.assertEquals(LocalDate.of(2019, 3, 1), RifParsingUtils.parseDate("20190301"));
+    Assert.assertEquals(LocalDate.of(2020, 2, 29), RifParsingUtils.parseDate("29-FEB-2020"));
+    Assert.assertEquals(LocalDate.of(1999, 12, 31), RifParsingUtils.parseDate("19991231"));
+
+    // These aren't valid dates, but have always been resolved by the formatters.
+    Assert.assertEquals(LocalDate.of(2019, 2, 28), RifParsingUtils.parseDate("30-FEB-2019"));
+    Assert.assertEquals(LocalDate.of(2019, 2, 28), RifParsingUtils.parseDate("20190230"));
+  }
+
+  /**
+   * Verifies that {@link RifParsingUtils#parseDate(String)} rejects malformed values with an {@link
+   * InvalidRifValueException}.
+   */
+  @Test
+  public void parseDateRejectsMalformed() {
+    String[] dateTexts =
+        new String[] {"", "01-XYZ-2019", "2019-03-01", "20191301", "32-MAR-2019", "01-MAR-2019X"};
+    for (String dateText : dateTexts) {
+      try {
+        RifParsingUtils.parseDate(dateText);
+        Assert.fail("Expected failure for: " + dateText);
+      } catch (InvalidRifValueException e) {
+        // Expected.
+      }
+    }
+  }
+
+  /** Verifies that {@link RifParsingUtils#parseTimestamp(String)} works as expected. */
+  @Test
+  public void parseTimestamp() {
+    Assert.assertEquals(
+        Instant.parse("2019-03-01T13:05:09Z"),
+        RifParsingUtils.parseTimestamp("01-MAR-2019 13:05:09"));
+    Assert.assertEquals(
+        Instant.parse("2019-03-01T00:00:00Z"),
+        RifParsingUtils.parseTimestamp("01-mar-2019 00:00:00"));
+
+    try {
+      RifParsingUtils.parseTimestamp("01-MAR-2019 25:05:09");
+      Assert.fail();
+    } catch (InvalidRifValueException e) {
+      // Expected.
+    }
+  }
+}
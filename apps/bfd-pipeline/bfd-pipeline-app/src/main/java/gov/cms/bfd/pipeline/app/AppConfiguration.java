@@ -6,8 +6,16 @@ import gov.cms.bfd.model.rif.RifFileType;
 import gov.cms.bfd.pipeline.rif.extract.ExtractionOptions;
 import gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest;
 import gov.cms.bfd.pipeline.rif.load.LoadAppOptions;
+import gov.cms.bfd.pipeline.rif.load.LoadAppOptions.LoadMode;
+import gov.cms.bfd.pipeline.rif.load.LoadAppOptions.RunMode;
 import gov.cms.bfd.pipeline.rif.load.RifLoaderIdleTasks;
 import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Optional;
 import org.apache.commons.codec.DecoderException;
 import org.apache.commons.codec.binary.Hex;
@@ -26,10 +34,18 @@ public final class AppConfiguration implements Serializable {
 
   /**
    * The name of the environment variable that should be used to provide the {@link
-   * ExtractionOptions#getS3BucketName()} value.
+   * ExtractionOptions#getS3BucketName()} value, which is required unless {@link
+   * #ENV_VAR_KEY_LOCAL_DATA_SETS_DIR} is set.
    */
   public static final String ENV_VAR_KEY_BUCKET = "S3_BUCKET_NAME";
 
+  /**
+   * The name of the environment variable that should be used to provide the {@link
+   * ExtractionOptions#getLocalDataSetsDirectory()} value, which is optional: when it's set, data
+   * sets will be pulled from (and read in place in) that directory, rather than from S3.
+   */
+  public static final String ENV_VAR_KEY_LOCAL_DATA_SETS_DIR = "LOCAL_DATA_SETS_DIR";
+
   /**
    * The name of the environment variable that should be used to provide the {@link
    * ExtractionOptions#getDataSetFilter()} value: This environment variable specifies the {@link
@@ -55,19 +71,22 @@ public final class AppConfiguration implements Serializable {
 
   /**
    * The name of the environment variable that should be used to provide the {@link
-   * #getLoadOptions()} {@link LoadAppOptions#getDatabaseUrl()} value.
+   * #getLoadOptions()} {@link LoadAppOptions#getDatabaseUrl()} value, which is only required if the
+   * {@link #ENV_VAR_KEY_RUN_MODE} uses the database.
    */
   public static final String ENV_VAR_KEY_DATABASE_URL = "DATABASE_URL";
 
   /**
    * The name of the environment variable that should be used to provide the {@link
-   * #getLoadOptions()} {@link LoadAppOptions#getDatabaseUsername()} value.
+   * #getLoadOptions()} {@link LoadAppOptions#getDatabaseUsername()} value, which is only required
+   * if the {@link #ENV_VAR_KEY_RUN_MODE} uses the database.
    */
   public static final String ENV_VAR_KEY_DATABASE_USERNAME = "DATABASE_USERNAME";
 
   /**
    * The name of the environment variable that should be used to provide the {@link
-   * #getLoadOptions()} {@link LoadAppOptions#getDatabasePassword()} value.
+   * #getLoadOptions()} {@link LoadAppOptions#getDatabasePassword()} value, which is only required
+   * if the {@link #ENV_VAR_KEY_RUN_MODE} uses the database.
    */
   public static final String ENV_VAR_KEY_DATABASE_PASSWORD = "DATABASE_PASSWORD";
 
@@ -95,18 +114,187 @@ public final class AppConfiguration implements Serializable {
    */
   public static final String ENV_VAR_KEY_FIXUP_THREADS = "FIXUP_THREADS";
 
+  /**
+   * The name of the environment variable that should be used to provide the {@link
+   * #getLoadOptions()} {@link LoadAppOptions#getLoadMode()} value, which is optional and defaults
+   * to {@link LoadMode#JPA}.
+   */
+  public static final String ENV_VAR_KEY_LOAD_MODE = "LOAD_MODE";
+
+  /**
+   * The name of the environment variable that should be used to provide the {@link
+   * #getLoadOptions()} {@link LoadAppOptions#getRecordBatchSize()} value, which is optional and
+   * defaults to {@link LoadAppOptions#DEFAULT_RECORD_BATCH_SIZE}.
+   */
+  public static final String ENV_VAR_KEY_RECORD_BATCH_SIZE = "RECORD_BATCH_SIZE";
+
+  /**
+   * The name of the environment variable that should be used to provide the {@link
+   * #getLoadOptions()} {@link LoadAppOptions#getJdbcBatchSize()} value, which is optional and
+   * defaults to {@link LoadAppOptions#DEFAULT_JDBC_BATCH_SIZE}.
+   */
+  public static final String ENV_VAR_KEY_JDBC_BATCH_SIZE = "JDBC_BATCH_SIZE";
+
+  /**
+   * The name of the environment variable that should be used to provide the {@link
+   * #getLoaderThreadWeights()} value, which is optional and formatted as a comma-separated list of
+   * <code>RIF_FILE_TYPE:weight</code> pairs, e.g. <code>CARRIER:4,PDE:2</code>.
+   */
+  public static final String ENV_VAR_KEY_LOADER_THREAD_WEIGHTS = "LOADER_THREAD_WEIGHTS";
+
+  /**
+   * The name of the environment variable that should be used to provide the {@link
+   * #getExtractionOptions()} {@link ExtractionOptions#getParserThreads()} value, which is optional
+   * and defaults to <code>0</code> (sequential parsing).
+   */
+  public static final String ENV_VAR_KEY_PARSER_THREADS = "PARSER_THREADS";
+
+  /**
+   * The name of the environment variable that should be used to provide the {@link
+   * #getExtractionOptions()} {@link ExtractionOptions#isStreamingDownloadsEnabled()} value, which
+   * is optional and defaults to <code>false</code>.
+   */
+  public static final String ENV_VAR_KEY_STREAMING_DOWNLOADS_ENABLED =
+      "STREAMING_DOWNLOADS_ENABLED";
+
+  /**
+   * The name of the environment variable that should be used to provide the {@link
+   * #getExtractionOptions()} {@link ExtractionOptions#getDownloadThreads()} value, which is
+   * optional and defaults to {@link ExtractionOptions#DEFAULT_DOWNLOAD_THREADS}.
+   */
+  public static final String ENV_VAR_KEY_DOWNLOAD_THREADS = "DOWNLOAD_THREADS";
+
+  /**
+   * The name of the environment variable that should be used to provide the {@link
+   * #getExtractionOptions()} {@link ExtractionOptions#getDownloadRangeThreads()} value, which is
+   * optional and defaults to <code>0</code> (downloads via the S3 <code>TransferManager</code>).
+   */
+  public static final String ENV_VAR_KEY_DOWNLOAD_RANGE_THREADS = "DOWNLOAD_RANGE_THREADS";
+
+  /**
+   * The name of the environment variable that should be used to provide the {@link
+   * #getExtractionOptions()} {@link ExtractionOptions#getPrefetchDataSets()} value, which is
+   * optional and defaults to {@link ExtractionOptions#DEFAULT_PREFETCH_DATA_SETS}.
+   */
+  public static final String ENV_VAR_KEY_PREFETCH_DATA_SETS = "PREFETCH_DATA_SETS";
+
+  /**
+   * The name of the environment variable that should be used to provide the {@link
+   * #getExtractionOptions()} {@link ExtractionOptions#getPrefetchDiskBudget()} value, in GB (i.e.
+   * 10^9 bytes), which is optional and defaults to {@link
+   * ExtractionOptions#DEFAULT_PREFETCH_DISK_BUDGET}.
+   */
+  public static final String ENV_VAR_KEY_PREFETCH_DISK_BUDGET_GB = "PREFETCH_DISK_BUDGET_GB";
+
+  /**
+   * The name of the environment variable that should be used to provide the {@link
+   * #getLoadOptions()} {@link LoadAppOptions#getAdaptiveLoaderThreadsMin()} value, which is
+   * optional and defaults to <code>0</code> (always use {@link #ENV_VAR_KEY_LOADER_THREADS}).
+   */
+  public static final String ENV_VAR_KEY_ADAPTIVE_LOADER_THREADS_MIN =
+      "ADAPTIVE_LOADER_THREADS_MIN";
+
+  /**
+   * The name of the environment variable that should be used to provide the {@link
+   * #getLoadOptions()} {@link LoadAppOptions#isBeneficiaryShardingEnabled()} value, which is
+   * optional and defaults to <code>false</code>.
+   */
+  public static final String ENV_VAR_KEY_BENEFICIARY_SHARDING_ENABLED =
+      "BENEFICIARY_SHARDING_ENABLED";
+
+  /**
+   * The name of the environment variable that should be used to provide the {@link
+   * #getLoadOptions()} {@link LoadAppOptions#isLoadCheckpointsEnabled()} value, which is optional
+   * and defaults to <code>false</code>.
+   */
+  public static final String ENV_VAR_KEY_LOAD_CHECKPOINTS_ENABLED = "LOAD_CHECKPOINTS_ENABLED";
+
+  /**
+   * The name of the environment variable that should be used to provide the {@link
+   * #getLoadOptions()} {@link LoadAppOptions#isLoadedBatchesTextEnabled()} value, which is optional
+   * and defaults to <code>false</code>. This is a temporary setting, for rolling out the encoded
+   * <code>LoadedBatches</code> beneficiaries while older server builds are still deployed.
+   */
+  public static final String ENV_VAR_KEY_LOADED_BATCHES_TEXT_ENABLED =
+      "LOADED_BATCHES_TEXT_ENABLED";
+
+  /**
+   * The name of the environment variable that should be used to provide the {@link
+   * #getLoadOptions()} {@link LoadAppOptions#getBatchTransactionTargetMillis()} value, which is
+   * optional and defaults to <code>0</code> (fixed-size record batches).
+   */
+  public static final String ENV_VAR_KEY_BATCH_TRANSACTION_TARGET_MILLIS =
+      "BATCH_TRANSACTION_TARGET_MILLIS";
+
+  /**
+   * The name of the environment variable that should be used to provide the {@link
+   * #getLoadOptions()} {@link LoadAppOptions#getMaxInFlightBytes()} value, in MB (i.e. 10^6 bytes),
+   * which is optional and defaults to <code>0</code> (no limit).
+   */
+  public static final String ENV_VAR_KEY_MAX_IN_FLIGHT_MB = "MAX_IN_FLIGHT_MB";
+
+  /**
+   * The name of the environment variable that should be used to provide the {@link
+   * #getLoadOptions()} {@link LoadAppOptions#getRunMode()} value, which is optional and defaults to
+   * {@link RunMode#LOAD}.
+   */
+  public static final String ENV_VAR_KEY_RUN_MODE = "RUN_MODE";
+
+  /**
+   * The name of the environment variable that should be used to provide the {@link
+   * #getMetricsExportPort()} value, which is optional and defaults to <code>0</code> (no export).
+   */
+  public static final String ENV_VAR_KEY_METRICS_EXPORT_PORT = "METRICS_EXPORT_PORT";
+
   private final ExtractionOptions extractionOptions;
   private final LoadAppOptions loadOptions;
+  private final EnumMap<RifFileType, Integer> loaderThreadWeights;
+  private final int metricsExportPort;
 
   /**
    * Constructs a new {@link AppConfiguration} instance.
    *
    * @param extractionOptions the value to use for {@link #getExtractionOptions()}
    * @param loadOptions the value to use for {@link #getLoadOptions()}
+   * @param loaderThreadWeights the value to use for {@link #getLoaderThreadWeights()}
+   * @param metricsExportPort the value to use for {@link #getMetricsExportPort()}
    */
-  public AppConfiguration(ExtractionOptions extractionOptions, LoadAppOptions loadOptions) {
+  public AppConfiguration(
+      ExtractionOptions extractionOptions,
+      LoadAppOptions loadOptions,
+      Map<RifFileType, Integer> loaderThreadWeights,
+      int metricsExportPort) {
+    if (metricsExportPort < 0 || metricsExportPort > 65535) throw new IllegalArgumentException();
+
     this.extractionOptions = extractionOptions;
     this.loadOptions = loadOptions;
+    this.loaderThreadWeights = new EnumMap<>(RifFileType.class);
+    this.loaderThreadWeights.putAll(loaderThreadWeights);
+    this.metricsExportPort = metricsExportPort;
+  }
+
+  /**
+   * Constructs a new {@link AppConfiguration} instance, with no {@link #getMetricsExportPort()}.
+   *
+   * @param extractionOptions the value to use for {@link #getExtractionOptions()}
+   * @param loadOptions the value to use for {@link #getLoadOptions()}
+   * @param loaderThreadWeights the value to use for {@link #getLoaderThreadWeights()}
+   */
+  public AppConfiguration(
+      ExtractionOptions extractionOptions,
+      LoadAppOptions loadOptions,
+      Map<RifFileType, Integer> loaderThreadWeights) {
+    this(extractionOptions, loadOptions, loaderThreadWeights, 0);
+  }
+
+  /**
+   * Constructs a new {@link AppConfiguration} instance, with no {@link #getLoaderThreadWeights()}.
+   *
+   * @param extractionOptions the value to use for {@link #getExtractionOptions()}
+   * @param loadOptions the value to use for {@link #getLoadOptions()}
+   */
+  public AppConfiguration(ExtractionOptions extractionOptions, LoadAppOptions loadOptions) {
+    this(extractionOptions, loadOptions, Collections.emptyMap());
   }
 
   /** @return the {@link ExtractionOptions} that the application will use */
@@ -119,6 +307,24 @@ public final class AppConfiguration implements Serializable {
     return loadOptions;
   }
 
+  /**
+   * @return the relative weights of each {@link RifFileType}'s share of the {@link
+   *     LoadAppOptions#getLoaderThreads()} budget, when files of different types are being loaded
+   *     concurrently, where any {@link RifFileType}s not included should be given a weight of
+   *     <code>1</code>
+   */
+  public Map<RifFileType, Integer> getLoaderThreadWeights() {
+    return Collections.unmodifiableMap(loaderThreadWeights);
+  }
+
+  /**
+   * @return the (loopback-only) port to serve the application's metrics on, in the Prometheus text
+   *     format, or <code>0</code> if they shouldn't be served at all
+   */
+  public int getMetricsExportPort() {
+    return metricsExportPort;
+  }
+
   /** @see java.lang.Object#toString() */
   @Override
   public String toString() {
@@ -127,6 +333,10 @@ public final class AppConfiguration implements Serializable {
     builder.append(extractionOptions);
     builder.append(", loadOptions=");
     builder.append(loadOptions);
+    builder.append(", loaderThreadWeights=");
+    builder.append(loaderThreadWeights);
+    builder.append(", metricsExportPort=");
+    builder.append(metricsExportPort);
     builder.append("]");
     return builder.toString();
   }
@@ -137,8 +347,9 @@ public final class AppConfiguration implements Serializable {
    * them.
    *
    * <p>As a convenience, this method will also verify that AWS credentials were provided, such that
-   * {@link DefaultAWSCredentialsProviderChain} can load them. If not, an {@link
-   * AppConfigurationException} will be thrown.
+   * {@link DefaultAWSCredentialsProviderChain} can load them (unless {@link
+   * #ENV_VAR_KEY_LOCAL_DATA_SETS_DIR} is set). If not, an {@link AppConfigurationException} will be
+   * thrown.
    *
    * @return the {@link AppConfiguration} instance represented by the configuration provided to this
    *     application via the environment variables
@@ -146,8 +357,19 @@ public final class AppConfiguration implements Serializable {
    *     configuration passed to the application are incomplete or incorrect.
    */
   static AppConfiguration readConfigFromEnvironmentVariables() {
+    String localDataSetsDirText = System.getenv(ENV_VAR_KEY_LOCAL_DATA_SETS_DIR);
+    Path localDataSetsDir = null;
+    if (localDataSetsDirText != null && !localDataSetsDirText.isEmpty()) {
+      localDataSetsDir = Paths.get(localDataSetsDirText);
+      if (!Files.isDirectory(localDataSetsDir))
+        throw new AppConfigurationException(
+            String.format(
+                "Invalid value for configuration environment variable '%s': '%s'",
+                ENV_VAR_KEY_LOCAL_DATA_SETS_DIR, localDataSetsDirText));
+    }
+
     String s3BucketName = System.getenv(ENV_VAR_KEY_BUCKET);
-    if (s3BucketName == null || s3BucketName.isEmpty())
+    if (localDataSetsDir == null && (s3BucketName == null || s3BucketName.isEmpty()))
       throw new AppConfigurationException(
           String.format(
               "Missing value for configuration environment variable '%s'.", ENV_VAR_KEY_BUCKET));
@@ -204,22 +426,37 @@ public final class AppConfiguration implements Serializable {
               "Invalid value for configuration environment variable '%s': '%s'",
               ENV_VAR_KEY_HICN_HASH_PEPPER, hicnHashPepperText));
 
+    String runModeText = System.getenv(ENV_VAR_KEY_RUN_MODE);
+    RunMode runMode = RunMode.LOAD;
+    if (runModeText != null && !runModeText.isEmpty()) {
+      try {
+        runMode = RunMode.valueOf(runModeText);
+      } catch (IllegalArgumentException e) {
+        throw new AppConfigurationException(
+            String.format(
+                "Invalid value for configuration environment variable '%s': '%s'",
+                ENV_VAR_KEY_RUN_MODE, runModeText),
+            e);
+      }
+    }
+
+    // The database settings are only needed if something's going to be loaded into it.
     String databaseUrl = System.getenv(ENV_VAR_KEY_DATABASE_URL);
-    if (databaseUrl == null || databaseUrl.isEmpty())
+    if (runMode.isDatabaseRequired() && (databaseUrl == null || databaseUrl.isEmpty()))
       throw new AppConfigurationException(
           String.format(
               "Missing value for configuration environment variable '%s'.",
               ENV_VAR_KEY_DATABASE_URL));
 
     String databaseUsername = System.getenv(ENV_VAR_KEY_DATABASE_USERNAME);
-    if (databaseUsername == null)
+    if (runMode.isDatabaseRequired() && databaseUsername == null)
       throw new AppConfigurationException(
           String.format(
               "Missing value for configuration environment variable '%s'.",
               ENV_VAR_KEY_DATABASE_USERNAME));
 
     String databasePassword = System.getenv(ENV_VAR_KEY_DATABASE_PASSWORD);
-    if (databasePassword == null)
+    if (runMode.isDatabaseRequired() && databasePassword == null)
       throw new AppConfigurationException(
           String.format(
               "Missing value for configuration environment variable '%s'.",
@@ -243,6 +480,17 @@ public final class AppConfiguration implements Serializable {
               "Invalid value for configuration environment variable '%s': '%s'",
               ENV_VAR_KEY_LOADER_THREADS, loaderThreadsText));
 
+    int adaptiveLoaderThreadsMin =
+        parseOptionalPositiveInt(ENV_VAR_KEY_ADAPTIVE_LOADER_THREADS_MIN, 0);
+    if (adaptiveLoaderThreadsMin > loaderThreads)
+      throw new AppConfigurationException(
+          String.format(
+              "Invalid value for configuration environment variable '%s': '%s' (must not exceed"
+                  + " '%s')",
+              ENV_VAR_KEY_ADAPTIVE_LOADER_THREADS_MIN,
+              adaptiveLoaderThreadsMin,
+              ENV_VAR_KEY_LOADER_THREADS));
+
     String idempotencyRequiredText = System.getenv(ENV_VAR_KEY_IDEMPOTENCY_REQUIRED);
     if (idempotencyRequiredText == null || idempotencyRequiredText.isEmpty())
       throw new AppConfigurationException(
@@ -268,38 +516,240 @@ public final class AppConfiguration implements Serializable {
       fixupThreads = Integer.parseInt(fixupThreadsText);
     }
 
+    String loadModeText = System.getenv(ENV_VAR_KEY_LOAD_MODE);
+    LoadMode loadMode = LoadMode.JPA;
+    if (loadModeText != null && !loadModeText.isEmpty()) {
+      try {
+        loadMode = LoadMode.valueOf(loadModeText);
+      } catch (IllegalArgumentException e) {
+        throw new AppConfigurationException(
+            String.format(
+                "Invalid value for configuration environment variable '%s': '%s'",
+                ENV_VAR_KEY_LOAD_MODE, loadModeText),
+            e);
+      }
+    }
+
+    int recordBatchSize =
+        parseOptionalPositiveInt(
+            ENV_VAR_KEY_RECORD_BATCH_SIZE, LoadAppOptions.DEFAULT_RECORD_BATCH_SIZE);
+    int jdbcBatchSize =
+        parseOptionalPositiveInt(
+            ENV_VAR_KEY_JDBC_BATCH_SIZE, LoadAppOptions.DEFAULT_JDBC_BATCH_SIZE);
+
+    String beneficiaryShardingEnabledText = System.getenv(ENV_VAR_KEY_BENEFICIARY_SHARDING_ENABLED);
+    boolean beneficiaryShardingEnabled = false;
+    if (beneficiaryShardingEnabledText != null && !beneficiaryShardingEnabledText.isEmpty()) {
+      Optional<Boolean> parsedBeneficiaryShardingEnabled =
+          parseBoolean(beneficiaryShardingEnabledText);
+      if (!parsedBeneficiaryShardingEnabled.isPresent())
+        throw new AppConfigurationException(
+            String.format(
+                "Invalid value for configuration environment variable '%s': '%s'",
+                ENV_VAR_KEY_BENEFICIARY_SHARDING_ENABLED, beneficiaryShardingEnabledText));
+      beneficiaryShardingEnabled = parsedBeneficiaryShardingEnabled.get();
+    }
+
+    String loadCheckpointsEnabledText = System.getenv(ENV_VAR_KEY_LOAD_CHECKPOINTS_ENABLED);
+    boolean loadCheckpointsEnabled = false;
+    if (loadCheckpointsEnabledText != null && !loadCheckpointsEnabledText.isEmpty()) {
+      Optional<Boolean> parsedLoadCheckpointsEnabled = parseBoolean(loadCheckpointsEnabledText);
+      if (!parsedLoadCheckpointsEnabled.isPresent())
+        throw new AppConfigurationException(
+            String.format(
+                "Invalid value for configuration environment variable '%s': '%s'",
+                ENV_VAR_KEY_LOAD_CHECKPOINTS_ENABLED, loadCheckpointsEnabledText));
+      loadCheckpointsEnabled = parsedLoadCheckpointsEnabled.get();
+    }
+
+    String loadedBatchesTextEnabledText = System.getenv(ENV_VAR_KEY_LOADED_BATCHES_TEXT_ENABLED);
+    boolean loadedBatchesTextEnabled = false;
+    if (loadedBatchesTextEnabledText != null && !loadedBatchesTextEnabledText.isEmpty()) {
+      Optional<Boolean> parsedLoadedBatchesTextEnabled = parseBoolean(loadedBatchesTextEnabledText);
+      if (!parsedLoadedBatchesTextEnabled.isPresent())
+        throw new AppConfigurationException(
+            String.format(
+                "Invalid value for configuration environment variable '%s': '%s'",
+                ENV_VAR_KEY_LOADED_BATCHES_TEXT_ENABLED, loadedBatchesTextEnabledText));
+      loadedBatchesTextEnabled = parsedLoadedBatchesTextEnabled.get();
+    }
+
+    int batchTransactionTargetMillis =
+        parseOptionalInt(ENV_VAR_KEY_BATCH_TRANSACTION_TARGET_MILLIS, 0, 0);
+    long mega = 1000L * 1000;
+    long maxInFlightBytes = parseOptionalInt(ENV_VAR_KEY_MAX_IN_FLIGHT_MB, 0, 0) * mega;
+
+    int parserThreads = parseOptionalPositiveInt(ENV_VAR_KEY_PARSER_THREADS, 0);
+
+    String streamingDownloadsEnabledText = System.getenv(ENV_VAR_KEY_STREAMING_DOWNLOADS_ENABLED);
+    boolean streamingDownloadsEnabled = false;
+    if (streamingDownloadsEnabledText != null && !streamingDownloadsEnabledText.isEmpty()) {
+      Optional<Boolean> parsedStreamingDownloadsEnabled =
+          parseBoolean(streamingDownloadsEnabledText);
+      if (!parsedStreamingDownloadsEnabled.isPresent())
+        throw new AppConfigurationException(
+            String.format(
+                "Invalid value for configuration environment variable '%s': '%s'",
+                ENV_VAR_KEY_STREAMING_DOWNLOADS_ENABLED, streamingDownloadsEnabledText));
+      streamingDownloadsEnabled = parsedStreamingDownloadsEnabled.get();
+    }
+    int downloadThreads =
+        parseOptionalPositiveInt(
+            ENV_VAR_KEY_DOWNLOAD_THREADS, ExtractionOptions.DEFAULT_DOWNLOAD_THREADS);
+    int downloadRangeThreads = parseOptionalPositiveInt(ENV_VAR_KEY_DOWNLOAD_RANGE_THREADS, 0);
+    int prefetchDataSets =
+        parseOptionalInt(
+            ENV_VAR_KEY_PREFETCH_DATA_SETS, ExtractionOptions.DEFAULT_PREFETCH_DATA_SETS, 0);
+    long giga = 1000L * 1000 * 1000;
+    long prefetchDiskBudget =
+        parseOptionalInt(
+                ENV_VAR_KEY_PREFETCH_DISK_BUDGET_GB,
+                (int) (ExtractionOptions.DEFAULT_PREFETCH_DISK_BUDGET / giga),
+                0)
+            * giga;
+
+    String loaderThreadWeightsText = System.getenv(ENV_VAR_KEY_LOADER_THREAD_WEIGHTS);
+    Map<RifFileType, Integer> loaderThreadWeights =
+        parseLoaderThreadWeights(loaderThreadWeightsText);
+
+    int metricsExportPort = parseOptionalInt(ENV_VAR_KEY_METRICS_EXPORT_PORT, 0, 0);
+    if (metricsExportPort > 65535)
+      throw new AppConfigurationException(
+          String.format(
+              "Invalid value for configuration environment variable '%s': '%s'",
+              ENV_VAR_KEY_METRICS_EXPORT_PORT, metricsExportPort));
+
     /*
      * Just for convenience: make sure DefaultAWSCredentialsProviderChain
-     * has whatever it needs.
+     * has whatever it needs (unless S3 won't be used at all).
      */
+    if (localDataSetsDir == null) {
+      try {
+        DefaultAWSCredentialsProviderChain awsCredentialsProvider =
+            new DefaultAWSCredentialsProviderChain();
+        awsCredentialsProvider.getCredentials();
+      } catch (AmazonClientException e) {
+        /*
+         * The credentials provider should throw this if it can't find what
+         * it needs.
+         */
+        throw new AppConfigurationException(
+            String.format(
+                "Missing configuration for AWS credentials (for %s).",
+                DefaultAWSCredentialsProviderChain.class.getName()),
+            e);
+      }
+    }
+
+    return new AppConfiguration(
+        new ExtractionOptions(
+            s3BucketName,
+            allowedRifFileType,
+            null,
+            parserThreads,
+            streamingDownloadsEnabled,
+            downloadThreads,
+            downloadRangeThreads,
+            prefetchDataSets,
+            prefetchDiskBudget,
+            localDataSetsDir),
+        new LoadAppOptions.Builder()
+            .hicnHash(hicnHashIterations, hicnHashPepper)
+            .databaseUrl(
+                databaseUrl,
+                databaseUsername,
+                databasePassword != null ? databasePassword.toCharArray() : null)
+            .loaderThreads(loaderThreads)
+            .idempotencyRequired(idempotencyRequired.get().booleanValue())
+            .fixupsEnabled(fixupsEnabled)
+            .fixupThreads(fixupThreads)
+            .loadMode(loadMode)
+            .recordBatchSize(recordBatchSize)
+            .jdbcBatchSize(jdbcBatchSize)
+            .adaptiveLoaderThreadsMin(adaptiveLoaderThreadsMin)
+            .beneficiaryShardingEnabled(beneficiaryShardingEnabled)
+            .loadCheckpointsEnabled(loadCheckpointsEnabled)
+            .loadedBatchesTextEnabled(loadedBatchesTextEnabled)
+            .batchTransactionTargetMillis(batchTransactionTargetMillis)
+            .maxInFlightBytes(maxInFlightBytes)
+            .runMode(runMode)
+            .build(),
+        loaderThreadWeights,
+        metricsExportPort);
+  }
+
+  /**
+   * @param loaderThreadWeightsText the {@link #ENV_VAR_KEY_LOADER_THREAD_WEIGHTS} value to parse,
+   *     which may be <code>null</code> or empty
+   * @return the parsed {@link #getLoaderThreadWeights()} value
+   * @throws AppConfigurationException An {@link AppConfigurationException} will be thrown if the
+   *     value is malformed, names an unknown {@link RifFileType}, or has a non-positive weight.
+   */
+  static Map<RifFileType, Integer> parseLoaderThreadWeights(String loaderThreadWeightsText) {
+    Map<RifFileType, Integer> loaderThreadWeights = new EnumMap<>(RifFileType.class);
+    if (loaderThreadWeightsText == null || loaderThreadWeightsText.trim().isEmpty())
+      return loaderThreadWeights;
+
+    for (String pairText : loaderThreadWeightsText.split(",")) {
+      String[] pair = pairText.trim().split(":");
+      try {
+        if (pair.length != 2) throw new IllegalArgumentException();
+        RifFileType rifFileType = RifFileType.valueOf(pair[0].trim());
+        int weight = Integer.parseInt(pair[1].trim());
+        if (weight < 1) throw new IllegalArgumentException();
+        loaderThreadWeights.put(rifFileType, weight);
+      } catch (IllegalArgumentException e) {
+        throw new AppConfigurationException(
+            String.format(
+                "Invalid value for configuration environment variable '%s': '%s'",
+                ENV_VAR_KEY_LOADER_THREAD_WEIGHTS, loaderThreadWeightsText),
+            e);
+      }
+    }
+
+    return loaderThreadWeights;
+  }
+
+  /**
+   * @param environmentVariableName the name of the optional environment variable to parse
+   * @param defaultValue the value to return if the environment variable isn't set
+   * @return the positive <code>int</code> value of the specified environment variable, or the
+   *     specified default value if it isn't set
+   * @throws AppConfigurationException An {@link AppConfigurationException} will be thrown if the
+   *     environment variable is set to something other than a positive integer.
+   */
+  private static int parseOptionalPositiveInt(String environmentVariableName, int defaultValue) {
+    return parseOptionalInt(environmentVariableName, defaultValue, 1);
+  }
+
+  /**
+   * @param environmentVariableName the name of the optional environment variable to parse
+   * @param defaultValue the value to return if the environment variable isn't set
+   * @param minValue the minimum allowed value
+   * @return the <code>int</code> value of the specified environment variable, or the specified
+   *     default value if it isn't set
+   * @throws AppConfigurationException An {@link AppConfigurationException} will be thrown if the
+   *     environment variable is set to something other than an integer that is at least the
+   *     specified minimum.
+   */
+  private static int parseOptionalInt(
+      String environmentVariableName, int defaultValue, int minValue) {
+    String valueText = System.getenv(environmentVariableName);
+    if (valueText == null || valueText.isEmpty()) return defaultValue;
+
+    int value;
     try {
-      DefaultAWSCredentialsProviderChain awsCredentialsProvider =
-          new DefaultAWSCredentialsProviderChain();
-      awsCredentialsProvider.getCredentials();
-    } catch (AmazonClientException e) {
-      /*
-       * The credentials provider should throw this if it can't find what
-       * it needs.
-       */
+      value = Integer.parseInt(valueText);
+    } catch (NumberFormatException e) {
+      value = minValue - 1;
+    }
+    if (value < minValue)
       throw new AppConfigurationException(
           String.format(
-              "Missing configuration for AWS credentials (for %s).",
-              DefaultAWSCredentialsProviderChain.class.getName()),
-          e);
-    }
+              "Invalid value for configuration environment variable '%s': '%s'",
+              environmentVariableName, valueText));
 
-    return new AppConfiguration(
-        new ExtractionOptions(s3BucketName, allowedRifFileType),
-        new LoadAppOptions(
-            hicnHashIterations,
-            hicnHashPepper,
-            databaseUrl,
-            databaseUsername,
-            databasePassword.toCharArray(),
-            loaderThreads,
-            idempotencyRequired.get().booleanValue(),
-            fixupsEnabled,
-            fixupThreads));
+    return value;
   }
 
   /**
@@ -0,0 +1,303 @@
+package gov.cms.bfd.pipeline.app;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Slf4jReporter;
+import com.codahale.metrics.Timer;
+import gov.cms.bfd.model.rif.RifFileEvent;
+import gov.cms.bfd.model.rif.RifFileRecords;
+import gov.cms.bfd.model.rif.RifFileType;
+import gov.cms.bfd.model.rif.RifFilesEvent;
+import gov.cms.bfd.pipeline.rif.extract.RifFilesProcessor;
+import gov.cms.bfd.pipeline.rif.load.RifLoader;
+import gov.cms.bfd.pipeline.rif.load.RifRecordLoadResult;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs each of the {@link RifFileEvent}s in a {@link RifFilesEvent} through the {@link
+ * RifFilesProcessor} and {@link RifLoader}, respecting the dependencies between them:
+ *
+ * <ol>
+ *   <li>All {@link RifFileType#BENEFICIARY} files are loaded first, one after another, using the
+ *       full loader thread budget, as every other record type references the beneficiaries.
+ *   <li>All other files are then loaded concurrently, one chain per {@link RifFileType}. Files of
+ *       the same {@link RifFileType} are still loaded one after another, in their original order,
+ *       as they may contain updates to the same records.
+ * </ol>
+ *
+ * <p>The concurrent chains share the loader thread budget, in proportion to their configured {@link
+ * RifFileType} weights. Each file's share is computed when it starts loading, from the chains that
+ * are still running at that time, so that later files pick up the threads freed by chains that have
+ * already finished.
+ */
+final class DataSetLoadScheduler {
+  private static final Logger LOGGER = LoggerFactory.getLogger(DataSetLoadScheduler.class);
+
+  /** The weight used for any {@link RifFileType} that wasn't assigned one. */
+  static final int DEFAULT_WEIGHT = 1;
+
+  private final MetricRegistry appMetrics;
+  private final RifFilesProcessor rifProcessor;
+  private final RifLoader rifLoader;
+  private final int loaderThreadBudget;
+  private final Map<RifFileType, Integer> loaderThreadWeights;
+  private final boolean loadCheckpointsEnabled;
+
+  /**
+   * The weights of the {@link RifFileType} chains that are currently running, which must only be
+   * accessed while synchronized on it.
+   */
+  private final Map<RifFileType, Integer> activeWeights;
+
+  /**
+   * Constructs a new {@link DataSetLoadScheduler}.
+   *
+   * @param appMetrics the {@link MetricRegistry} for the overall application
+   * @param rifProcessor the {@link RifFilesProcessor} to parse each file with
+   * @param rifLoader the {@link RifLoader} to load each file with
+   * @param loaderThreadBudget the total number of loader threads to split between concurrently
+   *     loading files
+   * @param loaderThreadWeights the relative weight of each {@link RifFileType}'s share of the
+   *     loader thread budget, where any missing {@link RifFileType}s will default to {@link
+   *     #DEFAULT_WEIGHT}
+   * @param loadCheckpointsEnabled <code>true</code> to load each file with {@link
+   *     RifLoader#processResumable(RifFileEvent, java.util.function.Function, int, Consumer,
+   *     Consumer)}, so that it can pick up where it left off after a crash (see {@link
+   *     gov.cms.bfd.pipeline.rif.load.LoadAppOptions#isLoadCheckpointsEnabled()})
+   */
+  DataSetLoadScheduler(
+      MetricRegistry appMetrics,
+      RifFilesProcessor rifProcessor,
+      RifLoader rifLoader,
+      int loaderThreadBudget,
+      Map<RifFileType, Integer> loaderThreadWeights,
+      boolean loadCheckpointsEnabled) {
+    if (loaderThreadBudget < 1) throw new IllegalArgumentException();
+
+    this.appMetrics = appMetrics;
+    this.rifProcessor = rifProcessor;
+    this.rifLoader = rifLoader;
+    this.loaderThreadBudget = loaderThreadBudget;
+    this.loaderThreadWeights = loaderThreadWeights;
+    this.loadCheckpointsEnabled = loadCheckpointsEnabled;
+    this.activeWeights = new EnumMap<>(RifFileType.class);
+  }
+
+  /**
+   * Loads all of the files in the specified {@link RifFilesEvent}, returning once they've all
+   * completed.
+   *
+   * @param rifFilesEvent the {@link RifFilesEvent} to load
+   * @param errorHandler the {@link Consumer} to pass each error that occurs to
+   * @param resultHandler the {@link Consumer} to pass each {@link RifRecordLoadResult} to
+   */
+  void process(
+      RifFilesEvent rifFilesEvent,
+      Consumer<Throwable> errorHandler,
+      Consumer<RifRecordLoadResult> resultHandler) {
+    Map<RifFileType, List<RifFileEvent>> fileEventsByType =
+        groupByFileType(rifFilesEvent.getFileEvents());
+
+    // First, load the beneficiaries, which everything else depends on.
+    List<RifFileEvent> beneficiaryFileEvents = fileEventsByType.remove(RifFileType.BENEFICIARY);
+    if (beneficiaryFileEvents != null) {
+      for (RifFileEvent rifFileEvent : beneficiaryFileEvents)
+        processFile(rifFileEvent, loaderThreadBudget, errorHandler, resultHandler);
+    }
+    if (fileEventsByType.isEmpty()) return;
+
+    // Then, load everything else concurrently: one chain per RifFileType.
+    LOGGER.info(
+        "Loading '{}' file types concurrently: '{}'.",
+        fileEventsByType.size(),
+        fileEventsByType.keySet());
+    synchronized (activeWeights) {
+      for (RifFileType rifFileType : fileEventsByType.keySet())
+        activeWeights.put(rifFileType, getWeight(rifFileType));
+    }
+
+    ExecutorService chainExecutor = Executors.newFixedThreadPool(fileEventsByType.size());
+    List<Future<?>> chainFutures = new ArrayList<>();
+    for (Map.Entry<RifFileType, List<RifFileEvent>> chain : fileEventsByType.entrySet()) {
+      chainFutures.add(
+          chainExecutor.submit(
+              () -> {
+                try {
+                  for (RifFileEvent rifFileEvent : chain.getValue()) {
+                    int loaderThreads = computeLoaderThreads(chain.getKey());
+                    processFile(rifFileEvent, loaderThreads, errorHandler, resultHandler);
+                  }
+                } finally {
+                  synchronized (activeWeights) {
+                    activeWeights.remove(chain.getKey());
+                  }
+                }
+              }));
+    }
+    chainExecutor.shutdown();
+
+    // Wait for all of the chains to complete.
+    for (Future<?> chainFuture : chainFutures) {
+      try {
+        chainFuture.get();
+      } catch (InterruptedException e) {
+        // Interrupts should not be used on this thread, so go boom.
+        throw new RuntimeException(e);
+      } catch (ExecutionException e) {
+        errorHandler.accept(e.getCause());
+      }
+    }
+    try {
+      chainExecutor.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      // Interrupts should not be used on this thread, so go boom.
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Parses and loads the specified file, recording its progress in its {@link
+   * RifFileEvent#getEventMetrics()}.
+   *
+   * @param rifFileEvent the {@link RifFileEvent} to load
+   * @param loaderThreads the number of loader threads to use for it
+   * @param errorHandler the {@link Consumer} to pass each error that occurs to
+   * @param resultHandler the {@link Consumer} to pass each {@link RifRecordLoadResult} to
+   */
+  private void processFile(
+      RifFileEvent rifFileEvent,
+      int loaderThreads,
+      Consumer<Throwable> errorHandler,
+      Consumer<RifRecordLoadResult> resultHandler) {
+    MetricRegistry fileMetrics = rifFileEvent.getEventMetrics();
+    Counter activeFiles =
+        appMetrics.counter(MetricRegistry.name(getClass().getSimpleName(), "activeFiles"));
+    Meter recordsLoaded =
+        fileMetrics.meter(MetricRegistry.name(getClass().getSimpleName(), "recordsLoaded"));
+    fileMetrics.register(
+        MetricRegistry.name(getClass().getSimpleName(), "loaderThreads"),
+        new Gauge<Integer>() {
+          /** @see com.codahale.metrics.Gauge#getValue() */
+          @Override
+          public Integer getValue() {
+            return loaderThreads;
+          }
+        });
+
+    Slf4jReporter dataSetFileMetricsReporter =
+        Slf4jReporter.forRegistry(fileMetrics).outputTo(LOGGER).build();
+    dataSetFileMetricsReporter.start(2, TimeUnit.MINUTES);
+    Timer.Context timerFile =
+        appMetrics
+            .timer(
+                MetricRegistry.name(
+                    getClass().getSimpleName(),
+                    "files",
+                    rifFileEvent.getFile().getFileType().name()))
+            .time();
+    activeFiles.inc();
+    LOGGER.info("Loading '{}' with '{}' loader threads...", rifFileEvent, loaderThreads);
+
+    try {
+      Consumer<RifRecordLoadResult> countingResultHandler =
+          result -> {
+            recordsLoaded.mark();
+            resultHandler.accept(result);
+          };
+      if (loadCheckpointsEnabled) {
+        rifLoader.processResumable(
+            rifFileEvent,
+            startAt -> rifProcessor.produceRecords(rifFileEvent, startAt),
+            loaderThreads,
+            errorHandler,
+            countingResultHandler);
+      } else {
+        RifFileRecords rifFileRecords = rifProcessor.produceRecords(rifFileEvent);
+        rifLoader.process(rifFileRecords, loaderThreads, errorHandler, countingResultHandler);
+      }
+    } finally {
+      activeFiles.dec();
+      long fileNanos = timerFile.stop();
+      dataSetFileMetricsReporter.stop();
+      dataSetFileMetricsReporter.report();
+
+      /*
+       * The per-file metrics above break the time down by stage, but the overall throughput is the
+       * number that capacity planning wants, so it's called out on its own.
+       */
+      double fileSeconds = fileNanos / (double) TimeUnit.SECONDS.toNanos(1);
+      long recordsPerSecond =
+          fileSeconds > 0 ? (long) (recordsLoaded.getCount() / fileSeconds) : 0L;
+      LOGGER.info(
+          "Processed '{}' records from '{}' in '{}' ms: '{}' records/sec.",
+          recordsLoaded.getCount(),
+          rifFileEvent,
+          TimeUnit.NANOSECONDS.toMillis(fileNanos),
+          recordsPerSecond);
+    }
+  }
+
+  /**
+   * @param rifFileType the {@link RifFileType} to get the weight of
+   * @return the configured weight of the specified {@link RifFileType}, or {@link #DEFAULT_WEIGHT}
+   */
+  private int getWeight(RifFileType rifFileType) {
+    Integer weight = loaderThreadWeights.get(rifFileType);
+    return weight != null ? weight : DEFAULT_WEIGHT;
+  }
+
+  /**
+   * @param rifFileType the {@link RifFileType} of the file about to be loaded, whose chain must
+   *     still be active
+   * @return the number of loader threads to use for the next file in the specified chain
+   */
+  private int computeLoaderThreads(RifFileType rifFileType) {
+    synchronized (activeWeights) {
+      int totalWeight = activeWeights.values().stream().mapToInt(Integer::intValue).sum();
+      return computeLoaderThreads(loaderThreadBudget, activeWeights.get(rifFileType), totalWeight);
+    }
+  }
+
+  /**
+   * @param loaderThreadBudget the total number of loader threads available
+   * @param weight the weight of the file being loaded
+   * @param totalWeight the total weight of all files that are currently loading (including the one
+   *     being loaded)
+   * @return the file's proportional share of the loader thread budget, which will always be at
+   *     least <code>1</code>
+   */
+  static int computeLoaderThreads(int loaderThreadBudget, int weight, int totalWeight) {
+    return Math.max(1, (int) ((long) loaderThreadBudget * weight / totalWeight));
+  }
+
+  /**
+   * @param fileEvents the {@link RifFileEvent}s to group
+   * @return the specified {@link RifFileEvent}s, grouped by {@link RifFileType}, where both the
+   *     groups and the {@link RifFileEvent}s within each group retain their original order
+   */
+  static Map<RifFileType, List<RifFileEvent>> groupByFileType(List<RifFileEvent> fileEvents) {
+    Map<RifFileType, List<RifFileEvent>> fileEventsByType = new LinkedHashMap<>();
+    for (RifFileEvent fileEvent : fileEvents)
+      fileEventsByType
+          .computeIfAbsent(fileEvent.getFile().getFileType(), t -> new ArrayList<>())
+          .add(fileEvent);
+
+    fileEventsByType.replaceAll((t, events) -> Collections.unmodifiableList(events));
+    return fileEventsByType;
+  }
+}
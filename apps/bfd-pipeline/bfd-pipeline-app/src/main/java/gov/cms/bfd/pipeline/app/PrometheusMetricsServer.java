@@ -0,0 +1,207 @@
+package gov.cms.bfd.pipeline.app;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serves the application's {@link MetricRegistry} at <code>/metrics</code>, in the Prometheus text
+ * exposition format, so that the pipeline's throughput and per-stage latencies can be watched (and
+ * scraped) while it's running, rather than only via the hourly log reports. The server only
+ * listens on the loopback address: anything remote needs to go through a local agent or tunnel.
+ *
+ * <p>The metrics are mapped as follows (with all names prefixed by {@link #NAME_PREFIX}):
+ *
+ * <ul>
+ *   <li>{@link Gauge}s (with numeric or boolean values) and {@link Counter}s become gauges.
+ *   <li>{@link Meter}s become counters, named with a <code>_total</code> suffix.
+ *   <li>{@link Timer}s and {@link Histogram}s become summaries, with the {@link #QUANTILES}. Timer
+ *       values are in seconds.
+ * </ul>
+ */
+final class PrometheusMetricsServer {
+  private static final Logger LOGGER = LoggerFactory.getLogger(PrometheusMetricsServer.class);
+
+  /** The prefix that's added to every metric's name. */
+  static final String NAME_PREFIX = "bfd_pipeline_";
+
+  /** The quantiles that are reported for each {@link Timer} and {@link Histogram}. */
+  static final double[] QUANTILES = {0.5, 0.75, 0.95, 0.99, 0.999};
+
+  /** Matches the characters that aren't allowed in Prometheus metric names. */
+  private static final Pattern INVALID_NAME_CHARS = Pattern.compile("[^a-zA-Z0-9_:]");
+
+  private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  private final HttpServer server;
+
+  /**
+   * Constructs a new {@link PrometheusMetricsServer}, which will not serve anything until {@link
+   * #start()} is called.
+   *
+   * @param metrics the {@link MetricRegistry} to serve
+   * @param port the loopback port to listen on
+   */
+  PrometheusMetricsServer(MetricRegistry metrics, int port) {
+    try {
+      this.server =
+          HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    this.server.setExecutor(
+        Executors.newSingleThreadExecutor(
+            r -> {
+              Thread thread = new Thread(r, PrometheusMetricsServer.class.getSimpleName());
+              thread.setDaemon(true);
+              return thread;
+            }));
+    this.server.createContext("/metrics", exchange -> handle(exchange, metrics));
+  }
+
+  /** Starts serving the metrics. */
+  void start() {
+    server.start();
+    LOGGER.info("Serving metrics at: 'http://{}/metrics'.", getAddress());
+  }
+
+  /** Stops serving the metrics. */
+  void stop() {
+    server.stop(0);
+  }
+
+  /** @return the address that the metrics are being served on */
+  InetSocketAddress getAddress() {
+    return server.getAddress();
+  }
+
+  /**
+   * Responds to a single scrape request.
+   *
+   * @param exchange the {@link HttpExchange} to respond to
+   * @param metrics the {@link MetricRegistry} to serve
+   * @throws IOException any errors encountered will be bubbled up
+   */
+  private static void handle(HttpExchange exchange, MetricRegistry metrics) throws IOException {
+    try {
+      byte[] body = render(metrics).getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream responseBody = exchange.getResponseBody()) {
+        responseBody.write(body);
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  /**
+   * @param metrics the {@link MetricRegistry} to render
+   * @return the current values of the specified {@link MetricRegistry}'s metrics, in the
+   *     Prometheus text exposition format
+   */
+  static String render(MetricRegistry metrics) {
+    StringBuilder output = new StringBuilder();
+    for (Map.Entry<String, Gauge> gauge : metrics.getGauges().entrySet()) {
+      Object value = gauge.getValue().getValue();
+      if (value instanceof Boolean) value = ((Boolean) value) ? 1 : 0;
+      if (!(value instanceof Number)) continue;
+      appendSingle(output, sanitize(gauge.getKey()), "gauge", ((Number) value).doubleValue());
+    }
+    for (Map.Entry<String, Counter> counter : metrics.getCounters().entrySet())
+      appendSingle(output, sanitize(counter.getKey()), "gauge", counter.getValue().getCount());
+    for (Map.Entry<String, Meter> meter : metrics.getMeters().entrySet())
+      appendSingle(
+          output, sanitize(meter.getKey()) + "_total", "counter", meter.getValue().getCount());
+    for (Map.Entry<String, Histogram> histogram : metrics.getHistograms().entrySet())
+      appendSummary(
+          output,
+          sanitize(histogram.getKey()),
+          histogram.getValue().getSnapshot(),
+          histogram.getValue().getCount(),
+          1.0);
+    for (Map.Entry<String, Timer> timer : metrics.getTimers().entrySet())
+      appendSummary(
+          output,
+          sanitize(timer.getKey()) + "_seconds",
+          timer.getValue().getSnapshot(),
+          timer.getValue().getCount(),
+          TimeUnit.SECONDS.toNanos(1));
+    return output.toString();
+  }
+
+  /**
+   * @param name the Dropwizard metric name to convert
+   * @return the equivalent Prometheus metric name
+   */
+  static String sanitize(String name) {
+    return NAME_PREFIX + INVALID_NAME_CHARS.matcher(name).replaceAll("_");
+  }
+
+  /**
+   * @param output the {@link StringBuilder} to append to
+   * @param name the (sanitized) name of the metric
+   * @param type the Prometheus type of the metric
+   * @param value the metric's value
+   */
+  private static void appendSingle(StringBuilder output, String name, String type, double value) {
+    output.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    output.append(name).append(' ').append(formatValue(value)).append('\n');
+  }
+
+  /**
+   * @param output the {@link StringBuilder} to append to
+   * @param name the (sanitized) name of the metric
+   * @param snapshot the {@link Snapshot} of the metric's values
+   * @param count the number of values that have been recorded by the metric
+   * @param divisor the value to divide each of the metric's values by, to convert them to the
+   *     metric's units
+   */
+  private static void appendSummary(
+      StringBuilder output, String name, Snapshot snapshot, long count, double divisor) {
+    output.append("# TYPE ").append(name).append(" summary\n");
+    for (double quantile : QUANTILES)
+      output
+          .append(name)
+          .append("{quantile=\"")
+          .append(quantile)
+          .append("\"} ")
+          .append(formatValue(snapshot.getValue(quantile) / divisor))
+          .append('\n');
+    output
+        .append(name)
+        .append("_sum ")
+        .append(formatValue(snapshot.getMean() * count / divisor))
+        .append('\n');
+    output.append(name).append("_count ").append(count).append('\n');
+  }
+
+  /**
+   * @param value the value to format
+   * @return the specified value, formatted for the Prometheus text exposition format
+   */
+  private static String formatValue(double value) {
+    if (Double.isNaN(value)) return "NaN";
+    if (Double.isInfinite(value)) return value > 0 ? "+Inf" : "-Inf";
+    if (value == Math.rint(value) && Math.abs(value) < 1e15) return Long.toString((long) value);
+    return Double.toString(value);
+  }
+}
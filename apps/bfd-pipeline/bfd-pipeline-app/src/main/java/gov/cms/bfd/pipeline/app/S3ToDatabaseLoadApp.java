@@ -1,14 +1,14 @@
 package gov.cms.bfd.pipeline.app;
 
 import ch.qos.logback.classic.LoggerContext;
+import com.codahale.metrics.JmxReporter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Slf4jReporter;
 import com.codahale.metrics.Timer;
 import com.codahale.metrics.jvm.GarbageCollectorMetricSet;
 import com.codahale.metrics.jvm.MemoryUsageGaugeSet;
-import gov.cms.bfd.model.rif.RifFileEvent;
-import gov.cms.bfd.model.rif.RifFileRecords;
 import gov.cms.bfd.model.rif.RifFilesEvent;
+import gov.cms.bfd.pipeline.rif.extract.PipelineStageMetrics;
 import gov.cms.bfd.pipeline.rif.extract.RifFilesProcessor;
 import gov.cms.bfd.pipeline.rif.extract.s3.DataSetMonitor;
 import gov.cms.bfd.pipeline.rif.extract.s3.DataSetMonitorListener;
@@ -64,6 +64,12 @@ public final class S3ToDatabaseLoadApp {
       LOGGER.warn("Invalid app configuration.", e);
       System.exit(EXIT_CODE_BAD_CONFIG);
     }
+    boolean loadingData = appConfig.getLoadOptions().getRunMode().isDatabaseRequired();
+    if (!loadingData)
+      LOGGER.warn(
+          "Running in '{}' mode, to measure throughput: data sets will not be loaded into the"
+              + " database, and will be left pending.",
+          appConfig.getLoadOptions().getRunMode());
 
     MetricRegistry appMetrics = new MetricRegistry();
     appMetrics.registerAll(new MemoryUsageGaugeSet());
@@ -72,12 +78,31 @@ public final class S3ToDatabaseLoadApp {
         Slf4jReporter.forRegistry(appMetrics).outputTo(LOGGER).build();
     appMetricsReporter.start(1, TimeUnit.HOURS);
 
+    /*
+     * The hourly reports are too coarse to watch a load as it happens, so also publish the
+     * metrics live: always via JMX, and via a Prometheus endpoint if one is configured.
+     */
+    JmxReporter.forRegistry(appMetrics).inDomain("gov.cms.bfd.pipeline").build().start();
+    if (appConfig.getMetricsExportPort() > 0)
+      new PrometheusMetricsServer(appMetrics, appConfig.getMetricsExportPort()).start();
+
     /*
      * Create the services that will be used to handle each stage in the
      * extract, transform, and load process.
      */
-    RifFilesProcessor rifProcessor = new RifFilesProcessor();
+    RifFilesProcessor rifProcessor =
+        new RifFilesProcessor(
+            appConfig.getExtractionOptions().getParserThreads(),
+            new PipelineStageMetrics(appMetrics));
     RifLoader rifLoader = new RifLoader(appMetrics, appConfig.getLoadOptions());
+    DataSetLoadScheduler loadScheduler =
+        new DataSetLoadScheduler(
+            appMetrics,
+            rifProcessor,
+            rifLoader,
+            appConfig.getLoadOptions().getLoaderThreads(),
+            appConfig.getLoaderThreadWeights(),
+            appConfig.getLoadOptions().isLoadCheckpointsEnabled());
 
     /*
      * Create the DataSetMonitorListener that will glue those stages
@@ -119,21 +144,10 @@ public final class S3ToDatabaseLoadApp {
 
             /*
              * Each ETL stage produces a stream that will be handed off to
-             * and processed by the next stage.
+             * and processed by the next stage. The scheduler runs the
+             * beneficiaries first and then the other files concurrently.
              */
-            for (RifFileEvent rifFileEvent : rifFilesEvent.getFileEvents()) {
-              Slf4jReporter dataSetFileMetricsReporter =
-                  Slf4jReporter.forRegistry(rifFileEvent.getEventMetrics())
-                      .outputTo(LOGGER)
-                      .build();
-              dataSetFileMetricsReporter.start(2, TimeUnit.MINUTES);
-
-              RifFileRecords rifFileRecords = rifProcessor.produceRecords(rifFileEvent);
-              rifLoader.process(rifFileRecords, errorHandler, resultHandler);
-
-              dataSetFileMetricsReporter.stop();
-              dataSetFileMetricsReporter.report();
-            }
+            loadScheduler.process(rifFilesEvent, errorHandler, resultHandler);
             timerDataSet.stop();
           }
 
@@ -146,6 +160,18 @@ public final class S3ToDatabaseLoadApp {
             handleUncaughtException(error);
           }
 
+          /**
+           * Data sets that are only being run through the pipeline to measure its throughput
+           * haven't been loaded, so they have to stay pending.
+           *
+           * @see
+           *     gov.cms.bfd.pipeline.rif.extract.s3.DataSetMonitorListener#isDataSetCompletionEnabled()
+           */
+          @Override
+          public boolean isDataSetCompletionEnabled() {
+            return loadingData;
+          }
+
           /** Called when no RIF files are available to process. */
           @Override
           public void noDataAvailable() {
@@ -156,7 +182,8 @@ public final class S3ToDatabaseLoadApp {
 
     /*
      * Create and start the DataSetMonitor that will find data sets as
-     * they're pushed into S3. As each data set is found, it will be handed
+     * they're pushed into S3 (or the local data sets directory, if one is
+     * configured). As each data set is found, it will be handed
      * off to the DataSetMonitorListener to be run through the ETL pipeline.
      */
     DataSetMonitor s3Monitor =
@@ -167,7 +194,11 @@ public final class S3ToDatabaseLoadApp {
             dataSetMonitorListener);
     registerShutdownHook(appMetrics, s3Monitor);
     s3Monitor.start();
-    LOGGER.info("Monitoring S3 for new data sets to process...");
+    if (appConfig.getExtractionOptions().getLocalDataSetsDirectory().isPresent())
+      LOGGER.info(
+          "Monitoring '{}' for new data sets to process...",
+          appConfig.getExtractionOptions().getLocalDataSetsDirectory().get());
+    else LOGGER.info("Monitoring S3 for new data sets to process...");
 
     /*
      * At this point, we're done here with the main thread. From now on, the
@@ -0,0 +1,57 @@
+package gov.cms.bfd.pipeline.app;
+
+import gov.cms.bfd.model.rif.RifFileEvent;
+import gov.cms.bfd.model.rif.RifFileType;
+import gov.cms.bfd.model.rif.RifFilesEvent;
+import gov.cms.bfd.model.rif.samples.StaticRifResource;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Unit tests for {@link DataSetLoadScheduler}. */
+public final class DataSetLoadSchedulerTest {
+  /**
+   * Verifies that {@link DataSetLoadScheduler#groupByFileType(List)} keeps {@link
+   * RifFileType#BENEFICIARY} first and preserves the order of same-typed files.
+   */
+  @Test
+  public void groupByFileType() {
+    RifFilesEvent rifFilesEvent =
+        new RifFilesEvent(
+            Instant.now(),
+            StaticRifResource.SAMPLE_A_CARRIER.toRifFile(),
+            StaticRifResource.SAMPLE_A_PDE.toRifFile(),
+            StaticRifResource.SAMPLE_A_BENES.toRifFile(),
+            StaticRifResource.SAMPLE_U_CARRIER.toRifFile());
+
+    Map<RifFileType, List<RifFileEvent>> fileEventsByType =
+        DataSetLoadScheduler.groupByFileType(rifFilesEvent.getFileEvents());
+
+    Assert.assertEquals(
+        Arrays.asList(RifFileType.BENEFICIARY, RifFileType.CARRIER, RifFileType.PDE),
+        Arrays.asList(fileEventsByType.keySet().toArray()));
+    List<RifFileEvent> carrierFileEvents = fileEventsByType.get(RifFileType.CARRIER);
+    Assert.assertEquals(2, carrierFileEvents.size());
+    Assert.assertEquals(
+        StaticRifResource.SAMPLE_A_CARRIER.name(),
+        carrierFileEvents.get(0).getFile().getDisplayName());
+    Assert.assertEquals(
+        StaticRifResource.SAMPLE_U_CARRIER.name(),
+        carrierFileEvents.get(1).getFile().getDisplayName());
+  }
+
+  /**
+   * Verifies that {@link DataSetLoadScheduler#computeLoaderThreads(int, int, int)} splits the
+   * budget proportionally and never hands out less than one thread.
+   */
+  @Test
+  public void computeLoaderThreads() {
+    Assert.assertEquals(100, DataSetLoadScheduler.computeLoaderThreads(100, 1, 1));
+    Assert.assertEquals(50, DataSetLoadScheduler.computeLoaderThreads(100, 2, 4));
+    Assert.assertEquals(33, DataSetLoadScheduler.computeLoaderThreads(100, 1, 3));
+    Assert.assertEquals(1, DataSetLoadScheduler.computeLoaderThreads(2, 1, 8));
+  }
+}
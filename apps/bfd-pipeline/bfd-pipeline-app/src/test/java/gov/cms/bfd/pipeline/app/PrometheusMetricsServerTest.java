@@ -0,0 +1,40 @@
+package gov.cms.bfd.pipeline.app;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import gov.cms.bfd.pipeline.rif.extract.PipelineStage;
+import gov.cms.bfd.pipeline.rif.extract.PipelineStageMetrics;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Unit tests for {@link PrometheusMetricsServer}. */
+public final class PrometheusMetricsServerTest {
+  /**
+   * Verifies that {@link PrometheusMetricsServer#render(MetricRegistry)} maps each kind of metric
+   * to the expected Prometheus type and sanitized name.
+   */
+  @Test
+  public void render() {
+    MetricRegistry metrics = new MetricRegistry();
+    metrics.register("queue.size", (Gauge<Integer>) () -> 3);
+    metrics.register("label", (Gauge<String>) () -> "not a number");
+    metrics.counter("active-files").inc(2);
+    metrics.meter("records.INSERTED").mark(5);
+    PipelineStageMetrics.stageTimer(metrics, PipelineStage.COMMIT).update(2, TimeUnit.MILLISECONDS);
+
+    String output = PrometheusMetricsServer.render(metrics);
+
+    Assert.assertTrue(output.contains("# TYPE bfd_pipeline_queue_size gauge\n"));
+    Assert.assertTrue(output.contains("bfd_pipeline_queue_size 3\n"));
+    Assert.assertFalse(output.contains("bfd_pipeline_label"));
+    Assert.assertTrue(output.contains("bfd_pipeline_active_files 2\n"));
+    Assert.assertTrue(output.contains("# TYPE bfd_pipeline_records_INSERTED_total counter\n"));
+    Assert.assertTrue(output.contains("bfd_pipeline_records_INSERTED_total 5\n"));
+    Assert.assertTrue(
+        output.contains("# TYPE bfd_pipeline_PipelineStages_commit_seconds summary\n"));
+    Assert.assertTrue(output.contains("bfd_pipeline_PipelineStages_commit_seconds_count 1\n"));
+    Assert.assertTrue(
+        output.contains("bfd_pipeline_PipelineStages_commit_seconds{quantile=\"0.5\"} 0.002"));
+  }
+}
@@ -0,0 +1,44 @@
+package gov.cms.bfd.pipeline.jmh;
+
+import gov.cms.bfd.pipeline.rif.load.BatchSpliterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks the batching of record streams by {@link BatchSpliterator}. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BatchSpliteratorBenchmark {
+  /** The number of elements to batch. */
+  @Param({"100000"})
+  public int elementCount;
+
+  /** The size of each batch. */
+  @Param({"10", "100", "1000"})
+  public int batchSize;
+
+  /** @return the number of elements that were batched, which will be checked */
+  @Benchmark
+  public long batches() {
+    long batchedElements =
+        BatchSpliterator.batches(IntStream.range(0, elementCount).boxed(), batchSize)
+            .mapToLong(List::size)
+            .sum();
+    if (batchedElements != elementCount) throw new IllegalStateException();
+    return batchedElements;
+  }
+}
@@ -0,0 +1,51 @@
+package gov.cms.bfd.pipeline.jmh;
+
+import java.io.IOException;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * The main entry point for <code>benchmarks.jar</code>, which accepts all of the usual JMH command
+ * line options (run it with <code>-h</code> for details), but writes machine-readable JSON results
+ * to {@link #DEFAULT_RESULT_FILE} unless another result format or file is specified.
+ */
+public final class BenchmarkRunner {
+  /** The file that results will be written to, if no other is specified. */
+  static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+  /**
+   * @param args the JMH command line options to run with
+   * @throws CommandLineOptionException Any {@link CommandLineOptionException}s encountered will be
+   *     bubbled up.
+   * @throws RunnerException Any {@link RunnerException}s encountered will be bubbled up.
+   * @throws IOException Any {@link IOException}s encountered will be bubbled up.
+   */
+  public static void main(String[] args)
+      throws CommandLineOptionException, RunnerException, IOException {
+    CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+    if (commandLineOptions.shouldHelp()) {
+      commandLineOptions.showHelp();
+      return;
+    }
+    if (commandLineOptions.shouldList()
+        || commandLineOptions.shouldListWithParams()
+        || commandLineOptions.shouldListProfilers()
+        || commandLineOptions.shouldListResultFormats()) {
+      // Defer to JMH's own launcher for all of its informational options.
+      org.openjdk.jmh.Main.main(args);
+      return;
+    }
+
+    ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLineOptions);
+    if (!commandLineOptions.getResultFormat().hasValue())
+      options.resultFormat(ResultFormatType.JSON);
+    if (!commandLineOptions.getResult().hasValue()) options.result(DEFAULT_RESULT_FILE);
+
+    new Runner(options.build()).run();
+  }
+}
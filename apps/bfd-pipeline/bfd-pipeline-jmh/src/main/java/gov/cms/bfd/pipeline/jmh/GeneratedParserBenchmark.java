@@ -0,0 +1,93 @@
+package gov.cms.bfd.pipeline.jmh;
+
+import gov.cms.bfd.model.rif.BeneficiaryParser;
+import gov.cms.bfd.model.rif.CarrierClaimParser;
+import gov.cms.bfd.model.rif.InpatientClaimParser;
+import gov.cms.bfd.model.rif.PartDEventParser;
+import gov.cms.bfd.model.rif.parse.RifParsingUtils;
+import gov.cms.bfd.model.rif.samples.StaticRifResource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the generated <code>*Parser</code> classes, which convert already-read {@link
+ * CSVRecord}s into JPA entities.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GeneratedParserBenchmark {
+  /** The {@link StaticRifResource} whose (entire) contents will be parsed as a single record. */
+  @Param({"SAMPLE_A_BENES", "SAMPLE_A_CARRIER", "SAMPLE_A_INPATIENT", "SAMPLE_A_PDE"})
+  public StaticRifResource resource;
+
+  private List<CSVRecord> csvRecords;
+  private int[] columnIndexes;
+
+  /**
+   * Reads the {@link #resource}'s records, and resolves its column positions.
+   *
+   * @throws IOException Any {@link IOException}s encountered will be bubbled up.
+   */
+  @Setup
+  public void setup() throws IOException {
+    try (InputStream sampleStream = resource.getResourceUrl().openStream();
+        CSVParser parser =
+            RifParsingUtils.createCsvParser(
+                RifParsingUtils.CSV_FORMAT, sampleStream, StandardCharsets.UTF_8)) {
+      csvRecords = parser.getRecords();
+      switch (resource.getRifFileType()) {
+        case BENEFICIARY:
+          columnIndexes = BeneficiaryParser.resolveColumnIndexes(parser.getHeaderMap());
+          break;
+        case CARRIER:
+          columnIndexes = CarrierClaimParser.resolveColumnIndexes(parser.getHeaderMap());
+          break;
+        case INPATIENT:
+          columnIndexes = InpatientClaimParser.resolveColumnIndexes(parser.getHeaderMap());
+          break;
+        case PDE:
+          columnIndexes = PartDEventParser.resolveColumnIndexes(parser.getHeaderMap());
+          break;
+        default:
+          throw new IllegalArgumentException("Unsupported resource: " + resource);
+      }
+    }
+  }
+
+  /** @return the entity parsed from the {@link #resource}'s records */
+  @Benchmark
+  public Object parseRif() {
+    switch (resource.getRifFileType()) {
+      case BENEFICIARY:
+        return BeneficiaryParser.parseRif(csvRecords, columnIndexes);
+      case CARRIER:
+        return CarrierClaimParser.parseRif(csvRecords, columnIndexes);
+      case INPATIENT:
+        return InpatientClaimParser.parseRif(csvRecords, columnIndexes);
+      case PDE:
+        return PartDEventParser.parseRif(csvRecords, columnIndexes);
+      default:
+        throw new IllegalStateException();
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package gov.cms.bfd.pipeline.jmh;
+
+import com.codahale.metrics.MetricRegistry;
+import gov.cms.bfd.pipeline.rif.load.IdentifierHasher;
+import gov.cms.bfd.pipeline.rif.load.LoadAppOptions;
+import gov.cms.bfd.pipeline.rif.load.RifLoaderTestUtils;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the hashing of beneficiary identifiers via {@link IdentifierHasher}, both with its
+ * default cache and with a single-entry cache that (as the identifiers rotate) always misses, which
+ * measures the cost of the hashing itself.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IdentifierHashingBenchmark {
+  /**
+   * The number of iterations to hash with. The production configuration uses far more than the
+   * {@link RifLoaderTestUtils#HICN_HASH_ITERATIONS} used in tests.
+   */
+  @Param({"2", "1000"})
+  public int iterations;
+
+  /**
+   * The number of distinct identifiers to hash, in rotation. When this is less than {@link
+   * IdentifierHasher#DEFAULT_CACHE_SIZE}, {@link #hashCached()} will mostly be measuring cache
+   * hits.
+   */
+  @Param({"1000", "1000000"})
+  public int distinctIdentifiers;
+
+  private IdentifierHasher uncachedHasher;
+  private IdentifierHasher cachedHasher;
+  private int next;
+
+  /** Creates the hashing components to be benchmarked. */
+  @Setup
+  public void setup() {
+    LoadAppOptions options =
+        new LoadAppOptions.Builder()
+            .hicnHash(iterations, RifLoaderTestUtils.HICN_HASH_PEPPER)
+            .loaderThreads(1)
+            .idempotencyRequired(RifLoaderTestUtils.IDEMPOTENCY_REQUIRED)
+            .build();
+    uncachedHasher = new IdentifierHasher(options, new MetricRegistry(), 1);
+    cachedHasher =
+        new IdentifierHasher(options, new MetricRegistry(), IdentifierHasher.DEFAULT_CACHE_SIZE);
+    next = 0;
+  }
+
+  /**
+   * @return the hash of the next identifier, computed via an {@link IdentifierHasher} whose cache
+   *     never hits
+   */
+  @Benchmark
+  public String hashUncached() {
+    return uncachedHasher.computeIdentifierHash(nextIdentifier());
+  }
+
+  /** @return the hash of the next identifier, computed via {@link IdentifierHasher} */
+  @Benchmark
+  public String hashCached() {
+    return cachedHasher.computeIdentifierHash(nextIdentifier());
+  }
+
+  /** @return the next identifier to hash, cycling through {@link #distinctIdentifiers} values */
+  private String nextIdentifier() {
+    next = (next + 1) % distinctIdentifiers;
+    return String.format("%09dA", next);
+  }
+}
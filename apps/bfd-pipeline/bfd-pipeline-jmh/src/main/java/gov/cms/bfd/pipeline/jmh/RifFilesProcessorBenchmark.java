@@ -0,0 +1,105 @@
+package gov.cms.bfd.pipeline.jmh;
+
+import gov.cms.bfd.model.rif.RifFile;
+import gov.cms.bfd.model.rif.RifFileRecords;
+import gov.cms.bfd.model.rif.RifFilesEvent;
+import gov.cms.bfd.model.rif.RifRecordEvent;
+import gov.cms.bfd.model.rif.samples.StaticRifResource;
+import gov.cms.bfd.pipeline.jmh.SyntheticRifData.SyntheticRifFile;
+import gov.cms.bfd.pipeline.rif.extract.RifFilesProcessor;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link RifFilesProcessor}'s end-to-end extraction of a synthetic RIF file, from the
+ * raw file all the way through to parsed {@link RifRecordEvent}s.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RifFilesProcessorBenchmark {
+  /** The {@link StaticRifResource} to scale up and extract. */
+  @Param({"SAMPLE_A_BENES", "SAMPLE_A_CARRIER", "SAMPLE_A_PDE"})
+  public StaticRifResource resource;
+
+  /** The number of copies of the {@link #resource}'s records to extract. */
+  @Param({"20000"})
+  public int copies;
+
+  /** The value to use for {@link RifFilesProcessor#RifFilesProcessor(int)}. */
+  @Param({"0", "4"})
+  public int parserThreads;
+
+  /**
+   * Whether or not the file should expose its {@link RifFile#getLocalPath()}, which allows it to be
+   * memory-mapped and split between the parser threads.
+   */
+  @Param({"true", "false"})
+  public boolean mapped;
+
+  private Path directory;
+  private SyntheticRifFile syntheticFile;
+  private RifFilesProcessor processor;
+
+  /**
+   * Writes the synthetic RIF file to be extracted.
+   *
+   * @throws IOException Any {@link IOException}s encountered will be bubbled up.
+   */
+  @Setup
+  public void setup() throws IOException {
+    directory = Files.createTempDirectory(getClass().getSimpleName());
+    syntheticFile = SyntheticRifData.scale(resource, copies, directory);
+    processor = new RifFilesProcessor(parserThreads);
+  }
+
+  /**
+   * Deletes the synthetic RIF file.
+   *
+   * @throws IOException Any {@link IOException}s encountered will be bubbled up.
+   */
+  @TearDown
+  public void tearDown() throws IOException {
+    syntheticFile.delete();
+    Files.deleteIfExists(directory);
+  }
+
+  /** @return the number of records that were extracted, which will be checked */
+  @Benchmark
+  public long produceRecords() {
+    RifFile file = mapped ? syntheticFile : syntheticFile.asStreamOnly();
+    RifFilesEvent filesEvent = new RifFilesEvent(Instant.now(), file);
+    RifFileRecords records = processor.produceRecords(filesEvent.getFileEvents().get(0));
+
+    long recordCount;
+    try (Stream<RifRecordEvent<?>> recordStream = records.getRecords()) {
+      recordCount = recordStream.count();
+    }
+
+    if (recordCount != syntheticFile.getRecordCount())
+      throw new IllegalStateException(
+          String.format(
+              "Expected '%d' records, but extracted '%d'.",
+              syntheticFile.getRecordCount(), recordCount));
+    return recordCount;
+  }
+}
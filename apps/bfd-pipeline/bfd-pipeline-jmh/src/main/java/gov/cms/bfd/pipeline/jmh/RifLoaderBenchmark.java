@@ -0,0 +1,132 @@
+package gov.cms.bfd.pipeline.jmh;
+
+import com.codahale.metrics.MetricRegistry;
+import gov.cms.bfd.model.rif.RifFilesEvent;
+import gov.cms.bfd.model.rif.samples.StaticRifResource;
+import gov.cms.bfd.model.rif.schema.DatabaseTestHelper;
+import gov.cms.bfd.pipeline.jmh.SyntheticRifData.SyntheticRifFile;
+import gov.cms.bfd.pipeline.rif.extract.RifFilesProcessor;
+import gov.cms.bfd.pipeline.rif.load.LoadAppOptions;
+import gov.cms.bfd.pipeline.rif.load.RifLoader;
+import gov.cms.bfd.pipeline.rif.load.RifLoaderTestUtils;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.sql.DataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the end-to-end extraction and loading of a synthetic beneficiaries file and a
+ * synthetic claims file, via {@link RifFilesProcessor} and {@link RifLoader}.
+ *
+ * <p>By default, this runs against an embedded HSQL DB. To run it against a local PostgreSQL server
+ * instead, pass the same <code>its.db.url</code>, <code>its.db.username</code>, and <code>
+ * its.db.password</code> system properties used by the integration tests to the forked JVM, e.g.
+ * <code>-jvmArgsAppend -Dits.db.url=jdbc:postgresql://localhost:5432/bfd</code>. Note that the
+ * database will be wiped before every invocation.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RifLoaderBenchmark {
+  /** The claims {@link StaticRifResource} to scale up and load, after the beneficiaries. */
+  @Param({"SAMPLE_A_CARRIER", "SAMPLE_A_PDE"})
+  public StaticRifResource claimsResource;
+
+  /** The number of copies of each file's records to load. */
+  @Param({"2000"})
+  public int copies;
+
+  /** The {@link LoadAppOptions.LoadMode} to load with. */
+  @Param({"JPA", "JDBC_BATCH"})
+  public LoadAppOptions.LoadMode loadMode;
+
+  private Path directory;
+  private SyntheticRifFile beneficiariesFile;
+  private SyntheticRifFile claimsFile;
+  private RifLoader loader;
+
+  /**
+   * Writes the synthetic RIF files to be loaded.
+   *
+   * @throws IOException Any {@link IOException}s encountered will be bubbled up.
+   */
+  @Setup(Level.Trial)
+  public void setupFiles() throws IOException {
+    directory = Files.createTempDirectory(getClass().getSimpleName());
+    beneficiariesFile = SyntheticRifData.scale(StaticRifResource.SAMPLE_A_BENES, copies, directory);
+    claimsFile = SyntheticRifData.scale(claimsResource, copies, directory);
+  }
+
+  /** Wipes the database and creates a fresh {@link RifLoader} for the next invocation. */
+  @Setup(Level.Invocation)
+  public void setupDatabase() {
+    DataSource dataSource = DatabaseTestHelper.getTestDatabaseAfterCleanAndSchema();
+    LoadAppOptions options =
+        RifLoaderTestUtils.getLoadOptions(dataSource)
+            .toBuilder()
+            .fixupsEnabled(false)
+            .loadMode(loadMode)
+            .build();
+    loader = new RifLoader(new MetricRegistry(), options);
+  }
+
+  /** Closes the {@link RifLoader} used in the last invocation. */
+  @TearDown(Level.Invocation)
+  public void tearDownLoader() {
+    loader.close();
+  }
+
+  /** Deletes the synthetic RIF files. */
+  @TearDown(Level.Trial)
+  public void tearDownFiles() throws IOException {
+    beneficiariesFile.delete();
+    claimsFile.delete();
+    Files.deleteIfExists(directory);
+  }
+
+  /** @return the number of records that were loaded, which will be checked */
+  @Benchmark
+  public long load() {
+    RifFilesEvent filesEvent = new RifFilesEvent(Instant.now(), beneficiariesFile, claimsFile);
+    RifFilesProcessor processor = new RifFilesProcessor();
+    AtomicLong loadCount = new AtomicLong();
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    // The beneficiaries have to be loaded first, as the claims reference them.
+    filesEvent
+        .getFileEvents()
+        .forEach(
+            fileEvent ->
+                loader.process(
+                    processor.produceRecords(fileEvent),
+                    error -> failure.compareAndSet(null, error),
+                    result -> loadCount.incrementAndGet()));
+
+    if (failure.get() != null) throw new IllegalStateException(failure.get());
+    long expectedCount = beneficiariesFile.getRecordCount() + claimsFile.getRecordCount();
+    if (loadCount.get() != expectedCount)
+      throw new IllegalStateException(
+          String.format("Expected '%d' records, but loaded '%d'.", expectedCount, loadCount.get()));
+    return loadCount.get();
+  }
+}
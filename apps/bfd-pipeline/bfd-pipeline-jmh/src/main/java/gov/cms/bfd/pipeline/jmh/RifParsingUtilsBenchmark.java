@@ -0,0 +1,58 @@
+package gov.cms.bfd.pipeline.jmh;
+
+import gov.cms.bfd.model.rif.parse.RifParsingUtils;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks the field-level parsing in {@link RifParsingUtils}. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RifParsingUtilsBenchmark {
+  /*
+   * Note: these are (non-final) fields, rather than constants, so that the
+   * JIT can't fold the parsing away.
+   */
+  private String dateText = "27-OCT-1999";
+  private String numericDateText = "19991027";
+  private String timestampText = "27-OCT-1999 13:45:01";
+  private String decimalText = "-12345.67";
+
+  /** @return the result of {@link RifParsingUtils#parseDate(String)} for a dd-MMM-yyyy date */
+  @Benchmark
+  public LocalDate parseDate() {
+    return RifParsingUtils.parseDate(dateText);
+  }
+
+  /** @return the result of {@link RifParsingUtils#parseDate(String)} for a yyyyMMdd date */
+  @Benchmark
+  public LocalDate parseNumericDate() {
+    return RifParsingUtils.parseDate(numericDateText);
+  }
+
+  /** @return the result of {@link RifParsingUtils#parseTimestamp(String)} */
+  @Benchmark
+  public Instant parseTimestamp() {
+    return RifParsingUtils.parseTimestamp(timestampText);
+  }
+
+  /** @return the result of {@link RifParsingUtils#parseDecimal(String)} */
+  @Benchmark
+  public BigDecimal parseDecimal() {
+    return RifParsingUtils.parseDecimal(decimalText);
+  }
+}
@@ -0,0 +1,197 @@
+package gov.cms.bfd.pipeline.jmh;
+
+import gov.cms.bfd.model.rif.RifFile;
+import gov.cms.bfd.model.rif.RifFileType;
+import gov.cms.bfd.model.rif.parse.RifParsingUtils;
+import gov.cms.bfd.model.rif.samples.StaticRifResource;
+import gov.cms.bfd.model.rif.samples.StaticRifResourceGroup;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+
+/**
+ * Produces larger, synthetic versions of the {@link StaticRifResourceGroup#SAMPLE_A} RIF files, for
+ * use in benchmarks.
+ *
+ * <p>Each synthetic file contains its sample's records repeated many times over, with a unique
+ * suffix appended to the <code>BENE_ID</code> and record ID columns of each copy. Files scaled by
+ * the same number of copies will therefore still reference each other's beneficiaries, and can be
+ * loaded together.
+ */
+public final class SyntheticRifData {
+  /** The maximum number of copies supported by {@link #scale(StaticRifResource, int, Path)}. */
+  public static final int MAX_COPIES = 99_999;
+
+  /** The name of the beneficiary ID column, which is present in every RIF file. */
+  private static final String BENE_ID_COLUMN = "BENE_ID";
+
+  /** Prevents instantiation of this utility class. */
+  private SyntheticRifData() {}
+
+  /**
+   * @param resource the {@link StaticRifResource} to scale up, which must be available on the
+   *     classpath (i.e. one of the {@link StaticRifResourceGroup#SAMPLE_A} resources)
+   * @param copies the number of copies of each record to write, up to {@link #MAX_COPIES}
+   * @param directory the directory to write the synthetic file to
+   * @return a {@link RifFile} for the synthetic file that was written
+   */
+  public static SyntheticRifFile scale(StaticRifResource resource, int copies, Path directory) {
+    if (copies < 1 || copies > MAX_COPIES) throw new IllegalArgumentException();
+
+    RifFileType fileType = resource.getRifFileType();
+    try {
+      List<CSVRecord> sampleRecords;
+      List<String> header;
+      try (InputStream sampleStream = resource.getResourceUrl().openStream();
+          CSVParser sampleParser =
+              RifParsingUtils.createCsvParser(
+                  RifParsingUtils.CSV_FORMAT, sampleStream, StandardCharsets.UTF_8)) {
+        sampleRecords = sampleParser.getRecords();
+        header = new ArrayList<>(sampleParser.getHeaderMap().keySet());
+      }
+
+      List<Integer> idColumns = new ArrayList<>();
+      for (String idColumn : Arrays.asList(BENE_ID_COLUMN, fileType.getIdColumn().name()))
+        if (header.contains(idColumn) && !idColumns.contains(header.indexOf(idColumn)))
+          idColumns.add(header.indexOf(idColumn));
+
+      Path syntheticFile =
+          Files.createTempFile(directory, resource.name() + "-x" + copies + "-", ".rif");
+      try (BufferedWriter writer = Files.newBufferedWriter(syntheticFile, StandardCharsets.UTF_8);
+          CSVPrinter printer =
+              new CSVPrinter(
+                  writer,
+                  RifParsingUtils.CSV_FORMAT
+                      .withHeader(header.toArray(new String[header.size()]))
+                      .withRecordSeparator('\n'))) {
+        List<String> values = new ArrayList<>(header.size());
+        for (int copy = 0; copy < copies; copy++) {
+          String idSuffix = String.format("%05d", copy);
+          for (CSVRecord sampleRecord : sampleRecords) {
+            values.clear();
+            sampleRecord.forEach(values::add);
+            for (int idColumn : idColumns) values.set(idColumn, values.get(idColumn) + idSuffix);
+            printer.printRecord(values);
+          }
+        }
+      }
+
+      return new SyntheticRifFile(syntheticFile, fileType, resource.getRecordCount() * copies);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** A {@link RifFile} for a synthetic RIF file produced by {@link SyntheticRifData}. */
+  public static final class SyntheticRifFile implements RifFile {
+    private final Path localFile;
+    private final RifFileType fileType;
+    private final int recordCount;
+
+    /**
+     * Constructs a new {@link SyntheticRifFile}.
+     *
+     * @param localFile the value to use for {@link #getLocalPath()}
+     * @param fileType the value to use for {@link #getFileType()}
+     * @param recordCount the value to use for {@link #getRecordCount()}
+     */
+    private SyntheticRifFile(Path localFile, RifFileType fileType, int recordCount) {
+      this.localFile = localFile;
+      this.fileType = fileType;
+      this.recordCount = recordCount;
+    }
+
+    /** @see gov.cms.bfd.model.rif.RifFile#getFileType() */
+    @Override
+    public RifFileType getFileType() {
+      return fileType;
+    }
+
+    /** @see gov.cms.bfd.model.rif.RifFile#getDisplayName() */
+    @Override
+    public String getDisplayName() {
+      return localFile.getFileName().toString();
+    }
+
+    /** @see gov.cms.bfd.model.rif.RifFile#getCharset() */
+    @Override
+    public Charset getCharset() {
+      return StandardCharsets.UTF_8;
+    }
+
+    /** @see gov.cms.bfd.model.rif.RifFile#open() */
+    @Override
+    public InputStream open() {
+      try {
+        return Files.newInputStream(localFile);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    /** @see gov.cms.bfd.model.rif.RifFile#getLocalPath() */
+    @Override
+    public Optional<Path> getLocalPath() {
+      return Optional.of(localFile);
+    }
+
+    /**
+     * @return a {@link RifFile} for the same file, but which doesn't expose its {@link
+     *     #getLocalPath()}, and so will only be read via {@link #open()}
+     */
+    public RifFile asStreamOnly() {
+      SyntheticRifFile file = this;
+      return new RifFile() {
+        /** @see gov.cms.bfd.model.rif.RifFile#getFileType() */
+        @Override
+        public RifFileType getFileType() {
+          return file.getFileType();
+        }
+
+        /** @see gov.cms.bfd.model.rif.RifFile#getDisplayName() */
+        @Override
+        public String getDisplayName() {
+          return file.getDisplayName();
+        }
+
+        /** @see gov.cms.bfd.model.rif.RifFile#getCharset() */
+        @Override
+        public Charset getCharset() {
+          return file.getCharset();
+        }
+
+        /** @see gov.cms.bfd.model.rif.RifFile#open() */
+        @Override
+        public InputStream open() {
+          return file.open();
+        }
+      };
+    }
+
+    /** @return the number of beneficiaries/claims/drug events in the file */
+    public int getRecordCount() {
+      return recordCount;
+    }
+
+    /** Deletes the file. */
+    public void delete() {
+      try {
+        Files.deleteIfExists(localFile);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+}
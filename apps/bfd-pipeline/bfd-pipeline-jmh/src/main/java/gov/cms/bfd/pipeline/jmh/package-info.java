@@ -0,0 +1,5 @@
+/**
+ * Contains local JMH microbenchmarks for the pipeline's extraction and loading, which can be run
+ * offline, e.g. to catch throughput regressions before a release.
+ */
+package gov.cms.bfd.pipeline.jmh;
@@ -6,6 +6,8 @@ import gov.cms.bfd.model.rif.RifFileType;
 import gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest;
 import gov.cms.bfd.pipeline.rif.extract.s3.S3Utilities;
 import java.io.Serializable;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Optional;
 import java.util.function.Predicate;
 
@@ -13,9 +15,25 @@ import java.util.function.Predicate;
 public final class ExtractionOptions implements Serializable {
   private static final long serialVersionUID = 1L;
 
+  /** The default value for {@link #getDownloadThreads()}. */
+  public static final int DEFAULT_DOWNLOAD_THREADS = 1;
+
+  /** The default value for {@link #getPrefetchDataSets()}. */
+  public static final int DEFAULT_PREFETCH_DATA_SETS = 1;
+
+  /** The default value for {@link #getPrefetchDiskBudget()}: 50 GB. */
+  public static final long DEFAULT_PREFETCH_DISK_BUDGET = 50L * 1000 * 1000 * 1000;
+
   private final String s3BucketName;
   private final RifFileType allowedRifFileType;
   private final Integer s3ListMaxKeys;
+  private final int parserThreads;
+  private final boolean streamingDownloadsEnabled;
+  private final int downloadThreads;
+  private final int downloadRangeThreads;
+  private final int prefetchDataSets;
+  private final long prefetchDiskBudget;
+  private final String localDataSetsDirectory;
 
   /**
    * Constructs a new {@link ExtractionOptions} instance.
@@ -36,9 +54,160 @@ public final class ExtractionOptions implements Serializable {
    */
   public ExtractionOptions(
       String s3BucketName, RifFileType allowedRifFileType, Integer s3ListMaxKeys) {
+    this(s3BucketName, allowedRifFileType, s3ListMaxKeys, 0);
+  }
+
+  /**
+   * Constructs a new {@link ExtractionOptions} instance.
+   *
+   * @param s3BucketName the value to use for {@link #getS3BucketName()}
+   * @param allowedRifFileType the value to use for {@link #getDataSetFilter()}
+   * @param s3ListMaxKeys the value to use for {@link #getS3ListMaxKeys()}
+   * @param parserThreads the value to use for {@link #getParserThreads()}
+   */
+  public ExtractionOptions(
+      String s3BucketName,
+      RifFileType allowedRifFileType,
+      Integer s3ListMaxKeys,
+      int parserThreads) {
+    this(s3BucketName, allowedRifFileType, s3ListMaxKeys, parserThreads, false);
+  }
+
+  /**
+   * Constructs a new {@link ExtractionOptions} instance.
+   *
+   * @param s3BucketName the value to use for {@link #getS3BucketName()}
+   * @param allowedRifFileType the value to use for {@link #getDataSetFilter()}
+   * @param s3ListMaxKeys the value to use for {@link #getS3ListMaxKeys()}
+   * @param parserThreads the value to use for {@link #getParserThreads()}
+   * @param streamingDownloadsEnabled the value to use for {@link #isStreamingDownloadsEnabled()}
+   */
+  public ExtractionOptions(
+      String s3BucketName,
+      RifFileType allowedRifFileType,
+      Integer s3ListMaxKeys,
+      int parserThreads,
+      boolean streamingDownloadsEnabled) {
+    this(
+        s3BucketName,
+        allowedRifFileType,
+        s3ListMaxKeys,
+        parserThreads,
+        streamingDownloadsEnabled,
+        DEFAULT_DOWNLOAD_THREADS,
+        0);
+  }
+
+  /**
+   * Constructs a new {@link ExtractionOptions} instance.
+   *
+   * @param s3BucketName the value to use for {@link #getS3BucketName()}
+   * @param allowedRifFileType the value to use for {@link #getDataSetFilter()}
+   * @param s3ListMaxKeys the value to use for {@link #getS3ListMaxKeys()}
+   * @param parserThreads the value to use for {@link #getParserThreads()}
+   * @param streamingDownloadsEnabled the value to use for {@link #isStreamingDownloadsEnabled()}
+   * @param downloadThreads the value to use for {@link #getDownloadThreads()}
+   * @param downloadRangeThreads the value to use for {@link #getDownloadRangeThreads()}
+   */
+  public ExtractionOptions(
+      String s3BucketName,
+      RifFileType allowedRifFileType,
+      Integer s3ListMaxKeys,
+      int parserThreads,
+      boolean streamingDownloadsEnabled,
+      int downloadThreads,
+      int downloadRangeThreads) {
+    this(
+        s3BucketName,
+        allowedRifFileType,
+        s3ListMaxKeys,
+        parserThreads,
+        streamingDownloadsEnabled,
+        downloadThreads,
+        downloadRangeThreads,
+        DEFAULT_PREFETCH_DATA_SETS,
+        DEFAULT_PREFETCH_DISK_BUDGET);
+  }
+
+  /**
+   * Constructs a new {@link ExtractionOptions} instance.
+   *
+   * @param s3BucketName the value to use for {@link #getS3BucketName()}
+   * @param allowedRifFileType the value to use for {@link #getDataSetFilter()}
+   * @param s3ListMaxKeys the value to use for {@link #getS3ListMaxKeys()}
+   * @param parserThreads the value to use for {@link #getParserThreads()}
+   * @param streamingDownloadsEnabled the value to use for {@link #isStreamingDownloadsEnabled()}
+   * @param downloadThreads the value to use for {@link #getDownloadThreads()}
+   * @param downloadRangeThreads the value to use for {@link #getDownloadRangeThreads()}
+   * @param prefetchDataSets the value to use for {@link #getPrefetchDataSets()}
+   * @param prefetchDiskBudget the value to use for {@link #getPrefetchDiskBudget()}
+   */
+  public ExtractionOptions(
+      String s3BucketName,
+      RifFileType allowedRifFileType,
+      Integer s3ListMaxKeys,
+      int parserThreads,
+      boolean streamingDownloadsEnabled,
+      int downloadThreads,
+      int downloadRangeThreads,
+      int prefetchDataSets,
+      long prefetchDiskBudget) {
+    this(
+        s3BucketName,
+        allowedRifFileType,
+        s3ListMaxKeys,
+        parserThreads,
+        streamingDownloadsEnabled,
+        downloadThreads,
+        downloadRangeThreads,
+        prefetchDataSets,
+        prefetchDiskBudget,
+        null);
+  }
+
+  /**
+   * Constructs a new {@link ExtractionOptions} instance.
+   *
+   * @param s3BucketName the value to use for {@link #getS3BucketName()}
+   * @param allowedRifFileType the value to use for {@link #getDataSetFilter()}
+   * @param s3ListMaxKeys the value to use for {@link #getS3ListMaxKeys()}
+   * @param parserThreads the value to use for {@link #getParserThreads()}
+   * @param streamingDownloadsEnabled the value to use for {@link #isStreamingDownloadsEnabled()}
+   * @param downloadThreads the value to use for {@link #getDownloadThreads()}
+   * @param downloadRangeThreads the value to use for {@link #getDownloadRangeThreads()}
+   * @param prefetchDataSets the value to use for {@link #getPrefetchDataSets()}
+   * @param prefetchDiskBudget the value to use for {@link #getPrefetchDiskBudget()}
+   * @param localDataSetsDirectory the value to use for {@link #getLocalDataSetsDirectory()}, or
+   *     <code>null</code> to pull data sets from S3
+   */
+  public ExtractionOptions(
+      String s3BucketName,
+      RifFileType allowedRifFileType,
+      Integer s3ListMaxKeys,
+      int parserThreads,
+      boolean streamingDownloadsEnabled,
+      int downloadThreads,
+      int downloadRangeThreads,
+      int prefetchDataSets,
+      long prefetchDiskBudget,
+      Path localDataSetsDirectory) {
+    if (parserThreads < 0) throw new IllegalArgumentException();
+    if (downloadThreads < 1) throw new IllegalArgumentException();
+    if (downloadRangeThreads < 0) throw new IllegalArgumentException();
+    if (prefetchDataSets < 0) throw new IllegalArgumentException();
+    if (prefetchDiskBudget < 0) throw new IllegalArgumentException();
+
     this.s3BucketName = s3BucketName;
     this.allowedRifFileType = allowedRifFileType;
     this.s3ListMaxKeys = s3ListMaxKeys;
+    this.parserThreads = parserThreads;
+    this.streamingDownloadsEnabled = streamingDownloadsEnabled;
+    this.downloadThreads = downloadThreads;
+    this.downloadRangeThreads = downloadRangeThreads;
+    this.prefetchDataSets = prefetchDataSets;
+    this.prefetchDiskBudget = prefetchDiskBudget;
+    this.localDataSetsDirectory =
+        localDataSetsDirectory != null ? localDataSetsDirectory.toString() : null;
   }
 
   /**
@@ -100,6 +269,68 @@ public final class ExtractionOptions implements Serializable {
     return Optional.ofNullable(s3ListMaxKeys);
   }
 
+  /**
+   * @return the number of threads that {@link RifFilesProcessor} should parse each file's records
+   *     with, or <code>0</code> if it should parse them sequentially
+   */
+  public int getParserThreads() {
+    return parserThreads;
+  }
+
+  /**
+   * @return <code>true</code> if each RIF file should be made available for parsing while it's
+   *     still being downloaded from S3 (with its checksum computed as it's downloaded, and only
+   *     verified once it's complete), or <code>false</code> if each RIF file should be fully
+   *     downloaded and checksummed before it's made available
+   */
+  public boolean isStreamingDownloadsEnabled() {
+    return streamingDownloadsEnabled;
+  }
+
+  /** @return the number of RIF files that may be downloaded from S3 concurrently */
+  public int getDownloadThreads() {
+    return downloadThreads;
+  }
+
+  /**
+   * @return the number of byte ranges of each RIF file that should be downloaded from S3
+   *     concurrently (with the file's checksum computed as it's downloaded), or <code>0</code> if
+   *     each RIF file should be downloaded via the S3 <code>TransferManager</code> and then reread
+   *     to compute its checksum
+   */
+  public int getDownloadRangeThreads() {
+    return downloadRangeThreads;
+  }
+
+  /**
+   * @return the maximum number of pending data sets, after the one currently being processed, whose
+   *     RIF files may be downloaded ahead of time, or <code>0</code> to disable such prefetching
+   */
+  public int getPrefetchDataSets() {
+    return prefetchDataSets;
+  }
+
+  /**
+   * @return the maximum number of bytes of prefetched RIF files (i.e. for data sets that aren't
+   *     being processed yet) that may be on local disk at once
+   */
+  public long getPrefetchDiskBudget() {
+    return prefetchDiskBudget;
+  }
+
+  /**
+   * Note: the directory may be on a local or network (e.g. NFS) file system, but must be laid out
+   * like the S3 bucket described in {@link
+   * gov.cms.bfd.pipeline.rif.extract.s3.DataSetMonitor}, with <code>Incoming</code> and <code>
+   * Done</code> directories on the same file system.
+   *
+   * @return the directory that data sets should be pulled from (and read in place), or {@link
+   *     Optional#empty()} if they should be pulled from {@link #getS3BucketName()}
+   */
+  public Optional<Path> getLocalDataSetsDirectory() {
+    return Optional.ofNullable(localDataSetsDirectory).map(Paths::get);
+  }
+
   /** @see java.lang.Object#toString() */
   @Override
   public String toString() {
@@ -108,6 +339,20 @@ public final class ExtractionOptions implements Serializable {
     builder.append(s3BucketName);
     builder.append(", allowedRifFileType=");
     builder.append(allowedRifFileType);
+    builder.append(", parserThreads=");
+    builder.append(parserThreads);
+    builder.append(", streamingDownloadsEnabled=");
+    builder.append(streamingDownloadsEnabled);
+    builder.append(", downloadThreads=");
+    builder.append(downloadThreads);
+    builder.append(", downloadRangeThreads=");
+    builder.append(downloadRangeThreads);
+    builder.append(", prefetchDataSets=");
+    builder.append(prefetchDataSets);
+    builder.append(", prefetchDiskBudget=");
+    builder.append(prefetchDiskBudget);
+    builder.append(", localDataSetsDirectory=");
+    builder.append(localDataSetsDirectory);
     builder.append("]");
     return builder.toString();
   }
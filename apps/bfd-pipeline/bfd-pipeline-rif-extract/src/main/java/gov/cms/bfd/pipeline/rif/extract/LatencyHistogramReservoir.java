@@ -0,0 +1,238 @@
+package gov.cms.bfd.pipeline.rif.extract;
+
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link Reservoir} that, in the style of HdrHistogram, counts every value in a fixed set of
+ * log-linear buckets, rather than keeping a sample of them the way {@link
+ * com.codahale.metrics.ExponentiallyDecayingReservoir} does. Recording a value is just a few
+ * atomic increments, with no locking or allocation, and every value ever recorded is reflected in
+ * the quantiles, to within {@link #MAX_RELATIVE_ERROR}.
+ *
+ * <p>The buckets cover every value from <code>0</code> to {@link #MAX_VALUE} (which, in
+ * nanoseconds, is about nine and a half hours): larger values are counted as {@link #MAX_VALUE}.
+ * Values below <code>128</code> each get their own bucket. Above that, each power of two is split
+ * into <code>64</code> equal buckets.
+ *
+ * <p>The counts are cumulative (from when the reservoir was created), which suits export to
+ * systems that compute rates themselves, e.g. Prometheus.
+ */
+public final class LatencyHistogramReservoir implements Reservoir {
+  /** The number of bits of each value that are kept exactly, i.e. the histogram's precision. */
+  private static final int SUB_BUCKET_BITS = 7;
+
+  /** The number of buckets that each power of two (past the first few) is split into. */
+  private static final int SUB_BUCKET_HALF_COUNT = 1 << (SUB_BUCKET_BITS - 1);
+
+  /** The largest value that can be recorded without being clamped. */
+  public static final long MAX_VALUE = (1L << 45) - 1;
+
+  /** The largest error that any of this reservoir's quantiles can have, relative to the value. */
+  public static final double MAX_RELATIVE_ERROR = 1.0 / SUB_BUCKET_HALF_COUNT;
+
+  /** The number of buckets needed to cover all values up to {@link #MAX_VALUE}. */
+  private static final int BUCKET_COUNT = bucketIndex(MAX_VALUE) + 1;
+
+  private final AtomicLongArray counts;
+  private final LongAdder count;
+  private final LongAdder sum;
+  private final AtomicLong min;
+  private final AtomicLong max;
+
+  /** Constructs a new, empty {@link LatencyHistogramReservoir}. */
+  public LatencyHistogramReservoir() {
+    this.counts = new AtomicLongArray(BUCKET_COUNT);
+    this.count = new LongAdder();
+    this.sum = new LongAdder();
+    this.min = new AtomicLong(Long.MAX_VALUE);
+    this.max = new AtomicLong(Long.MIN_VALUE);
+  }
+
+  /** @see com.codahale.metrics.Reservoir#size() */
+  @Override
+  public int size() {
+    return (int) Math.min(count.sum(), Integer.MAX_VALUE);
+  }
+
+  /** @see com.codahale.metrics.Reservoir#update(long) */
+  @Override
+  public void update(long value) {
+    long clampedValue = Math.max(0L, Math.min(value, MAX_VALUE));
+    counts.incrementAndGet(bucketIndex(clampedValue));
+    count.increment();
+    sum.add(clampedValue);
+    if (clampedValue < min.get()) min.accumulateAndGet(clampedValue, Math::min);
+    if (clampedValue > max.get()) max.accumulateAndGet(clampedValue, Math::max);
+  }
+
+  /** @see com.codahale.metrics.Reservoir#getSnapshot() */
+  @Override
+  public Snapshot getSnapshot() {
+    long[] bucketCounts = new long[BUCKET_COUNT];
+    long total = 0L;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      bucketCounts[i] = counts.get(i);
+      total += bucketCounts[i];
+    }
+    return new BucketSnapshot(bucketCounts, total, sum.sum(), min.get(), max.get());
+  }
+
+  /**
+   * @param value the (non-negative, no greater than {@link #MAX_VALUE}) value to find the bucket of
+   * @return the index of the bucket that the specified value is counted in
+   */
+  static int bucketIndex(long value) {
+    if (value < (1L << SUB_BUCKET_BITS)) return (int) value;
+
+    int shift = (63 - Long.numberOfLeadingZeros(value)) - (SUB_BUCKET_BITS - 1);
+    return shift * SUB_BUCKET_HALF_COUNT + (int) (value >>> shift);
+  }
+
+  /**
+   * @param index the index of the bucket to get the bounds of
+   * @return the smallest value that's counted in the specified bucket
+   */
+  static long bucketLowerBound(int index) {
+    if (index < (1 << SUB_BUCKET_BITS)) return index;
+
+    int shift = index / SUB_BUCKET_HALF_COUNT - 1;
+    long mantissa = index - shift * SUB_BUCKET_HALF_COUNT;
+    return mantissa << shift;
+  }
+
+  /**
+   * @param index the index of the bucket to get the bounds of
+   * @return the largest value that's counted in the specified bucket
+   */
+  static long bucketUpperBound(int index) {
+    return index + 1 < BUCKET_COUNT ? bucketLowerBound(index + 1) - 1 : MAX_VALUE;
+  }
+
+  /**
+   * A {@link Snapshot} of a {@link LatencyHistogramReservoir}'s buckets, where each value is
+   * represented by the midpoint of its bucket.
+   */
+  private static final class BucketSnapshot extends Snapshot {
+    private final long[] bucketCounts;
+    private final long total;
+    private final long sum;
+    private final long min;
+    private final long max;
+
+    /**
+     * Constructs a new {@link BucketSnapshot}.
+     *
+     * @param bucketCounts the number of values in each bucket
+     * @param total the sum of the specified bucket counts
+     * @param sum the exact sum of all of the values
+     * @param min the smallest value, or {@link Long#MAX_VALUE} if there are none
+     * @param max the largest value, or {@link Long#MIN_VALUE} if there are none
+     */
+    BucketSnapshot(long[] bucketCounts, long total, long sum, long min, long max) {
+      this.bucketCounts = bucketCounts;
+      this.total = total;
+      this.sum = sum;
+      this.min = min;
+      this.max = max;
+    }
+
+    /** @see com.codahale.metrics.Snapshot#getValue(double) */
+    @Override
+    public double getValue(double quantile) {
+      if (quantile < 0.0 || quantile > 1.0 || Double.isNaN(quantile))
+        throw new IllegalArgumentException(quantile + " is not in [0..1]");
+      if (total == 0L) return 0.0;
+
+      long rank = Math.max(1L, (long) Math.ceil(quantile * total));
+      long seen = 0L;
+      for (int i = 0; i < bucketCounts.length; i++) {
+        seen += bucketCounts[i];
+        if (seen >= rank) return Math.max(min, Math.min(max, midpoint(i)));
+      }
+      return max;
+    }
+
+    /**
+     * @return the midpoint of each non-empty bucket, in order: the individual values aren't kept,
+     *     and a snapshot of a busy histogram could otherwise be enormous
+     * @see com.codahale.metrics.Snapshot#getValues()
+     */
+    @Override
+    public long[] getValues() {
+      int nonEmptyBuckets = 0;
+      for (long bucketCount : bucketCounts) if (bucketCount > 0) nonEmptyBuckets++;
+
+      long[] values = new long[nonEmptyBuckets];
+      int v = 0;
+      for (int i = 0; i < bucketCounts.length; i++)
+        if (bucketCounts[i] > 0) values[v++] = midpoint(i);
+      return values;
+    }
+
+    /** @see com.codahale.metrics.Snapshot#size() */
+    @Override
+    public int size() {
+      return (int) Math.min(total, Integer.MAX_VALUE);
+    }
+
+    /** @see com.codahale.metrics.Snapshot#getMax() */
+    @Override
+    public long getMax() {
+      return total == 0L ? 0L : max;
+    }
+
+    /** @see com.codahale.metrics.Snapshot#getMean() */
+    @Override
+    public double getMean() {
+      return total == 0L ? 0.0 : (double) sum / total;
+    }
+
+    /** @see com.codahale.metrics.Snapshot#getMin() */
+    @Override
+    public long getMin() {
+      return total == 0L ? 0L : min;
+    }
+
+    /** @see com.codahale.metrics.Snapshot#getStdDev() */
+    @Override
+    public double getStdDev() {
+      if (total <= 1L) return 0.0;
+
+      double mean = getMean();
+      double sumOfSquares = 0.0;
+      for (int i = 0; i < bucketCounts.length; i++) {
+        if (bucketCounts[i] == 0L) continue;
+        double diff = midpoint(i) - mean;
+        sumOfSquares += diff * diff * bucketCounts[i];
+      }
+      return Math.sqrt(sumOfSquares / (total - 1));
+    }
+
+    /** @see com.codahale.metrics.Snapshot#dump(java.io.OutputStream) */
+    @Override
+    public void dump(OutputStream output) {
+      try (PrintWriter out =
+          new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
+        for (int i = 0; i < bucketCounts.length; i++)
+          if (bucketCounts[i] > 0) out.printf("%d\t%d%n", midpoint(i), bucketCounts[i]);
+      }
+    }
+
+    /**
+     * @param index the index of the bucket to get the midpoint of
+     * @return the value in the middle of the specified bucket
+     */
+    private static long midpoint(int index) {
+      long lowerBound = bucketLowerBound(index);
+      return lowerBound + (bucketUpperBound(index) - lowerBound) / 2;
+    }
+  }
+}
@@ -0,0 +1,440 @@
+package gov.cms.bfd.pipeline.rif.extract;
+
+import gov.cms.bfd.model.rif.parse.InvalidRifFileFormatException;
+import gov.cms.bfd.model.rif.parse.RifParsingUtils;
+import gov.cms.bfd.pipeline.rif.extract.CsvRecordGroupingIterator.ColumnValueCsvRecordGrouper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+/**
+ * A {@link Spliterator} of the grouped {@link CSVRecord}s in a local RIF file, which memory-maps
+ * the file and can be split into byte ranges that are then parsed independently (and in parallel).
+ *
+ * <p>Splits always fall on record boundaries, and never between two records in the same group (i.e.
+ * records that share a value for the grouping column, such as a claim's <code>CLM_ID</code>). This
+ * requires that records never contain embedded line breaks, which is true of all RIF files.
+ *
+ * <p>Note that {@link CSVRecord#getRecordNumber()} values are relative to the start of each split,
+ * rather than to the start of the file.
+ */
+public final class MappedRifFileSpliterator implements Spliterator<List<CSVRecord>>, AutoCloseable {
+  /** The default value for {@link #minSplitSize}. */
+  public static final long DEFAULT_MIN_SPLIT_SIZE = 8L * 1024L * 1024L;
+
+  /** The maximum number of bytes that will be mapped at once, while reading records. */
+  private static final long READ_WINDOW_SIZE = 64L * 1024L * 1024L;
+
+  /** The maximum number of bytes that will be mapped at once, while looking for split points. */
+  private static final long SCAN_WINDOW_SIZE = 64L * 1024L;
+
+  /** The UTF-8 byte order mark, which some RIF files start with. */
+  private static final byte[] UTF8_BOM = new byte[] {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+  private final Path file;
+  private final Charset charset;
+  private final CSVFormat csvFormat;
+  private final Enum<?> groupingColumn;
+  private final int groupingColumnIndex;
+  private final long minSplitSize;
+
+  /** The byte offset (inclusive) of the first record in this split. */
+  private long start;
+
+  /** The byte offset (exclusive) of the end of the last record in this split. */
+  private final long end;
+
+  /** The records being traversed, which will be <code>null</code> until traversal starts. */
+  private Iterator<List<CSVRecord>> groups;
+
+  private CSVParser parser;
+
+  /**
+   * Constructs a new {@link MappedRifFileSpliterator} for an entire RIF file, reading its header
+   * record.
+   *
+   * @param file the local RIF file to read
+   * @param charset the {@link Charset} of the RIF file
+   * @param groupingColumn the column whose value should be used to group records (and which splits
+   *     won't break up), or <code>null</code> if records should not be grouped
+   * @param minSplitSize the minimum size, in bytes, of any split that {@link #trySplit()} will
+   *     produce
+   */
+  public MappedRifFileSpliterator(
+      Path file, Charset charset, Enum<?> groupingColumn, long minSplitSize) {
+    if (minSplitSize < 1) throw new IllegalArgumentException();
+
+    this.file = file;
+    this.charset = charset;
+    this.groupingColumn = groupingColumn;
+    this.minSplitSize = minSplitSize;
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      this.end = channel.size();
+
+      long headerStart = startsWithBom(channel) ? UTF8_BOM.length : 0L;
+      long headerEnd = findLineStart(channel, headerStart + 1, end);
+      String headerLine = readLine(channel, headerStart, headerEnd);
+      String[] header = parseLine(headerLine).toArray(new String[0]);
+
+      this.start = headerEnd;
+      this.csvFormat = RifParsingUtils.CSV_FORMAT.withHeader(header);
+      this.groupingColumnIndex =
+          groupingColumn != null ? Arrays.asList(header).indexOf(groupingColumn.name()) : -1;
+      if (groupingColumn != null && groupingColumnIndex < 0)
+        throw new InvalidRifFileFormatException(
+            String.format("Missing grouping column '%s' in: '%s'.", groupingColumn, file));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Constructs a new {@link MappedRifFileSpliterator} for an entire RIF file, with the {@link
+   * #DEFAULT_MIN_SPLIT_SIZE}.
+   *
+   * @param file the local RIF file to read
+   * @param charset the {@link Charset} of the RIF file
+   * @param groupingColumn the column whose value should be used to group records (and which splits
+   *     won't break up), or <code>null</code> if records should not be grouped
+   */
+  public MappedRifFileSpliterator(Path file, Charset charset, Enum<?> groupingColumn) {
+    this(file, charset, groupingColumn, DEFAULT_MIN_SPLIT_SIZE);
+  }
+
+  /**
+   * Constructs a new {@link MappedRifFileSpliterator} for a range of another one's records.
+   *
+   * @param parent the {@link MappedRifFileSpliterator} being split
+   * @param start the value to use for {@link #start}
+   * @param end the value to use for {@link #end}
+   */
+  private MappedRifFileSpliterator(MappedRifFileSpliterator parent, long start, long end) {
+    this.file = parent.file;
+    this.charset = parent.charset;
+    this.csvFormat = parent.csvFormat;
+    this.groupingColumn = parent.groupingColumn;
+    this.groupingColumnIndex = parent.groupingColumnIndex;
+    this.minSplitSize = parent.minSplitSize;
+    this.start = start;
+    this.end = end;
+  }
+
+  /**
+   * @return the file's header, as a mapping of column names to their positions, in the same form as
+   *     {@link CSVParser#getHeaderMap()}
+   */
+  public Map<String, Integer> getHeaderMap() {
+    Map<String, Integer> headerMap = new LinkedHashMap<>();
+    String[] header = csvFormat.getHeader();
+    for (int i = 0; i < header.length; i++) headerMap.put(header[i], i);
+    return headerMap;
+  }
+
+  /** @see java.util.Spliterator#tryAdvance(java.util.function.Consumer) */
+  @Override
+  public boolean tryAdvance(Consumer<? super List<CSVRecord>> action) {
+    if (groups == null) {
+      parser = createParser();
+      groups =
+          new CsvRecordGroupingIterator(parser, new ColumnValueCsvRecordGrouper(groupingColumn));
+    }
+
+    if (!groups.hasNext()) {
+      close();
+      return false;
+    }
+
+    action.accept(groups.next());
+    return true;
+  }
+
+  /**
+   * Splits off the first half (roughly) of this {@link MappedRifFileSpliterator}'s records, at a
+   * group boundary.
+   *
+   * @see java.util.Spliterator#trySplit()
+   */
+  @Override
+  public Spliterator<List<CSVRecord>> trySplit() {
+    // Can't split once traversal has started, or if what's left is too small.
+    if (groups != null) return null;
+    if (end - start < 2 * minSplitSize) return null;
+
+    long splitPoint;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      splitPoint = findGroupStart(channel, start + (end - start) / 2);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    if (splitPoint <= start || splitPoint >= end) return null;
+
+    MappedRifFileSpliterator prefix = new MappedRifFileSpliterator(this, start, splitPoint);
+    this.start = splitPoint;
+    return prefix;
+  }
+
+  /**
+   * Note: this is the number of bytes remaining, which is always more than the number of records.
+   *
+   * @see java.util.Spliterator#estimateSize()
+   */
+  @Override
+  public long estimateSize() {
+    return end - start;
+  }
+
+  /** @see java.util.Spliterator#characteristics() */
+  @Override
+  public int characteristics() {
+    return Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE;
+  }
+
+  /**
+   * Releases the resources used by this {@link MappedRifFileSpliterator}'s traversal, if any.
+   *
+   * @see java.lang.AutoCloseable#close()
+   */
+  @Override
+  public void close() {
+    if (parser == null) return;
+
+    try {
+      parser.close();
+      parser = null;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** @return a {@link CSVParser} for this {@link MappedRifFileSpliterator}'s range of records */
+  private CSVParser createParser() {
+    try {
+      return new CSVParser(
+          new InputStreamReader(new MappedRangeInputStream(file, start, end), charset), csvFormat);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * @param channel the {@link FileChannel} to read from
+   * @param position the offset to start looking from
+   * @return the offset of the first record, at or after the specified offset, that begins a new
+   *     group (i.e. that has a different grouping column value than the record before it), or
+   *     {@link #end} if there isn't one
+   * @throws IOException Any {@link IOException}s encountered will be bubbled up.
+   */
+  private long findGroupStart(FileChannel channel, long position) throws IOException {
+    long lineStart = findLineStart(channel, position, end);
+    if (groupingColumn == null || lineStart >= end) return lineStart;
+
+    String previousGroupValue = null;
+    long previousLineStart = findPreviousLineStart(channel, lineStart);
+    if (previousLineStart >= start)
+      previousGroupValue = parseGroupValue(readLine(channel, previousLineStart, lineStart));
+
+    while (lineStart < end) {
+      long nextLineStart = findLineStart(channel, lineStart + 1, end);
+      String groupValue = parseGroupValue(readLine(channel, lineStart, nextLineStart));
+      if (!groupValue.equals(previousGroupValue)) return lineStart;
+
+      lineStart = nextLineStart;
+    }
+    return end;
+  }
+
+  /**
+   * @param line a single record's line of text
+   * @return the value of the {@link #groupingColumn} in the specified record
+   */
+  private String parseGroupValue(String line) {
+    List<String> values = parseLine(line);
+    if (groupingColumnIndex >= values.size())
+      throw new InvalidRifFileFormatException(
+          String.format("Missing grouping column '%s' in: '%s'.", groupingColumn, file));
+    return values.get(groupingColumnIndex);
+  }
+
+  /**
+   * @param line a single line of RIF text
+   * @return the column values in that line
+   */
+  private static List<String> parseLine(String line) {
+    try (CSVParser lineParser =
+        CSVParser.parse(line, RifParsingUtils.CSV_FORMAT.withHeader((String[]) null))) {
+      List<CSVRecord> records = lineParser.getRecords();
+      if (records.size() != 1)
+        throw new InvalidRifFileFormatException(String.format("Invalid RIF line: '%s'", line));
+
+      List<String> values = new ArrayList<>(records.get(0).size());
+      records.get(0).forEach(values::add);
+      return values;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * @param channel the {@link FileChannel} to read from
+   * @return <code>true</code> if the file starts with a UTF-8 byte order mark, <code>false</code>
+   *     if it does not
+   * @throws IOException Any {@link IOException}s encountered will be bubbled up.
+   */
+  private static boolean startsWithBom(FileChannel channel) throws IOException {
+    if (channel.size() < UTF8_BOM.length) return false;
+
+    MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, UTF8_BOM.length);
+    for (byte bomByte : UTF8_BOM) if (buffer.get() != bomByte) return false;
+    return true;
+  }
+
+  /**
+   * @param channel the {@link FileChannel} to read from
+   * @param position the offset to start looking from
+   * @param limit the offset to stop looking at
+   * @return the offset of the first line that starts at or after the specified offset (i.e. the
+   *     offset just past the first line break at or after <code>position - 1</code>), or the limit
+   *     if there isn't one
+   * @throws IOException Any {@link IOException}s encountered will be bubbled up.
+   */
+  private static long findLineStart(FileChannel channel, long position, long limit)
+      throws IOException {
+    if (position <= 0) return 0;
+
+    long windowStart = position - 1;
+    while (windowStart < limit) {
+      long windowSize = Math.min(SCAN_WINDOW_SIZE, limit - windowStart);
+      MappedByteBuffer window = channel.map(MapMode.READ_ONLY, windowStart, windowSize);
+      for (int i = 0; i < windowSize; i++) if (window.get(i) == '\n') return windowStart + i + 1;
+      windowStart += windowSize;
+    }
+    return limit;
+  }
+
+  /**
+   * @param channel the {@link FileChannel} to read from
+   * @param lineStart the offset of the start of a line, which must be after the first line
+   * @return the offset of the start of the line before the specified one
+   * @throws IOException Any {@link IOException}s encountered will be bubbled up.
+   */
+  private static long findPreviousLineStart(FileChannel channel, long lineStart)
+      throws IOException {
+    // Skip back over the previous line's line break.
+    long windowEnd = lineStart - 1;
+    while (windowEnd > 0) {
+      long windowStart = Math.max(0, windowEnd - SCAN_WINDOW_SIZE);
+      MappedByteBuffer window =
+          channel.map(MapMode.READ_ONLY, windowStart, windowEnd - windowStart);
+      for (int i = (int) (windowEnd - windowStart) - 1; i >= 0; i--)
+        if (window.get(i) == '\n') return windowStart + i + 1;
+      windowEnd = windowStart;
+    }
+    return 0;
+  }
+
+  /**
+   * @param channel the {@link FileChannel} to read from
+   * @param lineStart the offset of the start of the line to read
+   * @param lineEnd the offset just past the end of the line to read
+   * @return the specified line, without its line break
+   * @throws IOException Any {@link IOException}s encountered will be bubbled up.
+   */
+  private String readLine(FileChannel channel, long lineStart, long lineEnd) throws IOException {
+    if (lineEnd - lineStart > Integer.MAX_VALUE)
+      throw new InvalidRifFileFormatException(String.format("Line too long in: '%s'.", file));
+
+    MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, lineStart, lineEnd - lineStart);
+    String line = charset.decode(buffer).toString();
+    int lineLength = line.length();
+    while (lineLength > 0
+        && (line.charAt(lineLength - 1) == '\n' || line.charAt(lineLength - 1) == '\r'))
+      lineLength--;
+    return line.substring(0, lineLength);
+  }
+
+  /**
+   * An {@link InputStream} for a range of bytes in a file, which memory-maps the file in windows of
+   * up to {@link MappedRifFileSpliterator#READ_WINDOW_SIZE} bytes as it goes.
+   */
+  private static final class MappedRangeInputStream extends InputStream {
+    private final FileChannel channel;
+    private final long end;
+    private long windowStart;
+    private MappedByteBuffer window;
+
+    /**
+     * Constructs a new {@link MappedRangeInputStream}.
+     *
+     * @param file the file to read
+     * @param start the offset (inclusive) to start reading at
+     * @param end the offset (exclusive) to stop reading at
+     * @throws IOException Any {@link IOException}s encountered will be bubbled up.
+     */
+    MappedRangeInputStream(Path file, long start, long end) throws IOException {
+      this.channel = FileChannel.open(file, StandardOpenOption.READ);
+      this.end = end;
+      this.windowStart = start;
+      this.window = null;
+    }
+
+    /**
+     * @return <code>true</code> if {@link #window} has any bytes left to read, mapping the next
+     *     window if needed, or <code>false</code> if the end of the range has been reached
+     * @throws IOException Any {@link IOException}s encountered will be bubbled up.
+     */
+    private boolean ensureWindow() throws IOException {
+      if (window != null && window.hasRemaining()) return true;
+      if (window != null) windowStart += window.capacity();
+      if (windowStart >= end) return false;
+
+      window =
+          channel.map(
+              MapMode.READ_ONLY, windowStart, Math.min(READ_WINDOW_SIZE, end - windowStart));
+      return true;
+    }
+
+    /** @see java.io.InputStream#read() */
+    @Override
+    public int read() throws IOException {
+      if (!ensureWindow()) return -1;
+      return window.get() & 0xFF;
+    }
+
+    /** @see java.io.InputStream#read(byte[], int, int) */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) return 0;
+      if (!ensureWindow()) return -1;
+
+      int bytesRead = Math.min(len, window.remaining());
+      window.get(b, off, bytesRead);
+      return bytesRead;
+    }
+
+    /** @see java.io.InputStream#close() */
+    @Override
+    public void close() throws IOException {
+      window = null;
+      channel.close();
+    }
+  }
+}
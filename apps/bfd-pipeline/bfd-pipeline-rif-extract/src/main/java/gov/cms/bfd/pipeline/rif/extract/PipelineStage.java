@@ -0,0 +1,47 @@
+package gov.cms.bfd.pipeline.rif.extract;
+
+/**
+ * Enumerates the stages that each RIF record passes through on its way from S3 to the database,
+ * each of which has its own latency histogram in {@link PipelineStageMetrics}.
+ */
+public enum PipelineStage {
+  /** Time spent blocked, waiting for a RIF file's download from S3 to finish. */
+  S3_WAIT("s3Wait"),
+
+  /** Time spent reading and splitting the CSV records of a RIF file, per record group. */
+  READ("read"),
+
+  /** Time spent parsing a group of CSV records into a RIF record, per record group. */
+  PARSE("parse"),
+
+  /** Time spent hashing the identifiers of a batch of RIF records, per batch. */
+  HASH("hash"),
+
+  /** Time that a batch of RIF records spent queued, waiting for a loader thread, per batch. */
+  QUEUE_WAIT("queueWait"),
+
+  /** Time spent writing a batch of RIF records in a database transaction, before commit. */
+  TRANSACTION("transaction"),
+
+  /** Time spent committing a batch of RIF records' database transaction. */
+  COMMIT("commit"),
+
+  /** Time spent passing a batch of RIF records' results to the result handler. */
+  RESULT_HANDLING("resultHandling");
+
+  private final String metricName;
+
+  /**
+   * Enum constant constructor.
+   *
+   * @param metricName the value to use for {@link #getMetricName()}
+   */
+  private PipelineStage(String metricName) {
+    this.metricName = metricName;
+  }
+
+  /** @return the name of this {@link PipelineStage}'s metrics, e.g. <code>queueWait</code> */
+  public String getMetricName() {
+    return metricName;
+  }
+}
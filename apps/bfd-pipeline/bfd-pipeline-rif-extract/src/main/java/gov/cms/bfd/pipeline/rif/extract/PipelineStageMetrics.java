@@ -0,0 +1,163 @@
+package gov.cms.bfd.pipeline.rif.extract;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import gov.cms.bfd.model.rif.RifFileType;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the latency of each {@link PipelineStage}, in {@link Timer}s backed by {@link
+ * LatencyHistogramReservoir}s, along with the number of records loaded for each {@link
+ * RifFileType}. Each latency is recorded twice: once in the stage's overall {@link Timer}, and once
+ * in the stage's {@link Timer} for the record's {@link RifFileType}, as the different record types
+ * perform very differently. The metrics are all registered in the application's {@link
+ * MetricRegistry} (under <code>PipelineStages</code>), and are shared by every instance that uses
+ * the same registry.
+ *
+ * <p>Every metric is resolved once, up front, so that recording a latency doesn't need any name
+ * building or registry lookups, even on per-record paths.
+ */
+public final class PipelineStageMetrics {
+  /** The prefix of the names that this class's metrics are registered under. */
+  public static final String METRIC_NAME_PREFIX = "PipelineStages";
+
+  private final Map<PipelineStage, Timer> stageTimers;
+  private final Map<PipelineStage, Map<RifFileType, Timer>> fileTypeStageTimers;
+  private final Map<RifFileType, Meter> recordMeters;
+
+  /**
+   * Constructs a new {@link PipelineStageMetrics}.
+   *
+   * @param metrics the {@link MetricRegistry} to register the metrics in
+   */
+  public PipelineStageMetrics(MetricRegistry metrics) {
+    this.stageTimers = new EnumMap<>(PipelineStage.class);
+    this.fileTypeStageTimers = new EnumMap<>(PipelineStage.class);
+    for (PipelineStage stage : PipelineStage.values()) {
+      stageTimers.put(stage, stageTimer(metrics, stage));
+
+      Map<RifFileType, Timer> fileTypeTimers = new EnumMap<>(RifFileType.class);
+      for (RifFileType rifFileType : RifFileType.values())
+        fileTypeTimers.put(rifFileType, stageTimer(metrics, stage, rifFileType));
+      fileTypeStageTimers.put(stage, fileTypeTimers);
+    }
+
+    this.recordMeters = new EnumMap<>(RifFileType.class);
+    for (RifFileType rifFileType : RifFileType.values())
+      recordMeters.put(
+          rifFileType,
+          metrics.meter(MetricRegistry.name(METRIC_NAME_PREFIX, "records", rifFileType.name())));
+  }
+
+  /**
+   * @param metrics the {@link MetricRegistry} that the {@link Timer} is registered in
+   * @param stage the {@link PipelineStage} to get the {@link Timer} for
+   * @return the {@link Timer} for the specified {@link PipelineStage}, which will be registered
+   *     (backed by a {@link LatencyHistogramReservoir}) if it isn't already
+   */
+  public static Timer stageTimer(MetricRegistry metrics, PipelineStage stage) {
+    return registerTimer(metrics, MetricRegistry.name(METRIC_NAME_PREFIX, stage.getMetricName()));
+  }
+
+  /**
+   * @param metrics the {@link MetricRegistry} that the {@link Timer} is registered in
+   * @param stage the {@link PipelineStage} to get the {@link Timer} for
+   * @param rifFileType the {@link RifFileType} to get the {@link Timer} for
+   * @return the {@link Timer} for the specified {@link PipelineStage} and {@link RifFileType},
+   *     which will be registered (backed by a {@link LatencyHistogramReservoir}) if it isn't
+   *     already
+   */
+  public static Timer stageTimer(
+      MetricRegistry metrics, PipelineStage stage, RifFileType rifFileType) {
+    return registerTimer(
+        metrics,
+        MetricRegistry.name(METRIC_NAME_PREFIX, stage.getMetricName(), rifFileType.name()));
+  }
+
+  /**
+   * @param metrics the {@link MetricRegistry} that the {@link Timer} is registered in
+   * @param name the name of the {@link Timer} to get
+   * @return the {@link Timer} with the specified name, which will be registered (backed by a {@link
+   *     LatencyHistogramReservoir}) if it isn't already
+   */
+  private static Timer registerTimer(MetricRegistry metrics, String name) {
+    Metric existingTimer = metrics.getMetrics().get(name);
+    if (existingTimer instanceof Timer) return (Timer) existingTimer;
+
+    try {
+      return metrics.register(name, new Timer(new LatencyHistogramReservoir()));
+    } catch (IllegalArgumentException e) {
+      // Another thread beat us to it.
+      return metrics.timer(name);
+    }
+  }
+
+  /**
+   * @param stage the {@link PipelineStage} to record a latency for
+   * @param rifFileType the {@link RifFileType} of the record(s) that the latency is for
+   * @param nanos the latency to record, in nanoseconds
+   */
+  public void record(PipelineStage stage, RifFileType rifFileType, long nanos) {
+    stageTimers.get(stage).update(nanos, TimeUnit.NANOSECONDS);
+    fileTypeStageTimers.get(stage).get(rifFileType).update(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * @param stage the {@link PipelineStage} to record a latency for
+   * @param rifFileType the {@link RifFileType} of the record(s) that the latency is for
+   * @param startNanos the {@link System#nanoTime()} value from when the stage started, which it is
+   *     assumed to have just finished
+   * @return the current {@link System#nanoTime()}, which callers can use as the start of their next
+   *     stage
+   */
+  public long recordSince(PipelineStage stage, RifFileType rifFileType, long startNanos) {
+    long nowNanos = System.nanoTime();
+    record(stage, rifFileType, nowNanos - startNanos);
+    return nowNanos;
+  }
+
+  /**
+   * @param rifFileType the {@link RifFileType} of the records that were loaded (or, when the
+   *     pipeline isn't loading into the database, that made it all the way through the pipeline)
+   * @param count the number of records that were loaded
+   */
+  public void markRecords(RifFileType rifFileType, long count) {
+    recordMeters.get(rifFileType).mark(count);
+  }
+
+  /**
+   * @param stage the {@link PipelineStage} to record each {@link Iterator#next()} call's latency as
+   * @param rifFileType the {@link RifFileType} of the records that the {@link Iterator} is for
+   * @param iterator the {@link Iterator} to wrap
+   * @return an {@link Iterator} that returns the same elements as the specified one, recording how
+   *     long each of its {@link Iterator#next()} calls took
+   */
+  public <T> Iterator<T> timeIterator(
+      PipelineStage stage, RifFileType rifFileType, Iterator<T> iterator) {
+    Timer timer = stageTimers.get(stage);
+    Timer fileTypeTimer = fileTypeStageTimers.get(stage).get(rifFileType);
+    return new Iterator<T>() {
+      /** @see java.util.Iterator#hasNext() */
+      @Override
+      public boolean hasNext() {
+        return iterator.hasNext();
+      }
+
+      /** @see java.util.Iterator#next() */
+      @Override
+      public T next() {
+        long startNanos = System.nanoTime();
+        T next = iterator.next();
+        long nanos = System.nanoTime() - startNanos;
+        timer.update(nanos, TimeUnit.NANOSECONDS);
+        fileTypeTimer.update(nanos, TimeUnit.NANOSECONDS);
+        return next;
+      }
+    };
+  }
+}
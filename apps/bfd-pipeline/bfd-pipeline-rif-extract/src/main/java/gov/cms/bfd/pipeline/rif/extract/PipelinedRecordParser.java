@@ -0,0 +1,437 @@
+package gov.cms.bfd.pipeline.rif.extract;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import gov.cms.bfd.model.rif.RifFileEvent;
+import gov.cms.bfd.model.rif.RifRecordEvent;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.apache.commons.csv.CSVRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link Iterator} of {@link RifRecordEvent}s that parses its input on multiple threads, in a
+ * pipeline:
+ *
+ * <ol>
+ *   <li>A single reader thread pulls the grouped {@link CSVRecord}s from the input, which can't be
+ *       done concurrently, and collects them into chunks.
+ *   <li>A pool of parser threads turns each chunk of {@link CSVRecord} groups into {@link
+ *       RifRecordEvent}s.
+ *   <li>The consuming thread (whatever is calling {@link #next()}) gets the parsed chunks back in
+ *       their original order.
+ * </ol>
+ *
+ * <p>The number of chunks in flight is bounded: the reader thread will block once that many chunks
+ * are waiting to be parsed or consumed, which keeps a slow consumer from causing an {@link
+ * OutOfMemoryError}.
+ *
+ * <p>Alternatively, if the input is a {@link Spliterator} that can be split (such as a {@link
+ * MappedRifFileSpliterator}), there is no reader thread: the input is instead split into ranges up
+ * front, and each parser thread reads and parses whole ranges on its own. Each range's parsed
+ * chunks are queued separately, and the consuming thread drains those queues in range order, so
+ * records are still returned in their original order. That matters: files can contain multiple
+ * updates to the same beneficiary, which must be loaded in order. In that mode, the number of
+ * ranges in flight is what's bounded, rather than the number of chunks.
+ *
+ * <p>Instances must only be consumed from a single thread, as with any other {@link Iterator}.
+ */
+final class PipelinedRecordParser implements Iterator<RifRecordEvent<?>>, AutoCloseable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(PipelinedRecordParser.class);
+
+  /** The number of {@link CSVRecord} groups that will be parsed together, as a single task. */
+  static final int CHUNK_SIZE = 100;
+
+  /**
+   * The number of ranges per parser thread that may be in flight (being parsed, or parsed and
+   * waiting to be consumed) at once, when the input is a {@link Spliterator}. Using more than one
+   * lets the parser threads keep working ahead while the consumer waits on a slow range.
+   */
+  static final int RANGES_IN_FLIGHT_PER_THREAD = 2;
+
+  /**
+   * A marker placed on {@link #parsedChunks} after all of the input has been read, or on one of the
+   * {@link #rangeChunks} after all of that range has been read.
+   */
+  private static final Future<List<RifRecordEvent<?>>> END_OF_INPUT =
+      CompletableFuture.completedFuture(Collections.emptyList());
+
+  private final ThreadPoolExecutor parserExecutor;
+
+  /** The reader thread, which will be <code>null</code> if the input is being read by range. */
+  private Thread readerThread;
+
+  /**
+   * The chunks that have been read, in order, which will complete once they've been parsed. This
+   * queue's capacity is what bounds the pipeline.
+   */
+  private final BlockingQueue<Future<List<RifRecordEvent<?>>>> parsedChunks;
+
+  /**
+   * The parsed chunks of each range that hasn't been fully consumed yet, in range order, which will
+   * be <code>null</code> if the input isn't being read by range.
+   */
+  private Deque<BlockingQueue<Future<List<RifRecordEvent<?>>>>> rangeChunks;
+
+  /** The ranges that haven't been submitted for parsing yet, in order. */
+  private Iterator<Runnable> unsubmittedRanges;
+
+  private final Timer chunkParsing;
+  private final Timer consumerWaits;
+  private Iterator<RifRecordEvent<?>> currentChunk = Collections.emptyIterator();
+  private boolean endOfInput = false;
+
+  /**
+   * Constructs a new {@link PipelinedRecordParser}, and starts its reader and parser threads.
+   *
+   * @param rifFileEvent the {@link RifFileEvent} being parsed, whose {@link
+   *     RifFileEvent#getEventMetrics()} will be used to record this pipeline's metrics
+   * @param csvRecordGroups the {@link Iterator} of grouped {@link CSVRecord}s to read from, which
+   *     will only be accessed from the reader thread
+   * @param recordParser the {@link Function} to use to parse each {@link CSVRecord} group, which
+   *     must be safe to call from multiple threads at once
+   * @param parserThreads the number of parser threads to use
+   */
+  PipelinedRecordParser(
+      RifFileEvent rifFileEvent,
+      Iterator<List<CSVRecord>> csvRecordGroups,
+      Function<List<CSVRecord>, RifRecordEvent<?>> recordParser,
+      int parserThreads) {
+    this(rifFileEvent, parserThreads);
+
+    this.readerThread =
+        new Thread(
+            () -> read(csvRecordGroups, recordParser), getClass().getSimpleName() + "-reader");
+    this.readerThread.setDaemon(true);
+    this.readerThread.start();
+  }
+
+  /**
+   * Constructs a new {@link PipelinedRecordParser} that splits its input into ranges, and starts
+   * its parser threads, each of which will read and parse whole ranges.
+   *
+   * @param rifFileEvent the {@link RifFileEvent} being parsed, whose {@link
+   *     RifFileEvent#getEventMetrics()} will be used to record this pipeline's metrics
+   * @param csvRecordGroups the {@link Spliterator} of grouped {@link CSVRecord}s to read from,
+   *     which will be split into as many ranges as it allows (for a {@link
+   *     MappedRifFileSpliterator}, that's bounded by its minimum split size), as each range in
+   *     flight is held in memory until it's consumed
+   * @param recordParser the {@link Function} to use to parse each {@link CSVRecord} group, which
+   *     must be safe to call from multiple threads at once
+   * @param parserThreads the number of parser threads to use
+   */
+  PipelinedRecordParser(
+      RifFileEvent rifFileEvent,
+      Spliterator<List<CSVRecord>> csvRecordGroups,
+      Function<List<CSVRecord>, RifRecordEvent<?>> recordParser,
+      int parserThreads) {
+    this(rifFileEvent, parserThreads);
+
+    List<Spliterator<List<CSVRecord>>> ranges = split(csvRecordGroups, Integer.MAX_VALUE);
+    LOGGER.debug("Split '{}' into '{}' ranges.", rifFileEvent, ranges.size());
+    this.rangeChunks = new ConcurrentLinkedDeque<>();
+    List<Runnable> rangeTasks = new ArrayList<>(ranges.size());
+    for (Spliterator<List<CSVRecord>> range : ranges) {
+      BlockingQueue<Future<List<RifRecordEvent<?>>>> chunks = new LinkedBlockingQueue<>();
+      rangeChunks.add(chunks);
+      rangeTasks.add(() -> readRange(range, recordParser, chunks));
+    }
+    this.unsubmittedRanges = rangeTasks.iterator();
+
+    /*
+     * The executor runs ranges in the order they're submitted, so the range
+     * being consumed is always running or done, and the consumer only
+     * submits another range once it's finished with one.
+     */
+    for (int i = 0; i < RANGES_IN_FLIGHT_PER_THREAD * parserThreads; i++)
+      if (unsubmittedRanges.hasNext()) parserExecutor.execute(unsubmittedRanges.next());
+  }
+
+  /**
+   * Constructs a new {@link PipelinedRecordParser}, without starting any of its work.
+   *
+   * @param rifFileEvent the {@link RifFileEvent} being parsed, whose {@link
+   *     RifFileEvent#getEventMetrics()} will be used to record this pipeline's metrics
+   * @param parserThreads the number of parser threads to use
+   */
+  private PipelinedRecordParser(RifFileEvent rifFileEvent, int parserThreads) {
+    if (parserThreads < 1) throw new IllegalArgumentException();
+
+    MetricRegistry metrics = rifFileEvent.getEventMetrics();
+    this.chunkParsing =
+        metrics.timer(MetricRegistry.name(getClass().getSimpleName(), "chunkParsing"));
+    this.consumerWaits =
+        metrics.timer(MetricRegistry.name(getClass().getSimpleName(), "consumerWaits"));
+
+    AtomicInteger parserThreadCount = new AtomicInteger();
+    this.parserExecutor =
+        new ThreadPoolExecutor(
+            parserThreads,
+            parserThreads,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(),
+            runnable -> {
+              Thread thread =
+                  new Thread(
+                      runnable,
+                      String.format(
+                          "%s-parser-%d",
+                          getClass().getSimpleName(), parserThreadCount.incrementAndGet()));
+              thread.setDaemon(true);
+              return thread;
+            });
+    this.parsedChunks = new ArrayBlockingQueue<>(4 * parserThreads);
+
+    metrics.register(
+        MetricRegistry.name(getClass().getSimpleName(), "chunkQueueSize"),
+        new Gauge<Integer>() {
+          /** @see com.codahale.metrics.Gauge#getValue() */
+          @Override
+          public Integer getValue() {
+            if (rangeChunks == null) return parsedChunks.size();
+            return rangeChunks.stream().mapToInt(BlockingQueue::size).sum();
+          }
+        });
+    metrics.register(
+        MetricRegistry.name(getClass().getSimpleName(), "parserUtilization"),
+        new Gauge<Double>() {
+          /** @see com.codahale.metrics.Gauge#getValue() */
+          @Override
+          public Double getValue() {
+            return (double) parserExecutor.getActiveCount() / parserThreads;
+          }
+        });
+  }
+
+  /**
+   * Run on {@link #readerThread}: reads all of the input, submitting each chunk of it for parsing.
+   *
+   * @param csvRecordGroups the {@link Iterator} of grouped {@link CSVRecord}s to read from
+   * @param recordParser the {@link Function} to use to parse each {@link CSVRecord} group
+   */
+  private void read(
+      Iterator<List<CSVRecord>> csvRecordGroups,
+      Function<List<CSVRecord>, RifRecordEvent<?>> recordParser) {
+    try {
+      try {
+        List<List<CSVRecord>> chunk = new ArrayList<>(CHUNK_SIZE);
+        while (csvRecordGroups.hasNext()) {
+          chunk.add(csvRecordGroups.next());
+          if (chunk.size() >= CHUNK_SIZE) {
+            submitChunk(chunk, recordParser);
+            chunk = new ArrayList<>(CHUNK_SIZE);
+          }
+        }
+        if (!chunk.isEmpty()) submitChunk(chunk, recordParser);
+      } catch (RuntimeException | Error e) {
+        // Hand the failure off to the consumer, so that it's thrown there.
+        CompletableFuture<List<RifRecordEvent<?>>> failedChunk = new CompletableFuture<>();
+        failedChunk.completeExceptionally(e);
+        parsedChunks.put(failedChunk);
+      }
+
+      parsedChunks.put(END_OF_INPUT);
+    } catch (InterruptedException e) {
+      // This pipeline was closed early, so just stop reading.
+      LOGGER.debug("Reader thread interrupted.");
+    }
+  }
+
+  /**
+   * @param chunk the {@link CSVRecord} groups to parse
+   * @param recordParser the {@link Function} to use to parse each {@link CSVRecord} group
+   * @throws InterruptedException An {@link InterruptedException} will be thrown if this pipeline is
+   *     closed while waiting for space in {@link #parsedChunks}.
+   */
+  private void submitChunk(
+      List<List<CSVRecord>> chunk, Function<List<CSVRecord>, RifRecordEvent<?>> recordParser)
+      throws InterruptedException {
+    Future<List<RifRecordEvent<?>>> parsedChunk =
+        parserExecutor.submit(() -> parseChunk(chunk, recordParser));
+
+    // Note: this will block if the pipeline is full, which is the backpressure.
+    parsedChunks.put(parsedChunk);
+  }
+
+  /**
+   * Run on one of the parser threads: reads and parses all of the specified range, handing off each
+   * chunk of it to the consumer as it goes.
+   *
+   * @param range the range of grouped {@link CSVRecord}s to read from
+   * @param recordParser the {@link Function} to use to parse each {@link CSVRecord} group
+   * @param chunks the queue (one of the {@link #rangeChunks}) to put this range's parsed chunks on,
+   *     followed by an {@link #END_OF_INPUT}
+   */
+  private void readRange(
+      Spliterator<List<CSVRecord>> range,
+      Function<List<CSVRecord>, RifRecordEvent<?>> recordParser,
+      BlockingQueue<Future<List<RifRecordEvent<?>>>> chunks) {
+    try {
+      try {
+        List<List<CSVRecord>> chunk = new ArrayList<>(CHUNK_SIZE);
+        while (range.tryAdvance(chunk::add)) {
+          if (chunk.size() >= CHUNK_SIZE) {
+            chunks.put(CompletableFuture.completedFuture(parseChunk(chunk, recordParser)));
+            chunk = new ArrayList<>(CHUNK_SIZE);
+          }
+        }
+        if (!chunk.isEmpty())
+          chunks.put(CompletableFuture.completedFuture(parseChunk(chunk, recordParser)));
+      } catch (RuntimeException | Error e) {
+        // Hand the failure off to the consumer, so that it's thrown there.
+        CompletableFuture<List<RifRecordEvent<?>>> failedChunk = new CompletableFuture<>();
+        failedChunk.completeExceptionally(e);
+        chunks.put(failedChunk);
+      } finally {
+        closeRange(range);
+      }
+
+      chunks.put(END_OF_INPUT);
+    } catch (InterruptedException e) {
+      // This pipeline was closed early, so just stop reading.
+      LOGGER.debug("Parser thread interrupted.");
+    }
+  }
+
+  /**
+   * @param range the range of grouped {@link CSVRecord}s to release the resources of, if it holds
+   *     any
+   */
+  private static void closeRange(Spliterator<List<CSVRecord>> range) {
+    if (!(range instanceof AutoCloseable)) return;
+
+    try {
+      ((AutoCloseable) range).close();
+    } catch (Exception e) {
+      LOGGER.warn("Unable to close range.", e);
+    }
+  }
+
+  /**
+   * @param chunk the {@link CSVRecord} groups to parse
+   * @param recordParser the {@link Function} to use to parse each {@link CSVRecord} group
+   * @return the {@link RifRecordEvent}s parsed from the specified chunk, in order
+   */
+  private List<RifRecordEvent<?>> parseChunk(
+      List<List<CSVRecord>> chunk, Function<List<CSVRecord>, RifRecordEvent<?>> recordParser) {
+    Timer.Context chunkParsingTimer = chunkParsing.time();
+    List<RifRecordEvent<?>> recordEvents = new ArrayList<>(chunk.size());
+    for (List<CSVRecord> csvRecordGroup : chunk)
+      recordEvents.add(recordParser.apply(csvRecordGroup));
+    chunkParsingTimer.stop();
+    return recordEvents;
+  }
+
+  /**
+   * @param input the {@link Spliterator} to split
+   * @param targetRanges the number of ranges to (try to) split the input into
+   * @return the ranges that the specified {@link Spliterator} was split into, in their original
+   *     order, which may be fewer than requested if the input couldn't be split further
+   */
+  static <T> List<Spliterator<T>> split(Spliterator<T> input, int targetRanges) {
+    List<Spliterator<T>> ranges = new ArrayList<>();
+    ranges.add(input);
+
+    boolean splitAny = true;
+    while (splitAny && ranges.size() < targetRanges) {
+      splitAny = false;
+      List<Spliterator<T>> splitRanges = new ArrayList<>(2 * ranges.size());
+      for (int i = 0; i < ranges.size(); i++) {
+        Spliterator<T> range = ranges.get(i);
+        // Only split if it won't overshoot the target.
+        int rangeCount = splitRanges.size() + ranges.size() - i;
+        Spliterator<T> prefix = rangeCount < targetRanges ? range.trySplit() : null;
+        if (prefix != null) {
+          splitRanges.add(prefix);
+          splitAny = true;
+        }
+        splitRanges.add(range);
+      }
+      ranges = splitRanges;
+    }
+
+    return ranges;
+  }
+
+  /** @see java.util.Iterator#hasNext() */
+  @Override
+  public boolean hasNext() {
+    while (!currentChunk.hasNext()) {
+      if (endOfInput) return false;
+
+      Timer.Context consumerWaitsTimer = consumerWaits.time();
+      try {
+        BlockingQueue<Future<List<RifRecordEvent<?>>>> chunks =
+            rangeChunks != null ? rangeChunks.peek() : parsedChunks;
+        Future<List<RifRecordEvent<?>>> parsedChunk =
+            chunks != null ? chunks.take() : END_OF_INPUT;
+        if (parsedChunk == END_OF_INPUT && chunks != null && rangeChunks != null) {
+          // Done with this range, so move on to the next one, and let another one start.
+          rangeChunks.remove();
+          if (unsubmittedRanges.hasNext()) parserExecutor.execute(unsubmittedRanges.next());
+          continue;
+        }
+        if (parsedChunk == END_OF_INPUT) {
+          // Either the reader is done, or every range has been consumed.
+          endOfInput = true;
+          parserExecutor.shutdown();
+          return false;
+        }
+
+        currentChunk = parsedChunk.get().iterator();
+      } catch (InterruptedException e) {
+        // Interrupts should not be used on this thread, so go boom.
+        throw new RuntimeException(e);
+      } catch (ExecutionException e) {
+        close();
+        if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+        if (e.getCause() instanceof Error) throw (Error) e.getCause();
+        throw new IllegalStateException(e.getCause());
+      } finally {
+        consumerWaitsTimer.stop();
+      }
+    }
+
+    return true;
+  }
+
+  /** @see java.util.Iterator#next() */
+  @Override
+  public RifRecordEvent<?> next() {
+    if (!hasNext()) throw new NoSuchElementException();
+    return currentChunk.next();
+  }
+
+  /**
+   * Stops the reader (if any) and parser threads, abandoning any input that hasn't been consumed
+   * yet.
+   *
+   * @see java.lang.AutoCloseable#close()
+   */
+  @Override
+  public void close() {
+    endOfInput = true;
+    currentChunk = Collections.emptyIterator();
+    if (readerThread != null) readerThread.interrupt();
+    parserExecutor.shutdownNow();
+  }
+}
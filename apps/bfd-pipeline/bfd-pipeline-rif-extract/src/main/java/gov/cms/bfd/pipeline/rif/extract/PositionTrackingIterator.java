@@ -0,0 +1,147 @@
+package gov.cms.bfd.pipeline.rif.extract;
+
+import gov.cms.bfd.model.rif.RifFilePosition;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+/**
+ * Wraps an {@link Iterator} of grouped {@link CSVRecord}s from a single {@link CSVParser}, and
+ * returns each group as a {@link PositionedRecordGroup}, which carries the {@link RifFilePosition}
+ * that loading could be resumed from to re-read that group.
+ *
+ * <p>{@link CSVParser} only tracks the position of each record in characters, not bytes. Every
+ * character that the RIF format itself uses (delimiters, quotes, escapes, and line breaks) is
+ * ASCII, though, so the byte offset of each record can be derived from that character position
+ * plus the extra bytes taken up by any non-ASCII characters in the values (including the header's)
+ * that came before it. That only works for charsets that encode ASCII as single bytes and other
+ * characters in a predictable way, which is why only {@link StandardCharsets#UTF_8}, {@link
+ * StandardCharsets#US_ASCII}, and {@link StandardCharsets#ISO_8859_1} are supported.
+ *
+ * <p>Like {@link CsvRecordGroupingIterator}, this is not thread-safe.
+ */
+final class PositionTrackingIterator implements Iterator<List<CSVRecord>> {
+  private final Iterator<List<CSVRecord>> csvRecordGroups;
+  private final boolean utf8;
+  private final long baseByteOffset;
+  private long extraBytes;
+  private long nextRecordNumber;
+
+  /**
+   * Constructs a new {@link PositionTrackingIterator}.
+   *
+   * @param csvRecordGroups the grouped {@link CSVRecord}s to wrap, which must all be from a parser
+   *     that started reading at the specified position
+   * @param charset the {@link Charset} of the file being read
+   * @param start the {@link RifFilePosition} of the first group that will be returned by the
+   *     parser, where the {@link RifFilePosition#getByteOffset()} must be the offset (in the file)
+   *     of the parser's first character
+   * @param skippedText any text, other than delimiters and line breaks, that the parser read before
+   *     its first group, i.e. the values of the file's header, if the parser read that
+   */
+  PositionTrackingIterator(
+      Iterator<List<CSVRecord>> csvRecordGroups,
+      Charset charset,
+      RifFilePosition start,
+      Collection<String> skippedText) {
+    if (!isSupported(charset))
+      throw new IllegalArgumentException("Unsupported charset for checkpoints: " + charset);
+
+    this.csvRecordGroups = csvRecordGroups;
+    this.utf8 = StandardCharsets.UTF_8.equals(charset);
+    this.baseByteOffset = start.getByteOffset();
+    this.extraBytes = 0L;
+    this.nextRecordNumber = start.getRecordNumber();
+    for (String text : skippedText) extraBytes += countExtraBytes(text);
+  }
+
+  /**
+   * @param charset the {@link Charset} to check
+   * @return <code>true</code> if record positions can be tracked in files with the specified {@link
+   *     Charset}, <code>false</code> if not
+   */
+  static boolean isSupported(Charset charset) {
+    return StandardCharsets.UTF_8.equals(charset)
+        || StandardCharsets.US_ASCII.equals(charset)
+        || StandardCharsets.ISO_8859_1.equals(charset);
+  }
+
+  /** @see java.util.Iterator#hasNext() */
+  @Override
+  public boolean hasNext() {
+    return csvRecordGroups.hasNext();
+  }
+
+  /** @see java.util.Iterator#next() */
+  @Override
+  public PositionedRecordGroup next() {
+    List<CSVRecord> csvRecordGroup = csvRecordGroups.next();
+
+    long byteOffset = baseByteOffset + csvRecordGroup.get(0).getCharacterPosition() + extraBytes;
+    RifFilePosition position = new RifFilePosition(nextRecordNumber++, byteOffset);
+
+    if (utf8)
+      for (CSVRecord csvRecord : csvRecordGroup)
+        for (String value : csvRecord) extraBytes += countExtraBytes(value);
+
+    return new PositionedRecordGroup(csvRecordGroup, position);
+  }
+
+  /**
+   * @param text the text to check
+   * @return the number of bytes, beyond one per character, that the specified text takes up when
+   *     encoded as UTF-8, or <code>0</code> if the file isn't UTF-8
+   */
+  private long countExtraBytes(String text) {
+    if (!utf8) return 0L;
+
+    long extra = 0L;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c < 0x80) continue;
+      else if (c < 0x800) extra += 1;
+      // A surrogate pair takes four bytes, which are all counted for the high surrogate.
+      else if (!Character.isLowSurrogate(c)) extra += 2;
+    }
+    return extra;
+  }
+
+  /** A group of {@link CSVRecord}s, along with the {@link RifFilePosition} of its first line. */
+  static final class PositionedRecordGroup extends AbstractList<CSVRecord> {
+    private final List<CSVRecord> csvRecordGroup;
+    private final RifFilePosition position;
+
+    /**
+     * Constructs a new {@link PositionedRecordGroup}.
+     *
+     * @param csvRecordGroup the group of {@link CSVRecord}s to wrap
+     * @param position the value to use for {@link #getPosition()}
+     */
+    PositionedRecordGroup(List<CSVRecord> csvRecordGroup, RifFilePosition position) {
+      this.csvRecordGroup = csvRecordGroup;
+      this.position = position;
+    }
+
+    /** @return the {@link RifFilePosition} of this group's first line */
+    RifFilePosition getPosition() {
+      return position;
+    }
+
+    /** @see java.util.AbstractList#get(int) */
+    @Override
+    public CSVRecord get(int index) {
+      return csvRecordGroup.get(index);
+    }
+
+    /** @see java.util.AbstractCollection#size() */
+    @Override
+    public int size() {
+      return csvRecordGroup.size();
+    }
+  }
+}
@@ -26,6 +26,7 @@ import gov.cms.bfd.model.rif.PartDEventParser;
 import gov.cms.bfd.model.rif.RecordAction;
 import gov.cms.bfd.model.rif.RifFile;
 import gov.cms.bfd.model.rif.RifFileEvent;
+import gov.cms.bfd.model.rif.RifFilePosition;
 import gov.cms.bfd.model.rif.RifFileRecords;
 import gov.cms.bfd.model.rif.RifFileType;
 import gov.cms.bfd.model.rif.RifFilesEvent;
@@ -36,17 +37,28 @@ import gov.cms.bfd.model.rif.parse.InvalidRifValueException;
 import gov.cms.bfd.model.rif.parse.RifParsingUtils;
 import gov.cms.bfd.pipeline.rif.extract.CsvRecordGroupingIterator.ColumnValueCsvRecordGrouper;
 import gov.cms.bfd.pipeline.rif.extract.CsvRecordGroupingIterator.CsvRecordGrouper;
+import gov.cms.bfd.pipeline.rif.extract.PositionTrackingIterator.PositionedRecordGroup;
 import gov.cms.bfd.pipeline.rif.extract.exceptions.UnsupportedRifFileTypeException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Spliterator;
 import java.util.Spliterators;
-import java.util.function.BiFunction;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.io.ByteOrderMark;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BOMInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -55,155 +67,447 @@ public final class RifFilesProcessor {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(RifFilesProcessor.class);
 
+  private final int parserThreads;
+  private final PipelineStageMetrics stageMetrics;
+
+  /**
+   * Constructs a new {@link RifFilesProcessor} that will parse each file's records sequentially, on
+   * whatever thread consumes them.
+   */
+  public RifFilesProcessor() {
+    this(0);
+  }
+
+  /**
+   * Constructs a new {@link RifFilesProcessor}.
+   *
+   * @param parserThreads the number of threads to parse each file's records with, or <code>0
+   *     </code> to parse them sequentially, on whatever thread consumes them (see {@link
+   *     PipelinedRecordParser}). Note that, when this is used with a {@link RifFile} that has a
+   *     {@link RifFile#getLocalPath()}, records will no longer be returned in their original order
+   *     (see {@link MappedRifFileSpliterator}).
+   */
+  public RifFilesProcessor(int parserThreads) {
+    this(parserThreads, new PipelineStageMetrics(new MetricRegistry()));
+  }
+
+  /**
+   * Constructs a new {@link RifFilesProcessor}.
+   *
+   * @param parserThreads the number of threads to parse each file's records with: see {@link
+   *     #RifFilesProcessor(int)}
+   * @param stageMetrics the {@link PipelineStageMetrics} to record the {@link PipelineStage#READ}
+   *     and {@link PipelineStage#PARSE} latencies in
+   */
+  public RifFilesProcessor(int parserThreads, PipelineStageMetrics stageMetrics) {
+    if (parserThreads < 0) throw new IllegalArgumentException();
+    if (stageMetrics == null) throw new IllegalArgumentException();
+    this.parserThreads = parserThreads;
+    this.stageMetrics = stageMetrics;
+  }
+
   /**
    * @param rifFileEvent the {@link RifFileEvent} that is being processed
    * @return a {@link RifFileRecords} with the {@link RifRecordEvent}s produced from the specified
    *     {@link RifFileEvent}
    */
   public RifFileRecords produceRecords(RifFileEvent rifFileEvent) {
+    return produceRecords(rifFileEvent, Optional.empty());
+  }
+
+  /**
+   * Produces the records of the specified {@link RifFileEvent}, starting from the specified {@link
+   * RifFilePosition}, with each {@link RifRecordEvent#getPosition()} populated. Records are always
+   * returned in their original order, regardless of {@link #RifFilesProcessor(int)}, as a
+   * checkpoint is only meaningful if everything before it has been handed out.
+   *
+   * @param rifFileEvent the {@link RifFileEvent} that is being processed
+   * @param startAt the {@link RifFilePosition} to start reading at, which must be either {@link
+   *     RifFilePosition#START} or a position previously returned by {@link
+   *     RifRecordEvent#getPosition()} for the same file
+   * @return a {@link RifFileRecords} with the {@link RifRecordEvent}s produced from the specified
+   *     {@link RifFileEvent}, from the specified position onwards
+   */
+  public RifFileRecords produceRecords(RifFileEvent rifFileEvent, RifFilePosition startAt) {
+    return produceRecords(rifFileEvent, Optional.of(startAt));
+  }
+
+  /**
+   * @param rifFileEvent the {@link RifFileEvent} that is being processed
+   * @param startAt the {@link RifFilePosition} to start reading at, or {@link Optional#empty()} to
+   *     read the whole file without tracking record positions
+   * @return a {@link RifFileRecords} with the {@link RifRecordEvent}s produced from the specified
+   *     {@link RifFileEvent}
+   */
+  private RifFileRecords produceRecords(
+      RifFileEvent rifFileEvent, Optional<RifFilePosition> startAt) {
     RifFile file = rifFileEvent.getFile();
+    if (startAt.isPresent() && !PositionTrackingIterator.isSupported(file.getCharset()))
+      throw new IllegalArgumentException(
+          "Record positions can't be tracked for charset: " + file.getCharset());
 
     /*
      * Approach used here to parse CSV as a Java 8 Stream is courtesy of
      * https://rumianom.pl/rumianom/entry/apache-commons-csv-with-java.
      */
 
-    CSVParser parser = RifParsingUtils.createCsvParser(file);
-
     boolean isGrouped;
-    BiFunction<RifFileEvent, List<CSVRecord>, RifRecordEvent<?>> recordParser;
+    Function<Map<String, Integer>, int[]> columnIndexResolver;
+    RecordGroupParser recordParser;
     if (file.getFileType() == RifFileType.BENEFICIARY) {
       isGrouped = false;
+      columnIndexResolver = BeneficiaryParser::resolveColumnIndexes;
       recordParser = RifFilesProcessor::buildBeneficiaryEvent;
     } else if (file.getFileType() == RifFileType.BENEFICIARY_HISTORY) {
       isGrouped = false;
+      columnIndexResolver = BeneficiaryHistoryParser::resolveColumnIndexes;
       recordParser = RifFilesProcessor::buildBeneficiaryHistoryEvent;
     } else if (file.getFileType() == RifFileType.MEDICARE_BENEFICIARY_ID_HISTORY) {
       isGrouped = false;
+      columnIndexResolver = MedicareBeneficiaryIdHistoryParser::resolveColumnIndexes;
       recordParser = RifFilesProcessor::buildMedicareBeneficiaryIdHistoryEvent;
     } else if (file.getFileType() == RifFileType.PDE) {
       isGrouped = false;
+      columnIndexResolver = PartDEventParser::resolveColumnIndexes;
       recordParser = RifFilesProcessor::buildPartDEvent;
     } else if (file.getFileType() == RifFileType.CARRIER) {
       isGrouped = true;
+      columnIndexResolver = CarrierClaimParser::resolveColumnIndexes;
       recordParser = RifFilesProcessor::buildCarrierClaimEvent;
     } else if (file.getFileType() == RifFileType.INPATIENT) {
       isGrouped = true;
+      columnIndexResolver = InpatientClaimParser::resolveColumnIndexes;
       recordParser = RifFilesProcessor::buildInpatientClaimEvent;
     } else if (file.getFileType() == RifFileType.OUTPATIENT) {
       isGrouped = true;
+      columnIndexResolver = OutpatientClaimParser::resolveColumnIndexes;
       recordParser = RifFilesProcessor::buildOutpatientClaimEvent;
     } else if (file.getFileType() == RifFileType.SNF) {
       isGrouped = true;
+      columnIndexResolver = SNFClaimParser::resolveColumnIndexes;
       recordParser = RifFilesProcessor::buildSNFClaimEvent;
     } else if (file.getFileType() == RifFileType.HOSPICE) {
       isGrouped = true;
+      columnIndexResolver = HospiceClaimParser::resolveColumnIndexes;
       recordParser = RifFilesProcessor::buildHospiceClaimEvent;
     } else if (file.getFileType() == RifFileType.HHA) {
       isGrouped = true;
+      columnIndexResolver = HHAClaimParser::resolveColumnIndexes;
       recordParser = RifFilesProcessor::buildHHAClaimEvent;
     } else if (file.getFileType() == RifFileType.DME) {
       isGrouped = true;
+      columnIndexResolver = DMEClaimParser::resolveColumnIndexes;
       recordParser = RifFilesProcessor::buildDMEClaimEvent;
     } else {
       throw new UnsupportedRifFileTypeException("Unsupported file type:" + file.getFileType());
     }
 
+    Enum<?> groupingColumn = isGrouped ? file.getFileType().getIdColumn() : null;
+    Timer recordParsingTimer =
+        rifFileEvent
+            .getEventMetrics()
+            .timer(MetricRegistry.name(getClass().getSimpleName(), "recordParsing"));
+    Optional<Path> localPath =
+        parserThreads > 0 && !startAt.isPresent() ? file.getLocalPath() : Optional.empty();
+    if (localPath.isPresent()) {
+      /*
+       * The file is available locally, so memory-map it and have each
+       * parser thread read and parse its own ranges of it, with no
+       * single-threaded reader in the way. The records still come out in
+       * file order, which later updates to the same beneficiary rely on.
+       */
+      MappedRifFileSpliterator csvSpliterator =
+          new MappedRifFileSpliterator(localPath.get(), file.getCharset(), groupingColumn);
+      int[] columnIndexes = columnIndexResolver.apply(csvSpliterator.getHeaderMap());
+      PipelinedRecordParser pipelinedParser =
+          new PipelinedRecordParser(
+              rifFileEvent,
+              csvSpliterator,
+              csvRecordGroup ->
+                  parseRecordGroup(
+                      rifFileEvent,
+                      recordParser,
+                      columnIndexes,
+                      recordParsingTimer,
+                      csvRecordGroup),
+              parserThreads);
+      Spliterator<RifRecordEvent<?>> spliterator =
+          Spliterators.spliteratorUnknownSize(
+              pipelinedParser, Spliterator.ORDERED | Spliterator.NONNULL);
+      Stream<RifRecordEvent<?>> rifRecordStream =
+          StreamSupport.stream(spliterator, false).onClose(pipelinedParser::close);
+      return new RifFileRecords(rifFileEvent, rifRecordStream);
+    }
+
     /*
      * Use the CSVParser to drive a Stream of grouped CSVRecords
      * (specifically, group by claim ID/lines).
      */
-    CsvRecordGrouper grouper =
-        new ColumnValueCsvRecordGrouper(isGrouped ? file.getFileType().getIdColumn() : null);
-    Iterator<List<CSVRecord>> csvIterator = new CsvRecordGroupingIterator(parser, grouper);
-    Spliterator<List<CSVRecord>> spliterator =
-        Spliterators.spliteratorUnknownSize(csvIterator, Spliterator.ORDERED | Spliterator.NONNULL);
-    Stream<List<CSVRecord>> csvRecordStream =
-        StreamSupport.stream(spliterator, false)
-            .onClose(
-                () -> {
-                  try {
-                    /*
-                     * This will also close the Reader and InputStream that the
-                     * CSVParser was consuming.
-                     */
-                    parser.close();
-                  } catch (IOException e) {
-                    LOGGER.warn("Unable to close CSVParser", e);
-                  }
-                });
-
-    /* Map each record group to a single RifRecordEvent. */
-    Stream<RifRecordEvent<?>> rifRecordStream =
-        csvRecordStream.map(
-            csvRecordGroup -> {
-              try {
-                Timer.Context parsingTimer =
-                    rifFileEvent
-                        .getEventMetrics()
-                        .timer(MetricRegistry.name(getClass().getSimpleName(), "recordParsing"))
-                        .time();
-                RifRecordEvent<?> recordEvent = recordParser.apply(rifFileEvent, csvRecordGroup);
-                parsingTimer.close();
-
-                return recordEvent;
-              } catch (InvalidRifValueException e) {
-                LOGGER.warn(
-                    "Parse error encountered near line number '{}'.",
-                    csvRecordGroup.get(0).getRecordNumber());
-                throw new InvalidRifValueException(e);
-              }
-            });
+    CsvRecordGrouper grouper = new ColumnValueCsvRecordGrouper(groupingColumn);
+    CSVParser parser;
+    int[] columnIndexes;
+    Iterator<List<CSVRecord>> csvIterator;
+    if (!startAt.isPresent()) {
+      parser = RifParsingUtils.createCsvParser(file);
+      columnIndexes = resolveColumnIndexes(parser, columnIndexResolver);
+      csvIterator = new CsvRecordGroupingIterator(parser, grouper);
+    } else if (startAt.get().isStart()) {
+      /*
+       * Reading from the start: the parser reads the header itself, and all
+       * positions are relative to the start of the file, after any BOM.
+       */
+      BOMInputStream fileStream = new BOMInputStream(file.open(), false);
+      long bomLength = getBomLength(fileStream);
+      parser =
+          RifParsingUtils.createCsvParser(RifParsingUtils.CSV_FORMAT, fileStream, file.getCharset());
+      columnIndexes = resolveColumnIndexes(parser, columnIndexResolver);
+      csvIterator =
+          new PositionTrackingIterator(
+              new CsvRecordGroupingIterator(parser, grouper),
+              file.getCharset(),
+              new RifFilePosition(0L, bomLength),
+              parser.getHeaderMap().keySet());
+    } else {
+      /*
+       * Resuming: read just the header with one parser, then seek straight to
+       * the resume point's byte offset, and parse from there with the header
+       * supplied up front.
+       */
+      String[] headerNames = readHeaderNames(file);
+      InputStream fileStream = file.open();
+      try {
+        IOUtils.skipFully(fileStream, startAt.get().getByteOffset());
+      } catch (IOException e) {
+        closeQuietly(fileStream, e);
+        throw new UncheckedIOException(e);
+      }
+      parser =
+          RifParsingUtils.createCsvParser(
+              RifParsingUtils.CSV_FORMAT.withHeader(headerNames), fileStream, file.getCharset());
+      columnIndexes = resolveColumnIndexes(parser, columnIndexResolver);
+      csvIterator =
+          new PositionTrackingIterator(
+              new CsvRecordGroupingIterator(parser, grouper),
+              file.getCharset(),
+              startAt.get(),
+              Collections.emptyList());
+    }
+    csvIterator = stageMetrics.timeIterator(PipelineStage.READ, file.getFileType(), csvIterator);
+    Runnable closeParser =
+        () -> {
+          try {
+            /*
+             * This will also close the Reader and InputStream that the
+             * CSVParser was consuming.
+             */
+            parser.close();
+          } catch (IOException e) {
+            LOGGER.warn("Unable to close CSVParser", e);
+          }
+        };
+
+    Stream<RifRecordEvent<?>> rifRecordStream;
+    if (parserThreads > 0) {
+      /*
+       * Read the CSV on one thread, parse it on several others, and hand the
+       * results back to the consuming thread, in order.
+       */
+      PipelinedRecordParser pipelinedParser =
+          new PipelinedRecordParser(
+              rifFileEvent,
+              csvIterator,
+              csvRecordGroup ->
+                  parseRecordGroup(
+                      rifFileEvent,
+                      recordParser,
+                      columnIndexes,
+                      recordParsingTimer,
+                      csvRecordGroup),
+              parserThreads);
+      Spliterator<RifRecordEvent<?>> spliterator =
+          Spliterators.spliteratorUnknownSize(
+              pipelinedParser, Spliterator.ORDERED | Spliterator.NONNULL);
+      rifRecordStream =
+          StreamSupport.stream(spliterator, false)
+              .onClose(pipelinedParser::close)
+              .onClose(closeParser);
+    } else {
+      Spliterator<List<CSVRecord>> spliterator =
+          Spliterators.spliteratorUnknownSize(
+              csvIterator, Spliterator.ORDERED | Spliterator.NONNULL);
+      Stream<List<CSVRecord>> csvRecordStream =
+          StreamSupport.stream(spliterator, false).onClose(closeParser);
+
+      /* Map each record group to a single RifRecordEvent. */
+      rifRecordStream =
+          csvRecordStream.map(
+              csvRecordGroup ->
+                  parseRecordGroup(
+                      rifFileEvent,
+                      recordParser,
+                      columnIndexes,
+                      recordParsingTimer,
+                      csvRecordGroup));
+    }
 
     return new RifFileRecords(rifFileEvent, rifRecordStream);
   }
 
+  /**
+   * @param file the {@link RifFile} to read the header of
+   * @return the column names from the specified {@link RifFile}'s header, in order
+   */
+  private static String[] readHeaderNames(RifFile file) {
+    try (CSVParser headerParser = RifParsingUtils.createCsvParser(file)) {
+      Map<String, Integer> headerMap = headerParser.getHeaderMap();
+      String[] headerNames = new String[headerMap.size()];
+      for (Map.Entry<String, Integer> column : headerMap.entrySet())
+        headerNames[column.getValue()] = column.getKey();
+      return headerNames;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * @param fileStream the {@link BOMInputStream} to check
+   * @return the length, in bytes, of the byte order mark at the start of the specified stream, or
+   *     <code>0</code> if it doesn't have one
+   */
+  private static long getBomLength(BOMInputStream fileStream) {
+    try {
+      ByteOrderMark bom = fileStream.getBOM();
+      return bom != null ? bom.length() : 0L;
+    } catch (IOException e) {
+      closeQuietly(fileStream, e);
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Closes the specified {@link InputStream}, recording any failure to do so against the specified
+   * exception, which is about to be thrown.
+   *
+   * @param fileStream the {@link InputStream} to close
+   * @param cause the exception that is about to be thrown
+   */
+  private static void closeQuietly(InputStream fileStream, Exception cause) {
+    try {
+      fileStream.close();
+    } catch (IOException closeException) {
+      cause.addSuppressed(closeException);
+    }
+  }
+
+  /**
+   * Resolves the column positions from the specified {@link CSVParser}'s header, closing it if they
+   * can't be.
+   *
+   * @param parser the {@link CSVParser} for the file being processed
+   * @param columnIndexResolver the <code>resolveColumnIndexes(...)</code> method of the generated
+   *     parser for the file's {@link RifFileType}
+   * @return the column positions resolved from the file's header
+   */
+  private static int[] resolveColumnIndexes(
+      CSVParser parser, Function<Map<String, Integer>, int[]> columnIndexResolver) {
+    try {
+      return columnIndexResolver.apply(parser.getHeaderMap());
+    } catch (RuntimeException e) {
+      try {
+        parser.close();
+      } catch (IOException closeException) {
+        e.addSuppressed(closeException);
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * @param rifFileEvent the {@link RifFileEvent} that is being processed
+   * @param recordParser the parsing function for the {@link RifFileEvent}'s {@link RifFileType}
+   * @param columnIndexes the column positions resolved from the file's header
+   * @param recordParsingTimer the {@link RifFileEvent}'s <code>recordParsing</code> {@link Timer}
+   * @param csvRecordGroup the group of {@link CSVRecord}s to parse
+   * @return the {@link RifRecordEvent} parsed from the specified {@link CSVRecord}s
+   */
+  private RifRecordEvent<?> parseRecordGroup(
+      RifFileEvent rifFileEvent,
+      RecordGroupParser recordParser,
+      int[] columnIndexes,
+      Timer recordParsingTimer,
+      List<CSVRecord> csvRecordGroup) {
+    try {
+      long startNanos = System.nanoTime();
+      RifRecordEvent<?> recordEvent =
+          recordParser.parse(rifFileEvent, columnIndexes, csvRecordGroup);
+      if (csvRecordGroup instanceof PositionedRecordGroup)
+        recordEvent =
+            recordEvent.withPosition(((PositionedRecordGroup) csvRecordGroup).getPosition());
+      long parsingNanos = System.nanoTime() - startNanos;
+      recordParsingTimer.update(parsingNanos, TimeUnit.NANOSECONDS);
+      stageMetrics.record(
+          PipelineStage.PARSE, rifFileEvent.getFile().getFileType(), parsingNanos);
+
+      return recordEvent;
+    } catch (InvalidRifValueException e) {
+      LOGGER.warn(
+          "Parse error encountered near line number '{}'.",
+          csvRecordGroup.get(0).getRecordNumber());
+      throw new InvalidRifValueException(e);
+    }
+  }
+
   /**
    * @param fileEvent the {@link RifFileEvent} being processed
+   * @param columnIndexes the column positions resolved from the file's header
    * @param csvRecords the {@link CSVRecord} to be mapped (in a single-element {@link List}), which
    *     must be from a {@link RifFileType#BENEFICIARY} {@link RifFile}
    * @return a {@link RifRecordEvent} built from the specified {@link CSVRecord}s
    */
   private static RifRecordEvent<Beneficiary> buildBeneficiaryEvent(
-      RifFileEvent fileEvent, List<CSVRecord> csvRecords) {
+      RifFileEvent fileEvent, int[] columnIndexes, List<CSVRecord> csvRecords) {
     if (csvRecords.size() != 1) throw new BadCodeMonkeyException();
     CSVRecord csvRecord = csvRecords.get(0);
 
     if (LOGGER.isTraceEnabled()) LOGGER.trace(csvRecord.toString());
 
     RecordAction recordAction = RecordAction.match(csvRecord.get("DML_IND"));
-    Beneficiary beneficiaryRow = BeneficiaryParser.parseRif(csvRecords);
+    Beneficiary beneficiaryRow = BeneficiaryParser.parseRif(csvRecords, columnIndexes);
     return new RifRecordEvent<Beneficiary>(
         fileEvent, recordAction, beneficiaryRow.getBeneficiaryId(), beneficiaryRow);
   }
 
   /**
    * @param fileEvent the {@link RifFileEvent} being processed
+   * @param columnIndexes the column positions resolved from the file's header
    * @param csvRecords the {@link CSVRecord} to be mapped (in a single-element {@link List}), which
    *     must be from a {@link RifFileType#BENEFICIARY_HISTORY} {@link RifFile}
    * @return a {@link RifRecordEvent} built from the specified {@link CSVRecord}s
    */
   private static RifRecordEvent<BeneficiaryHistory> buildBeneficiaryHistoryEvent(
-      RifFileEvent fileEvent, List<CSVRecord> csvRecords) {
+      RifFileEvent fileEvent, int[] columnIndexes, List<CSVRecord> csvRecords) {
     if (csvRecords.size() != 1) throw new BadCodeMonkeyException();
     CSVRecord csvRecord = csvRecords.get(0);
 
     if (LOGGER.isTraceEnabled()) LOGGER.trace(csvRecord.toString());
 
     RecordAction recordAction = RecordAction.match(csvRecord.get("DML_IND"));
-    BeneficiaryHistory beneficiaryHistoryRow = BeneficiaryHistoryParser.parseRif(csvRecords);
+    BeneficiaryHistory beneficiaryHistoryRow =
+        BeneficiaryHistoryParser.parseRif(csvRecords, columnIndexes);
     return new RifRecordEvent<BeneficiaryHistory>(
         fileEvent, recordAction, beneficiaryHistoryRow.getBeneficiaryId(), beneficiaryHistoryRow);
   }
 
   /**
    * @param fileEvent the {@link RifFileEvent} being processed
+   * @param columnIndexes the column positions resolved from the file's header
    * @param csvRecords the {@link CSVRecord} to be mapped (in a single-element {@link List}), which
    *     must be from a {@link RifFileType#Medicare_Beneficiary_Id_History} {@link RifFile}
    * @return a {@link RifRecordEvent} built from the specified {@link CSVRecord}s
    */
   private static RifRecordEvent<MedicareBeneficiaryIdHistory>
-      buildMedicareBeneficiaryIdHistoryEvent(RifFileEvent fileEvent, List<CSVRecord> csvRecords) {
+      buildMedicareBeneficiaryIdHistoryEvent(
+          RifFileEvent fileEvent, int[] columnIndexes, List<CSVRecord> csvRecords) {
     if (csvRecords.size() != 1) throw new BadCodeMonkeyException();
     CSVRecord csvRecord = csvRecords.get(0);
 
@@ -211,7 +515,7 @@ public final class RifFilesProcessor {
 
     RecordAction recordAction = RecordAction.INSERT;
     MedicareBeneficiaryIdHistory medicareBeneficiaryIdHistoryRow =
-        MedicareBeneficiaryIdHistoryParser.parseRif(csvRecords);
+        MedicareBeneficiaryIdHistoryParser.parseRif(csvRecords, columnIndexes);
     return new RifRecordEvent<MedicareBeneficiaryIdHistory>(
         fileEvent,
         recordAction,
@@ -221,143 +525,164 @@ public final class RifFilesProcessor {
 
   /**
    * @param fileEvent the {@link RifFilesEvent} being processed
+   * @param columnIndexes the column positions resolved from the file's header
    * @param csvRecords the {@link CSVRecord}s to be mapped, which must be from a {@link
    *     RifFileType#PDE} {@link RifFile}
    * @return a {@link RifRecordEvent} built from the specified {@link CSVRecord}s
    */
   private static RifRecordEvent<PartDEvent> buildPartDEvent(
-      RifFileEvent fileEvent, List<CSVRecord> csvRecords) {
+      RifFileEvent fileEvent, int[] columnIndexes, List<CSVRecord> csvRecords) {
     if (csvRecords.size() != 1) throw new BadCodeMonkeyException();
     if (LOGGER.isTraceEnabled()) LOGGER.trace(csvRecords.toString());
 
     CSVRecord csvRecord = csvRecords.get(0);
 
     RecordAction recordAction = RecordAction.match(csvRecord.get("DML_IND"));
-    PartDEvent partDEvent = PartDEventParser.parseRif(csvRecords);
+    PartDEvent partDEvent = PartDEventParser.parseRif(csvRecords, columnIndexes);
     return new RifRecordEvent<PartDEvent>(
         fileEvent, recordAction, partDEvent.getBeneficiaryId(), partDEvent);
   }
 
   /**
    * @param fileEvent the {@link RifFileEvent} being processed that is being processed
+   * @param columnIndexes the column positions resolved from the file's header
    * @param csvRecords the {@link CSVRecord}s to be mapped, which must be from a {@link
    *     RifFileType#INPATIENT} {@link RifFile}
    * @return a {@link RifRecordEvent} built from the specified {@link CSVRecord}s
    */
   private static RifRecordEvent<InpatientClaim> buildInpatientClaimEvent(
-      RifFileEvent fileEvent, List<CSVRecord> csvRecords) {
+      RifFileEvent fileEvent, int[] columnIndexes, List<CSVRecord> csvRecords) {
     if (LOGGER.isTraceEnabled()) LOGGER.trace(csvRecords.toString());
 
     CSVRecord firstCsvRecord = csvRecords.get(0);
 
     RecordAction recordAction = RecordAction.match(firstCsvRecord.get("DML_IND"));
-    InpatientClaim claim = InpatientClaimParser.parseRif(csvRecords);
+    InpatientClaim claim = InpatientClaimParser.parseRif(csvRecords, columnIndexes);
     return new RifRecordEvent<InpatientClaim>(
         fileEvent, recordAction, claim.getBeneficiaryId(), claim);
   }
 
   /**
    * @param fileEvent the {@link RifFileEvent} being processed that is being processed
+   * @param columnIndexes the column positions resolved from the file's header
    * @param csvRecords the {@link CSVRecord}s to be mapped, which must be from a {@link
    *     RifFileType#OUTPATIENT} {@link RifFile}
    * @return a {@link RifRecordEvent} built from the specified {@link CSVRecord}s
    */
   private static RifRecordEvent<OutpatientClaim> buildOutpatientClaimEvent(
-      RifFileEvent fileEvent, List<CSVRecord> csvRecords) {
+      RifFileEvent fileEvent, int[] columnIndexes, List<CSVRecord> csvRecords) {
     if (LOGGER.isTraceEnabled()) LOGGER.trace(csvRecords.toString());
 
     CSVRecord firstCsvRecord = csvRecords.get(0);
 
     RecordAction recordAction = RecordAction.match(firstCsvRecord.get("DML_IND"));
-    OutpatientClaim claim = OutpatientClaimParser.parseRif(csvRecords);
+    OutpatientClaim claim = OutpatientClaimParser.parseRif(csvRecords, columnIndexes);
     return new RifRecordEvent<OutpatientClaim>(
         fileEvent, recordAction, claim.getBeneficiaryId(), claim);
   }
 
   /**
    * @param fileEvent the {@link RifFileEvent} being processed
+   * @param columnIndexes the column positions resolved from the file's header
    * @param csvRecords the {@link CSVRecord}s to be mapped, which must be from a {@link
    *     RifFileType#CARRIER} {@link RifFile}
    * @return a {@link RifRecordEvent} built from the specified {@link CSVRecord}s
    */
   private static RifRecordEvent<CarrierClaim> buildCarrierClaimEvent(
-      RifFileEvent fileEvent, List<CSVRecord> csvRecords) {
+      RifFileEvent fileEvent, int[] columnIndexes, List<CSVRecord> csvRecords) {
     if (LOGGER.isTraceEnabled()) LOGGER.trace(csvRecords.toString());
 
     CSVRecord firstCsvRecord = csvRecords.get(0);
 
     RecordAction recordAction = RecordAction.match(firstCsvRecord.get("DML_IND"));
-    CarrierClaim claim = CarrierClaimParser.parseRif(csvRecords);
+    CarrierClaim claim = CarrierClaimParser.parseRif(csvRecords, columnIndexes);
     return new RifRecordEvent<CarrierClaim>(
         fileEvent, recordAction, claim.getBeneficiaryId(), claim);
   }
 
   /**
    * @param fileEvent the {@link RifFileEvent} being processed
+   * @param columnIndexes the column positions resolved from the file's header
    * @param csvRecords the {@link CSVRecord}s to be mapped, which must be from a {@link
    *     RifFileType#SNF} {@link RifFile}
    * @return a {@link RifRecordEvent} built from the specified {@link CSVRecord}s
    */
   private static RifRecordEvent<SNFClaim> buildSNFClaimEvent(
-      RifFileEvent fileEvent, List<CSVRecord> csvRecords) {
+      RifFileEvent fileEvent, int[] columnIndexes, List<CSVRecord> csvRecords) {
     if (LOGGER.isTraceEnabled()) LOGGER.trace(csvRecords.toString());
 
     CSVRecord firstCsvRecord = csvRecords.get(0);
 
     RecordAction recordAction = RecordAction.match(firstCsvRecord.get("DML_IND"));
-    SNFClaim claim = SNFClaimParser.parseRif(csvRecords);
+    SNFClaim claim = SNFClaimParser.parseRif(csvRecords, columnIndexes);
     return new RifRecordEvent<SNFClaim>(fileEvent, recordAction, claim.getBeneficiaryId(), claim);
   }
 
   /**
    * @param fileEvent the {@link RifFileEvent} being processed
+   * @param columnIndexes the column positions resolved from the file's header
    * @param csvRecords the {@link CSVRecord}s to be mapped, which must be from a {@link
    *     RifFileType#HOSPICE} {@link RifFile}
    * @return a {@link RifRecordEvent} built from the specified {@link CSVRecord}s
    */
   private static RifRecordEvent<HospiceClaim> buildHospiceClaimEvent(
-      RifFileEvent fileEvent, List<CSVRecord> csvRecords) {
+      RifFileEvent fileEvent, int[] columnIndexes, List<CSVRecord> csvRecords) {
     if (LOGGER.isTraceEnabled()) LOGGER.trace(csvRecords.toString());
 
     CSVRecord firstCsvRecord = csvRecords.get(0);
 
     RecordAction recordAction = RecordAction.match(firstCsvRecord.get("DML_IND"));
-    HospiceClaim claim = HospiceClaimParser.parseRif(csvRecords);
+    HospiceClaim claim = HospiceClaimParser.parseRif(csvRecords, columnIndexes);
     return new RifRecordEvent<HospiceClaim>(
         fileEvent, recordAction, claim.getBeneficiaryId(), claim);
   }
 
   /**
    * @param fileEvent the {@link RifFileEvent} being processed
+   * @param columnIndexes the column positions resolved from the file's header
    * @param csvRecords the {@link CSVRecord}s to be mapped, which must be from a {@link
    *     RifFileType#HHA} {@link RifFile}
    * @return a {@link RifRecordEvent} built from the specified {@link CSVRecord}s
    */
   private static RifRecordEvent<HHAClaim> buildHHAClaimEvent(
-      RifFileEvent fileEvent, List<CSVRecord> csvRecords) {
+      RifFileEvent fileEvent, int[] columnIndexes, List<CSVRecord> csvRecords) {
     if (LOGGER.isTraceEnabled()) LOGGER.trace(csvRecords.toString());
 
     CSVRecord firstCsvRecord = csvRecords.get(0);
 
     RecordAction recordAction = RecordAction.match(firstCsvRecord.get("DML_IND"));
-    HHAClaim claim = HHAClaimParser.parseRif(csvRecords);
+    HHAClaim claim = HHAClaimParser.parseRif(csvRecords, columnIndexes);
     return new RifRecordEvent<HHAClaim>(fileEvent, recordAction, claim.getBeneficiaryId(), claim);
   }
 
   /**
    * @param fileEvent the {@link RifFileEvent} being processed
+   * @param columnIndexes the column positions resolved from the file's header
    * @param csvRecords the {@link CSVRecord}s to be mapped, which must be from a {@link
    *     RifFileType#DME} {@link RifFile}
    * @return a {@link RifRecordEvent} built from the specified {@link CSVRecord}s
    */
   private static RifRecordEvent<DMEClaim> buildDMEClaimEvent(
-      RifFileEvent fileEvent, List<CSVRecord> csvRecords) {
+      RifFileEvent fileEvent, int[] columnIndexes, List<CSVRecord> csvRecords) {
     if (LOGGER.isTraceEnabled()) LOGGER.trace(csvRecords.toString());
 
     CSVRecord firstCsvRecord = csvRecords.get(0);
 
     RecordAction recordAction = RecordAction.match(firstCsvRecord.get("DML_IND"));
-    DMEClaim claim = DMEClaimParser.parseRif(csvRecords);
+    DMEClaim claim = DMEClaimParser.parseRif(csvRecords, columnIndexes);
     return new RifRecordEvent<DMEClaim>(fileEvent, recordAction, claim.getBeneficiaryId(), claim);
   }
+
+  /** Parses a group of {@link CSVRecord}s from a specific {@link RifFileType} into a record. */
+  @FunctionalInterface
+  private interface RecordGroupParser {
+    /**
+     * @param fileEvent the {@link RifFileEvent} being processed
+     * @param columnIndexes the column positions resolved from the file's header
+     * @param csvRecords the {@link CSVRecord}s to be mapped
+     * @return a {@link RifRecordEvent} built from the specified {@link CSVRecord}s
+     */
+    RifRecordEvent<?> parse(
+        RifFileEvent fileEvent, int[] columnIndexes, List<CSVRecord> csvRecords);
+  }
 }
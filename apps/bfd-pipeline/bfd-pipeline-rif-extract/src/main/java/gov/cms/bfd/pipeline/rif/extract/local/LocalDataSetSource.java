@@ -0,0 +1,302 @@
+package gov.cms.bfd.pipeline.rif.extract.local;
+
+import gov.cms.bfd.model.rif.RifFile;
+import gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest;
+import gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest.DataSetManifestEntry;
+import gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest.DataSetManifestId;
+import gov.cms.bfd.pipeline.rif.extract.s3.DataSetMonitorWorker;
+import gov.cms.bfd.pipeline.rif.extract.s3.DataSetQueue;
+import gov.cms.bfd.pipeline.rif.extract.s3.DataSetSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.xml.bind.JAXBException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link DataSetSource} for data sets in a local (or network-mounted, e.g. NFS) directory, laid
+ * out just like the S3 bucket described in {@link
+ * gov.cms.bfd.pipeline.rif.extract.s3.DataSetMonitor}: <code>
+ * Incoming/&lt;timestamp&gt;/&lt;sequence&gt;_manifest.xml</code>, etc.
+ *
+ * <p>The RIF files are read in place, as {@link LocalRifFile}s: nothing is downloaded, copied, or
+ * checksummed, and nothing is prefetched. Once a data set has been processed, its files are moved
+ * (i.e. renamed) from <code>Incoming</code> to <code>Done</code>, which is why both need to be on
+ * the same file system.
+ *
+ * <p>Unlike S3 objects, local files may be visible while they're still being written. Accordingly,
+ * a data set is only considered available once all of its files exist, and their sizes and
+ * modification times haven't changed since the previous check.
+ */
+public final class LocalDataSetSource implements DataSetSource {
+  private static final Logger LOGGER = LoggerFactory.getLogger(LocalDataSetSource.class);
+
+  private final Path baseDirectory;
+
+  /**
+   * The sizes and modification times of each pending data set's files, as of the last time they
+   * were checked by {@link #listDataSetFileSizes(DataSetManifest)}.
+   */
+  private final Map<DataSetManifestId, Map<String, FileState>> observedFileStates;
+
+  private int completedManifestsCount;
+
+  /**
+   * Constructs a new {@link LocalDataSetSource}.
+   *
+   * @param baseDirectory the directory that contains the <code>
+   *     {@value DataSetMonitorWorker#S3_PREFIX_PENDING_DATA_SETS}</code> and <code>
+   *     {@value DataSetMonitorWorker#S3_PREFIX_COMPLETED_DATA_SETS}</code> directories
+   */
+  public LocalDataSetSource(Path baseDirectory) {
+    if (!Files.isDirectory(baseDirectory))
+      throw new IllegalArgumentException("Not a directory: " + baseDirectory);
+
+    this.baseDirectory = baseDirectory;
+    this.observedFileStates = new HashMap<>();
+  }
+
+  /** @see gov.cms.bfd.pipeline.rif.extract.s3.DataSetSource#listPendingManifests() */
+  @Override
+  public Set<DataSetManifestId> listPendingManifests() {
+    Set<DataSetManifestId> manifestIds = new HashSet<>();
+    for (String manifestKey : listManifestKeys(DataSetMonitorWorker.S3_PREFIX_PENDING_DATA_SETS)) {
+      DataSetManifestId manifestId = DataSetManifestId.parseManifestIdFromS3Key(manifestKey);
+      if (manifestId != null) manifestIds.add(manifestId);
+    }
+
+    this.completedManifestsCount =
+        listManifestKeys(DataSetMonitorWorker.S3_PREFIX_COMPLETED_DATA_SETS).size();
+    return manifestIds;
+  }
+
+  /**
+   * @param prefix the directory (under {@link #baseDirectory}) to list the manifests in, e.g.
+   *     <code>{@value DataSetMonitorWorker#S3_PREFIX_PENDING_DATA_SETS}</code>
+   * @return the keys (i.e. the <code>/</code>-separated paths relative to {@link #baseDirectory})
+   *     of the manifest files in each of the data set directories under the specified prefix
+   */
+  private List<String> listManifestKeys(String prefix) {
+    Path prefixDirectory = baseDirectory.resolve(prefix);
+    if (!Files.isDirectory(prefixDirectory)) return new ArrayList<>();
+
+    List<String> manifestKeys = new ArrayList<>();
+    try (DirectoryStream<Path> dataSetDirectories = Files.newDirectoryStream(prefixDirectory)) {
+      for (Path dataSetDirectory : dataSetDirectories) {
+        if (!Files.isDirectory(dataSetDirectory)) continue;
+
+        try (DirectoryStream<Path> manifests =
+            Files.newDirectoryStream(dataSetDirectory, "*_manifest.xml")) {
+          for (Path manifest : manifests)
+            manifestKeys.add(
+                String.format(
+                    "%s/%s/%s", prefix, dataSetDirectory.getFileName(), manifest.getFileName()));
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return manifestKeys;
+  }
+
+  /** @see gov.cms.bfd.pipeline.rif.extract.s3.DataSetSource#getCompletedManifestsCount() */
+  @Override
+  public int getCompletedManifestsCount() {
+    return completedManifestsCount;
+  }
+
+  /**
+   * @see
+   *     gov.cms.bfd.pipeline.rif.extract.s3.DataSetSource#readManifest(gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest.DataSetManifestId)
+   */
+  @Override
+  public DataSetManifest readManifest(DataSetManifestId manifestId) throws JAXBException {
+    Path manifestFile =
+        baseDirectory.resolve(
+            manifestId.computeS3Key(DataSetMonitorWorker.S3_PREFIX_PENDING_DATA_SETS));
+    try (InputStream manifestStream = Files.newInputStream(manifestFile)) {
+      return DataSetQueue.readManifest(manifestStream);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Error reading manifest: " + manifestFile, e);
+    }
+  }
+
+  /**
+   * Note: this will return {@link Optional#empty()} the first time it's called for each data set,
+   * as it waits to see that the data set's files are no longer changing.
+   *
+   * @see
+   *     gov.cms.bfd.pipeline.rif.extract.s3.DataSetSource#listDataSetFileSizes(gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest)
+   */
+  @Override
+  public Optional<Map<String, Long>> listDataSetFileSizes(DataSetManifest manifest) {
+    Path dataSetDirectory = getDataSetDirectory(manifest);
+    Map<String, FileState> fileStates = new HashMap<>();
+    for (DataSetManifestEntry manifestEntry : manifest.getEntries()) {
+      Path file = dataSetDirectory.resolve(manifestEntry.getName());
+      if (!Files.isRegularFile(file)) {
+        LOGGER.debug(
+            "Waiting for file '{}', part of data set: '{}'.", manifestEntry.getName(), manifest);
+        observedFileStates.remove(manifest.getId());
+        return Optional.empty();
+      }
+
+      try {
+        fileStates.put(
+            manifestEntry.getName(),
+            new FileState(Files.size(file), Files.getLastModifiedTime(file).toMillis()));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    Map<String, FileState> previousFileStates =
+        observedFileStates.put(manifest.getId(), fileStates);
+    if (!fileStates.equals(previousFileStates)) {
+      LOGGER.debug("Waiting for the files in data set '{}' to stop changing.", manifest);
+      return Optional.empty();
+    }
+
+    return Optional.of(
+        fileStates.entrySet().stream()
+            .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().size)));
+  }
+
+  /**
+   * @see
+   *     gov.cms.bfd.pipeline.rif.extract.s3.DataSetSource#startDataSet(gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest,
+   *     java.util.List)
+   */
+  @Override
+  public List<RifFile> startDataSet(
+      DataSetManifest manifest, List<DataSetManifest> upcomingManifests) {
+    // The files are read in place, so there's nothing to fetch ahead of time.
+    Path dataSetDirectory = getDataSetDirectory(manifest);
+    return manifest.getEntries().stream()
+        .map(e -> new LocalRifFile(e, dataSetDirectory.resolve(e.getName())))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Moves the data set's manifest and files to <code>
+   * {@value DataSetMonitorWorker#S3_PREFIX_COMPLETED_DATA_SETS}</code>. The manifest is moved
+   * first, so that if this is interrupted part way through, the data set won't be picked up again.
+   *
+   * @see
+   *     gov.cms.bfd.pipeline.rif.extract.s3.DataSetSource#completeDataSet(gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest)
+   */
+  @Override
+  public void completeDataSet(DataSetManifest manifest) {
+    LOGGER.debug("Moving data set '{}', now that processing is complete...", manifest);
+    observedFileStates.remove(manifest.getId());
+
+    Path sourceDirectory = getDataSetDirectory(manifest);
+    Path targetDirectory =
+        baseDirectory
+            .resolve(DataSetMonitorWorker.S3_PREFIX_COMPLETED_DATA_SETS)
+            .resolve(manifest.getTimestampText());
+    List<String> fileNamesToMove = new ArrayList<>();
+    fileNamesToMove.add(String.format("%d_manifest.xml", manifest.getSequenceId()));
+    manifest.getEntries().stream().forEach(e -> fileNamesToMove.add(e.getName()));
+
+    try {
+      Files.createDirectories(targetDirectory);
+      for (String fileName : fileNamesToMove)
+        Files.move(
+            sourceDirectory.resolve(fileName),
+            targetDirectory.resolve(fileName),
+            StandardCopyOption.REPLACE_EXISTING);
+
+      // Other data sets (with different sequence IDs) may still be using the directory.
+      try {
+        Files.deleteIfExists(sourceDirectory);
+      } catch (DirectoryNotEmptyException e) {
+        LOGGER.debug("Not removing '{}', as it isn't empty.", sourceDirectory);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    LOGGER.debug("Moved data set '{}', now that processing is complete.", manifest);
+  }
+
+  /**
+   * @see
+   *     gov.cms.bfd.pipeline.rif.extract.s3.DataSetSource#releaseDataSet(gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest)
+   */
+  @Override
+  public void releaseDataSet(DataSetManifest manifest) {
+    // The files are read in place, so there's nothing to release other than what's been observed.
+    observedFileStates.remove(manifest.getId());
+  }
+
+  /**
+   * @see
+   *     gov.cms.bfd.pipeline.rif.extract.s3.DataSetSource#cleanupOldDataSet(gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest.DataSetManifestId)
+   */
+  @Override
+  public void cleanupOldDataSet(DataSetManifestId manifestId) {
+    observedFileStates.remove(manifestId);
+  }
+
+  /** @see gov.cms.bfd.pipeline.rif.extract.s3.DataSetSource#shutdownSafely() */
+  @Override
+  public void shutdownSafely() {
+    // Nothing to do here, as all of the moves are synchronous.
+  }
+
+  /**
+   * @param manifest the {@link DataSetManifest} to get the directory of
+   * @return the pending directory that contains the specified {@link DataSetManifest} and its files
+   */
+  private Path getDataSetDirectory(DataSetManifest manifest) {
+    return baseDirectory
+        .resolve(DataSetMonitorWorker.S3_PREFIX_PENDING_DATA_SETS)
+        .resolve(manifest.getTimestampText());
+  }
+
+  /** The observed size and modification time of a data set file. */
+  private static final class FileState {
+    private final long size;
+    private final long lastModifiedMillis;
+
+    /**
+     * Constructs a new {@link FileState}.
+     *
+     * @param size the file's size, in bytes
+     * @param lastModifiedMillis the file's last modification time, in epoch milliseconds
+     */
+    FileState(long size, long lastModifiedMillis) {
+      this.size = size;
+      this.lastModifiedMillis = lastModifiedMillis;
+    }
+
+    /** @see java.lang.Object#hashCode() */
+    @Override
+    public int hashCode() {
+      return Long.hashCode(size) * 31 + Long.hashCode(lastModifiedMillis);
+    }
+
+    /** @see java.lang.Object#equals(java.lang.Object) */
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) return true;
+      if (!(obj instanceof FileState)) return false;
+      FileState other = (FileState) obj;
+      return size == other.size && lastModifiedMillis == other.lastModifiedMillis;
+    }
+  }
+}
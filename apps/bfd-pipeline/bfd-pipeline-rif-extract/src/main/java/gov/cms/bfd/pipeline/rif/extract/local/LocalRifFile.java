@@ -0,0 +1,90 @@
+package gov.cms.bfd.pipeline.rif.extract.local;
+
+import gov.cms.bfd.model.rif.RifFile;
+import gov.cms.bfd.model.rif.RifFileType;
+import gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest.DataSetManifestEntry;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * This {@link RifFile} implementation is for files in a {@link LocalDataSetSource}'s directory,
+ * which are read in place: they're never copied, and {@link #getLocalPath()} is always available,
+ * so that they can be memory-mapped.
+ */
+public final class LocalRifFile implements RifFile {
+  private final DataSetManifestEntry manifestEntry;
+  private final Path file;
+
+  /**
+   * Constructs a new {@link LocalRifFile} instance.
+   *
+   * @param manifestEntry the specific {@link DataSetManifestEntry} represented by this {@link
+   *     LocalRifFile}
+   * @param file the {@link Path} of the RIF file
+   */
+  public LocalRifFile(DataSetManifestEntry manifestEntry, Path file) {
+    Objects.requireNonNull(manifestEntry);
+    Objects.requireNonNull(file);
+
+    this.manifestEntry = manifestEntry;
+    this.file = file;
+  }
+
+  /** @see gov.cms.bfd.model.rif.RifFile#getFileType() */
+  @Override
+  public RifFileType getFileType() {
+    return manifestEntry.getType();
+  }
+
+  /** @see gov.cms.bfd.model.rif.RifFile#getDisplayName() */
+  @Override
+  public String getDisplayName() {
+    return String.format(
+        "%s.%d:%s",
+        manifestEntry.getParentManifest().getTimestampText(),
+        manifestEntry.getParentManifest().getSequenceId(),
+        manifestEntry.getName());
+  }
+
+  /** @see gov.cms.bfd.model.rif.RifFile#getCharset() */
+  @Override
+  public Charset getCharset() {
+    return StandardCharsets.UTF_8;
+  }
+
+  /** @see gov.cms.bfd.model.rif.RifFile#open() */
+  @Override
+  public InputStream open() {
+    try {
+      return new BufferedInputStream(Files.newInputStream(file));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** @see gov.cms.bfd.model.rif.RifFile#getLocalPath() */
+  @Override
+  public Optional<Path> getLocalPath() {
+    return Optional.of(file);
+  }
+
+  /** @see java.lang.Object#toString() */
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("LocalRifFile [manifestEntry=");
+    builder.append(manifestEntry);
+    builder.append(", file=");
+    builder.append(file.toAbsolutePath());
+    builder.append("]");
+    return builder.toString();
+  }
+}
@@ -0,0 +1,2 @@
+/** Handles monitoring a local (or network-mounted) directory for new data sets to process. */
+package gov.cms.bfd.pipeline.rif.extract.local;
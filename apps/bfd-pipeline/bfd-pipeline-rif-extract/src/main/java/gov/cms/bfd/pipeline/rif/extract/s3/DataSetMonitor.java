@@ -3,6 +3,7 @@ package gov.cms.bfd.pipeline.rif.extract.s3;
 import com.codahale.metrics.MetricRegistry;
 import com.justdavis.karl.misc.exceptions.BadCodeMonkeyException;
 import gov.cms.bfd.pipeline.rif.extract.ExtractionOptions;
+import gov.cms.bfd.pipeline.rif.extract.local.LocalDataSetSource;
 import gov.cms.bfd.pipeline.rif.extract.s3.task.S3TaskManager;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
@@ -46,6 +47,10 @@ import org.slf4j.LoggerFactory;
  *
  * <p>The ETL operates in a loop: periodically checking for the oldest manifest file that can be
  * found and then handing it off to the rest of the pipeline for processing.
+ *
+ * <p>Alternatively, if {@link ExtractionOptions#getLocalDataSetsDirectory()} is set, data sets will
+ * instead be pulled from a local (or network-mounted) directory with the same structure, via a
+ * {@link LocalDataSetSource}.
  */
 public final class DataSetMonitor {
   /**
@@ -69,7 +74,7 @@ public final class DataSetMonitor {
   private final DataSetMonitorListener listener;
 
   private TaskExecutor dataSetWatcherExecutor;
-  private S3TaskManager s3TaskManager;
+  private DataSetSource dataSetSource;
   private ScheduledFuture<?> dataSetWatcherFuture;
   private DataSetMonitorWorker dataSetWatcher;
 
@@ -109,8 +114,11 @@ public final class DataSetMonitor {
       throw new IllegalStateException();
 
     this.dataSetWatcherExecutor = new TaskExecutor("Data Set Watcher Executor", 1);
-    this.s3TaskManager = new S3TaskManager(appMetrics, options);
-    this.dataSetWatcher = new DataSetMonitorWorker(appMetrics, options, s3TaskManager, listener);
+    this.dataSetSource =
+        options.getLocalDataSetsDirectory().isPresent()
+            ? new LocalDataSetSource(options.getLocalDataSetsDirectory().get())
+            : new S3DataSetSource(appMetrics, options, new S3TaskManager(appMetrics, options));
+    this.dataSetWatcher = new DataSetMonitorWorker(appMetrics, options, dataSetSource, listener);
     Runnable errorNotifyingDataSetWatcher =
         new ErrorNotifyingRunnableWrapper(dataSetWatcher, listener);
 
@@ -161,7 +169,7 @@ public final class DataSetMonitor {
     waitForStop();
 
     // Clean house.
-    s3TaskManager.shutdownSafely();
+    dataSetSource.shutdownSafely();
 
     LOGGER.debug("Stopped.");
   }
@@ -29,6 +29,17 @@ public interface DataSetMonitorListener {
    */
   void dataAvailable(RifFilesEvent rifFilesEvent);
 
+  /**
+   * @return <code>true</code> if each data set should be marked as processed (i.e. moved out of
+   *     the pending data sets) once {@link #dataAvailable(RifFilesEvent)} has returned for it,
+   *     <code>false</code> if it should be left pending, e.g. because it was only run through the
+   *     pipeline to measure its throughput, rather than actually loaded (in which case, it won't be
+   *     processed again until the application is restarted)
+   */
+  default boolean isDataSetCompletionEnabled() {
+    return true;
+  }
+
   /**
    * This callback will be fired when an unrecoverable error has occurred. It is this method's
    * responsibility to call {@link DataSetMonitor#stop()}, if the processing should be halted as a
@@ -0,0 +1,238 @@
+package gov.cms.bfd.pipeline.rif.extract.s3;
+
+import com.codahale.metrics.MetricRegistry;
+import gov.cms.bfd.model.rif.RifFileType;
+import gov.cms.bfd.pipeline.rif.extract.ExtractionOptions;
+import gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest.DataSetManifestEntry;
+import gov.cms.bfd.pipeline.rif.extract.s3.task.ManifestEntryDownloadTask.ManifestEntryDownloadResult;
+import gov.cms.bfd.pipeline.rif.extract.s3.task.S3TaskManager;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Downloads the RIF files for upcoming data sets ahead of time, while {@link DataSetMonitorWorker}
+ * is busy processing the current one, so that they're (hopefully) already on local disk by the time
+ * they're needed.
+ *
+ * <p>The size of each RIF file is taken from its S3 listing, and prefetches are only started while
+ * the total size of the prefetched-but-not-yet-needed files stays within {@link
+ * ExtractionOptions#getPrefetchDiskBudget()} (and within the free space in <code>java.io.tmpdir
+ * </code>). Data sets are prefetched in the order they'll be processed, and within each data set,
+ * the {@link RifFileType#BENEFICIARY} files are prefetched first, as they're loaded first.
+ *
+ * <p>This class is not thread-safe: it's only intended to be used by {@link S3DataSetSource}.
+ */
+final class DataSetPrefetcher {
+  private static final Logger LOGGER = LoggerFactory.getLogger(DataSetPrefetcher.class);
+
+  private final MetricRegistry appMetrics;
+  private final ExtractionOptions options;
+  private final S3Operations s3Operations;
+
+  /**
+   * The {@link DataSetManifestEntry}s that have been prefetched (or are still being prefetched),
+   * along with their expected size, in the order they were submitted.
+   */
+  private final Map<DataSetManifestEntry, Long> prefetches;
+
+  /**
+   * Constructs a new {@link DataSetPrefetcher}.
+   *
+   * @param appMetrics the {@link MetricRegistry} for the overall application
+   * @param options the {@link ExtractionOptions} to use
+   * @param s3TaskManager the {@link S3TaskManager} to use
+   */
+  DataSetPrefetcher(
+      MetricRegistry appMetrics, ExtractionOptions options, S3TaskManager s3TaskManager) {
+    this(
+        appMetrics,
+        options,
+        new S3Operations() {
+          @Override
+          public Optional<Map<String, Long>> listDataSetObjectSizes(DataSetManifest manifest) {
+            return S3DataSetSource.listDataSetObjectSizes(s3TaskManager, options, manifest);
+          }
+
+          @Override
+          public void downloadAsync(DataSetManifestEntry manifestEntry) {
+            s3TaskManager.downloadAsync(manifestEntry);
+          }
+
+          @Override
+          public Optional<Future<ManifestEntryDownloadResult>> getDownload(
+              DataSetManifestEntry manifestEntry) {
+            return s3TaskManager.getDownload(manifestEntry);
+          }
+        });
+  }
+
+  /**
+   * Constructs a new {@link DataSetPrefetcher}.
+   *
+   * @param appMetrics the {@link MetricRegistry} for the overall application
+   * @param options the {@link ExtractionOptions} to use
+   * @param s3Operations the {@link S3Operations} to use
+   */
+  DataSetPrefetcher(
+      MetricRegistry appMetrics, ExtractionOptions options, S3Operations s3Operations) {
+    this.appMetrics = appMetrics;
+    this.options = options;
+    this.s3Operations = s3Operations;
+    this.prefetches = new LinkedHashMap<>();
+  }
+
+  /**
+   * Starts prefetching as much of the specified upcoming data sets as will fit in the disk budget.
+   * Any data sets that were previously prefetched but are no longer upcoming (e.g. because they
+   * disappeared from S3) will stop counting against that budget; {@link
+   * S3TaskManager#cleanupOldDataSet(DataSetManifest.DataSetManifestId)} takes care of their files.
+   *
+   * @param upcomingManifests the {@link DataSetManifest}s that will be processed after the current
+   *     one, in the order they'll be processed
+   */
+  void prefetch(List<DataSetManifest> upcomingManifests) {
+    Set<DataSetManifest> upcomingManifestsSet = new HashSet<>(upcomingManifests);
+    for (Iterator<DataSetManifestEntry> prefetchesIterator = prefetches.keySet().iterator();
+        prefetchesIterator.hasNext(); ) {
+      DataSetManifestEntry prefetchedEntry = prefetchesIterator.next();
+      if (!upcomingManifestsSet.contains(prefetchedEntry.getParentManifest())) {
+        LOGGER.debug("Dropping prefetch of '{}', as it's no longer upcoming.", prefetchedEntry);
+        prefetchesIterator.remove();
+      }
+    }
+
+    long budgetRemaining = options.getPrefetchDiskBudget() - getPrefetchedBytes();
+    long usableFreeTempSpace;
+    try {
+      usableFreeTempSpace =
+          Files.getFileStore(Paths.get(System.getProperty("java.io.tmpdir"))).getUsableSpace();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    budgetRemaining = Math.min(budgetRemaining, usableFreeTempSpace);
+
+    for (DataSetManifest manifest : upcomingManifests) {
+      /*
+       * Stop at the first data set that's still being uploaded: any prefetches after it would
+       * just be competing for disk with the files it'll need first.
+       */
+      Optional<Map<String, Long>> objectSizes = s3Operations.listDataSetObjectSizes(manifest);
+      if (!objectSizes.isPresent()) return;
+
+      List<DataSetManifestEntry> entries = new ArrayList<>(manifest.getEntries());
+      entries.sort(Comparator.comparing(e -> e.getType() != RifFileType.BENEFICIARY));
+      for (DataSetManifestEntry manifestEntry : entries) {
+        if (prefetches.containsKey(manifestEntry)) continue;
+
+        long entrySize = objectSizes.get().get(manifestEntry.getName());
+        if (entrySize > budgetRemaining) {
+          LOGGER.debug(
+              "Not prefetching '{}' ({} bytes): only {} bytes of disk budget remain.",
+              manifestEntry,
+              entrySize,
+              budgetRemaining);
+          return;
+        }
+
+        LOGGER.debug("Prefetching '{}' ({} bytes).", manifestEntry, entrySize);
+        s3Operations.downloadAsync(manifestEntry);
+        prefetches.put(manifestEntry, entrySize);
+        budgetRemaining -= entrySize;
+      }
+    }
+  }
+
+  /**
+   * Records that the specified data set is about to be processed, which releases its prefetches
+   * from the disk budget, and updates the prefetch metrics: the <code>prefetchLeadTime</code>
+   * {@link com.codahale.metrics.Timer} tracks how long before it was needed each prefetched file
+   * finished downloading, and the <code>prefetchesIncomplete</code> {@link
+   * com.codahale.metrics.Meter} tracks the prefetched files that hadn't finished downloading by
+   * then.
+   *
+   * @param manifest the {@link DataSetManifest} that's about to be processed
+   */
+  void dataSetStarted(DataSetManifest manifest) {
+    Instant now = Instant.now();
+    for (DataSetManifestEntry manifestEntry : manifest.getEntries()) {
+      if (prefetches.remove(manifestEntry) == null) continue;
+
+      Optional<Future<ManifestEntryDownloadResult>> download =
+          s3Operations.getDownload(manifestEntry);
+      Optional<Instant> completionTime = download.flatMap(DataSetPrefetcher::getCompletionTime);
+      if (completionTime.isPresent()) {
+        appMetrics
+            .timer(MetricRegistry.name(getClass().getSimpleName(), "prefetchLeadTime"))
+            .update(Duration.between(completionTime.get(), now).toMillis(), TimeUnit.MILLISECONDS);
+      } else {
+        appMetrics
+            .meter(MetricRegistry.name(getClass().getSimpleName(), "prefetchesIncomplete"))
+            .mark();
+      }
+    }
+  }
+
+  /** @return the total expected size of all current prefetches, in bytes */
+  private long getPrefetchedBytes() {
+    return prefetches.values().stream().mapToLong(Long::longValue).sum();
+  }
+
+  /**
+   * @param download the download {@link Future} to check
+   * @return the {@link ManifestEntryDownloadResult#getCompletionTime()} for the specified download,
+   *     or {@link Optional#empty()} if it hasn't completed successfully (yet)
+   */
+  private static Optional<Instant> getCompletionTime(Future<ManifestEntryDownloadResult> download) {
+    if (!download.isDone() || download.isCancelled()) return Optional.empty();
+
+    try {
+      return Optional.of(download.get().getCompletionTime());
+    } catch (ExecutionException e) {
+      return Optional.empty();
+    } catch (InterruptedException e) {
+      // Can't happen, as the Future is already done.
+      Thread.currentThread().interrupt();
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * The S3 operations that a {@link DataSetPrefetcher} relies on, which are normally just passed
+   * through to an {@link S3TaskManager}, but can be faked in tests.
+   */
+  interface S3Operations {
+    /**
+     * @param manifest the {@link DataSetManifest} to list the RIF files of
+     * @return the sizes of the specified data set's RIF files, keyed by {@link
+     *     DataSetManifestEntry#getName()}, or {@link Optional#empty()} if they're not all in S3 yet
+     */
+    Optional<Map<String, Long>> listDataSetObjectSizes(DataSetManifest manifest);
+
+    /** @param manifestEntry the {@link DataSetManifestEntry} to start downloading */
+    void downloadAsync(DataSetManifestEntry manifestEntry);
+
+    /**
+     * @param manifestEntry the {@link DataSetManifestEntry} to get the download of
+     * @return the download that was started for the specified {@link DataSetManifestEntry}, if any
+     */
+    Optional<Future<ManifestEntryDownloadResult>> getDownload(DataSetManifestEntry manifestEntry);
+  }
+}
@@ -3,18 +3,17 @@ package gov.cms.bfd.pipeline.rif.extract.s3;
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.model.ListObjectsV2Request;
-import com.amazonaws.services.s3.model.ListObjectsV2Result;
 import com.amazonaws.services.s3.model.S3Object;
-import com.amazonaws.services.s3.model.S3ObjectSummary;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
 import gov.cms.bfd.pipeline.rif.extract.ExtractionOptions;
 import gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest.DataSetManifestId;
 import gov.cms.bfd.pipeline.rif.extract.s3.task.S3TaskManager;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.SortedSet;
@@ -27,13 +26,13 @@ import javax.xml.bind.Unmarshaller;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-/** Represents and manages the queue of data sets in S3 to be processed. */
+/** Represents and manages the queue of data sets in a {@link DataSetSource} to be processed. */
 public final class DataSetQueue {
   private static final Logger LOGGER = LoggerFactory.getLogger(DataSetMonitorWorker.class);
 
   private final MetricRegistry appMetrics;
   private final ExtractionOptions options;
-  private final S3TaskManager s3TaskManager;
+  private final DataSetSource dataSetSource;
 
   /**
    * The {@link DataSetManifest}s waiting to be processed, ordered by their {@link
@@ -63,13 +62,13 @@ public final class DataSetQueue {
    *
    * @param appMetrics the {@link MetricRegistry} for the overall application
    * @param options the {@link ExtractionOptions} to use
-   * @param s3TaskManager the {@link S3TaskManager} to use
+   * @param dataSetSource the {@link DataSetSource} to pull data sets from
    */
   public DataSetQueue(
-      MetricRegistry appMetrics, ExtractionOptions options, S3TaskManager s3TaskManager) {
+      MetricRegistry appMetrics, ExtractionOptions options, DataSetSource dataSetSource) {
     this.appMetrics = appMetrics;
     this.options = options;
-    this.s3TaskManager = s3TaskManager;
+    this.dataSetSource = dataSetSource;
 
     this.manifestsToProcess = new TreeSet<>();
     this.recentlyProcessedManifests = new HashSet<>();
@@ -77,7 +76,19 @@ public final class DataSetQueue {
   }
 
   /**
-   * Updates {@link #manifestsToProcess}, listing the manifests available in S3 right now, then
+   * Constructs a new {@link DataSetQueue} instance, for data sets in S3.
+   *
+   * @param appMetrics the {@link MetricRegistry} for the overall application
+   * @param options the {@link ExtractionOptions} to use
+   * @param s3TaskManager the {@link S3TaskManager} to use
+   */
+  public DataSetQueue(
+      MetricRegistry appMetrics, ExtractionOptions options, S3TaskManager s3TaskManager) {
+    this(appMetrics, options, new S3DataSetSource(appMetrics, options, s3TaskManager));
+  }
+
+  /**
+   * Updates {@link #manifestsToProcess}, listing the manifests available right now, then
    * adding those that weren't found before and removing those that are no longer pending.
    */
   public void updatePendingDataSets() {
@@ -101,7 +112,7 @@ public final class DataSetQueue {
                   manifestId.computeS3Key(DataSetMonitorWorker.S3_PREFIX_PENDING_DATA_SETS);
               DataSetManifest manifest = null;
               try {
-                manifest = readManifest(s3TaskManager.getS3Client(), options, manifestS3Key);
+                manifest = dataSetSource.readManifest(manifestId);
               } catch (JAXBException e) {
                 /*
                  * We want to terminate the ETL load process if an invalid manifest was found
@@ -137,61 +148,24 @@ public final class DataSetQueue {
         manifestsToProcessIterator.remove();
         knownInvalidManifests.remove(manifestId);
         recentlyProcessedManifests.remove(manifestId);
-        s3TaskManager.cleanupOldDataSet(manifestId);
+        dataSetSource.cleanupOldDataSet(manifestId);
       }
     }
   }
 
   /**
-   * @return the {@link DataSetManifestId}s for the manifests that are found in S3 under the {@value
-   *     #S3_PREFIX_PENDING_DATA_SETS} key prefix, sorted in expected processing order.
+   * @return the {@link DataSetManifestId}s for the manifests that are found in the {@link
+   *     DataSetSource} under the {@value DataSetMonitorWorker#S3_PREFIX_PENDING_DATA_SETS} prefix
    */
   private Set<DataSetManifestId> listPendingManifests() {
     Timer.Context timerS3Scanning =
         appMetrics.timer(MetricRegistry.name(getClass().getSimpleName(), "s3Scanning")).time();
-    LOGGER.debug("Scanning for data sets in S3...");
-    Set<DataSetManifestId> manifestIds = new HashSet<>();
-
-    /*
-     * Request a list of all objects in the configured bucket and directory.
-     * (In the results, we'll be looking for the oldest manifest file, if
-     * any.)
-     */
-    ListObjectsV2Request s3BucketListRequest = new ListObjectsV2Request();
-    s3BucketListRequest.setBucketName(options.getS3BucketName());
-    if (options.getS3ListMaxKeys().isPresent())
-      s3BucketListRequest.setMaxKeys(options.getS3ListMaxKeys().get());
-
-    /*
-     * S3 will return results in separate pages. Loop through all of the
-     * pages, looking for manifests.
-     */
-    int completedManifestsCount = 0;
-    ListObjectsV2Result s3ObjectListing;
-    do {
-      s3ObjectListing = s3TaskManager.getS3Client().listObjectsV2(s3BucketListRequest);
-
-      for (S3ObjectSummary objectSummary : s3ObjectListing.getObjectSummaries()) {
-        String key = objectSummary.getKey();
-        if (DataSetMonitorWorker.REGEX_PENDING_MANIFEST.matcher(key).matches()) {
-          /*
-           * We've got an object that *looks like* it might be a
-           * manifest file. But we need to parse the key to ensure
-           * that it starts with a valid timestamp.
-           */
-          DataSetManifestId manifestId = DataSetManifestId.parseManifestIdFromS3Key(key);
-          if (manifestId != null) manifestIds.add(manifestId);
-        } else if (DataSetMonitorWorker.REGEX_COMPLETED_MANIFEST.matcher(key).matches()) {
-          completedManifestsCount++;
-        }
-      }
+    LOGGER.debug("Scanning for data sets...");
 
-      s3BucketListRequest.setContinuationToken(s3ObjectListing.getNextContinuationToken());
-    } while (s3ObjectListing.isTruncated());
+    Set<DataSetManifestId> manifestIds = dataSetSource.listPendingManifests();
+    this.completedManifestsCount = dataSetSource.getCompletedManifestsCount();
 
-    this.completedManifestsCount = completedManifestsCount;
-
-    LOGGER.debug("Scanned for data sets in S3. Found '{}'.", manifestsToProcess.size());
+    LOGGER.debug("Scanned for data sets. Found '{}'.", manifestIds.size());
     timerS3Scanning.close();
 
     return manifestIds;
@@ -213,13 +187,7 @@ public final class DataSetQueue {
       throws JAXBException {
     try (S3Object manifestObject =
         s3Client.getObject(options.getS3BucketName(), manifestToProcessKey)) {
-      JAXBContext jaxbContext = JAXBContext.newInstance(DataSetManifest.class);
-      Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
-
-      DataSetManifest manifest =
-          (DataSetManifest) jaxbUnmarshaller.unmarshal(manifestObject.getObjectContent());
-
-      return manifest;
+      return readManifest(manifestObject.getObjectContent());
     } catch (AmazonServiceException e) {
       /*
        * This could likely be retried, but we don't currently support
@@ -241,6 +209,21 @@ public final class DataSetQueue {
     }
   }
 
+  /**
+   * @param manifestStream the {@link InputStream} of the manifest to be read, which will not be
+   *     closed
+   * @return the {@link DataSetManifest} that was contained in the specified {@link InputStream}
+   * @throws JAXBException Any {@link JAXBException}s that are encountered will be bubbled up. These
+   *     generally indicate that the {@link DataSetManifest} could not be parsed because its content
+   *     was invalid in some way.
+   */
+  public static DataSetManifest readManifest(InputStream manifestStream) throws JAXBException {
+    JAXBContext jaxbContext = JAXBContext.newInstance(DataSetManifest.class);
+    Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
+
+    return (DataSetManifest) jaxbUnmarshaller.unmarshal(manifestStream);
+  }
+
   /**
    * @return the {@link Stream} that {@link QueuedDataSet}s should be pulled from, when requested
    */
@@ -270,6 +253,15 @@ public final class DataSetQueue {
     return getManifestsToProcess().skip(1).findFirst();
   }
 
+  /**
+   * @param maxCount the maximum number of {@link DataSetManifest}s to return
+   * @return the {@link DataSetManifest}s for the data sets that should be processed after the next
+   *     one, in the order that they should be processed
+   */
+  public List<DataSetManifest> getUpcomingDataSetsToProcess(int maxCount) {
+    return getManifestsToProcess().skip(1).limit(maxCount).collect(Collectors.toList());
+  }
+
   /**
    * @return the count of {@link DataSetManifest}s found for data sets that need to be processed
    *     (including those known to be invalid)
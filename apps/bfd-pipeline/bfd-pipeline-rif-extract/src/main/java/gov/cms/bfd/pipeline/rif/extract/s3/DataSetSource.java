@@ -0,0 +1,101 @@
+package gov.cms.bfd.pipeline.rif.extract.s3;
+
+import gov.cms.bfd.model.rif.RifFile;
+import gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest.DataSetManifestEntry;
+import gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest.DataSetManifestId;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import javax.xml.bind.JAXBException;
+
+/**
+ * A store that data sets are pushed to and pulled from, which {@link DataSetQueue} and {@link
+ * DataSetMonitorWorker} poll for new data sets to process. Every implementation follows the same
+ * layout as the S3 bucket described in {@link DataSetMonitor}: each pending data set lives under
+ * <code>{@value DataSetMonitorWorker#S3_PREFIX_PENDING_DATA_SETS}/&lt;timestamp&gt;/</code>, along
+ * with its <code>&lt;sequence&gt;_manifest.xml</code>, and is moved under <code>
+ * {@value DataSetMonitorWorker#S3_PREFIX_COMPLETED_DATA_SETS}/&lt;timestamp&gt;/</code> once it's
+ * been processed.
+ *
+ * <p>Implementations need not be thread-safe: they're only called from the {@link
+ * DataSetMonitorWorker}'s thread.
+ *
+ * @see S3DataSetSource
+ * @see gov.cms.bfd.pipeline.rif.extract.local.LocalDataSetSource
+ */
+public interface DataSetSource {
+  /**
+   * @return the {@link DataSetManifestId}s of all of the manifests that are currently pending,
+   *     i.e. under {@value DataSetMonitorWorker#S3_PREFIX_PENDING_DATA_SETS}
+   */
+  Set<DataSetManifestId> listPendingManifests();
+
+  /**
+   * @return the number of manifests that were found under {@value
+   *     DataSetMonitorWorker#S3_PREFIX_COMPLETED_DATA_SETS} by the last call to {@link
+   *     #listPendingManifests()}
+   */
+  int getCompletedManifestsCount();
+
+  /**
+   * @param manifestId the {@link DataSetManifestId} of the pending manifest to read
+   * @return the {@link DataSetManifest} with the specified {@link DataSetManifestId}
+   * @throws JAXBException Any {@link JAXBException}s that are encountered will be bubbled up. These
+   *     generally indicate that the {@link DataSetManifest} could not be parsed because its content
+   *     was invalid in some way.
+   */
+  DataSetManifest readManifest(DataSetManifestId manifestId) throws JAXBException;
+
+  /**
+   * @param manifest the {@link DataSetManifest} that lists the files to verify the presence of
+   * @return the size (in bytes) of each of the files listed in the specified manifest, keyed by
+   *     {@link DataSetManifestEntry#getName()}, or {@link Optional#empty()} if they aren't all
+   *     available yet
+   */
+  Optional<Map<String, Long>> listDataSetFileSizes(DataSetManifest manifest);
+
+  /**
+   * Starts the processing of the specified (available) data set.
+   *
+   * @param manifest the {@link DataSetManifest} of the data set that's about to be processed
+   * @param upcomingManifests the {@link DataSetManifest}s that will be processed after it, in the
+   *     order they'll be processed, which implementations may start fetching ahead of time
+   * @return a {@link RifFile} for each of the specified {@link DataSetManifest}'s entries, in the
+   *     same order
+   */
+  List<RifFile> startDataSet(DataSetManifest manifest, List<DataSetManifest> upcomingManifests);
+
+  /**
+   * Releases any local resources held for the specified data set, and moves it under {@value
+   * DataSetMonitorWorker#S3_PREFIX_COMPLETED_DATA_SETS} (possibly asynchronously).
+   *
+   * @param manifest the {@link DataSetManifest} of a data set that was passed to {@link
+   *     #startDataSet(DataSetManifest, List)} and has now been successfully processed
+   */
+  void completeDataSet(DataSetManifest manifest);
+
+  /**
+   * Releases any local resources held for the specified data set, but leaves it pending, rather
+   * than moving it as {@link #completeDataSet(DataSetManifest)} would, e.g. because it was only run
+   * through the pipeline to measure its throughput, and hasn't actually been loaded yet.
+   *
+   * @param manifest the {@link DataSetManifest} of a data set that was passed to {@link
+   *     #startDataSet(DataSetManifest, List)} and has now been processed
+   */
+  void releaseDataSet(DataSetManifest manifest);
+
+  /**
+   * Releases any local resources held for a data set that's no longer pending, most likely because
+   * it was processed and moved (but possibly because it was removed before that happened).
+   *
+   * @param manifestId the {@link DataSetManifestId} of the data set that's no longer pending
+   */
+  void cleanupOldDataSet(DataSetManifestId manifestId);
+
+  /**
+   * Shuts down this {@link DataSetSource} safely, which may require waiting for some
+   * already-submitted tasks (e.g. moves) to complete.
+   */
+  void shutdownSafely();
+}
@@ -0,0 +1,262 @@
+package gov.cms.bfd.pipeline.rif.extract.s3;
+
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.codahale.metrics.MetricRegistry;
+import gov.cms.bfd.model.rif.RifFile;
+import gov.cms.bfd.pipeline.rif.extract.ExtractionOptions;
+import gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest.DataSetManifestEntry;
+import gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest.DataSetManifestId;
+import gov.cms.bfd.pipeline.rif.extract.s3.task.DataSetMoveTask;
+import gov.cms.bfd.pipeline.rif.extract.s3.task.S3TaskManager;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.xml.bind.JAXBException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link DataSetSource} for data sets in the Amazon S3 bucket described in {@link
+ * DataSetMonitor}. Each RIF file is downloaded (and checksummed) to a local temporary file by the
+ * {@link S3TaskManager}, and the next few data sets are prefetched by a {@link DataSetPrefetcher}.
+ */
+public final class S3DataSetSource implements DataSetSource {
+  private static final Logger LOGGER = LoggerFactory.getLogger(S3DataSetSource.class);
+
+  private final MetricRegistry appMetrics;
+  private final ExtractionOptions options;
+  private final S3TaskManager s3TaskManager;
+  private final DataSetPrefetcher prefetcher;
+
+  /** The {@link S3RifFile}s of the data sets that have been started but not yet completed. */
+  private final Map<DataSetManifestId, List<S3RifFile>> startedDataSets;
+
+  private int completedManifestsCount;
+
+  /**
+   * Constructs a new {@link S3DataSetSource}.
+   *
+   * @param appMetrics the {@link MetricRegistry} for the overall application
+   * @param options the {@link ExtractionOptions} to use
+   * @param s3TaskManager the {@link S3TaskManager} to use
+   */
+  public S3DataSetSource(
+      MetricRegistry appMetrics, ExtractionOptions options, S3TaskManager s3TaskManager) {
+    this.appMetrics = appMetrics;
+    this.options = options;
+    this.s3TaskManager = s3TaskManager;
+    this.prefetcher = new DataSetPrefetcher(appMetrics, options, s3TaskManager);
+    this.startedDataSets = new HashMap<>();
+  }
+
+  /** @see gov.cms.bfd.pipeline.rif.extract.s3.DataSetSource#listPendingManifests() */
+  @Override
+  public Set<DataSetManifestId> listPendingManifests() {
+    Set<DataSetManifestId> manifestIds = new HashSet<>();
+
+    /*
+     * Request a list of all objects in the configured bucket and directory.
+     * (In the results, we'll be looking for the oldest manifest file, if
+     * any.)
+     */
+    ListObjectsV2Request s3BucketListRequest = new ListObjectsV2Request();
+    s3BucketListRequest.setBucketName(options.getS3BucketName());
+    if (options.getS3ListMaxKeys().isPresent())
+      s3BucketListRequest.setMaxKeys(options.getS3ListMaxKeys().get());
+
+    /*
+     * S3 will return results in separate pages. Loop through all of the
+     * pages, looking for manifests.
+     */
+    int completedManifestsCount = 0;
+    ListObjectsV2Result s3ObjectListing;
+    do {
+      s3ObjectListing = s3TaskManager.getS3Client().listObjectsV2(s3BucketListRequest);
+
+      for (S3ObjectSummary objectSummary : s3ObjectListing.getObjectSummaries()) {
+        String key = objectSummary.getKey();
+        if (DataSetMonitorWorker.REGEX_PENDING_MANIFEST.matcher(key).matches()) {
+          /*
+           * We've got an object that *looks like* it might be a
+           * manifest file. But we need to parse the key to ensure
+           * that it starts with a valid timestamp.
+           */
+          DataSetManifestId manifestId = DataSetManifestId.parseManifestIdFromS3Key(key);
+          if (manifestId != null) manifestIds.add(manifestId);
+        } else if (DataSetMonitorWorker.REGEX_COMPLETED_MANIFEST.matcher(key).matches()) {
+          completedManifestsCount++;
+        }
+      }
+
+      s3BucketListRequest.setContinuationToken(s3ObjectListing.getNextContinuationToken());
+    } while (s3ObjectListing.isTruncated());
+
+    this.completedManifestsCount = completedManifestsCount;
+    return manifestIds;
+  }
+
+  /** @see gov.cms.bfd.pipeline.rif.extract.s3.DataSetSource#getCompletedManifestsCount() */
+  @Override
+  public int getCompletedManifestsCount() {
+    return completedManifestsCount;
+  }
+
+  /**
+   * @see
+   *     gov.cms.bfd.pipeline.rif.extract.s3.DataSetSource#readManifest(gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest.DataSetManifestId)
+   */
+  @Override
+  public DataSetManifest readManifest(DataSetManifestId manifestId) throws JAXBException {
+    return DataSetQueue.readManifest(
+        s3TaskManager.getS3Client(),
+        options,
+        manifestId.computeS3Key(DataSetMonitorWorker.S3_PREFIX_PENDING_DATA_SETS));
+  }
+
+  /**
+   * @see
+   *     gov.cms.bfd.pipeline.rif.extract.s3.DataSetSource#listDataSetFileSizes(gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest)
+   */
+  @Override
+  public Optional<Map<String, Long>> listDataSetFileSizes(DataSetManifest manifest) {
+    return listDataSetObjectSizes(s3TaskManager, options, manifest);
+  }
+
+  /**
+   * @see
+   *     gov.cms.bfd.pipeline.rif.extract.s3.DataSetSource#startDataSet(gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest,
+   *     java.util.List)
+   */
+  @Override
+  public List<RifFile> startDataSet(
+      DataSetManifest manifest, List<DataSetManifest> upcomingManifests) {
+    // Convert the data set into a List of asynchronously-downloading S3RifFiles.
+    List<S3RifFile> rifFiles =
+        manifest.getEntries().stream()
+            .map(
+                manifestEntry ->
+                    new S3RifFile(
+                        appMetrics,
+                        manifestEntry,
+                        s3TaskManager.downloadAsync(manifestEntry),
+                        s3TaskManager.getSpooledDownload(manifestEntry)))
+            .collect(Collectors.toList());
+    startedDataSets.put(manifest.getId(), rifFiles);
+
+    /*
+     * To save time for the next data sets, peek ahead at them. Whatever's available
+     * and fits within the disk budget will start downloading early in the background.
+     */
+    prefetcher.dataSetStarted(manifest);
+    prefetcher.prefetch(upcomingManifests);
+
+    return new ArrayList<>(rifFiles);
+  }
+
+  /**
+   * @see
+   *     gov.cms.bfd.pipeline.rif.extract.s3.DataSetSource#completeDataSet(gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest)
+   */
+  @Override
+  public void completeDataSet(DataSetManifest manifest) {
+    List<S3RifFile> rifFiles = startedDataSets.remove(manifest.getId());
+    if (rifFiles != null) rifFiles.stream().forEach(f -> f.cleanupTempFile());
+    s3TaskManager.submit(new DataSetMoveTask(s3TaskManager, options, manifest));
+  }
+
+  /**
+   * @see
+   *     gov.cms.bfd.pipeline.rif.extract.s3.DataSetSource#releaseDataSet(gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest)
+   */
+  @Override
+  public void releaseDataSet(DataSetManifest manifest) {
+    List<S3RifFile> rifFiles = startedDataSets.remove(manifest.getId());
+    if (rifFiles != null) rifFiles.stream().forEach(f -> f.cleanupTempFile());
+
+    // The data set will still be pending, so its downloads won't otherwise be cleaned up.
+    s3TaskManager.cleanupOldDataSet(manifest.getId());
+  }
+
+  /**
+   * @see
+   *     gov.cms.bfd.pipeline.rif.extract.s3.DataSetSource#cleanupOldDataSet(gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest.DataSetManifestId)
+   */
+  @Override
+  public void cleanupOldDataSet(DataSetManifestId manifestId) {
+    s3TaskManager.cleanupOldDataSet(manifestId);
+  }
+
+  /** @see gov.cms.bfd.pipeline.rif.extract.s3.DataSetSource#shutdownSafely() */
+  @Override
+  public void shutdownSafely() {
+    s3TaskManager.shutdownSafely();
+  }
+
+  /**
+   * @param s3TaskManager the {@link S3TaskManager} to use
+   * @param options the {@link ExtractionOptions} to use
+   * @param manifest the {@link DataSetManifest} that lists the objects to verify the presence of
+   * @return the size (in bytes) of each of the objects listed in the specified manifest, keyed by
+   *     {@link DataSetManifestEntry#getName()}, or {@link Optional#empty()} if they can't all be
+   *     found in S3 yet
+   */
+  static Optional<Map<String, Long>> listDataSetObjectSizes(
+      S3TaskManager s3TaskManager, ExtractionOptions options, DataSetManifest manifest) {
+    /*
+     * There are two ways to do this: 1) list all the objects in the data
+     * set and verify the ones we're looking for are there after, or 2) try
+     * to grab the metadata for each object. Option #2 *should* be simpler,
+     * but isn't, because each missing object will result in an exception.
+     * Exceptions-as-control-flow is a poor design choice, so we'll go with
+     * option #1.
+     */
+
+    String dataSetKeyPrefix =
+        String.format(
+            "%s/%s/",
+            DataSetMonitorWorker.S3_PREFIX_PENDING_DATA_SETS,
+            manifest.getTimestampText());
+
+    ListObjectsV2Request s3BucketListRequest = new ListObjectsV2Request();
+    s3BucketListRequest.setBucketName(options.getS3BucketName());
+    s3BucketListRequest.setPrefix(dataSetKeyPrefix);
+    if (options.getS3ListMaxKeys().isPresent())
+      s3BucketListRequest.setMaxKeys(options.getS3ListMaxKeys().get());
+
+    Map<String, Long> dataSetObjectSizes = new HashMap<>();
+    ListObjectsV2Result s3ObjectListing;
+    do {
+      s3ObjectListing = s3TaskManager.getS3Client().listObjectsV2(s3BucketListRequest);
+
+      /*
+       * Pull the object names from the keys that were returned, by
+       * stripping the timestamp prefix and slash from each of them.
+       */
+      for (S3ObjectSummary objectSummary : s3ObjectListing.getObjectSummaries()) {
+        LOGGER.debug("Found file: '{}', part of data set: '{}'.", objectSummary.getKey(), manifest);
+        dataSetObjectSizes.put(
+            objectSummary.getKey().substring(dataSetKeyPrefix.length()), objectSummary.getSize());
+      }
+
+      // On to the next page! (If any.)
+      s3BucketListRequest.setContinuationToken(s3ObjectListing.getNextContinuationToken());
+    } while (s3ObjectListing.isTruncated());
+
+    for (DataSetManifestEntry manifestEntry : manifest.getEntries()) {
+      if (!dataSetObjectSizes.containsKey(manifestEntry.getName())) {
+        LOGGER.debug(
+            "Waiting for file '{}', part of data set: '{}'.", manifestEntry.getName(), manifest);
+        return Optional.empty();
+      }
+    }
+
+    return Optional.of(dataSetObjectSizes);
+  }
+}
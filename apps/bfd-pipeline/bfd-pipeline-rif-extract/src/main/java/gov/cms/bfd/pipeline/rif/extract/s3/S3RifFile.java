@@ -6,9 +6,12 @@ import com.codahale.metrics.Timer;
 import com.justdavis.karl.misc.exceptions.BadCodeMonkeyException;
 import gov.cms.bfd.model.rif.RifFile;
 import gov.cms.bfd.model.rif.RifFileType;
+import gov.cms.bfd.pipeline.rif.extract.PipelineStage;
+import gov.cms.bfd.pipeline.rif.extract.PipelineStageMetrics;
 import gov.cms.bfd.pipeline.rif.extract.exceptions.AwsFailureException;
 import gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest.DataSetManifestEntry;
 import gov.cms.bfd.pipeline.rif.extract.s3.task.ManifestEntryDownloadTask.ManifestEntryDownloadResult;
+import gov.cms.bfd.pipeline.rif.extract.s3.task.SpooledDownload;
 import java.io.BufferedInputStream;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -18,7 +21,9 @@ import java.io.UncheckedIOException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -37,6 +42,7 @@ public final class S3RifFile implements RifFile {
   private final MetricRegistry appMetrics;
   private final DataSetManifestEntry manifestEntry;
   private final Future<ManifestEntryDownloadResult> manifestEntryDownload;
+  private final SpooledDownload spooledDownload;
 
   /**
    * Constructs a new {@link S3RifFile} instance.
@@ -46,11 +52,15 @@ public final class S3RifFile implements RifFile {
    *     S3RifFile}
    * @param manifestEntryDownload a {@link Future} for the {@link ManifestEntryDownloadResult} with
    *     a local download of the RIF file's contents
+   * @param spooledDownload the {@link SpooledDownload} that the RIF file's contents can be read
+   *     from while they're still being downloaded, or <code>null</code> if {@link #open()} should
+   *     wait for the {@link ManifestEntryDownloadResult}
    */
   public S3RifFile(
       MetricRegistry appMetrics,
       DataSetManifestEntry manifestEntry,
-      Future<ManifestEntryDownloadResult> manifestEntryDownload) {
+      Future<ManifestEntryDownloadResult> manifestEntryDownload,
+      SpooledDownload spooledDownload) {
     Objects.requireNonNull(appMetrics);
     Objects.requireNonNull(manifestEntry);
     Objects.requireNonNull(manifestEntryDownload);
@@ -58,6 +68,24 @@ public final class S3RifFile implements RifFile {
     this.appMetrics = appMetrics;
     this.manifestEntry = manifestEntry;
     this.manifestEntryDownload = manifestEntryDownload;
+    this.spooledDownload = spooledDownload;
+  }
+
+  /**
+   * Constructs a new {@link S3RifFile} instance, which will wait for its download to complete
+   * before it can be read.
+   *
+   * @param appMetrics the {@link MetricRegistry} for the overall application
+   * @param manifestEntry the specific {@link DataSetManifestEntry} represented by this {@link
+   *     S3RifFile}
+   * @param manifestEntryDownload a {@link Future} for the {@link ManifestEntryDownloadResult} with
+   *     a local download of the RIF file's contents
+   */
+  public S3RifFile(
+      MetricRegistry appMetrics,
+      DataSetManifestEntry manifestEntry,
+      Future<ManifestEntryDownloadResult> manifestEntryDownload) {
+    this(appMetrics, manifestEntry, manifestEntryDownload, null);
   }
 
   /** @see gov.cms.bfd.model.rif.RifFile#getFileType() */
@@ -85,6 +113,15 @@ public final class S3RifFile implements RifFile {
   /** @see gov.cms.bfd.model.rif.RifFile#open() */
   @Override
   public InputStream open() {
+    /*
+     * If the download is still in progress, read it as it's written, rather than waiting. The
+     * stream will fail if the download does, and won't end until its checksum has been verified.
+     */
+    if (spooledDownload != null && !spooledDownload.isDone()) {
+      LOGGER.info("Reading RIF file while it downloads: '{}'...", getDisplayName());
+      return new BufferedInputStream(spooledDownload.openStream());
+    }
+
     ManifestEntryDownloadResult fileDownloadResult = waitForDownload();
 
     // Open a stream for the file.
@@ -100,16 +137,36 @@ public final class S3RifFile implements RifFile {
     return fileDownloadStream;
   }
 
+  /**
+   * Note: this will block until the file has been downloaded, unless it's being streamed via a
+   * {@link SpooledDownload}, in which case it will instead return {@link Optional#empty()} until
+   * the download is complete (so that the file can be read via {@link #open()} in the meantime).
+   *
+   * @see gov.cms.bfd.model.rif.RifFile#getLocalPath()
+   */
+  @Override
+  public Optional<Path> getLocalPath() {
+    if (spooledDownload != null && !spooledDownload.isDone()) return Optional.empty();
+
+    return Optional.of(waitForDownload().getLocalDownload());
+  }
+
   /**
    * @return the completed {@link ManifestEntryDownloadResult} for {@link #manifestEntryDownload}
    */
   private ManifestEntryDownloadResult waitForDownload() {
     Timer.Context downloadWaitTimer = null;
+    Timer.Context stageTimer = null;
+    Timer.Context fileTypeStageTimer = null;
     if (!manifestEntryDownload.isDone()) {
       downloadWaitTimer =
           appMetrics
               .timer(MetricRegistry.name(getClass().getSimpleName(), "waitingForDownloads"))
               .time();
+      stageTimer = PipelineStageMetrics.stageTimer(appMetrics, PipelineStage.S3_WAIT).time();
+      fileTypeStageTimer =
+          PipelineStageMetrics.stageTimer(appMetrics, PipelineStage.S3_WAIT, getFileType())
+              .time();
       LOGGER.info("Waiting for RIF file download: '{}'...", getDisplayName());
     }
 
@@ -134,6 +191,8 @@ public final class S3RifFile implements RifFile {
     if (downloadWaitTimer != null) {
       LOGGER.info("RIF file downloaded: '{}'.", getDisplayName());
       downloadWaitTimer.close();
+      stageTimer.close();
+      fileTypeStageTimer.close();
     }
 
     return fileDownloadResult;
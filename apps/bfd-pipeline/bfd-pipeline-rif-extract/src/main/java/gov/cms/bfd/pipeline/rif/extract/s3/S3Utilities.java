@@ -1,5 +1,6 @@
 package gov.cms.bfd.pipeline.rif.extract.s3;
 
+import com.amazonaws.client.builder.AwsClientBuilder.EndpointConfiguration;
 import com.amazonaws.regions.Region;
 import com.amazonaws.regions.Regions;
 import com.amazonaws.services.s3.AmazonS3;
@@ -11,6 +12,13 @@ public final class S3Utilities {
   /** The default AWS {@link Region} to interact with. */
   public static final Regions REGION_DEFAULT = Regions.US_EAST_1;
 
+  /**
+   * The name of the optional system property that can be used to point the S3 clients at a local
+   * S3-compatible stand-in (e.g. MinIO), rather than AWS, for testing, e.g. <code>
+   * -Ds3.local.endpoint=http://localhost:9000</code>.
+   */
+  public static final String PROPERTY_NAME_S3_LOCAL_ENDPOINT = "s3.local.endpoint";
+
   /**
    * @param options the {@link ExtractionOptions} to use
    * @return the {@link AmazonS3} client to use
@@ -24,6 +32,16 @@ public final class S3Utilities {
    * @return the {@link AmazonS3} client to use
    */
   public static AmazonS3 createS3Client(Regions awsS3Region) {
+    String localEndpoint = System.getProperty(PROPERTY_NAME_S3_LOCAL_ENDPOINT);
+    if (localEndpoint != null && !localEndpoint.trim().isEmpty()) {
+      // Local stand-ins generally don't support virtual-host-style bucket addressing.
+      return AmazonS3ClientBuilder.standard()
+          .withEndpointConfiguration(
+              new EndpointConfiguration(localEndpoint.trim(), awsS3Region.getName()))
+          .withPathStyleAccessEnabled(true)
+          .build();
+    }
+
     AmazonS3 s3Client = AmazonS3ClientBuilder.standard().withRegion(awsS3Region).build();
     return s3Client;
   }
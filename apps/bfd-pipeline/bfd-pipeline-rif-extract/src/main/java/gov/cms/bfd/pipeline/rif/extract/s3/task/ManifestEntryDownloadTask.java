@@ -2,6 +2,7 @@ package gov.cms.bfd.pipeline.rif.extract.s3.task;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.transfer.Download;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
@@ -12,6 +13,7 @@ import gov.cms.bfd.pipeline.rif.extract.exceptions.ChecksumException;
 import gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest.DataSetManifestEntry;
 import gov.cms.bfd.pipeline.rif.extract.s3.DataSetMonitorWorker;
 import gov.cms.bfd.pipeline.rif.extract.s3.task.ManifestEntryDownloadTask.ManifestEntryDownloadResult;
+import gov.cms.bfd.pipeline.rif.extract.s3.task.RangedDownload.RangedDownloadResult;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -20,6 +22,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
 import java.util.Base64;
 import java.util.concurrent.Callable;
 import org.slf4j.Logger;
@@ -36,6 +39,7 @@ public final class ManifestEntryDownloadTask implements Callable<ManifestEntryDo
   private final MetricRegistry appMetrics;
   private final ExtractionOptions options;
   private final DataSetManifestEntry manifestEntry;
+  private final SpooledDownload spooledDownload;
 
   /**
    * Constructs a new {@link ManifestEntryDownloadTask}.
@@ -44,30 +48,65 @@ public final class ManifestEntryDownloadTask implements Callable<ManifestEntryDo
    * @param appMetrics the {@link MetricRegistry} for the overall application
    * @param options the {@link ExtractionOptions} to use
    * @param manifestEntry the {@link DataSetManifestEntry} to download the file for
+   * @param spooledDownload the {@link SpooledDownload} to stream the file through and report
+   *     progress to, or <code>null</code> if the file should be fully downloaded before it's made
+   *     available
    */
   public ManifestEntryDownloadTask(
       S3TaskManager s3TaskManager,
       MetricRegistry appMetrics,
       ExtractionOptions options,
-      DataSetManifestEntry manifestEntry) {
+      DataSetManifestEntry manifestEntry,
+      SpooledDownload spooledDownload) {
     this.s3TaskManager = s3TaskManager;
     this.appMetrics = appMetrics;
     this.options = options;
     this.manifestEntry = manifestEntry;
+    this.spooledDownload = spooledDownload;
+  }
+
+  /**
+   * Constructs a new {@link ManifestEntryDownloadTask}, which will fully download the file before
+   * making it available.
+   *
+   * @param s3TaskManager the {@link S3TaskManager} to use
+   * @param appMetrics the {@link MetricRegistry} for the overall application
+   * @param options the {@link ExtractionOptions} to use
+   * @param manifestEntry the {@link DataSetManifestEntry} to download the file for
+   */
+  public ManifestEntryDownloadTask(
+      S3TaskManager s3TaskManager,
+      MetricRegistry appMetrics,
+      ExtractionOptions options,
+      DataSetManifestEntry manifestEntry) {
+    this(s3TaskManager, appMetrics, options, manifestEntry, null);
   }
 
   /** @see java.util.concurrent.Callable#call() */
   @Override
   public ManifestEntryDownloadResult call() throws Exception {
+    if (spooledDownload == null && options.getDownloadRangeThreads() < 1) return download();
+
     try {
-      GetObjectRequest objectRequest =
-          new GetObjectRequest(
-              options.getS3BucketName(),
-              String.format(
-                  "%s/%s/%s",
-                  DataSetMonitorWorker.S3_PREFIX_PENDING_DATA_SETS,
-                  manifestEntry.getParentManifest().getTimestampText(),
-                  manifestEntry.getName()));
+      return downloadRanged();
+    } catch (Throwable t) {
+      // Make sure that anyone reading the spooled file finds out about this.
+      if (spooledDownload != null) spooledDownload.fail(t);
+      throw t;
+    }
+  }
+
+  /**
+   * Downloads the file to a local temp file via the {@link S3TaskManager#getS3TransferManager()},
+   * and then rereads it to verify its checksum.
+   *
+   * @return the {@link ManifestEntryDownloadResult} for the download
+   * @throws NoSuchAlgorithmException Any {@link NoSuchAlgorithmException}s encountered will be
+   *     bubbled up.
+   */
+  private ManifestEntryDownloadResult download() throws NoSuchAlgorithmException {
+    try {
+      GetObjectRequest objectRequest = createObjectRequest();
       Path localTempFile = Files.createTempFile("data-pipeline-s3-temp", ".rif");
 
       Timer.Context downloadTimer =
@@ -92,16 +131,7 @@ public final class ManifestEntryDownloadTask implements Callable<ManifestEntryDo
       String generatedMD5ChkSum = ManifestEntryDownloadTask.computeMD5ChkSum(downloadedInputStream);
       md5ChkSumTimer.close();
 
-      String downloadedFileMD5ChkSum =
-          downloadHandle.getObjectMetadata().getUserMetaDataOf("md5chksum");
-      // TODO Remove null check below once Jira CBBD-368 is completed
-      if ((downloadedFileMD5ChkSum != null)
-          && (!generatedMD5ChkSum.equals(downloadedFileMD5ChkSum)))
-        throw new ChecksumException(
-            "Checksum doesn't match on downloaded file "
-                + localTempFile
-                + " manifest entry is "
-                + manifestEntry.toString());
+      verifyChecksum(downloadHandle.getObjectMetadata(), generatedMD5ChkSum, localTempFile);
 
       return new ManifestEntryDownloadResult(manifestEntry, localTempFile);
     } catch (IOException e) {
@@ -114,6 +144,90 @@ public final class ManifestEntryDownloadTask implements Callable<ManifestEntryDo
     }
   }
 
+  /**
+   * Downloads the file to a local temp file via parallel ranged GETs (see {@link RangedDownload}),
+   * computing its checksum along the way. If there's a {@link #spooledDownload}, progress is
+   * reported to it so that the file can be read before it's complete, and it's only marked as
+   * complete once the checksum has been verified.
+   *
+   * <p>Unlike {@link #download()}, this avoids having to reread the entire file afterwards to
+   * checksum it.
+   *
+   * @return the {@link ManifestEntryDownloadResult} for the download
+   */
+  private ManifestEntryDownloadResult downloadRanged() {
+    try {
+      Path localTempFile = Files.createTempFile("data-pipeline-s3-temp", ".rif");
+      if (spooledDownload != null) spooledDownload.start(localTempFile);
+
+      Timer.Context downloadTimer =
+          appMetrics
+              .timer(MetricRegistry.name(getClass().getSimpleName(), "downloadRangedSystemTime"))
+              .time();
+      LOGGER.debug(
+          "Downloading '{}' to '{}' in ranges...",
+          manifestEntry,
+          localTempFile.toAbsolutePath().toString());
+      GetObjectRequest objectRequest = createObjectRequest();
+      RangedDownload rangedDownload =
+          new RangedDownload(
+              s3TaskManager.getS3Client(),
+              s3TaskManager.getRangeDownloadExecutor(),
+              Math.max(1, options.getDownloadRangeThreads()),
+              RangedDownload.DEFAULT_PART_SIZE);
+      RangedDownloadResult rangedDownloadResult =
+          rangedDownload.download(
+              objectRequest.getBucketName(),
+              objectRequest.getKey(),
+              localTempFile,
+              spooledDownload);
+      LOGGER.debug(
+          "Downloaded '{}' to '{}'.", manifestEntry, localTempFile.toAbsolutePath().toString());
+      downloadTimer.close();
+
+      verifyChecksum(
+          rangedDownloadResult.getObjectMetadata(),
+          rangedDownloadResult.getMd5ChkSum(),
+          localTempFile);
+      if (spooledDownload != null) spooledDownload.complete();
+
+      return new ManifestEntryDownloadResult(manifestEntry, localTempFile);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** @return the {@link GetObjectRequest} for the {@link #manifestEntry}'s file */
+  private GetObjectRequest createObjectRequest() {
+    return new GetObjectRequest(
+        options.getS3BucketName(),
+        String.format(
+            "%s/%s/%s",
+            DataSetMonitorWorker.S3_PREFIX_PENDING_DATA_SETS,
+            manifestEntry.getParentManifest().getTimestampText(),
+            manifestEntry.getName()));
+  }
+
+  /**
+   * @param objectMetadata the {@link ObjectMetadata} of the S3 object that was downloaded, which
+   *     may include its expected checksum
+   * @param generatedMD5ChkSum the Base64-encoded MD5 checksum that was computed for the download
+   * @param localTempFile the local file that the object was downloaded to
+   * @throws ChecksumException A {@link ChecksumException} will be thrown if the checksums don't
+   *     match.
+   */
+  private void verifyChecksum(
+      ObjectMetadata objectMetadata, String generatedMD5ChkSum, Path localTempFile) {
+    String downloadedFileMD5ChkSum = objectMetadata.getUserMetaDataOf("md5chksum");
+    // TODO Remove null check below once Jira CBBD-368 is completed
+    if ((downloadedFileMD5ChkSum != null) && (!generatedMD5ChkSum.equals(downloadedFileMD5ChkSum)))
+      throw new ChecksumException(
+          "Checksum doesn't match on downloaded file "
+              + localTempFile
+              + " manifest entry is "
+              + manifestEntry.toString());
+  }
+
   /**
    * Calculates and returns a Base64 encoded MD5chksum value for the file just downloaded from S3
    *
@@ -123,7 +237,7 @@ public final class ManifestEntryDownloadTask implements Callable<ManifestEntryDo
   public static String computeMD5ChkSum(InputStream downloadedS3File)
       throws IOException, NoSuchAlgorithmException {
     // Create byte array to read data in chunks
-    byte[] byteArray = new byte[1024];
+    byte[] byteArray = new byte[64 * 1024];
     int bytesCount = 0;
     MessageDigest md5Digest = MessageDigest.getInstance("MD5");
 
@@ -146,9 +260,11 @@ public final class ManifestEntryDownloadTask implements Callable<ManifestEntryDo
   public static final class ManifestEntryDownloadResult {
     private final DataSetManifestEntry manifestEntry;
     private final Path localDownload;
+    private final Instant completionTime;
 
     /**
-     * Constructs a new {@link ManifestEntryDownloadResult} instance.
+     * Constructs a new {@link ManifestEntryDownloadResult} instance, for a download that has just
+     * completed.
      *
      * @param manifestEntry the value to use for {@link #getManifestEntry()}
      * @param localDownload the value to use for {@link #getLocalDownload()}
@@ -156,6 +272,7 @@ public final class ManifestEntryDownloadTask implements Callable<ManifestEntryDo
     public ManifestEntryDownloadResult(DataSetManifestEntry manifestEntry, Path localDownload) {
       this.manifestEntry = manifestEntry;
       this.localDownload = localDownload;
+      this.completionTime = Instant.now();
     }
 
     /** @return the {@link DataSetManifestEntry} whose file was downloaded */
@@ -170,5 +287,10 @@ public final class ManifestEntryDownloadTask implements Callable<ManifestEntryDo
     public Path getLocalDownload() {
       return localDownload;
     }
+
+    /** @return when the download completed */
+    public Instant getCompletionTime() {
+      return completionTime;
+    }
   }
 }
@@ -0,0 +1,349 @@
+package gov.cms.bfd.pipeline.rif.extract.s3.task;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.justdavis.karl.misc.exceptions.BadCodeMonkeyException;
+import gov.cms.bfd.pipeline.rif.extract.exceptions.AwsFailureException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Downloads a single S3 object to a local file via parallel byte-range GETs, each of which is
+ * written directly into its place in a preallocated file. The object's MD5 checksum is computed as
+ * part of the transfer: parts are fed into the digest in order as soon as they (and all of the
+ * parts before them) have arrived, so there's no second pass over the file.
+ *
+ * <p>If a {@link SpooledDownload} is provided, it's advanced to the end of that same in-order
+ * prefix, so the file can be read while the rest of it is still downloading.
+ */
+final class RangedDownload {
+  private static final Logger LOGGER = LoggerFactory.getLogger(RangedDownload.class);
+
+  /** The default size of each range/part to download. */
+  static final int DEFAULT_PART_SIZE = 16 * 1024 * 1024;
+
+  /** The number of times that each part's download will be attempted before giving up. */
+  private static final int MAX_PART_ATTEMPTS = 3;
+
+  /**
+   * The number of parts per range thread that may be held in memory at once, while waiting for an
+   * earlier part to arrive so that they can be digested.
+   */
+  private static final int BUFFERED_PARTS_PER_THREAD = 2;
+
+  private final AmazonS3 s3Client;
+  private final ExecutorService rangeExecutor;
+  private final int rangeThreads;
+  private final int partSize;
+
+  /**
+   * Constructs a new {@link RangedDownload}.
+   *
+   * @param s3Client the {@link AmazonS3} client to use
+   * @param rangeExecutor the {@link ExecutorService} to run the range downloads on
+   * @param rangeThreads the maximum number of ranges of the object to download concurrently
+   * @param partSize the size of each range to download
+   */
+  RangedDownload(AmazonS3 s3Client, ExecutorService rangeExecutor, int rangeThreads, int partSize) {
+    if (rangeThreads < 1) throw new IllegalArgumentException();
+    if (partSize < 1) throw new IllegalArgumentException();
+
+    this.s3Client = s3Client;
+    this.rangeExecutor = rangeExecutor;
+    this.rangeThreads = rangeThreads;
+    this.partSize = partSize;
+  }
+
+  /**
+   * Downloads the specified S3 object.
+   *
+   * @param bucketName the name of the S3 bucket containing the object to download
+   * @param key the key of the S3 object to download
+   * @param localFile the (existing) local file to download the object to, which will be overwritten
+   * @param spooledDownload the {@link SpooledDownload} to report progress to, or <code>null</code>
+   * @return the {@link RangedDownloadResult}
+   */
+  RangedDownloadResult download(
+      String bucketName, String key, Path localFile, SpooledDownload spooledDownload) {
+    ObjectMetadata objectMetadata;
+    try {
+      objectMetadata = s3Client.getObjectMetadata(bucketName, key);
+    } catch (AmazonClientException e) {
+      throw new AwsFailureException(e);
+    }
+    long objectSize = objectMetadata.getContentLength();
+    int partCount = (int) ((objectSize + partSize - 1) / partSize);
+
+    try {
+      try (RandomAccessFile localRandomAccessFile =
+          new RandomAccessFile(localFile.toFile(), "rw")) {
+        localRandomAccessFile.setLength(objectSize);
+      }
+
+      OrderedDigest digest = new OrderedDigest(spooledDownload);
+      try (FileChannel localChannel = FileChannel.open(localFile, StandardOpenOption.WRITE)) {
+        AtomicInteger nextPart = new AtomicInteger(0);
+        CompletionService<Void> rangeCompletions = new ExecutorCompletionService<>(rangeExecutor);
+        List<Future<Void>> rangeFutures = new ArrayList<>();
+        for (int i = 0; i < Math.min(rangeThreads, partCount); i++)
+          rangeFutures.add(
+              rangeCompletions.submit(
+                  () -> {
+                    downloadParts(
+                        bucketName, key, objectSize, partCount, nextPart, localChannel, digest);
+                    return null;
+                  }));
+        awaitAll(rangeCompletions, rangeFutures);
+      }
+
+      if (digest.getNextPart() != partCount) throw new BadCodeMonkeyException();
+      LOGGER.debug("Downloaded '{}' bytes in '{}' parts of '{}'.", objectSize, partCount, key);
+      return new RangedDownloadResult(objectMetadata, digest.getChecksum());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Repeatedly claims and downloads the next part of the object, until there are none left.
+   *
+   * @param bucketName the name of the S3 bucket containing the object to download
+   * @param key the key of the S3 object to download
+   * @param objectSize the size of the S3 object to download
+   * @param partCount the total number of parts in the object
+   * @param nextPart the index of the next part to claim, shared between all range threads
+   * @param localChannel the {@link FileChannel} to write each part into
+   * @param digest the {@link OrderedDigest} to pass each downloaded part to
+   * @throws IOException Any {@link IOException}s encountered will be bubbled up.
+   * @throws InterruptedException Any {@link InterruptedException}s encountered will be bubbled up.
+   */
+  private void downloadParts(
+      String bucketName,
+      String key,
+      long objectSize,
+      int partCount,
+      AtomicInteger nextPart,
+      FileChannel localChannel,
+      OrderedDigest digest)
+      throws IOException, InterruptedException {
+    while (true) {
+      /*
+       * Note that a buffer permit is acquired before claiming a part, and not after: that way, the
+       * earliest not-yet-digested part always holds a permit, so the digest can always advance.
+       */
+      digest.acquireBuffer();
+      int part = nextPart.getAndIncrement();
+      if (part >= partCount) {
+        digest.releaseBuffer();
+        return;
+      }
+
+      long start = (long) part * partSize;
+      int length = (int) Math.min(partSize, objectSize - start);
+      byte[] partData = downloadPart(bucketName, key, start, length);
+
+      ByteBuffer partBuffer = ByteBuffer.wrap(partData);
+      long position = start;
+      while (partBuffer.hasRemaining()) position += localChannel.write(partBuffer, position);
+
+      digest.offer(part, partData);
+    }
+  }
+
+  /**
+   * @param bucketName the name of the S3 bucket containing the object to download
+   * @param key the key of the S3 object to download
+   * @param start the offset of the first byte to download
+   * @param length the number of bytes to download
+   * @return the downloaded bytes
+   * @throws IOException An {@link IOException} will be thrown if all attempts to download the part
+   *     fail.
+   */
+  private byte[] downloadPart(String bucketName, String key, long start, int length)
+      throws IOException {
+    for (int attempt = 1; ; attempt++) {
+      GetObjectRequest rangeRequest =
+          new GetObjectRequest(bucketName, key).withRange(start, start + length - 1);
+      try (S3Object rangeObject = s3Client.getObject(rangeRequest);
+          InputStream rangeStream = rangeObject.getObjectContent()) {
+        byte[] partData = new byte[length];
+        int offset = 0;
+        int bytesRead;
+        while (offset < length
+            && (bytesRead = rangeStream.read(partData, offset, length - offset)) != -1)
+          offset += bytesRead;
+        if (offset != length)
+          throw new IOException(
+              String.format(
+                  "Range '%d-%d' of '%s' was short: '%d' bytes.",
+                  start, start + length - 1, key, offset));
+        return partData;
+      } catch (IOException | AmazonClientException e) {
+        if (attempt >= MAX_PART_ATTEMPTS) {
+          if (e instanceof AmazonClientException) throw new AwsFailureException(e);
+          throw (IOException) e;
+        }
+        LOGGER.warn(
+            "Download of range '{}-{}' of '{}' failed (attempt {}). Retrying.",
+            start,
+            start + length - 1,
+            key,
+            attempt,
+            e);
+      }
+    }
+  }
+
+  /**
+   * Waits for all of the specified {@link Future}s to complete, in whatever order they complete in.
+   * If any of them fail, the others are cancelled (as they may otherwise be blocked forever,
+   * waiting on a part that will never arrive).
+   *
+   * @param completions the {@link CompletionService} that the {@link Future}s were submitted to
+   * @param futures the {@link Future}s to wait for
+   */
+  private static void awaitAll(CompletionService<Void> completions, List<Future<Void>> futures) {
+    try {
+      for (int i = 0; i < futures.size(); i++) completions.take().get();
+    } catch (ExecutionException e) {
+      futures.forEach(f -> f.cancel(true));
+      if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+      if (e.getCause() instanceof IOException)
+        throw new UncheckedIOException((IOException) e.getCause());
+      throw new IllegalStateException(e.getCause());
+    } catch (InterruptedException e) {
+      // We're not expecting interrupts here, so go boom.
+      throw new BadCodeMonkeyException(e);
+    }
+  }
+
+  /**
+   * Computes an MD5 digest over parts that may arrive out of order, by holding on to each part
+   * until all of the parts before it have been digested.
+   */
+  private final class OrderedDigest {
+    private final MessageDigest md5Digest;
+    private final SpooledDownload spooledDownload;
+    private final Semaphore bufferPermits;
+    private final Map<Integer, byte[]> pendingParts;
+    private int nextPart;
+    private long bytesDigested;
+
+    /**
+     * Constructs a new {@link OrderedDigest}.
+     *
+     * @param spooledDownload the {@link SpooledDownload} to report progress to, or <code>null
+     *     </code>
+     */
+    OrderedDigest(SpooledDownload spooledDownload) {
+      try {
+        this.md5Digest = MessageDigest.getInstance("MD5");
+      } catch (NoSuchAlgorithmException e) {
+        throw new IllegalStateException(e);
+      }
+      this.spooledDownload = spooledDownload;
+      this.bufferPermits = new Semaphore(rangeThreads * BUFFERED_PARTS_PER_THREAD);
+      this.pendingParts = new TreeMap<>();
+      this.nextPart = 0;
+      this.bytesDigested = 0;
+    }
+
+    /**
+     * Blocks until another part may be held in memory.
+     *
+     * @throws InterruptedException Any {@link InterruptedException}s encountered will be bubbled
+     *     up.
+     */
+    void acquireBuffer() throws InterruptedException {
+      bufferPermits.acquire();
+    }
+
+    /** Releases a permit acquired via {@link #acquireBuffer()}. */
+    void releaseBuffer() {
+      bufferPermits.release();
+    }
+
+    /**
+     * Accepts a downloaded part, which must have already been written to the local file, and
+     * digests it along with any following parts that were waiting on it.
+     *
+     * @param part the index of the part
+     * @param partData the part's bytes
+     */
+    synchronized void offer(int part, byte[] partData) {
+      pendingParts.put(part, partData);
+
+      byte[] nextPartData;
+      while ((nextPartData = pendingParts.remove(nextPart)) != null) {
+        md5Digest.update(nextPartData);
+        bytesDigested += nextPartData.length;
+        nextPart++;
+        releaseBuffer();
+      }
+
+      if (spooledDownload != null) spooledDownload.advance(bytesDigested);
+    }
+
+    /** @return the index of the next part that needs to be digested */
+    synchronized int getNextPart() {
+      return nextPart;
+    }
+
+    /** @return the Base64-encoded MD5 checksum of all of the parts */
+    synchronized String getChecksum() {
+      return Base64.getEncoder().encodeToString(md5Digest.digest());
+    }
+  }
+
+  /** Represents the results of a {@link RangedDownload}. */
+  static final class RangedDownloadResult {
+    private final ObjectMetadata objectMetadata;
+    private final String md5ChkSum;
+
+    /**
+     * Constructs a new {@link RangedDownloadResult}.
+     *
+     * @param objectMetadata the value to use for {@link #getObjectMetadata()}
+     * @param md5ChkSum the value to use for {@link #getMd5ChkSum()}
+     */
+    RangedDownloadResult(ObjectMetadata objectMetadata, String md5ChkSum) {
+      this.objectMetadata = objectMetadata;
+      this.md5ChkSum = md5ChkSum;
+    }
+
+    /** @return the {@link ObjectMetadata} of the S3 object that was downloaded */
+    ObjectMetadata getObjectMetadata() {
+      return objectMetadata;
+    }
+
+    /** @return the Base64-encoded MD5 checksum that was computed for the downloaded object */
+    String getMd5ChkSum() {
+      return md5ChkSum;
+    }
+  }
+}
@@ -13,9 +13,18 @@ import gov.cms.bfd.pipeline.rif.extract.s3.DataSetQueue;
 import gov.cms.bfd.pipeline.rif.extract.s3.S3Utilities;
 import gov.cms.bfd.pipeline.rif.extract.s3.TaskExecutor;
 import gov.cms.bfd.pipeline.rif.extract.s3.task.ManifestEntryDownloadTask.ManifestEntryDownloadResult;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,6 +38,7 @@ public final class S3TaskManager {
   private final AmazonS3 s3Client;
   private final TransferManager s3TransferManager;
   private final TaskExecutor downloadTasksExecutor;
+  private final ExecutorService rangeDownloadExecutor;
   private final TaskExecutor moveTasksExecutor;
 
   /**
@@ -37,6 +47,12 @@ public final class S3TaskManager {
    */
   private final Map<DataSetManifestEntry, Future<ManifestEntryDownloadResult>> downloadTasks;
 
+  /**
+   * Tracks the {@link SpooledDownload}s for the {@link #downloadTasks}, when {@link
+   * ExtractionOptions#isStreamingDownloadsEnabled()}.
+   */
+  private final Map<DataSetManifestEntry, SpooledDownload> spooledDownloads;
+
   /**
    * Constructs a new {@link S3TaskManager}.
    *
@@ -50,9 +66,27 @@ public final class S3TaskManager {
     this.s3Client = S3Utilities.createS3Client(options);
     this.s3TransferManager = TransferManagerBuilder.standard().withS3Client(s3Client).build();
 
-    this.downloadTasksExecutor = new TaskExecutor("Download RIF Executor", 1);
+    this.downloadTasksExecutor =
+        new TaskExecutor("Download RIF Executor", options.getDownloadThreads());
+
+    /*
+     * Range download failures are handled by the download task that submitted them, so these
+     * don't need (or want) TaskExecutor's failure handling.
+     */
+    int rangeDownloadThreads =
+        options.getDownloadThreads() * Math.max(1, options.getDownloadRangeThreads());
+    ThreadPoolExecutor rangeDownloadExecutor =
+        new ThreadPoolExecutor(
+            rangeDownloadThreads,
+            rangeDownloadThreads,
+            100L,
+            TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>());
+    rangeDownloadExecutor.allowCoreThreadTimeOut(true);
+    this.rangeDownloadExecutor = rangeDownloadExecutor;
     this.moveTasksExecutor = new TaskExecutor("Move Completed RIF Executor", 2);
     this.downloadTasks = new HashMap<>();
+    this.spooledDownloads = new HashMap<>();
   }
 
   /** @return the {@link AmazonS3} client being used by this {@link S3TaskManager} */
@@ -65,6 +99,14 @@ public final class S3TaskManager {
     return s3TransferManager;
   }
 
+  /**
+   * @return the {@link ExecutorService} that {@link ManifestEntryDownloadTask}s should run their
+   *     ranged downloads on
+   */
+  ExecutorService getRangeDownloadExecutor() {
+    return rangeDownloadExecutor;
+  }
+
   /**
    * Submits an asynchronously task to download the specified {@link DataSetManifestEntry}'s RIF
    * file and returns the result as a {@link Future} {@link ManifestEntryDownloadResult}.
@@ -85,16 +127,30 @@ public final class S3TaskManager {
      * Submit a new task for the job and cache the Future in case someone tries to
      * submit the job again later.
      */
+    SpooledDownload spooledDownload =
+        options.isStreamingDownloadsEnabled() ? new SpooledDownload() : null;
     ManifestEntryDownloadTask downloadTask =
-        new ManifestEntryDownloadTask(this, appMetrics, options, manifestEntry);
+        new ManifestEntryDownloadTask(this, appMetrics, options, manifestEntry, spooledDownload);
     Future<ManifestEntryDownloadResult> downloadFuture =
         this.downloadTasksExecutor.submit(downloadTask);
     LOGGER.debug("Submitted future: {}", TaskExecutor.getTaskId(downloadFuture));
     this.downloadTasks.put(manifestEntry, downloadFuture);
+    if (spooledDownload != null) this.spooledDownloads.put(manifestEntry, spooledDownload);
 
     return downloadFuture;
   }
 
+  /**
+   * @param manifestEntry the {@link DataSetManifestEntry} to get the {@link SpooledDownload} for,
+   *     which must have already been passed to {@link #downloadAsync(DataSetManifestEntry)}
+   * @return the {@link SpooledDownload} that the specified {@link DataSetManifestEntry}'s file can
+   *     be read from while it's still downloading, or <code>null</code> if {@link
+   *     ExtractionOptions#isStreamingDownloadsEnabled()} is <code>false</code>
+   */
+  public SpooledDownload getSpooledDownload(DataSetManifestEntry manifestEntry) {
+    return this.spooledDownloads.get(manifestEntry);
+  }
+
   /**
    * The {@link DataSetQueue} needs to call this method as it discovers that {@link
    * DataSetManifest}s are no longer present in the "Incoming" queue in S3 -- most likely because
@@ -106,11 +162,67 @@ public final class S3TaskManager {
    *     longer present in the "Incoming" S3 queue
    */
   public void cleanupOldDataSet(DataSetManifestId manifestId) {
-    downloadTasks
+    for (Iterator<Map.Entry<DataSetManifestEntry, Future<ManifestEntryDownloadResult>>>
+            downloadTasksIterator = downloadTasks.entrySet().iterator();
+        downloadTasksIterator.hasNext(); ) {
+      Map.Entry<DataSetManifestEntry, Future<ManifestEntryDownloadResult>> downloadTask =
+          downloadTasksIterator.next();
+      if (!downloadTask.getKey().getParentManifest().getId().equals(manifestId)) continue;
+
+      downloadTasksIterator.remove();
+      cleanupDownload(downloadTask.getKey(), downloadTask.getValue());
+    }
+    spooledDownloads
         .entrySet()
         .removeIf(e -> e.getKey().getParentManifest().getId().equals(manifestId));
   }
 
+  /**
+   * Cancels the specified download if it hasn't started yet, or otherwise ensures that its local
+   * file (if any) gets deleted once it's finished. This is needed for data sets that were
+   * downloaded (e.g. prefetched) but then disappeared before they were processed, whose files would
+   * otherwise be leaked.
+   *
+   * @param manifestEntry the {@link DataSetManifestEntry} that was being downloaded
+   * @param downloadFuture the {@link Future} for the download to clean up
+   */
+  private void cleanupDownload(
+      DataSetManifestEntry manifestEntry, Future<ManifestEntryDownloadResult> downloadFuture) {
+    if (downloadFuture.cancel(false)) {
+      LOGGER.debug("Cancelled download of '{}'.", manifestEntry);
+      return;
+    }
+
+    /*
+     * The download's either running or done. Can't (safely) interrupt it, so instead queue up
+     * the cleanup behind it. Note that this must not throw, as TaskExecutor would treat that as a
+     * fatal error.
+     */
+    downloadTasksExecutor.submit(
+        () -> {
+          try {
+            Files.deleteIfExists(downloadFuture.get().getLocalDownload());
+            LOGGER.debug("Cleaned up download of '{}'.", manifestEntry);
+          } catch (ExecutionException | CancellationException e) {
+            // Nothing to clean up.
+          } catch (IOException e) {
+            LOGGER.warn("Unable to clean up download of '{}'.", manifestEntry, e);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        });
+  }
+
+  /**
+   * @param manifestEntry the {@link DataSetManifestEntry} to get the download for
+   * @return the {@link Future} for the specified {@link DataSetManifestEntry}'s download, if it has
+   *     been submitted via {@link #downloadAsync(DataSetManifestEntry)} (and not since cleaned up)
+   */
+  public Optional<Future<ManifestEntryDownloadResult>> getDownload(
+      DataSetManifestEntry manifestEntry) {
+    return Optional.ofNullable(downloadTasks.get(manifestEntry));
+  }
+
   /**
    * Shuts down this {@link S3TaskManager} safely, which may require waiting for some
    * already-submitted tasks to complete.
@@ -143,6 +255,9 @@ public final class S3TaskManager {
         this.downloadTasksExecutor.awaitTermination(30, TimeUnit.MINUTES);
         LOGGER.info("All in-progress downloads are complete.");
       }
+
+      // Only safe to stop once the download tasks that use it are done.
+      this.rangeDownloadExecutor.shutdown();
     } catch (InterruptedException e) {
       // We're not expecting interrupts here, so go boom.
       throw new BadCodeMonkeyException(e);
@@ -0,0 +1,178 @@
+package gov.cms.bfd.pipeline.rif.extract.s3.task;
+
+import com.justdavis.karl.misc.exceptions.BadCodeMonkeyException;
+import gov.cms.bfd.pipeline.rif.extract.exceptions.AwsFailureException;
+import gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest.DataSetManifestEntry;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Tracks the progress of a {@link DataSetManifestEntry} download that is being streamed (or
+ * "spooled") to a local file by {@link ManifestEntryDownloadTask}, and allows that file to be read
+ * while it's still being written.
+ *
+ * <p>Streams opened via {@link #openStream()} will block whenever they catch up to the download,
+ * and will only report the end of the file once the whole download has completed and its checksum
+ * has been verified. If the download fails for any reason (including a checksum mismatch), those
+ * streams will fail, too, which ensures that a partially-downloaded or corrupt file is never
+ * treated as having been fully processed.
+ */
+public final class SpooledDownload {
+  /**
+   * The maximum amount of time that a reader will wait for the download to make progress, before
+   * giving up. This matches the (generous) timeout that {@link
+   * gov.cms.bfd.pipeline.rif.extract.s3.S3RifFile} uses for non-streamed downloads.
+   */
+  private static final long PROGRESS_TIMEOUT_MILLIS = TimeUnit.HOURS.toMillis(2);
+
+  private Path localFile;
+  private long bytesWritten;
+  private boolean completed;
+  private Throwable failure;
+
+  /**
+   * Marks the download as having started.
+   *
+   * @param localFile the local file that the download is being written to
+   */
+  synchronized void start(Path localFile) {
+    Objects.requireNonNull(localFile);
+    if (this.localFile != null) throw new IllegalStateException();
+
+    this.localFile = localFile;
+    notifyAll();
+  }
+
+  /**
+   * Records that more of the download has been written to the {@link #start(Path)} file. Note that
+   * those bytes must be visible to other readers of the file (i.e. not still sitting in a
+   * user-space buffer) before this is called.
+   *
+   * @param bytesWritten the total number of bytes that have been written so far
+   */
+  synchronized void advance(long bytesWritten) {
+    if (bytesWritten < this.bytesWritten) throw new IllegalArgumentException();
+
+    this.bytesWritten = bytesWritten;
+    notifyAll();
+  }
+
+  /** Marks the download as having completed successfully, with a verified checksum. */
+  synchronized void complete() {
+    this.completed = true;
+    notifyAll();
+  }
+
+  /** @param failure the reason that the download failed, which readers will be passed */
+  synchronized void fail(Throwable failure) {
+    Objects.requireNonNull(failure);
+
+    this.failure = failure;
+    notifyAll();
+  }
+
+  /**
+   * @return <code>true</code> if the download has completed or failed, <code>false</code> if not
+   */
+  public synchronized boolean isDone() {
+    return completed || failure != null;
+  }
+
+  /**
+   * @return a new {@link InputStream} for the download's contents, which can be used before the
+   *     download has completed, but which will block as needed until more of it is available
+   */
+  public InputStream openStream() {
+    return new SpooledInputStream();
+  }
+
+  /**
+   * Blocks until the download has more than the specified number of bytes available, or has
+   * finished.
+   *
+   * @param position the number of bytes that the caller has already read
+   * @return the total number of bytes written so far, which will only be equal to the specified
+   *     position if the download has completed successfully
+   * @throws IOException An {@link IOException} will be thrown if the download failed.
+   */
+  private synchronized long awaitBytesAfter(long position) throws IOException {
+    long lastProgress = System.currentTimeMillis();
+    long lastBytesWritten = bytesWritten;
+    while (failure == null && !completed && (localFile == null || bytesWritten <= position)) {
+      long now = System.currentTimeMillis();
+      if (bytesWritten != lastBytesWritten) {
+        lastProgress = now;
+        lastBytesWritten = bytesWritten;
+      }
+      if (now - lastProgress > PROGRESS_TIMEOUT_MILLIS)
+        throw new AwsFailureException(new TimeoutException("Download made no progress."));
+
+      try {
+        wait(TimeUnit.SECONDS.toMillis(1));
+      } catch (InterruptedException e) {
+        // We're not expecting interrupts here, so go boom.
+        throw new BadCodeMonkeyException(e);
+      }
+    }
+
+    if (failure instanceof RuntimeException) throw (RuntimeException) failure;
+    if (failure != null) throw new IOException("Download failed.", failure);
+    return bytesWritten;
+  }
+
+  /** @return the local file that the download is being written to, once it has started */
+  private synchronized Path getLocalFile() {
+    return localFile;
+  }
+
+  /**
+   * An {@link InputStream} that reads the {@link SpooledDownload}'s file as it's being written. Not
+   * thread-safe.
+   */
+  private final class SpooledInputStream extends InputStream {
+    private FileChannel channel;
+    private long position;
+    private boolean closed;
+
+    /** @see java.io.InputStream#read() */
+    @Override
+    public int read() throws IOException {
+      byte[] singleByte = new byte[1];
+      int bytesRead = read(singleByte, 0, 1);
+      return bytesRead < 0 ? -1 : (singleByte[0] & 0xFF);
+    }
+
+    /** @see java.io.InputStream#read(byte[], int, int) */
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      if (closed) throw new IOException("Stream closed.");
+      if (length == 0) return 0;
+
+      long available = awaitBytesAfter(position) - position;
+      if (available <= 0) return -1;
+
+      if (channel == null) channel = FileChannel.open(getLocalFile(), StandardOpenOption.READ);
+      int bytesRead =
+          channel.read(
+              ByteBuffer.wrap(buffer, offset, (int) Math.min(length, available)), position);
+      if (bytesRead < 0)
+        throw new IOException("Spooled file is shorter than its recorded download progress.");
+      position += bytesRead;
+      return bytesRead;
+    }
+
+    /** @see java.io.InputStream#close() */
+    @Override
+    public void close() throws IOException {
+      closed = true;
+      if (channel != null) channel.close();
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package gov.cms.bfd.pipeline.rif.extract;
+
+import com.codahale.metrics.Snapshot;
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Unit tests for {@link LatencyHistogramReservoir}. */
+public final class LatencyHistogramReservoirTest {
+  /**
+   * Verifies that {@link LatencyHistogramReservoir}'s buckets are contiguous and that every value
+   * is counted in the bucket whose bounds contain it.
+   */
+  @Test
+  public void bucketsAreContiguous() {
+    for (long value = 0; value < 100_000; value++) {
+      int index = LatencyHistogramReservoir.bucketIndex(value);
+      Assert.assertTrue(LatencyHistogramReservoir.bucketLowerBound(index) <= value);
+      Assert.assertTrue(LatencyHistogramReservoir.bucketUpperBound(index) >= value);
+      if (index > 0)
+        Assert.assertEquals(
+            LatencyHistogramReservoir.bucketUpperBound(index - 1) + 1,
+            LatencyHistogramReservoir.bucketLowerBound(index));
+    }
+
+    int lastIndex = LatencyHistogramReservoir.bucketIndex(LatencyHistogramReservoir.MAX_VALUE);
+    Assert.assertEquals(
+        LatencyHistogramReservoir.MAX_VALUE,
+        LatencyHistogramReservoir.bucketUpperBound(lastIndex));
+  }
+
+  /**
+   * Verifies that {@link LatencyHistogramReservoir} reports quantiles within its {@link
+   * LatencyHistogramReservoir#MAX_RELATIVE_ERROR}, along with the exact count, min, max, and mean.
+   */
+  @Test
+  public void quantilesAreAccurate() {
+    LatencyHistogramReservoir reservoir = new LatencyHistogramReservoir();
+    long[] values = new long[10_000];
+    for (int i = 0; i < values.length; i++) {
+      // Roughly log-distributed, like latencies tend to be.
+      values[i] = (long) Math.pow(1.002, i) + 1_000;
+      reservoir.update(values[i]);
+    }
+    Arrays.sort(values);
+
+    Snapshot snapshot = reservoir.getSnapshot();
+    Assert.assertEquals(values.length, snapshot.size());
+    Assert.assertEquals(values[0], snapshot.getMin());
+    Assert.assertEquals(values[values.length - 1], snapshot.getMax());
+    Assert.assertEquals(Arrays.stream(values).average().getAsDouble(), snapshot.getMean(), 0.001);
+    for (double quantile : new double[] {0.5, 0.75, 0.95, 0.99, 0.999}) {
+      long expected = values[(int) Math.ceil(quantile * values.length) - 1];
+      Assert.assertEquals(
+          expected,
+          snapshot.getValue(quantile),
+          expected * LatencyHistogramReservoir.MAX_RELATIVE_ERROR);
+    }
+  }
+
+  /**
+   * Verifies that {@link LatencyHistogramReservoir} clamps negative and too-large values, rather
+   * than failing on them.
+   */
+  @Test
+  public void clampsOutOfRangeValues() {
+    LatencyHistogramReservoir reservoir = new LatencyHistogramReservoir();
+    reservoir.update(-1L);
+    reservoir.update(Long.MAX_VALUE);
+
+    Snapshot snapshot = reservoir.getSnapshot();
+    Assert.assertEquals(2, snapshot.size());
+    Assert.assertEquals(0L, snapshot.getMin());
+    Assert.assertEquals(LatencyHistogramReservoir.MAX_VALUE, snapshot.getMax());
+  }
+
+  /** Verifies that an empty {@link LatencyHistogramReservoir} reports zeroes. */
+  @Test
+  public void emptySnapshot() {
+    Snapshot snapshot = new LatencyHistogramReservoir().getSnapshot();
+    Assert.assertEquals(0, snapshot.size());
+    Assert.assertEquals(0L, snapshot.getMin());
+    Assert.assertEquals(0L, snapshot.getMax());
+    Assert.assertEquals(0.0, snapshot.getMedian(), 0.0);
+    Assert.assertEquals(0, snapshot.getValues().length);
+  }
+}
@@ -10,6 +10,7 @@ import java.io.UncheckedIOException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.Optional;
 
 /** This {@link RifFile} implementation represents a local file on disk. */
 public final class LocalRifFile implements RifFile {
@@ -54,4 +55,10 @@ public final class LocalRifFile implements RifFile {
       throw new UncheckedIOException(e);
     }
   }
+
+  /** @see gov.cms.bfd.model.rif.RifFile#getLocalPath() */
+  @Override
+  public Optional<Path> getLocalPath() {
+    return Optional.of(localFile);
+  }
 }
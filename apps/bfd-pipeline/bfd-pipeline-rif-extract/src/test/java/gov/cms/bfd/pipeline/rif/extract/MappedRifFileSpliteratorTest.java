@@ -0,0 +1,111 @@
+package gov.cms.bfd.pipeline.rif.extract;
+
+import gov.cms.bfd.model.rif.CarrierClaimColumn;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Unit tests for {@link MappedRifFileSpliterator}. */
+public final class MappedRifFileSpliteratorTest {
+  /**
+   * Verifies that {@link MappedRifFileSpliterator} can be split into many ranges that, together,
+   * contain exactly the same record groups as the unsplit file, and that no group is ever split
+   * across ranges.
+   */
+  @Test
+  public void splitsOnGroupBoundaries() throws IOException {
+    Path rifFile = createRifFile(false, 2000);
+    try {
+      List<List<String>> expectedGroups =
+          readGroups(
+              new MappedRifFileSpliterator(
+                  rifFile, StandardCharsets.UTF_8, CarrierClaimColumn.CLM_ID));
+
+      List<Spliterator<List<CSVRecord>>> ranges =
+          PipelinedRecordParser.split(
+              new MappedRifFileSpliterator(
+                  rifFile, StandardCharsets.UTF_8, CarrierClaimColumn.CLM_ID, 1024),
+              64);
+      Assert.assertTrue(ranges.size() > 16);
+
+      List<List<String>> actualGroups = new ArrayList<>();
+      Set<String> claimIds = new HashSet<>();
+      for (Spliterator<List<CSVRecord>> range : ranges) {
+        for (List<String> group : readGroups(range)) {
+          actualGroups.add(group);
+          Assert.assertTrue(
+              "Group split across ranges: " + group.get(0), claimIds.add(group.get(0)));
+        }
+      }
+
+      Assert.assertEquals(expectedGroups, actualGroups);
+    } finally {
+      Files.delete(rifFile);
+    }
+  }
+
+  /** Verifies that {@link MappedRifFileSpliterator} skips a UTF-8 byte order mark, if present. */
+  @Test
+  public void skipsByteOrderMark() throws IOException {
+    Path rifFile = createRifFile(true, 10);
+    try {
+      List<List<String>> groups =
+          readGroups(
+              new MappedRifFileSpliterator(
+                  rifFile, StandardCharsets.UTF_8, CarrierClaimColumn.CLM_ID));
+      Assert.assertEquals("0", groups.get(0).get(0));
+    } finally {
+      Files.delete(rifFile);
+    }
+  }
+
+  /**
+   * @param byteOrderMark <code>true</code> to start the file with a UTF-8 byte order mark
+   * @param claimCount the number of claims to write
+   * @return a new temporary RIF-like file with the specified number of claims, each of which has a
+   *     varying number of lines
+   */
+  private static Path createRifFile(boolean byteOrderMark, int claimCount) throws IOException {
+    StringBuilder rif = new StringBuilder();
+    if (byteOrderMark) rif.append('\uFEFF');
+    rif.append("DML_IND|BENE_ID|CLM_ID|LINE_NUM\n");
+    for (int claim = 0; claim < claimCount; claim++) {
+      for (int line = 1; line <= 1 + (claim % 7); line++)
+        rif.append(String.format("INSERT|%d|%d|%d\n", claim / 3, claim, line));
+    }
+
+    Path rifFile = Files.createTempFile(MappedRifFileSpliteratorTest.class.getSimpleName(), ".rif");
+    Files.write(rifFile, rif.toString().getBytes(StandardCharsets.UTF_8));
+    return rifFile;
+  }
+
+  /**
+   * @param groups the {@link Spliterator} of grouped {@link CSVRecord}s to read
+   * @return the <code>CLM_ID</code> and <code>LINE_NUM</code> values of each group, formatted as
+   *     the claim ID followed by each of its line numbers
+   */
+  private static List<List<String>> readGroups(Spliterator<List<CSVRecord>> groups) {
+    List<List<String>> groupValues = new ArrayList<>();
+    groups.forEachRemaining(
+        group -> {
+          List<String> values = new ArrayList<>();
+          values.add(group.get(0).get(CarrierClaimColumn.CLM_ID));
+          values.addAll(
+              group.stream()
+                  .map(r -> r.get(CarrierClaimColumn.LINE_NUM))
+                  .collect(Collectors.toList()));
+          groupValues.add(values);
+        });
+    return groupValues;
+  }
+}
@@ -0,0 +1,143 @@
+package gov.cms.bfd.pipeline.rif.extract;
+
+import gov.cms.bfd.model.rif.Beneficiary;
+import gov.cms.bfd.model.rif.RecordAction;
+import gov.cms.bfd.model.rif.RifFileEvent;
+import gov.cms.bfd.model.rif.RifFilesEvent;
+import gov.cms.bfd.model.rif.RifRecordEvent;
+import gov.cms.bfd.model.rif.parse.InvalidRifValueException;
+import gov.cms.bfd.model.rif.samples.StaticRifResource;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Unit tests for {@link PipelinedRecordParser}. */
+public final class PipelinedRecordParserTest {
+  /**
+   * Verifies that {@link PipelinedRecordParser} returns every record, in its original order, even
+   * when the input spans many chunks.
+   */
+  @Test
+  public void preservesOrder() throws IOException {
+    int recordCount = 10 * PipelinedRecordParser.CHUNK_SIZE + 7;
+    RifFileEvent fileEvent = createFileEvent();
+
+    List<RifRecordEvent<?>> recordEvents = new ArrayList<>();
+    try (PipelinedRecordParser parser =
+        new PipelinedRecordParser(
+            fileEvent, createCsvRecordGroups(recordCount), createRecordParser(fileEvent), 4)) {
+      parser.forEachRemaining(recordEvents::add);
+    }
+
+    Assert.assertEquals(
+        IntStream.range(0, recordCount).mapToObj(Integer::toString).collect(Collectors.toList()),
+        recordEvents.stream().map(e -> e.getBeneficiaryId()).collect(Collectors.toList()));
+  }
+
+  /**
+   * Verifies that {@link PipelinedRecordParser} returns every record in its original order when it
+   * reads its input by range, even when the earlier ranges finish parsing after the later ones.
+   */
+  @Test
+  public void preservesOrderAcrossRanges() throws IOException {
+    int recordCount = 10 * PipelinedRecordParser.CHUNK_SIZE + 7;
+    RifFileEvent fileEvent = createFileEvent();
+    Function<List<CSVRecord>, RifRecordEvent<?>> recordParser = createRecordParser(fileEvent);
+    List<List<CSVRecord>> csvRecordGroups = new ArrayList<>();
+    createCsvRecordGroups(recordCount).forEachRemaining(csvRecordGroups::add);
+
+    List<RifRecordEvent<?>> recordEvents = new ArrayList<>();
+    try (PipelinedRecordParser parser =
+        new PipelinedRecordParser(
+            fileEvent,
+            csvRecordGroups.spliterator(),
+            csvRecords -> {
+              // Slow down the first range, so that the others will be parsed before it.
+              if (csvRecords.get(0).getRecordNumber() == 1) {
+                try {
+                  Thread.sleep(200);
+                } catch (InterruptedException e) {
+                  throw new IllegalStateException(e);
+                }
+              }
+              return recordParser.apply(csvRecords);
+            },
+            4)) {
+      parser.forEachRemaining(recordEvents::add);
+    }
+
+    Assert.assertEquals(
+        IntStream.range(0, recordCount).mapToObj(Integer::toString).collect(Collectors.toList()),
+        recordEvents.stream().map(e -> e.getBeneficiaryId()).collect(Collectors.toList()));
+  }
+
+  /**
+   * Verifies that {@link PipelinedRecordParser} rethrows parsing failures on the consuming thread.
+   */
+  @Test(expected = InvalidRifValueException.class)
+  public void rethrowsParseErrors() throws IOException {
+    RifFileEvent fileEvent = createFileEvent();
+    Function<List<CSVRecord>, RifRecordEvent<?>> recordParser = createRecordParser(fileEvent);
+
+    try (PipelinedRecordParser parser =
+        new PipelinedRecordParser(
+            fileEvent,
+            createCsvRecordGroups(3 * PipelinedRecordParser.CHUNK_SIZE),
+            csvRecords -> {
+              if (csvRecords.get(0).getRecordNumber() == PipelinedRecordParser.CHUNK_SIZE + 1)
+                throw new InvalidRifValueException("bad record");
+              return recordParser.apply(csvRecords);
+            },
+            2)) {
+      while (parser.hasNext()) parser.next();
+    }
+  }
+
+  /** @return a {@link RifFileEvent} to use for the fake {@link RifRecordEvent}s */
+  private static RifFileEvent createFileEvent() {
+    return new RifFilesEvent(Instant.now(), StaticRifResource.SAMPLE_A_BENES.toRifFile())
+        .getFileEvents()
+        .get(0);
+  }
+
+  /**
+   * @param recordCount the number of single-column {@link CSVRecord}s to produce
+   * @return an {@link Iterator} of single-record groups, where each record's value is its index
+   */
+  private static Iterator<List<CSVRecord>> createCsvRecordGroups(int recordCount)
+      throws IOException {
+    String csv =
+        IntStream.range(0, recordCount)
+            .mapToObj(Integer::toString)
+            .collect(Collectors.joining("\n"));
+    return CSVParser.parse(csv, CSVFormat.DEFAULT).getRecords().stream()
+        .map(Collections::singletonList)
+        .iterator();
+  }
+
+  /**
+   * @param fileEvent the {@link RifFileEvent} to use
+   * @return a parsing {@link Function} that produces a fake {@link Beneficiary} {@link
+   *     RifRecordEvent} whose ID is the record's value
+   */
+  private static Function<List<CSVRecord>, RifRecordEvent<?>> createRecordParser(
+      RifFileEvent fileEvent) {
+    return csvRecords -> {
+      Beneficiary beneficiary = new Beneficiary();
+      beneficiary.setBeneficiaryId(csvRecords.get(0).get(0));
+      return new RifRecordEvent<Beneficiary>(
+          fileEvent, RecordAction.INSERT, beneficiary.getBeneficiaryId(), beneficiary);
+    };
+  }
+}
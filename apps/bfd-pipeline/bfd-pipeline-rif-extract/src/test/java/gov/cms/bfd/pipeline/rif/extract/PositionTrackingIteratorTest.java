@@ -0,0 +1,110 @@
+package gov.cms.bfd.pipeline.rif.extract;
+
+import gov.cms.bfd.model.rif.CarrierClaimColumn;
+import gov.cms.bfd.model.rif.RifFilePosition;
+import gov.cms.bfd.model.rif.parse.RifParsingUtils;
+import gov.cms.bfd.pipeline.rif.extract.CsvRecordGroupingIterator.ColumnValueCsvRecordGrouper;
+import gov.cms.bfd.pipeline.rif.extract.PositionTrackingIterator.PositionedRecordGroup;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Unit tests for {@link PositionTrackingIterator}. */
+public final class PositionTrackingIteratorTest {
+  /**
+   * Verifies that {@link PositionTrackingIterator} computes the correct byte offset for every group
+   * in a UTF-8 file with a byte order mark and multi-byte characters (including in its header), and
+   * that parsing can be resumed from any of those offsets.
+   */
+  @Test
+  public void tracksByteOffsetsOfGroups() throws IOException {
+    StringBuilder rif = new StringBuilder();
+    rif.append('\uFEFF');
+    rif.append("DML_IND|BENE_ID|CLM_ID|LINE_NUM|NOTE_\u00e9\n");
+    List<String> groupStarts = new ArrayList<>();
+    for (int claim = 0; claim < 20; claim++) {
+      for (int line = 1; line <= 1 + (claim % 3); line++) {
+        String note = claim % 2 == 0 ? "caf\u00e9 \u20ac" : "\uD83D\uDE00";
+        String row = String.format("INSERT|%d|%d|%d|%s\n", claim / 3, claim, line, note);
+        if (line == 1) groupStarts.add(row);
+        rif.append(row);
+      }
+    }
+    byte[] rifBytes = rif.toString().getBytes(StandardCharsets.UTF_8);
+
+    List<RifFilePosition> positions = new ArrayList<>();
+    try (CSVParser parser =
+        RifParsingUtils.createCsvParser(
+            RifParsingUtils.CSV_FORMAT,
+            new ByteArrayInputStream(rifBytes, 3, rifBytes.length - 3),
+            StandardCharsets.UTF_8)) {
+      PositionTrackingIterator groups =
+          new PositionTrackingIterator(
+              new CsvRecordGroupingIterator(
+                  parser, new ColumnValueCsvRecordGrouper(CarrierClaimColumn.CLM_ID)),
+              StandardCharsets.UTF_8,
+              new RifFilePosition(0L, 3L),
+              parser.getHeaderMap().keySet());
+      while (groups.hasNext()) positions.add(groups.next().getPosition());
+    }
+
+    Assert.assertEquals(groupStarts.size(), positions.size());
+    for (int i = 0; i < positions.size(); i++) {
+      RifFilePosition position = positions.get(i);
+      Assert.assertEquals(i, position.getRecordNumber());
+
+      byte[] expected = groupStarts.get(i).getBytes(StandardCharsets.UTF_8);
+      int offset = (int) position.getByteOffset();
+      Assert.assertArrayEquals(
+          "Wrong offset for group " + i,
+          expected,
+          Arrays.copyOfRange(rifBytes, offset, offset + expected.length));
+    }
+
+    RifFilePosition resumeAt = positions.get(7);
+    InputStream resumedStream = new ByteArrayInputStream(rifBytes);
+    IOUtils.skipFully(resumedStream, resumeAt.getByteOffset());
+    try (CSVParser parser =
+        RifParsingUtils.createCsvParser(
+            RifParsingUtils.CSV_FORMAT.withHeader(
+                "DML_IND", "BENE_ID", "CLM_ID", "LINE_NUM", "NOTE_\u00e9"),
+            resumedStream,
+            StandardCharsets.UTF_8)) {
+      PositionTrackingIterator groups =
+          new PositionTrackingIterator(
+              new CsvRecordGroupingIterator(
+                  parser, new ColumnValueCsvRecordGrouper(CarrierClaimColumn.CLM_ID)),
+              StandardCharsets.UTF_8,
+              resumeAt,
+              Collections.emptyList());
+      for (int i = 7; i < positions.size(); i++) {
+        PositionedRecordGroup group = groups.next();
+        Assert.assertEquals(String.valueOf(i), group.get(0).get(CarrierClaimColumn.CLM_ID));
+        Assert.assertEquals(
+            positions.get(i).getRecordNumber(), group.getPosition().getRecordNumber());
+        Assert.assertEquals(
+            positions.get(i).getByteOffset(), group.getPosition().getByteOffset());
+      }
+      Assert.assertFalse(groups.hasNext());
+    }
+  }
+
+  /** Verifies that {@link PositionTrackingIterator} rejects charsets it can't track offsets in. */
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsUnsupportedCharsets() {
+    new PositionTrackingIterator(
+        Collections.emptyIterator(),
+        StandardCharsets.UTF_16,
+        RifFilePosition.START,
+        Collections.emptyList());
+  }
+}
@@ -18,18 +18,27 @@ import gov.cms.bfd.model.rif.OutpatientClaimLine;
 import gov.cms.bfd.model.rif.PartDEvent;
 import gov.cms.bfd.model.rif.RecordAction;
 import gov.cms.bfd.model.rif.RifFileRecords;
+import gov.cms.bfd.model.rif.RifFileType;
 import gov.cms.bfd.model.rif.RifFilesEvent;
 import gov.cms.bfd.model.rif.RifRecordEvent;
 import gov.cms.bfd.model.rif.SNFClaim;
 import gov.cms.bfd.model.rif.SNFClaimLine;
+import gov.cms.bfd.model.rif.parse.InvalidRifFileFormatException;
 import gov.cms.bfd.model.rif.samples.StaticRifResource;
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.Month;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.junit.Assert;
 import org.junit.Ignore;
 import org.junit.Rule;
@@ -289,6 +298,81 @@ public final class RifFilesProcessorTest {
         rifEventsList.get(0).getFileEvent().getFile().getFileType());
   }
 
+  /**
+   * Ensures that {@link gov.cms.bfd.pipeline.rif.extract.RifFilesProcessor} produces the same
+   * records for {@link StaticRifResource#SAMPLE_A_CARRIER} when using multiple parser threads.
+   */
+  @Test
+  public void processCarrierClaimRecordsWithParserThreads() {
+    RifFilesEvent filesEvent =
+        new RifFilesEvent(Instant.now(), StaticRifResource.SAMPLE_A_CARRIER.toRifFile());
+    RifFilesProcessor processor = new RifFilesProcessor(4);
+    RifFileRecords rifFileRecords = processor.produceRecords(filesEvent.getFileEvents().get(0));
+    List<RifRecordEvent<?>> rifEventsList =
+        rifFileRecords.getRecords().collect(Collectors.toList());
+
+    Assert.assertEquals(StaticRifResource.SAMPLE_A_CARRIER.getRecordCount(), rifEventsList.size());
+    CarrierClaim claimGroup = (CarrierClaim) rifEventsList.get(0).getRecord();
+    Assert.assertEquals("9991831999", claimGroup.getClaimId());
+    Assert.assertEquals(1, claimGroup.getLines().size());
+  }
+
+  /**
+   * Ensures that {@link RifFilesProcessor} can correctly handle {@link
+   * StaticRifResource#SAMPLE_A_CARRIER} when it has parser threads and the file is available
+   * locally, and so is read via a {@link MappedRifFileSpliterator}.
+   */
+  @Test
+  public void processLocalCarrierClaimRecordsWithParserThreads() throws IOException {
+    Path localCopy = Files.createTempFile(getClass().getSimpleName(), ".rif");
+    try {
+      try (InputStream sampleStream =
+          StaticRifResource.SAMPLE_A_CARRIER.getResourceUrl().openStream()) {
+        Files.copy(sampleStream, localCopy, StandardCopyOption.REPLACE_EXISTING);
+      }
+      RifFilesEvent filesEvent =
+          new RifFilesEvent(Instant.now(), new LocalRifFile(localCopy, RifFileType.CARRIER));
+      RifFilesProcessor processor = new RifFilesProcessor(2);
+      RifFileRecords rifFileRecords = processor.produceRecords(filesEvent.getFileEvents().get(0));
+      List<RifRecordEvent<?>> rifEventsList;
+      try (Stream<RifRecordEvent<?>> records = rifFileRecords.getRecords()) {
+        rifEventsList = records.collect(Collectors.toList());
+      }
+
+      Assert.assertEquals(
+          StaticRifResource.SAMPLE_A_CARRIER.getRecordCount(), rifEventsList.size());
+      CarrierClaim claimGroup = (CarrierClaim) rifEventsList.get(0).getRecord();
+      Assert.assertEquals("9991831999", claimGroup.getClaimId());
+      Assert.assertEquals(1, claimGroup.getLines().size());
+    } finally {
+      Files.delete(localCopy);
+    }
+  }
+
+  /**
+   * Ensures that {@link RifFilesProcessor} rejects files whose header is missing one of the {@link
+   * RifFileType}'s columns.
+   */
+  @Test(expected = InvalidRifFileFormatException.class)
+  public void rejectMissingColumn() throws IOException {
+    Path localCopy = Files.createTempFile(getClass().getSimpleName(), ".rif");
+    try {
+      try (InputStream sampleStream =
+          StaticRifResource.SAMPLE_A_CARRIER.getResourceUrl().openStream()) {
+        Files.copy(sampleStream, localCopy, StandardCopyOption.REPLACE_EXISTING);
+      }
+      String sample = new String(Files.readAllBytes(localCopy), StandardCharsets.UTF_8);
+      Files.write(
+          localCopy, sample.replaceFirst("CLM_GRP_ID", "CLM_GRP").getBytes(StandardCharsets.UTF_8));
+
+      RifFilesEvent filesEvent =
+          new RifFilesEvent(Instant.now(), new LocalRifFile(localCopy, RifFileType.CARRIER));
+      new RifFilesProcessor().produceRecords(filesEvent.getFileEvents().get(0));
+    } finally {
+      Files.delete(localCopy);
+    }
+  }
+
   /**
    * Ensures that {@link gov.cms.bfd.pipeline.rif.extract.RifFilesProcessor} can correctly handle
    * {@link StaticRifResource#SAMPLE_A_CARRIER}.
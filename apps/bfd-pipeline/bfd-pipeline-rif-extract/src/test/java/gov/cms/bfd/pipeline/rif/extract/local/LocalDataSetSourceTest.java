@@ -0,0 +1,193 @@
+package gov.cms.bfd.pipeline.rif.extract.local;
+
+import com.codahale.metrics.MetricRegistry;
+import gov.cms.bfd.model.rif.RifFile;
+import gov.cms.bfd.model.rif.RifFilesEvent;
+import gov.cms.bfd.pipeline.rif.extract.ExtractionOptions;
+import gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest;
+import gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest.DataSetManifestId;
+import gov.cms.bfd.pipeline.rif.extract.s3.DataSetMonitorListener;
+import gov.cms.bfd.pipeline.rif.extract.s3.DataSetMonitorWorker;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.xml.bind.JAXBException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Unit tests for {@link LocalDataSetSource}. */
+public final class LocalDataSetSourceTest {
+  private static final String TIMESTAMP_TEXT = "1994-11-05T13:15:30Z";
+
+  private Path baseDirectory;
+
+  /**
+   * Creates the {@link #baseDirectory}.
+   *
+   * @throws IOException (indicates a test error)
+   */
+  @Before
+  public void createBaseDirectory() throws IOException {
+    baseDirectory = Files.createTempDirectory(LocalDataSetSourceTest.class.getSimpleName());
+  }
+
+  /**
+   * Deletes the {@link #baseDirectory}, and everything in it.
+   *
+   * @throws IOException (indicates a test error)
+   */
+  @After
+  public void deleteBaseDirectory() throws IOException {
+    try (Stream<Path> paths = Files.walk(baseDirectory)) {
+      for (Path path : paths.sorted((a, b) -> b.compareTo(a)).collect(Collectors.toList()))
+        Files.delete(path);
+    }
+  }
+
+  /**
+   * Verifies that {@link LocalDataSetSource} finds a pending data set, waits for its files to
+   * appear and stop changing, reads them in place, and then moves the data set to <code>Done
+   * </code>.
+   *
+   * @throws IOException (indicates a test error)
+   * @throws JAXBException (indicates a test error)
+   */
+  @Test
+  public void processesDataSetInPlace() throws IOException, JAXBException {
+    Path pendingDirectory = createPendingManifest();
+
+    LocalDataSetSource source = new LocalDataSetSource(baseDirectory);
+    Set<DataSetManifestId> manifestIds = source.listPendingManifests();
+    Assert.assertEquals(1, manifestIds.size());
+    Assert.assertEquals(0, source.getCompletedManifestsCount());
+    DataSetManifest manifest = source.readManifest(manifestIds.iterator().next());
+    Assert.assertEquals(2, manifest.getEntries().size());
+
+    // Not available until all of the files exist, and then not until they've stopped changing.
+    Assert.assertFalse(source.listDataSetFileSizes(manifest).isPresent());
+    Files.write(
+        pendingDirectory.resolve("sample-a-beneficiaries.txt"),
+        "bene".getBytes(StandardCharsets.UTF_8));
+    Files.write(
+        pendingDirectory.resolve("sample-a-bcarrier.txt"),
+        "carrier".getBytes(StandardCharsets.UTF_8));
+    Assert.assertFalse(source.listDataSetFileSizes(manifest).isPresent());
+    Optional<Map<String, Long>> fileSizes = source.listDataSetFileSizes(manifest);
+    Assert.assertTrue(fileSizes.isPresent());
+    Assert.assertEquals(Long.valueOf(7L), fileSizes.get().get("sample-a-bcarrier.txt"));
+
+    List<RifFile> rifFiles = source.startDataSet(manifest, Collections.emptyList());
+    Assert.assertEquals(2, rifFiles.size());
+    Assert.assertEquals(
+        pendingDirectory.resolve("sample-a-beneficiaries.txt"),
+        rifFiles.get(0).getLocalPath().get());
+
+    source.completeDataSet(manifest);
+    Assert.assertTrue(source.listPendingManifests().isEmpty());
+    Assert.assertEquals(1, source.getCompletedManifestsCount());
+    Assert.assertFalse(Files.exists(pendingDirectory));
+    Path completedDirectory =
+        baseDirectory
+            .resolve(DataSetMonitorWorker.S3_PREFIX_COMPLETED_DATA_SETS)
+            .resolve(TIMESTAMP_TEXT);
+    Assert.assertTrue(Files.exists(completedDirectory.resolve("1_manifest.xml")));
+    Assert.assertTrue(Files.exists(completedDirectory.resolve("sample-a-bcarrier.txt")));
+  }
+
+  /**
+   * Verifies that {@link DataSetMonitorWorker} leaves a data set pending in its {@link
+   * LocalDataSetSource}, rather than moving it to <code>Done</code>, when its {@link
+   * DataSetMonitorListener#isDataSetCompletionEnabled()} is <code>false</code>, and doesn't process
+   * it again.
+   *
+   * @throws IOException (indicates a test error)
+   */
+  @Test
+  public void leavesDataSetPendingIfCompletionDisabled() throws IOException {
+    Path pendingDirectory = createPendingManifest();
+    Files.write(
+        pendingDirectory.resolve("sample-a-beneficiaries.txt"),
+        "bene".getBytes(StandardCharsets.UTF_8));
+    Files.write(
+        pendingDirectory.resolve("sample-a-bcarrier.txt"),
+        "carrier".getBytes(StandardCharsets.UTF_8));
+
+    List<RifFilesEvent> dataEvents = new ArrayList<>();
+    AtomicInteger noDataEvents = new AtomicInteger(0);
+    DataSetMonitorListener listener =
+        new DataSetMonitorListener() {
+          @Override
+          public void dataAvailable(RifFilesEvent rifFilesEvent) {
+            dataEvents.add(rifFilesEvent);
+          }
+
+          @Override
+          public boolean isDataSetCompletionEnabled() {
+            return false;
+          }
+
+          @Override
+          public void noDataAvailable() {
+            noDataEvents.incrementAndGet();
+          }
+
+          @Override
+          public void errorOccurred(Throwable error) {
+            throw new IllegalStateException(error);
+          }
+        };
+    DataSetMonitorWorker worker =
+        new DataSetMonitorWorker(
+            new MetricRegistry(),
+            new ExtractionOptions("notarealbucket"),
+            new LocalDataSetSource(baseDirectory),
+            listener);
+
+    worker.run();
+    Assert.assertEquals(1, dataEvents.size());
+    Assert.assertEquals(2, dataEvents.get(0).getFileEvents().size());
+    Assert.assertTrue(Files.exists(pendingDirectory.resolve("1_manifest.xml")));
+    Assert.assertTrue(Files.exists(pendingDirectory.resolve("sample-a-bcarrier.txt")));
+    Assert.assertFalse(
+        Files.exists(baseDirectory.resolve(DataSetMonitorWorker.S3_PREFIX_COMPLETED_DATA_SETS)));
+
+    worker.run();
+    Assert.assertEquals(1, dataEvents.size());
+    Assert.assertEquals(1, noDataEvents.get());
+  }
+
+  /**
+   * Copies the <code>manifest-sample-a.xml</code> test resource into a pending data set directory
+   * (without any of the data set's files).
+   *
+   * @return the pending data set directory
+   * @throws IOException (indicates a test error)
+   */
+  private Path createPendingManifest() throws IOException {
+    Path pendingDirectory =
+        baseDirectory
+            .resolve(DataSetMonitorWorker.S3_PREFIX_PENDING_DATA_SETS)
+            .resolve(TIMESTAMP_TEXT);
+    Files.createDirectories(pendingDirectory);
+    try (InputStream manifestStream =
+        Thread.currentThread()
+            .getContextClassLoader()
+            .getResourceAsStream("manifest-sample-a.xml")) {
+      Files.copy(manifestStream, pendingDirectory.resolve("1_manifest.xml"));
+    }
+    return pendingDirectory;
+  }
+}
@@ -0,0 +1,203 @@
+package gov.cms.bfd.pipeline.rif.extract.s3;
+
+import com.codahale.metrics.MetricRegistry;
+import gov.cms.bfd.model.rif.RifFileType;
+import gov.cms.bfd.pipeline.rif.extract.ExtractionOptions;
+import gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest.DataSetManifestEntry;
+import gov.cms.bfd.pipeline.rif.extract.s3.task.ManifestEntryDownloadTask.ManifestEntryDownloadResult;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Future;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Unit tests for {@link DataSetPrefetcher}. */
+public final class DataSetPrefetcherTest {
+  /**
+   * Verifies that {@link DataSetPrefetcher#prefetch(List)} prefetches {@link
+   * RifFileType#BENEFICIARY} files first, and stops looking ahead at the first file that doesn't
+   * fit in the remaining disk budget, even if later (smaller) files would.
+   */
+  @Test
+  public void fileOverBudgetStopsLookahead() {
+    FakeS3Operations s3Operations = new FakeS3Operations();
+    DataSetManifestEntry carrier = new DataSetManifestEntry("carrier.rif", RifFileType.CARRIER);
+    DataSetManifestEntry bene = new DataSetManifestEntry("bene.rif", RifFileType.BENEFICIARY);
+    DataSetManifestEntry pde = new DataSetManifestEntry("pde.rif", RifFileType.PDE);
+    DataSetManifest manifestA = createManifest(0, carrier, bene, pde);
+    s3Operations.put(manifestA, 70L, 40L, 10L);
+    DataSetManifestEntry laterBene = new DataSetManifestEntry("bene.rif", RifFileType.BENEFICIARY);
+    DataSetManifest manifestB = createManifest(1, laterBene);
+    s3Operations.put(manifestB, 1L);
+
+    DataSetPrefetcher prefetcher = createPrefetcher(100L, s3Operations);
+    prefetcher.prefetch(Arrays.asList(manifestA, manifestB));
+    Assert.assertEquals(Arrays.asList(bene), s3Operations.downloads);
+
+    // Nothing has been released, so trying again shouldn't change anything.
+    prefetcher.prefetch(Arrays.asList(manifestA, manifestB));
+    Assert.assertEquals(Arrays.asList(bene), s3Operations.downloads);
+  }
+
+  /**
+   * Verifies that {@link DataSetPrefetcher#prefetch(List)} doesn't look past a data set that's
+   * still being uploaded.
+   */
+  @Test
+  public void incompleteDataSetStopsLookahead() {
+    FakeS3Operations s3Operations = new FakeS3Operations();
+    DataSetManifest manifestA =
+        createManifest(0, new DataSetManifestEntry("bene.rif", RifFileType.BENEFICIARY));
+    DataSetManifest manifestB =
+        createManifest(1, new DataSetManifestEntry("bene.rif", RifFileType.BENEFICIARY));
+    s3Operations.put(manifestB, 1L);
+
+    DataSetPrefetcher prefetcher = createPrefetcher(100L, s3Operations);
+    prefetcher.prefetch(Arrays.asList(manifestA, manifestB));
+    Assert.assertEquals(Collections.emptyList(), s3Operations.downloads);
+  }
+
+  /**
+   * Verifies that the prefetches for a data set that's no longer upcoming (e.g. because it
+   * disappeared from S3) stop counting against the disk budget.
+   */
+  @Test
+  public void disappearedDataSetReleasesBudget() {
+    FakeS3Operations s3Operations = new FakeS3Operations();
+    DataSetManifestEntry beneA = new DataSetManifestEntry("bene.rif", RifFileType.BENEFICIARY);
+    DataSetManifest manifestA = createManifest(0, beneA);
+    s3Operations.put(manifestA, 60L);
+    DataSetManifestEntry beneB = new DataSetManifestEntry("bene.rif", RifFileType.BENEFICIARY);
+    DataSetManifest manifestB = createManifest(1, beneB);
+    s3Operations.put(manifestB, 60L);
+
+    DataSetPrefetcher prefetcher = createPrefetcher(100L, s3Operations);
+    prefetcher.prefetch(Arrays.asList(manifestA, manifestB));
+    Assert.assertEquals(Arrays.asList(beneA), s3Operations.downloads);
+
+    prefetcher.prefetch(Arrays.asList(manifestB));
+    Assert.assertEquals(Arrays.asList(beneA, beneB), s3Operations.downloads);
+  }
+
+  /**
+   * Verifies that {@link DataSetPrefetcher#dataSetStarted(DataSetManifest)} releases the started
+   * data set's prefetches from the disk budget, and counts the ones that hadn't finished yet.
+   */
+  @Test
+  public void startedDataSetReleasesBudget() {
+    FakeS3Operations s3Operations = new FakeS3Operations();
+    DataSetManifestEntry beneA = new DataSetManifestEntry("bene.rif", RifFileType.BENEFICIARY);
+    DataSetManifest manifestA = createManifest(0, beneA);
+    s3Operations.put(manifestA, 60L);
+    DataSetManifestEntry beneB = new DataSetManifestEntry("bene.rif", RifFileType.BENEFICIARY);
+    DataSetManifest manifestB = createManifest(1, beneB);
+    s3Operations.put(manifestB, 60L);
+
+    MetricRegistry appMetrics = new MetricRegistry();
+    DataSetPrefetcher prefetcher =
+        new DataSetPrefetcher(appMetrics, createOptions(100L), s3Operations);
+    prefetcher.prefetch(Arrays.asList(manifestA, manifestB));
+    Assert.assertEquals(Arrays.asList(beneA), s3Operations.downloads);
+
+    prefetcher.dataSetStarted(manifestA);
+    prefetcher.prefetch(Arrays.asList(manifestB));
+    Assert.assertEquals(Arrays.asList(beneA, beneB), s3Operations.downloads);
+    Assert.assertEquals(
+        1L,
+        appMetrics
+            .meter(
+                MetricRegistry.name(
+                    DataSetPrefetcher.class.getSimpleName(), "prefetchesIncomplete"))
+            .getCount());
+  }
+
+  /**
+   * @param sequenceId the value to use for {@link DataSetManifest#getSequenceId()}, which is also
+   *     used to give each data set a distinct timestamp
+   * @param entries the value to use for {@link DataSetManifest#getEntries()}
+   * @return a new {@link DataSetManifest}
+   */
+  private static DataSetManifest createManifest(int sequenceId, DataSetManifestEntry... entries) {
+    return new DataSetManifest(
+        Instant.now().truncatedTo(ChronoUnit.SECONDS).plusSeconds(sequenceId), sequenceId, entries);
+  }
+
+  /**
+   * @param prefetchDiskBudget the value to use for {@link
+   *     ExtractionOptions#getPrefetchDiskBudget()}
+   * @return the {@link ExtractionOptions} to test with
+   */
+  private static ExtractionOptions createOptions(long prefetchDiskBudget) {
+    return new ExtractionOptions(
+        "notarealbucket", null, null, 1, false, 1, 0, 1, prefetchDiskBudget);
+  }
+
+  /**
+   * @param prefetchDiskBudget the value to use for {@link
+   *     ExtractionOptions#getPrefetchDiskBudget()}
+   * @param s3Operations the {@link FakeS3Operations} to use
+   * @return a new {@link DataSetPrefetcher} to test
+   */
+  private static DataSetPrefetcher createPrefetcher(
+      long prefetchDiskBudget, FakeS3Operations s3Operations) {
+    return new DataSetPrefetcher(
+        new MetricRegistry(), createOptions(prefetchDiskBudget), s3Operations);
+  }
+
+  /**
+   * A fake {@link DataSetPrefetcher.S3Operations} that serves canned listings and records the
+   * downloads that were started, without actually downloading anything.
+   */
+  private static final class FakeS3Operations implements DataSetPrefetcher.S3Operations {
+    private final Map<DataSetManifest, Map<String, Long>> objectSizesByManifest = new HashMap<>();
+    private final List<DataSetManifestEntry> downloads = new ArrayList<>();
+
+    /**
+     * Makes the specified data set's RIF files "available" in S3.
+     *
+     * @param manifest the {@link DataSetManifest} to list
+     * @param sizes the size of each of the {@link DataSetManifest#getEntries()}, in order
+     */
+    void put(DataSetManifest manifest, Long... sizes) {
+      Map<String, Long> objectSizes = new HashMap<>();
+      for (int i = 0; i < sizes.length; i++)
+        objectSizes.put(manifest.getEntries().get(i).getName(), sizes[i]);
+      objectSizesByManifest.put(manifest, objectSizes);
+    }
+
+    /**
+     * @see
+     *     gov.cms.bfd.pipeline.rif.extract.s3.DataSetPrefetcher.S3Operations#listDataSetObjectSizes(gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest)
+     */
+    @Override
+    public Optional<Map<String, Long>> listDataSetObjectSizes(DataSetManifest manifest) {
+      return Optional.ofNullable(objectSizesByManifest.get(manifest));
+    }
+
+    /**
+     * @see
+     *     gov.cms.bfd.pipeline.rif.extract.s3.DataSetPrefetcher.S3Operations#downloadAsync(gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest.DataSetManifestEntry)
+     */
+    @Override
+    public void downloadAsync(DataSetManifestEntry manifestEntry) {
+      downloads.add(manifestEntry);
+    }
+
+    /**
+     * @see
+     *     gov.cms.bfd.pipeline.rif.extract.s3.DataSetPrefetcher.S3Operations#getDownload(gov.cms.bfd.pipeline.rif.extract.s3.DataSetManifest.DataSetManifestEntry)
+     */
+    @Override
+    public Optional<Future<ManifestEntryDownloadResult>> getDownload(
+        DataSetManifestEntry manifestEntry) {
+      return Optional.empty();
+    }
+  }
+}
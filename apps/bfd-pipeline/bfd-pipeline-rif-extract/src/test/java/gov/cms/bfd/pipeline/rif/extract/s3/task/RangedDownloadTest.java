@@ -0,0 +1,156 @@
+package gov.cms.bfd.pipeline.rif.extract.s3.task;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AbstractAmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import gov.cms.bfd.pipeline.rif.extract.exceptions.AwsFailureException;
+import gov.cms.bfd.pipeline.rif.extract.s3.task.RangedDownload.RangedDownloadResult;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Unit tests for {@link RangedDownload}, run against an in-memory S3 stand-in. */
+public final class RangedDownloadTest {
+  private ExecutorService rangeExecutor;
+  private Path localFile;
+
+  /**
+   * Creates the range executor and local file used by each test.
+   *
+   * @throws IOException (indicates a test error)
+   */
+  @Before
+  public void setup() throws IOException {
+    rangeExecutor = Executors.newFixedThreadPool(4);
+    localFile = Files.createTempFile(RangedDownloadTest.class.getSimpleName(), ".rif");
+  }
+
+  /**
+   * Cleans up after each test.
+   *
+   * @throws IOException (indicates a test error)
+   */
+  @After
+  public void cleanup() throws IOException {
+    rangeExecutor.shutdownNow();
+    Files.deleteIfExists(localFile);
+  }
+
+  /**
+   * Verifies that {@link RangedDownload} downloads an object in many parts (retrying failed ones)
+   * to exactly the right local contents, with the right checksum, and that a {@link
+   * SpooledDownload} sees the whole file.
+   *
+   * @throws IOException (indicates a test error)
+   * @throws NoSuchAlgorithmException (indicates a test error)
+   */
+  @Test
+  public void downloadsInParts() throws IOException, NoSuchAlgorithmException {
+    byte[] contents = new byte[1_000_003];
+    new Random(42).nextBytes(contents);
+    InMemoryS3 s3 = new InMemoryS3(contents, 2);
+    SpooledDownload spooledDownload = new SpooledDownload();
+    spooledDownload.start(localFile);
+
+    RangedDownloadResult result =
+        new RangedDownload(s3, rangeExecutor, 4, 10_000)
+            .download("bucket", "key", localFile, spooledDownload);
+    spooledDownload.complete();
+
+    Assert.assertArrayEquals(contents, Files.readAllBytes(localFile));
+    Assert.assertEquals(
+        ManifestEntryDownloadTask.computeMD5ChkSum(new ByteArrayInputStream(contents)),
+        result.getMd5ChkSum());
+    Assert.assertEquals(101 + 2, s3.rangeRequests.get());
+    byte[] spooledContents = new byte[contents.length];
+    Assert.assertEquals(contents.length, readFully(spooledDownload.openStream(), spooledContents));
+    Assert.assertArrayEquals(contents, spooledContents);
+  }
+
+  /**
+   * Verifies that {@link RangedDownload} fails (rather than hanging) if a part can't be downloaded.
+   */
+  @Test(expected = AwsFailureException.class)
+  public void failsIfPartFails() {
+    byte[] contents = new byte[100_000];
+    InMemoryS3 s3 = new InMemoryS3(contents, Integer.MAX_VALUE);
+
+    new RangedDownload(s3, rangeExecutor, 4, 1_000).download("bucket", "key", localFile, null);
+  }
+
+  /**
+   * @param stream the stream to read
+   * @param buffer the buffer to read into
+   * @return the number of bytes read
+   * @throws IOException (indicates a test error)
+   */
+  private static int readFully(InputStream stream, byte[] buffer) throws IOException {
+    try (InputStream closeableStream = stream) {
+      int offset = 0;
+      int bytesRead;
+      while (offset < buffer.length
+          && (bytesRead = closeableStream.read(buffer, offset, buffer.length - offset)) != -1)
+        offset += bytesRead;
+      Assert.assertEquals(-1, closeableStream.read());
+      return offset;
+    }
+  }
+
+  /**
+   * A minimal, in-memory stand-in for S3, which serves a single object and supports ranged GETs.
+   */
+  private static final class InMemoryS3 extends AbstractAmazonS3 {
+    private final byte[] contents;
+    private final AtomicInteger failuresRemaining;
+    private final AtomicInteger rangeRequests;
+
+    /**
+     * Constructs a new {@link InMemoryS3}.
+     *
+     * @param contents the contents of the object to serve
+     * @param failures the number of range requests that should fail (e.g. for retries)
+     */
+    InMemoryS3(byte[] contents, int failures) {
+      this.contents = contents;
+      this.failuresRemaining = new AtomicInteger(failures);
+      this.rangeRequests = new AtomicInteger(0);
+    }
+
+    /** @see com.amazonaws.services.s3.AbstractAmazonS3#getObjectMetadata(String, String) */
+    @Override
+    public ObjectMetadata getObjectMetadata(String bucketName, String key) {
+      ObjectMetadata objectMetadata = new ObjectMetadata();
+      objectMetadata.setContentLength(contents.length);
+      return objectMetadata;
+    }
+
+    /** @see com.amazonaws.services.s3.AbstractAmazonS3#getObject(GetObjectRequest) */
+    @Override
+    public S3Object getObject(GetObjectRequest getObjectRequest) {
+      rangeRequests.incrementAndGet();
+      if (failuresRemaining.getAndDecrement() > 0)
+        throw new SdkClientException("Simulated failure.");
+
+      long[] range = getObjectRequest.getRange();
+      S3Object object = new S3Object();
+      object.setObjectContent(
+          new ByteArrayInputStream(
+              Arrays.copyOfRange(contents, (int) range[0], (int) range[1] + 1)));
+      return object;
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package gov.cms.bfd.pipeline.rif.extract.s3.task;
+
+import gov.cms.bfd.pipeline.rif.extract.exceptions.ChecksumException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Unit tests for {@link SpooledDownload}. */
+public final class SpooledDownloadTest {
+  /**
+   * Verifies that a {@link SpooledDownload#openStream()} stream, opened before the download has
+   * started, reads exactly the download's contents as they're written, and doesn't end until the
+   * download has completed.
+   */
+  @Test
+  public void readsWhileDownloading() throws IOException, InterruptedException {
+    byte[] contents = new byte[100_000];
+    for (int i = 0; i < contents.length; i++) contents[i] = (byte) i;
+    Path spoolFile = Files.createTempFile(SpooledDownloadTest.class.getSimpleName(), ".rif");
+    try {
+      SpooledDownload spooledDownload = new SpooledDownload();
+      CountDownLatch firstChunkRead = new CountDownLatch(1);
+      Thread writer =
+          new Thread(
+              () -> {
+                try {
+                  spooledDownload.start(spoolFile);
+                  for (int offset = 0; offset < contents.length; offset += 7_000) {
+                    int length = Math.min(7_000, contents.length - offset);
+                    Files.write(
+                        spoolFile,
+                        Arrays.copyOfRange(contents, offset, offset + length),
+                        StandardOpenOption.APPEND);
+                    spooledDownload.advance(offset + length);
+
+                    // Don't finish until the reader has demonstrably started.
+                    if (offset == 0) firstChunkRead.await();
+                  }
+                  spooledDownload.complete();
+                } catch (IOException e) {
+                  throw new UncheckedIOException(e);
+                } catch (InterruptedException e) {
+                  throw new IllegalStateException(e);
+                }
+              });
+
+      ByteArrayOutputStream actual = new ByteArrayOutputStream();
+      try (InputStream spooledStream = spooledDownload.openStream()) {
+        writer.start();
+        byte[] buffer = new byte[4_096];
+        int bytesRead;
+        while ((bytesRead = spooledStream.read(buffer)) != -1) {
+          actual.write(buffer, 0, bytesRead);
+          firstChunkRead.countDown();
+        }
+      }
+      writer.join();
+
+      Assert.assertTrue(spooledDownload.isDone());
+      Assert.assertArrayEquals(contents, actual.toByteArray());
+    } finally {
+      Files.delete(spoolFile);
+    }
+  }
+
+  /**
+   * Verifies that a {@link SpooledDownload#openStream()} stream fails, rather than ending normally,
+   * if the download fails after all of its bytes were written (e.g. due to a checksum mismatch).
+   */
+  @Test(expected = ChecksumException.class)
+  public void failsIfDownloadFails() throws IOException {
+    Path spoolFile = Files.createTempFile(SpooledDownloadTest.class.getSimpleName(), ".rif");
+    try {
+      SpooledDownload spooledDownload = new SpooledDownload();
+      spooledDownload.start(spoolFile);
+      Files.write(spoolFile, new byte[] {1, 2, 3});
+      spooledDownload.advance(3);
+      spooledDownload.fail(new ChecksumException("Checksum doesn't match."));
+
+      try (InputStream spooledStream = spooledDownload.openStream()) {
+        while (spooledStream.read() != -1) {
+          // Just keep reading.
+        }
+      }
+    } finally {
+      Files.delete(spoolFile);
+    }
+  }
+}
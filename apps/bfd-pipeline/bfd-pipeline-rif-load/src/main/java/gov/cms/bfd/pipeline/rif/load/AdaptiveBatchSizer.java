@@ -0,0 +1,213 @@
+package gov.cms.bfd.pipeline.rif.load;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import gov.cms.bfd.model.rif.RifFileType;
+import gov.cms.bfd.model.rif.RifRecordEvent;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sizes {@link RifLoader}'s record batches by their estimated payload, rather than by their record
+ * count alone, separately for each {@link RifFileType}, so that each batch's database transaction
+ * takes about the same amount of time, whatever the type. A hundred carrier claims with a dozen
+ * lines each are far more work than a hundred Part D events.
+ *
+ * <p>Each record's payload is estimated as its number of RIF rows (one per claim line, or just one
+ * for unlined records) times its {@link RifFileType}'s number of columns times {@link
+ * #AVERAGE_COLUMN_BYTES}. That's crude, but it's cheap and it's proportional to what actually
+ * matters: how many values have to be written.
+ *
+ * <p>Each {@link RifFileType} starts out with batches of {@link
+ * LoadAppOptions#getRecordBatchSize()} records. After each batch is committed, its type's target
+ * payload is nudged towards the payload that would have hit the target transaction duration,
+ * assuming that duration scales with payload. As each adjustment only depends on how far off the
+ * last batch was, any fixed per-transaction overhead doesn't throw this off: the target still
+ * settles where the transactions take the target duration. Batches are never allowed to grow past
+ * {@link #MAX_BATCH_SIZE_FACTOR} times the configured batch size, which bounds how far a bad
+ * estimate can go.
+ *
+ * <p>This class is thread-safe.
+ */
+final class AdaptiveBatchSizer {
+  /** The assumed average width, in bytes, of each RIF column value (including its delimiter). */
+  static final int AVERAGE_COLUMN_BYTES = 8;
+
+  /** How many times larger than {@link LoadAppOptions#getRecordBatchSize()} a batch can get. */
+  static final int MAX_BATCH_SIZE_FACTOR = 10;
+
+  /** The most that a single batch's result can scale its type's target payload by. */
+  static final double MAX_ADJUSTMENT = 2.0;
+
+  /** How much weight each batch's result is given, versus the existing target payload. */
+  private static final double ADJUSTMENT_WEIGHT = 0.25;
+
+  /** Finds each record class's <code>getLines()</code> method, if it has one. */
+  private static final ClassValue<Method> LINES_GETTERS =
+      new ClassValue<Method>() {
+        /** @see java.lang.ClassValue#computeValue(java.lang.Class) */
+        @Override
+        protected Method computeValue(Class<?> recordClass) {
+          try {
+            Method linesGetter = recordClass.getMethod("getLines");
+            return List.class.isAssignableFrom(linesGetter.getReturnType()) ? linesGetter : null;
+          } catch (NoSuchMethodException e) {
+            return null;
+          }
+        }
+      };
+
+  /** The number of columns in each {@link RifFileType}, by {@link RifFileType#ordinal()}. */
+  private static final int[] COLUMN_COUNTS = new int[RifFileType.values().length];
+
+  static {
+    for (RifFileType rifFileType : RifFileType.values())
+      COLUMN_COUNTS[rifFileType.ordinal()] = rifFileType.getColumnEnum().getEnumConstants().length;
+  }
+
+  private final long targetTransactionNanos;
+  private final int initialBatchSize;
+  private final int maxBatchSize;
+  private final Map<RifFileType, TypeState> typeStates;
+
+  /**
+   * Constructs a new {@link AdaptiveBatchSizer}.
+   *
+   * @param options the {@link LoadAppOptions} to use, which must have {@link
+   *     LoadAppOptions#isAdaptiveBatchingEnabled()} set
+   * @param appMetrics the {@link MetricRegistry} to record the committed batches' payloads in
+   */
+  AdaptiveBatchSizer(LoadAppOptions options, MetricRegistry appMetrics) {
+    if (!options.isAdaptiveBatchingEnabled()) throw new IllegalArgumentException();
+
+    this.targetTransactionNanos =
+        TimeUnit.MILLISECONDS.toNanos(options.getBatchTransactionTargetMillis());
+    this.initialBatchSize = options.getRecordBatchSize();
+    this.maxBatchSize = options.getRecordBatchSize() * MAX_BATCH_SIZE_FACTOR;
+    this.typeStates = new EnumMap<>(RifFileType.class);
+    for (RifFileType rifFileType : RifFileType.values())
+      typeStates.put(
+          rifFileType,
+          new TypeState(
+              appMetrics.histogram(
+                  MetricRegistry.name(
+                      RifLoader.class.getSimpleName(), "batchBytes", rifFileType.name()))));
+  }
+
+  /**
+   * @param rifRecordEvent the {@link RifRecordEvent} to estimate the payload of
+   * @return the estimated payload (in bytes) of the specified {@link RifRecordEvent}
+   */
+  static long estimateBytes(RifRecordEvent<?> rifRecordEvent) {
+    RifFileType rifFileType = rifRecordEvent.getFileEvent().getFile().getFileType();
+    int columnCount = COLUMN_COUNTS[rifFileType.ordinal()];
+    return (long) countRows(rifRecordEvent.getRecord()) * columnCount * AVERAGE_COLUMN_BYTES;
+  }
+
+  /**
+   * @param recordsBatch the {@link RifRecordEvent}s to estimate the payload of
+   * @return the estimated total payload (in bytes) of the specified {@link RifRecordEvent}s
+   */
+  static long estimateBatchBytes(List<RifRecordEvent<?>> recordsBatch) {
+    long batchBytes = 0L;
+    for (RifRecordEvent<?> rifRecordEvent : recordsBatch)
+      batchBytes += estimateBytes(rifRecordEvent);
+    return batchBytes;
+  }
+
+  /**
+   * @param record the RIF record to count the rows of
+   * @return the number of RIF rows that the specified record was parsed from: one per claim line,
+   *     or <code>1</code> for records without lines
+   */
+  private static int countRows(Object record) {
+    Method linesGetter = LINES_GETTERS.get(record.getClass());
+    if (linesGetter == null) return 1;
+
+    try {
+      List<?> lines = (List<?>) linesGetter.invoke(record);
+      return lines == null ? 1 : Math.max(1, lines.size());
+    } catch (IllegalAccessException | InvocationTargetException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * @param rifFileType the {@link RifFileType} of the next batch
+   * @return the maximum number of records in the next batch of the specified {@link RifFileType}
+   */
+  int getBatchSize(RifFileType rifFileType) {
+    return typeStates.get(rifFileType).hasTarget() ? maxBatchSize : initialBatchSize;
+  }
+
+  /**
+   * @param rifFileType the {@link RifFileType} of the next batch
+   * @return the estimated payload (in bytes) at which the next batch of the specified {@link
+   *     RifFileType} should be closed
+   */
+  long getBatchBytes(RifFileType rifFileType) {
+    return typeStates.get(rifFileType).getTargetBytes();
+  }
+
+  /**
+   * Records how long a batch's transaction took, adjusting its {@link RifFileType}'s target payload
+   * accordingly.
+   *
+   * @param rifFileType the {@link RifFileType} of the batch
+   * @param batchBytes the estimated payload (in bytes) of the batch
+   * @param transactionNanos how long (in nanoseconds) the batch's transaction took, including its
+   *     commit
+   */
+  void recordTransaction(RifFileType rifFileType, long batchBytes, long transactionNanos) {
+    if (batchBytes <= 0L || transactionNanos <= 0L) return;
+
+    double adjustment = (double) targetTransactionNanos / transactionNanos;
+    adjustment = Math.max(1.0 / MAX_ADJUSTMENT, Math.min(MAX_ADJUSTMENT, adjustment));
+    typeStates.get(rifFileType).adjust(batchBytes, batchBytes * adjustment);
+  }
+
+  /** Tracks the target batch payload for a single {@link RifFileType}. */
+  private static final class TypeState {
+    private final Histogram batchBytesHistogram;
+    private double targetBytes;
+
+    /**
+     * Constructs a new {@link TypeState}, with no target yet.
+     *
+     * @param batchBytesHistogram the {@link Histogram} to record each batch's payload in
+     */
+    TypeState(Histogram batchBytesHistogram) {
+      this.batchBytesHistogram = batchBytesHistogram;
+      this.targetBytes = Double.NaN;
+    }
+
+    /** @return <code>true</code> if at least one batch of this type has been recorded */
+    synchronized boolean hasTarget() {
+      return !Double.isNaN(targetBytes);
+    }
+
+    /**
+     * @return the target batch payload (in bytes), or {@link Long#MAX_VALUE} if there isn't one
+     *     yet
+     */
+    synchronized long getTargetBytes() {
+      return Double.isNaN(targetBytes) ? Long.MAX_VALUE : Math.max(1L, (long) targetBytes);
+    }
+
+    /**
+     * @param batchBytes the estimated payload (in bytes) of a batch that was just committed
+     * @param idealBytes the payload (in bytes) that would have hit the target duration
+     */
+    synchronized void adjust(long batchBytes, double idealBytes) {
+      batchBytesHistogram.update(batchBytes);
+      targetBytes =
+          Double.isNaN(targetBytes)
+              ? idealBytes
+              : (1.0 - ADJUSTMENT_WEIGHT) * targetBytes + ADJUSTMENT_WEIGHT * idealBytes;
+    }
+  }
+}
@@ -4,6 +4,9 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Spliterator;
 import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -14,14 +17,39 @@ import java.util.stream.StreamSupport;
  *
  * <p>It was taken from this Stack Overflow answer: <a
  * href="https://stackoverflow.com/a/41748361/1851299">Bruce Hamilton's custom BatchSpliterator</a>.
+ * It has since been extended to optionally also close each batch once its elements' total weight
+ * (e.g. their estimated size in bytes) reaches a target, with both limits re-read for each batch,
+ * so that they can be adjusted while the stream is being consumed.
  */
 public final class BatchSpliterator<T> implements Spliterator<List<T>> {
   private final Spliterator<T> base;
-  private final int batchSize;
+  private final IntSupplier batchSize;
+  private final ToLongFunction<? super T> weigher;
+  private final LongSupplier batchWeight;
 
   public BatchSpliterator(Spliterator<T> base, int batchSize) {
+    this(base, () -> batchSize, element -> 0L, () -> Long.MAX_VALUE);
+  }
+
+  /**
+   * Constructs a new {@link BatchSpliterator}, where each batch is closed once it reaches either
+   * the specified number of elements or the specified total weight, whichever comes first.
+   *
+   * @param base the {@link Spliterator} whose elements are to be batched
+   * @param batchSize supplies the maximum number of elements in the next batch
+   * @param weigher computes the weight of each element
+   * @param batchWeight supplies the total weight at which the next batch will be closed (which may
+   *     be exceeded by the batch's last element)
+   */
+  public BatchSpliterator(
+      Spliterator<T> base,
+      IntSupplier batchSize,
+      ToLongFunction<? super T> weigher,
+      LongSupplier batchWeight) {
     this.base = base;
     this.batchSize = batchSize;
+    this.weigher = weigher;
+    this.batchWeight = batchWeight;
   }
 
   public static <T> Stream<List<T>> batches(Stream<T> stream, int batchSize) {
@@ -31,10 +59,36 @@ public final class BatchSpliterator<T> implements Spliterator<List<T>> {
             new BatchSpliterator<>(stream.spliterator(), batchSize), stream.isParallel());
   }
 
+  /**
+   * @param stream the {@link Stream} whose elements are to be batched
+   * @param batchSize supplies the maximum number of elements in the next batch
+   * @param weigher computes the weight of each element
+   * @param batchWeight supplies the total weight at which the next batch will be closed
+   * @return a {@link Stream} of the specified {@link Stream}'s elements, in batches: see {@link
+   *     #BatchSpliterator(Spliterator, IntSupplier, ToLongFunction, LongSupplier)}
+   */
+  public static <T> Stream<List<T>> batches(
+      Stream<T> stream,
+      IntSupplier batchSize,
+      ToLongFunction<? super T> weigher,
+      LongSupplier batchWeight) {
+    return StreamSupport.stream(
+        new BatchSpliterator<>(stream.spliterator(), batchSize, weigher, batchWeight),
+        stream.isParallel());
+  }
+
   @Override
   public boolean tryAdvance(Consumer<? super List<T>> action) {
-    final List<T> batch = new ArrayList<>(batchSize);
-    for (int i = 0; i < batchSize && base.tryAdvance(batch::add); i++) ;
+    final int maxSize = batchSize.getAsInt();
+    final long maxWeight = batchWeight.getAsLong();
+    final List<T> batch = new ArrayList<>(maxSize);
+    final long[] weight = {0L};
+    final Consumer<T> adder =
+        element -> {
+          batch.add(element);
+          weight[0] += weigher.applyAsLong(element);
+        };
+    while (batch.size() < maxSize && weight[0] < maxWeight && base.tryAdvance(adder)) ;
     if (batch.isEmpty()) return false;
     action.accept(batch);
     return true;
@@ -42,15 +96,17 @@ public final class BatchSpliterator<T> implements Spliterator<List<T>> {
 
   @Override
   public Spliterator<List<T>> trySplit() {
-    if (base.estimateSize() <= batchSize) return null;
+    if (base.estimateSize() <= batchSize.getAsInt()) return null;
     final Spliterator<T> splitBase = this.base.trySplit();
-    return splitBase == null ? null : new BatchSpliterator<>(splitBase, batchSize);
+    return splitBase == null
+        ? null
+        : new BatchSpliterator<>(splitBase, batchSize, weigher, batchWeight);
   }
 
   @Override
   public long estimateSize() {
     final double baseSize = base.estimateSize();
-    return baseSize == 0 ? 0 : (long) Math.ceil(baseSize / (double) batchSize);
+    return baseSize == 0 ? 0 : (long) Math.ceil(baseSize / (double) batchSize.getAsInt());
   }
 
   @Override
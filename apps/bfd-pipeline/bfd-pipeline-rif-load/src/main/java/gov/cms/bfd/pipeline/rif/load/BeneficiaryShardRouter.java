@@ -0,0 +1,129 @@
+package gov.cms.bfd.pipeline.rif.load;
+
+import gov.cms.bfd.model.rif.RifRecordEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Routes {@link RifRecordEvent}s to per-worker queues by a hash of their {@link
+ * RifRecordEvent#getBeneficiaryId()}, and batches them up there. Each shard is processed by a
+ * single worker thread, in order, so all of the records for any given beneficiary are loaded in
+ * their original order, and never by two workers at once. That avoids row-lock contention between
+ * workers, and lets each batch safely collapse repeated updates to the same beneficiary.
+ *
+ * <p>The trade-off is that a shard that's running slowly (or that has been handed a lot of records)
+ * will block the producer once its queue fills up, even if other shards are idle.
+ *
+ * <p>Only {@link #route(RifRecordEvent)} and {@link #flush()} need to be called from the same
+ * (single) producer thread; the rest of this class is thread-safe.
+ */
+final class BeneficiaryShardRouter {
+  /**
+   * The number of full batches that may be queued for each shard, before {@link
+   * #route(RifRecordEvent)} blocks.
+   */
+  private static final int SHARD_QUEUE_SIZE = 10;
+
+  private final int recordBatchSize;
+  private final Consumer<List<RifRecordEvent<?>>> batchProcessor;
+  private final List<BlockingThreadPoolExecutor> shardExecutors;
+  private final List<List<RifRecordEvent<?>>> pendingBatches;
+
+  /**
+   * Constructs a new {@link BeneficiaryShardRouter}.
+   *
+   * @param shards the number of shards (and thus worker threads) to use
+   * @param recordBatchSize the maximum number of records to include in each batch
+   * @param batchProcessor the {@link Consumer} that will be run on each shard's worker thread, for
+   *     each batch, in order (which must handle any errors itself)
+   */
+  BeneficiaryShardRouter(
+      int shards, int recordBatchSize, Consumer<List<RifRecordEvent<?>>> batchProcessor) {
+    if (shards < 1) throw new IllegalArgumentException();
+    if (recordBatchSize < 1) throw new IllegalArgumentException();
+
+    this.recordBatchSize = recordBatchSize;
+    this.batchProcessor = batchProcessor;
+    this.shardExecutors = new ArrayList<>(shards);
+    this.pendingBatches = new ArrayList<>(shards);
+    for (int i = 0; i < shards; i++) {
+      shardExecutors.add(
+          new BlockingThreadPoolExecutor(1, SHARD_QUEUE_SIZE, 100, TimeUnit.MILLISECONDS));
+      pendingBatches.add(new ArrayList<>(recordBatchSize));
+    }
+  }
+
+  /**
+   * @param beneficiaryId the {@link RifRecordEvent#getBeneficiaryId()} value to select a shard for
+   * @param shards the number of shards
+   * @return the index of the shard that the specified beneficiary's records should be routed to
+   */
+  static int selectShard(String beneficiaryId, int shards) {
+    // Spread the hash's bits, as the beneficiary IDs are often sequential numbers.
+    int hash = Objects.hashCode(beneficiaryId);
+    hash ^= (hash >>> 16);
+    hash *= 0x85ebca6b;
+    hash ^= (hash >>> 13);
+    return Math.floorMod(hash, shards);
+  }
+
+  /**
+   * Adds the specified {@link RifRecordEvent} to its shard's current batch, and submits that batch
+   * if it's now full. This may block if the shard's queue is full.
+   *
+   * @param rifRecordEvent the {@link RifRecordEvent} to route
+   */
+  void route(RifRecordEvent<?> rifRecordEvent) {
+    int shard = selectShard(rifRecordEvent.getBeneficiaryId(), shardExecutors.size());
+    List<RifRecordEvent<?>> pendingBatch = pendingBatches.get(shard);
+    pendingBatch.add(rifRecordEvent);
+    if (pendingBatch.size() >= recordBatchSize) submit(shard);
+  }
+
+  /** Submits all of the shards' partial batches. */
+  void flush() {
+    for (int shard = 0; shard < shardExecutors.size(); shard++)
+      if (!pendingBatches.get(shard).isEmpty()) submit(shard);
+  }
+
+  /** @param shard the index of the shard whose current batch should be submitted */
+  private void submit(int shard) {
+    List<RifRecordEvent<?>> batch = pendingBatches.get(shard);
+    pendingBatches.set(shard, new ArrayList<>(recordBatchSize));
+    shardExecutors.get(shard).submit(() -> batchProcessor.accept(batch));
+  }
+
+  /** @return the total number of batches waiting in all of the shards' queues */
+  int getQueueSize() {
+    return shardExecutors.stream().mapToInt(e -> e.getQueue().size()).sum();
+  }
+
+  /** @return the number of shards that are currently processing a batch */
+  int getActiveCount() {
+    return shardExecutors.stream().mapToInt(e -> e.getActiveCount()).sum();
+  }
+
+  /**
+   * Shuts down all of the shards (after they've finished their queued batches), and waits for them
+   * to terminate. Note that {@link #flush()} must be called first, if needed.
+   *
+   * @param timeout the maximum time to wait
+   * @param unit the {@link TimeUnit} of the timeout
+   * @return <code>true</code> if all of the shards terminated, <code>false</code> if the timeout
+   *     elapsed first
+   * @throws InterruptedException An {@link InterruptedException} will be thrown if the calling
+   *     thread is interrupted while waiting.
+   */
+  boolean shutdownAndAwaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    shardExecutors.forEach(BlockingThreadPoolExecutor::shutdown);
+
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    for (BlockingThreadPoolExecutor shardExecutor : shardExecutors)
+      if (!shardExecutor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS))
+        return false;
+    return true;
+  }
+}
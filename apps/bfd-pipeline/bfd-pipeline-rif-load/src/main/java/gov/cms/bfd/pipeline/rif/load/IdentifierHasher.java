@@ -0,0 +1,108 @@
+package gov.cms.bfd.pipeline.rif.load;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.crypto.SecretKeyFactory;
+
+/**
+ * Computes the one-way cryptographic hashes of beneficiary identifiers (HICNs and MBIs), as
+ * produced by {@link RifLoader#computeHicnHash(LoadAppOptions, SecretKeyFactory, String)} and
+ * {@link RifLoader#computeMbiHash(LoadAppOptions, SecretKeyFactory, String)}, remembering the most
+ * recently used results in a bounded LRU cache.
+ *
+ * <p>Those hashes are deliberately expensive to compute (PBKDF2, with a large iteration count), and
+ * the same identifiers recur frequently across the beneficiary and beneficiary history files in a
+ * data set, so skipping the recomputation is well worth the memory.
+ *
+ * <p>Instances are safe for use from multiple threads. This class is public so that it can be
+ * benchmarked from <code>bfd-pipeline-jmh</code>; it's otherwise only used by {@link RifLoader}.
+ */
+public final class IdentifierHasher {
+  /**
+   * The default maximum number of identifier hashes that will be cached. Each entry costs a few
+   * hundred bytes, so this keeps the cache to a few tens of megabytes.
+   */
+  public static final int DEFAULT_CACHE_SIZE = 100_000;
+
+  private final LoadAppOptions options;
+  private final Map<String, String> cache;
+  private final Meter cacheHits;
+  private final Meter cacheMisses;
+  private final Meter cacheEvictions;
+
+  /**
+   * {@link SecretKeyFactory} instances aren't guaranteed to be thread-safe, so each hashing thread
+   * gets its own.
+   */
+  private final ThreadLocal<SecretKeyFactory> secretKeyFactory =
+      ThreadLocal.withInitial(RifLoader::createSecretKeyFactory);
+
+  /**
+   * Constructs a new {@link IdentifierHasher}.
+   *
+   * @param options the {@link LoadAppOptions} to use, which specify the hashing pepper and
+   *     iterations
+   * @param appMetrics the {@link MetricRegistry} to record the cache's hits, misses, and evictions
+   *     in
+   * @param cacheSize the maximum number of identifier hashes to cache
+   */
+  public IdentifierHasher(LoadAppOptions options, MetricRegistry appMetrics, int cacheSize) {
+    if (cacheSize < 1) throw new IllegalArgumentException();
+
+    this.options = options;
+    this.cacheHits =
+        appMetrics.meter(MetricRegistry.name(getClass().getSimpleName(), "cache", "hits"));
+    this.cacheMisses =
+        appMetrics.meter(MetricRegistry.name(getClass().getSimpleName(), "cache", "misses"));
+    this.cacheEvictions =
+        appMetrics.meter(MetricRegistry.name(getClass().getSimpleName(), "cache", "evictions"));
+    this.cache =
+        new LinkedHashMap<String, String>(16, 0.75f, true) {
+          private static final long serialVersionUID = 1L;
+
+          /** @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.Entry) */
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            boolean evict = size() > cacheSize;
+            if (evict) cacheEvictions.mark();
+            return evict;
+          }
+        };
+  }
+
+  /**
+   * @param identifier the HICN or MBI to hash
+   * @return the one-way cryptographic hash of the specified identifier, exactly 64 characters long
+   */
+  public String computeIdentifierHash(String identifier) {
+    synchronized (cache) {
+      String cachedHash = cache.get(identifier);
+      if (cachedHash != null) {
+        cacheHits.mark();
+        return cachedHash;
+      }
+    }
+
+    /*
+     * The hash is computed outside of the lock, as that's the expensive
+     * part. Two threads may occasionally both miss on the same identifier,
+     * which just costs one redundant (but identical) computation.
+     */
+    cacheMisses.mark();
+    String hash = RifLoader.computeIdentifierHash(options, secretKeyFactory.get(), identifier);
+
+    synchronized (cache) {
+      cache.put(identifier, hash);
+    }
+    return hash;
+  }
+
+  /** @return the number of identifier hashes currently cached */
+  int getCacheSize() {
+    synchronized (cache) {
+      return cache.size();
+    }
+  }
+}
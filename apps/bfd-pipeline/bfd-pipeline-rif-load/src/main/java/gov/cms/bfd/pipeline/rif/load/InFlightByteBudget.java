@@ -0,0 +1,59 @@
+package gov.cms.bfd.pipeline.rif.load;
+
+/**
+ * Limits the total estimated payload of the record batches that {@link RifLoader} has queued up or
+ * is loading, across all of the files being loaded, so that its heap usage stays predictable no
+ * matter how large each file's records are. The count-bounded {@link BlockingThreadPoolExecutor}
+ * queues can't do that on their own, as a queue of a few thousand carrier claim batches is many
+ * times larger than one of Part D event batches.
+ *
+ * <p>This class is thread-safe.
+ */
+final class InFlightByteBudget {
+  private final long maxBytes;
+  private long inFlightBytes;
+
+  /**
+   * Constructs a new {@link InFlightByteBudget}.
+   *
+   * @param maxBytes the maximum total estimated payload (in bytes) to allow in flight at once
+   */
+  InFlightByteBudget(long maxBytes) {
+    if (maxBytes < 1) throw new IllegalArgumentException();
+
+    this.maxBytes = maxBytes;
+  }
+
+  /** @return the total estimated payload (in bytes) that's currently in flight */
+  synchronized long getInFlightBytes() {
+    return inFlightBytes;
+  }
+
+  /**
+   * Blocks until the specified batch payload can be put in flight without exceeding the budget,
+   * and then does so. A batch that's larger than the whole budget is charged as the whole budget,
+   * so it can still proceed once nothing else is in flight.
+   *
+   * @param batchBytes the estimated payload (in bytes) of the batch to put in flight
+   * @return the number of bytes actually charged against the budget, which must be passed to
+   *     {@link #release(long)} once the batch has finished
+   * @throws InterruptedException An {@link InterruptedException} will be thrown if the calling
+   *     thread is interrupted while waiting.
+   */
+  synchronized long acquire(long batchBytes) throws InterruptedException {
+    long chargedBytes = Math.min(Math.max(0L, batchBytes), maxBytes);
+    while (inFlightBytes > 0 && inFlightBytes + chargedBytes > maxBytes) wait();
+
+    inFlightBytes += chargedBytes;
+    return chargedBytes;
+  }
+
+  /**
+   * @param chargedBytes the value returned by the {@link #acquire(long)} call for a batch that has
+   *     now finished (whether or not it succeeded)
+   */
+  synchronized void release(long chargedBytes) {
+    inFlightBytes -= chargedBytes;
+    notifyAll();
+  }
+}
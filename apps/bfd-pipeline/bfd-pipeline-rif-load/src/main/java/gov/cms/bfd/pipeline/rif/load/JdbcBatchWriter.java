@@ -0,0 +1,486 @@
+package gov.cms.bfd.pipeline.rif.load;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.justdavis.karl.misc.exceptions.BadCodeMonkeyException;
+import gov.cms.bfd.model.rif.Beneficiary;
+import gov.cms.bfd.model.rif.BeneficiaryHistory;
+import gov.cms.bfd.model.rif.BeneficiaryHistoryJdbcWriter;
+import gov.cms.bfd.model.rif.BeneficiaryJdbcWriter;
+import gov.cms.bfd.model.rif.CarrierClaim;
+import gov.cms.bfd.model.rif.CarrierClaimJdbcWriter;
+import gov.cms.bfd.model.rif.DMEClaim;
+import gov.cms.bfd.model.rif.DMEClaimJdbcWriter;
+import gov.cms.bfd.model.rif.HHAClaim;
+import gov.cms.bfd.model.rif.HHAClaimJdbcWriter;
+import gov.cms.bfd.model.rif.HospiceClaim;
+import gov.cms.bfd.model.rif.HospiceClaimJdbcWriter;
+import gov.cms.bfd.model.rif.InpatientClaim;
+import gov.cms.bfd.model.rif.InpatientClaimJdbcWriter;
+import gov.cms.bfd.model.rif.MedicareBeneficiaryIdHistory;
+import gov.cms.bfd.model.rif.MedicareBeneficiaryIdHistoryJdbcWriter;
+import gov.cms.bfd.model.rif.OutpatientClaim;
+import gov.cms.bfd.model.rif.OutpatientClaimJdbcWriter;
+import gov.cms.bfd.model.rif.PartDEvent;
+import gov.cms.bfd.model.rif.PartDEventJdbcWriter;
+import gov.cms.bfd.model.rif.RifRecordBase;
+import gov.cms.bfd.model.rif.SNFClaim;
+import gov.cms.bfd.model.rif.SNFClaimJdbcWriter;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Provides the state tracking and logic needed for {@link RifLoader} to handle {@link
+ * LoadAppOptions.LoadMode#JDBC_BATCH} loads, via the generated <code>*JdbcWriter</code> classes.
+ * This keeps Hibernate's dirty-checking, persistence context, and reflection out of the inner load
+ * loop.
+ *
+ * <p>Each loader session uses its own {@link JdbcBatchWriter} for its batches of records: the
+ * records are queued up as they're {@link #insert(RifRecordBase, Object)}ed and {@link
+ * #update(RifRecordBase, Object)}ed, and then {@link #submit(Connection, MetricRegistry)} runs all
+ * of the header <code>INSERT</code>s, then the header <code>UPDATE</code>s, then the line <code>
+ * DELETE</code>s, and then the line <code>INSERT</code>s, as JDBC batches on the batch's own {@link
+ * Connection} and transaction. That ordering is only equivalent to the records' original order as
+ * long as no record is queued more than once, so callers must check {@link #isPending(Object)} and
+ * {@link #submit(Connection, MetricRegistry)} first, when needed.
+ *
+ * <p>The {@link PreparedStatement}s are cached and reused across {@link #submit(Connection,
+ * MetricRegistry)} calls, for as long as the same {@link Connection} is passed in, and must be
+ * released via {@link #close()} once the {@link JdbcBatchWriter} is no longer needed.
+ *
+ * <p>Instances of this class are not thread-safe.
+ */
+final class JdbcBatchWriter {
+  /** The {@link RecordWriter}s for each supported record type, keyed by that type. */
+  private static final Map<Class<?>, RecordWriter<?>> RECORD_WRITERS = createRecordWriters();
+
+  private final int jdbcBatchSize;
+  private final List<RifRecordBase> pendingInserts;
+  private final List<RifRecordBase> pendingUpdates;
+  private final Set<Object> pendingRecordIds;
+  private final Map<String, PreparedStatement> statements;
+  private Connection statementsConnection;
+
+  /**
+   * Constructs a new {@link JdbcBatchWriter} instance.
+   *
+   * @param jdbcBatchSize the maximum number of statements to send to the database in each JDBC
+   *     batch
+   */
+  JdbcBatchWriter(int jdbcBatchSize) {
+    if (jdbcBatchSize < 1) throw new IllegalArgumentException();
+
+    this.jdbcBatchSize = jdbcBatchSize;
+    this.pendingInserts = new ArrayList<>();
+    this.pendingUpdates = new ArrayList<>();
+    this.pendingRecordIds = new HashSet<>();
+    this.statements = new HashMap<>();
+  }
+
+  /**
+   * @param recordId the ID of the record to check for
+   * @return <code>true</code> if a record with the specified ID has been queued and not yet {@link
+   *     #submit(Connection, MetricRegistry)}ted, <code>false</code> if not
+   */
+  public boolean isPending(Object recordId) {
+    return pendingRecordIds.contains(recordId);
+  }
+
+  /** @return <code>true</code> if there are no records queued, <code>false</code> if there are */
+  public boolean isEmpty() {
+    return pendingRecordIds.isEmpty();
+  }
+
+  /**
+   * Queues the specified top-level entity instance (e.g. a {@link Beneficiary}, {@link
+   * CarrierClaim}, etc.) to be <code>INSERT</code>ed when {@link #submit(Connection,
+   * MetricRegistry)} is called.
+   *
+   * @param record the top-level entity to queue, which must already have its ID (if generated)
+   *     assigned
+   * @param recordId the ID of the record being queued
+   */
+  public void insert(RifRecordBase record, Object recordId) {
+    queue(pendingInserts, record, recordId);
+  }
+
+  /**
+   * Queues the specified top-level entity instance (e.g. a {@link Beneficiary}, {@link
+   * CarrierClaim}, etc.) to be <code>UPDATE</code>d when {@link #submit(Connection,
+   * MetricRegistry)} is called.
+   *
+   * @param record the top-level entity to queue
+   * @param recordId the ID of the record being queued
+   */
+  public void update(RifRecordBase record, Object recordId) {
+    queue(pendingUpdates, record, recordId);
+  }
+
+  /**
+   * @param queue the queue to add the record to
+   * @param record the record to queue
+   * @param recordId the ID of the record being queued
+   */
+  private void queue(List<RifRecordBase> queue, RifRecordBase record, Object recordId) {
+    if (!pendingRecordIds.add(recordId))
+      throw new IllegalStateException(
+          String.format("Record '%s' is already pending and must be submitted first.", recordId));
+
+    queue.add(record);
+  }
+
+  /**
+   * Runs JDBC batches for all of the queued records, and then clears the queue.
+   *
+   * @param connection the JDBC {@link Connection} to use, which should be the one for the
+   *     transaction that the records are part of
+   * @param metrics the {@link MetricRegistry} to use
+   * @throws SQLException Any {@link SQLException}s encountered will be bubbled up.
+   */
+  public void submit(Connection connection, MetricRegistry metrics) throws SQLException {
+    if (isEmpty()) return;
+
+    // All of the records in a batch come from the same file, and so are of the same type.
+    RifRecordBase firstRecord =
+        !pendingInserts.isEmpty() ? pendingInserts.get(0) : pendingUpdates.get(0);
+    RecordWriter<RifRecordBase> recordWriter = selectRecordWriter(firstRecord);
+
+    Timer.Context submitTimer =
+        metrics
+            .timer(
+                MetricRegistry.name(
+                    RifLoader.class.getSimpleName(),
+                    "jdbcBatches",
+                    firstRecord.getClass().getSimpleName()))
+            .time();
+    executeBatches(
+        connection, recordWriter.headerInsertSql, recordWriter.headerInsert, pendingInserts);
+    int[] updateCounts =
+        executeBatches(
+            connection, recordWriter.headerUpdateSql, recordWriter.headerUpdate, pendingUpdates);
+
+    /*
+     * A JPA merge of a record that isn't in the DB yet inserts it, so the same is done here, for
+     * any UPDATEs that didn't find a row to update.
+     */
+    List<RifRecordBase> missingRecords = new ArrayList<>();
+    for (int i = 0; i < updateCounts.length; i++)
+      if (updateCounts[i] == 0) missingRecords.add(pendingUpdates.get(i));
+    executeBatches(
+        connection, recordWriter.headerInsertSql, recordWriter.headerInsert, missingRecords);
+
+    if (recordWriter.lineInsertSql != null) {
+      executeBatches(
+          connection, recordWriter.lineDeleteSql, recordWriter.lineDelete, pendingUpdates);
+      executeBatches(
+          connection, recordWriter.lineInsertSql, recordWriter.lineInsert, pendingInserts);
+      executeBatches(
+          connection, recordWriter.lineInsertSql, recordWriter.lineInsert, pendingUpdates);
+    }
+    submitTimer.stop();
+
+    pendingInserts.clear();
+    pendingUpdates.clear();
+    pendingRecordIds.clear();
+  }
+
+  /**
+   * @param connection the JDBC {@link Connection} to use
+   * @param sql the SQL of the {@link PreparedStatement} to run
+   * @param binder the {@link StatementBinder} that will add the records' batch entries
+   * @param records the records to run the statement for
+   * @return the update counts from all of the batches that were run, in order (which will only line
+   *     up with the records if each record only adds a single batch entry)
+   * @throws SQLException Any {@link SQLException}s encountered will be bubbled up.
+   */
+  private int[] executeBatches(
+      Connection connection,
+      String sql,
+      StatementBinder<RifRecordBase> binder,
+      List<RifRecordBase> records)
+      throws SQLException {
+    if (records.isEmpty()) return new int[0];
+
+    PreparedStatement statement = prepareStatement(connection, sql);
+    int[] updateCounts = new int[0];
+    int recordsInBatch = 0;
+    for (RifRecordBase record : records) {
+      binder.addBatch(statement, record);
+      recordsInBatch++;
+
+      if (recordsInBatch >= jdbcBatchSize) {
+        updateCounts = append(updateCounts, statement.executeBatch());
+        recordsInBatch = 0;
+      }
+    }
+    if (recordsInBatch > 0) updateCounts = append(updateCounts, statement.executeBatch());
+
+    return updateCounts;
+  }
+
+  /**
+   * @param connection the JDBC {@link Connection} to use
+   * @param sql the SQL of the {@link PreparedStatement} to get
+   * @return the cached {@link PreparedStatement} for the specified SQL and {@link Connection},
+   *     which will be created if needed
+   * @throws SQLException Any {@link SQLException}s encountered will be bubbled up.
+   */
+  private PreparedStatement prepareStatement(Connection connection, String sql)
+      throws SQLException {
+    if (connection != statementsConnection) {
+      close();
+      statementsConnection = connection;
+    }
+
+    PreparedStatement statement = statements.get(sql);
+    if (statement == null) {
+      statement = connection.prepareStatement(sql);
+      statements.put(sql, statement);
+    }
+    return statement;
+  }
+
+  /**
+   * Closes all of the cached {@link PreparedStatement}s.
+   *
+   * @throws SQLException Any {@link SQLException}s encountered will be bubbled up, though all of
+   *     the statements will still be removed from the cache.
+   */
+  public void close() throws SQLException {
+    SQLException closeFailure = null;
+    for (PreparedStatement statement : statements.values()) {
+      try {
+        statement.close();
+      } catch (SQLException e) {
+        if (closeFailure == null) closeFailure = e;
+        else closeFailure.addSuppressed(e);
+      }
+    }
+    statements.clear();
+    statementsConnection = null;
+
+    if (closeFailure != null) throw closeFailure;
+  }
+
+  /**
+   * @param first the first array to combine
+   * @param second the second array to combine
+   * @return a new array containing the elements of both of the specified arrays, in order
+   */
+  private static int[] append(int[] first, int[] second) {
+    int[] combined = Arrays.copyOf(first, first.length + second.length);
+    System.arraycopy(second, 0, combined, first.length, second.length);
+    return combined;
+  }
+
+  /**
+   * @param record the record to find the {@link RecordWriter} for
+   * @return the {@link RecordWriter} for the specified record's type
+   */
+  @SuppressWarnings("unchecked")
+  private static RecordWriter<RifRecordBase> selectRecordWriter(RifRecordBase record) {
+    RecordWriter<?> recordWriter = RECORD_WRITERS.get(record.getClass());
+    if (recordWriter == null) throw new BadCodeMonkeyException("Unhandled record type: " + record);
+
+    return (RecordWriter<RifRecordBase>) recordWriter;
+  }
+
+  /** @return the {@link RecordWriter}s for each supported record type, keyed by that type */
+  private static Map<Class<?>, RecordWriter<?>> createRecordWriters() {
+    Map<Class<?>, RecordWriter<?>> recordWriters = new HashMap<>();
+    recordWriters.put(
+        Beneficiary.class,
+        new RecordWriter<Beneficiary>(
+            BeneficiaryJdbcWriter.HEADER_INSERT_SQL,
+            BeneficiaryJdbcWriter::addHeaderInsertBatch,
+            BeneficiaryJdbcWriter.HEADER_UPDATE_SQL,
+            BeneficiaryJdbcWriter::addHeaderUpdateBatch));
+    recordWriters.put(
+        BeneficiaryHistory.class,
+        new RecordWriter<BeneficiaryHistory>(
+            BeneficiaryHistoryJdbcWriter.HEADER_INSERT_SQL,
+            BeneficiaryHistoryJdbcWriter::addHeaderInsertBatch,
+            BeneficiaryHistoryJdbcWriter.HEADER_UPDATE_SQL,
+            BeneficiaryHistoryJdbcWriter::addHeaderUpdateBatch));
+    recordWriters.put(
+        MedicareBeneficiaryIdHistory.class,
+        new RecordWriter<MedicareBeneficiaryIdHistory>(
+            MedicareBeneficiaryIdHistoryJdbcWriter.HEADER_INSERT_SQL,
+            MedicareBeneficiaryIdHistoryJdbcWriter::addHeaderInsertBatch,
+            MedicareBeneficiaryIdHistoryJdbcWriter.HEADER_UPDATE_SQL,
+            MedicareBeneficiaryIdHistoryJdbcWriter::addHeaderUpdateBatch));
+    recordWriters.put(
+        PartDEvent.class,
+        new RecordWriter<PartDEvent>(
+            PartDEventJdbcWriter.HEADER_INSERT_SQL,
+            PartDEventJdbcWriter::addHeaderInsertBatch,
+            PartDEventJdbcWriter.HEADER_UPDATE_SQL,
+            PartDEventJdbcWriter::addHeaderUpdateBatch));
+    recordWriters.put(
+        CarrierClaim.class,
+        new RecordWriter<CarrierClaim>(
+            CarrierClaimJdbcWriter.HEADER_INSERT_SQL,
+            CarrierClaimJdbcWriter::addHeaderInsertBatch,
+            CarrierClaimJdbcWriter.HEADER_UPDATE_SQL,
+            CarrierClaimJdbcWriter::addHeaderUpdateBatch,
+            CarrierClaimJdbcWriter.LINE_DELETE_SQL,
+            CarrierClaimJdbcWriter::addLineDeleteBatch,
+            CarrierClaimJdbcWriter.LINE_INSERT_SQL,
+            CarrierClaimJdbcWriter::addLineInsertBatches));
+    recordWriters.put(
+        DMEClaim.class,
+        new RecordWriter<DMEClaim>(
+            DMEClaimJdbcWriter.HEADER_INSERT_SQL,
+            DMEClaimJdbcWriter::addHeaderInsertBatch,
+            DMEClaimJdbcWriter.HEADER_UPDATE_SQL,
+            DMEClaimJdbcWriter::addHeaderUpdateBatch,
+            DMEClaimJdbcWriter.LINE_DELETE_SQL,
+            DMEClaimJdbcWriter::addLineDeleteBatch,
+            DMEClaimJdbcWriter.LINE_INSERT_SQL,
+            DMEClaimJdbcWriter::addLineInsertBatches));
+    recordWriters.put(
+        HHAClaim.class,
+        new RecordWriter<HHAClaim>(
+            HHAClaimJdbcWriter.HEADER_INSERT_SQL,
+            HHAClaimJdbcWriter::addHeaderInsertBatch,
+            HHAClaimJdbcWriter.HEADER_UPDATE_SQL,
+            HHAClaimJdbcWriter::addHeaderUpdateBatch,
+            HHAClaimJdbcWriter.LINE_DELETE_SQL,
+            HHAClaimJdbcWriter::addLineDeleteBatch,
+            HHAClaimJdbcWriter.LINE_INSERT_SQL,
+            HHAClaimJdbcWriter::addLineInsertBatches));
+    recordWriters.put(
+        HospiceClaim.class,
+        new RecordWriter<HospiceClaim>(
+            HospiceClaimJdbcWriter.HEADER_INSERT_SQL,
+            HospiceClaimJdbcWriter::addHeaderInsertBatch,
+            HospiceClaimJdbcWriter.HEADER_UPDATE_SQL,
+            HospiceClaimJdbcWriter::addHeaderUpdateBatch,
+            HospiceClaimJdbcWriter.LINE_DELETE_SQL,
+            HospiceClaimJdbcWriter::addLineDeleteBatch,
+            HospiceClaimJdbcWriter.LINE_INSERT_SQL,
+            HospiceClaimJdbcWriter::addLineInsertBatches));
+    recordWriters.put(
+        InpatientClaim.class,
+        new RecordWriter<InpatientClaim>(
+            InpatientClaimJdbcWriter.HEADER_INSERT_SQL,
+            InpatientClaimJdbcWriter::addHeaderInsertBatch,
+            InpatientClaimJdbcWriter.HEADER_UPDATE_SQL,
+            InpatientClaimJdbcWriter::addHeaderUpdateBatch,
+            InpatientClaimJdbcWriter.LINE_DELETE_SQL,
+            InpatientClaimJdbcWriter::addLineDeleteBatch,
+            InpatientClaimJdbcWriter.LINE_INSERT_SQL,
+            InpatientClaimJdbcWriter::addLineInsertBatches));
+    recordWriters.put(
+        OutpatientClaim.class,
+        new RecordWriter<OutpatientClaim>(
+            OutpatientClaimJdbcWriter.HEADER_INSERT_SQL,
+            OutpatientClaimJdbcWriter::addHeaderInsertBatch,
+            OutpatientClaimJdbcWriter.HEADER_UPDATE_SQL,
+            OutpatientClaimJdbcWriter::addHeaderUpdateBatch,
+            OutpatientClaimJdbcWriter.LINE_DELETE_SQL,
+            OutpatientClaimJdbcWriter::addLineDeleteBatch,
+            OutpatientClaimJdbcWriter.LINE_INSERT_SQL,
+            OutpatientClaimJdbcWriter::addLineInsertBatches));
+    recordWriters.put(
+        SNFClaim.class,
+        new RecordWriter<SNFClaim>(
+            SNFClaimJdbcWriter.HEADER_INSERT_SQL,
+            SNFClaimJdbcWriter::addHeaderInsertBatch,
+            SNFClaimJdbcWriter.HEADER_UPDATE_SQL,
+            SNFClaimJdbcWriter::addHeaderUpdateBatch,
+            SNFClaimJdbcWriter.LINE_DELETE_SQL,
+            SNFClaimJdbcWriter::addLineDeleteBatch,
+            SNFClaimJdbcWriter.LINE_INSERT_SQL,
+            SNFClaimJdbcWriter::addLineInsertBatches));
+    return recordWriters;
+  }
+
+  /**
+   * Adds a batch entry (or entries) for a record to a {@link PreparedStatement}, e.g. {@link
+   * CarrierClaimJdbcWriter#addHeaderInsertBatch(PreparedStatement, CarrierClaim)}.
+   *
+   * @param <R> the record type
+   */
+  @FunctionalInterface
+  private static interface StatementBinder<R extends RifRecordBase> {
+    /**
+     * @param statement the {@link PreparedStatement} to bind to and add batch entries to
+     * @param record the record to add batch entries for
+     * @throws SQLException Any {@link SQLException}s encountered will be bubbled up.
+     */
+    void addBatch(PreparedStatement statement, R record) throws SQLException;
+  }
+
+  /**
+   * Bundles up the SQL and {@link StatementBinder}s from a generated <code>*JdbcWriter</code>
+   * class.
+   *
+   * @param <R> the record type
+   */
+  private static final class RecordWriter<R extends RifRecordBase> {
+    private final String headerInsertSql;
+    private final StatementBinder<R> headerInsert;
+    private final String headerUpdateSql;
+    private final StatementBinder<R> headerUpdate;
+    private final String lineDeleteSql;
+    private final StatementBinder<R> lineDelete;
+    private final String lineInsertSql;
+    private final StatementBinder<R> lineInsert;
+
+    /**
+     * Constructs a new {@link RecordWriter} for a record type with lines.
+     *
+     * @param headerInsertSql the header <code>INSERT</code> SQL
+     * @param headerInsert the header <code>INSERT</code> {@link StatementBinder}
+     * @param headerUpdateSql the header <code>UPDATE</code> SQL
+     * @param headerUpdate the header <code>UPDATE</code> {@link StatementBinder}
+     * @param lineDeleteSql the line <code>DELETE</code> SQL
+     * @param lineDelete the line <code>DELETE</code> {@link StatementBinder}
+     * @param lineInsertSql the line <code>INSERT</code> SQL
+     * @param lineInsert the line <code>INSERT</code> {@link StatementBinder}
+     */
+    RecordWriter(
+        String headerInsertSql,
+        StatementBinder<R> headerInsert,
+        String headerUpdateSql,
+        StatementBinder<R> headerUpdate,
+        String lineDeleteSql,
+        StatementBinder<R> lineDelete,
+        String lineInsertSql,
+        StatementBinder<R> lineInsert) {
+      this.headerInsertSql = headerInsertSql;
+      this.headerInsert = headerInsert;
+      this.headerUpdateSql = headerUpdateSql;
+      this.headerUpdate = headerUpdate;
+      this.lineDeleteSql = lineDeleteSql;
+      this.lineDelete = lineDelete;
+      this.lineInsertSql = lineInsertSql;
+      this.lineInsert = lineInsert;
+    }
+
+    /**
+     * Constructs a new {@link RecordWriter} for a record type without lines.
+     *
+     * @param headerInsertSql the header <code>INSERT</code> SQL
+     * @param headerInsert the header <code>INSERT</code> {@link StatementBinder}
+     * @param headerUpdateSql the header <code>UPDATE</code> SQL
+     * @param headerUpdate the header <code>UPDATE</code> {@link StatementBinder}
+     */
+    RecordWriter(
+        String headerInsertSql,
+        StatementBinder<R> headerInsert,
+        String headerUpdateSql,
+        StatementBinder<R> headerUpdate) {
+      this(headerInsertSql, headerInsert, headerUpdateSql, headerUpdate, null, null, null, null);
+    }
+  }
+}
@@ -20,6 +20,20 @@ public final class LoadAppOptions implements Serializable {
   public static final int DEFAULT_LOADER_THREADS =
       Math.max(1, (Runtime.getRuntime().availableProcessors() - 1)) * 2;
 
+  /**
+   * The default value for {@link #getRecordBatchSize()}. Note that larger batch sizes mean that
+   * more records will be held in memory simultaneously.
+   */
+  public static final int DEFAULT_RECORD_BATCH_SIZE = 100;
+
+  /**
+   * The default value for {@link #getJdbcBatchSize()}. Most recommendations suggest this should be
+   * 5-30 for Hibernate. Paradoxically, setting it higher there seems to actually slow things down.
+   * Presumably, it's delaying work that could be done earlier in a batch, and that starts to cost
+   * more than the extra network roundtrips.
+   */
+  public static final int DEFAULT_JDBC_BATCH_SIZE = 10;
+
   private final int hicnHashIterations;
   private final byte[] hicnHashPepper;
   private final String databaseUrl;
@@ -30,9 +44,20 @@ public final class LoadAppOptions implements Serializable {
   private final boolean idempotencyRequired;
   private final boolean fixupsEnabled;
   private final int fixupThreads;
+  private final LoadMode loadMode;
+  private final int recordBatchSize;
+  private final int jdbcBatchSize;
+  private final int adaptiveLoaderThreadsMin;
+  private final boolean beneficiaryShardingEnabled;
+  private final boolean loadCheckpointsEnabled;
+  private final boolean loadedBatchesTextEnabled;
+  private final int batchTransactionTargetMillis;
+  private final long maxInFlightBytes;
+  private final RunMode runMode;
 
   /**
-   * Constructs a new {@link LoadAppOptions} instance.
+   * Constructs a new {@link LoadAppOptions} instance, with the defaults from {@link Builder} for
+   * all of the other options.
    *
    * @param hicnHashIterations the value to use for {@link #getHicnHashIterations()}
    * @param hicnHashPepper the value to use for {@link #getHicnHashPepper()}
@@ -54,22 +79,19 @@ public final class LoadAppOptions implements Serializable {
       boolean idempotencyRequired,
       boolean fixupsEnabled,
       int fixupThreads) {
-    if (loaderThreads < 1) throw new IllegalArgumentException();
-
-    this.hicnHashIterations = hicnHashIterations;
-    this.hicnHashPepper = hicnHashPepper;
-    this.databaseUrl = databaseUrl;
-    this.databaseUsername = databaseUsername;
-    this.databasePassword = databasePassword;
-    this.databaseDataSource = null;
-    this.loaderThreads = loaderThreads;
-    this.idempotencyRequired = idempotencyRequired;
-    this.fixupsEnabled = fixupsEnabled;
-    this.fixupThreads = fixupThreads;
+    this(
+        new Builder()
+            .hicnHash(hicnHashIterations, hicnHashPepper)
+            .databaseUrl(databaseUrl, databaseUsername, databasePassword)
+            .loaderThreads(loaderThreads)
+            .idempotencyRequired(idempotencyRequired)
+            .fixupsEnabled(fixupsEnabled)
+            .fixupThreads(fixupThreads));
   }
 
   /**
-   * Constructs a new {@link LoadAppOptions} instance.
+   * Constructs a new {@link LoadAppOptions} instance, with the defaults from {@link Builder} for
+   * all of the other options.
    *
    * @param hicnHashIterations the value to use for {@link #getHicnHashIterations()}
    * @param hicnHashPepper the value to use for {@link #getHicnHashPepper()}
@@ -87,18 +109,82 @@ public final class LoadAppOptions implements Serializable {
       boolean idempotencyRequired,
       boolean fixupsEnabled,
       int fixupThreads) {
-    if (loaderThreads < 1) throw new IllegalArgumentException();
+    this(
+        new Builder()
+            .hicnHash(hicnHashIterations, hicnHashPepper)
+            .databaseDataSource(databaseDataSource)
+            .loaderThreads(loaderThreads)
+            .idempotencyRequired(idempotencyRequired)
+            .fixupsEnabled(fixupsEnabled)
+            .fixupThreads(fixupThreads));
+  }
+
+  /**
+   * Constructs a new {@link LoadAppOptions} instance from the specified {@link Builder}.
+   *
+   * @param builder the {@link Builder} to copy all of the option values from
+   */
+  private LoadAppOptions(Builder builder) {
+    if (builder.loaderThreads < 1) throw new IllegalArgumentException();
+    if (builder.loadMode == null) throw new IllegalArgumentException();
+    if (builder.runMode == null) throw new IllegalArgumentException();
+    if (builder.recordBatchSize < 1) throw new IllegalArgumentException();
+    if (builder.jdbcBatchSize < 1) throw new IllegalArgumentException();
+    if (builder.adaptiveLoaderThreadsMin < 0
+        || builder.adaptiveLoaderThreadsMin > builder.loaderThreads)
+      throw new IllegalArgumentException();
+    if (builder.batchTransactionTargetMillis < 0) throw new IllegalArgumentException();
+    if (builder.maxInFlightBytes < 0) throw new IllegalArgumentException();
 
-    this.hicnHashIterations = hicnHashIterations;
-    this.hicnHashPepper = hicnHashPepper;
-    this.databaseUrl = null;
-    this.databaseUsername = null;
-    this.databasePassword = null;
-    this.databaseDataSource = databaseDataSource;
-    this.loaderThreads = loaderThreads;
-    this.idempotencyRequired = idempotencyRequired;
-    this.fixupsEnabled = fixupsEnabled;
-    this.fixupThreads = fixupThreads;
+    this.hicnHashIterations = builder.hicnHashIterations;
+    this.hicnHashPepper = builder.hicnHashPepper;
+    this.databaseUrl = builder.databaseUrl;
+    this.databaseUsername = builder.databaseUsername;
+    this.databasePassword = builder.databasePassword;
+    this.databaseDataSource = builder.databaseDataSource;
+    this.loaderThreads = builder.loaderThreads;
+    this.idempotencyRequired = builder.idempotencyRequired;
+    this.fixupsEnabled = builder.fixupsEnabled;
+    this.fixupThreads = builder.fixupThreads;
+    this.loadMode = builder.loadMode;
+    this.recordBatchSize = builder.recordBatchSize;
+    this.jdbcBatchSize = builder.jdbcBatchSize;
+    this.adaptiveLoaderThreadsMin = builder.adaptiveLoaderThreadsMin;
+    this.beneficiaryShardingEnabled = builder.beneficiaryShardingEnabled;
+    this.loadCheckpointsEnabled = builder.loadCheckpointsEnabled;
+    this.loadedBatchesTextEnabled = builder.loadedBatchesTextEnabled;
+    this.batchTransactionTargetMillis = builder.batchTransactionTargetMillis;
+    this.maxInFlightBytes = builder.maxInFlightBytes;
+    this.runMode = builder.runMode;
+  }
+
+  /**
+   * @return a new {@link Builder} that starts out with all of this {@link LoadAppOptions}' values,
+   *     e.g. so that a copy with just a few options changed can be built
+   */
+  public Builder toBuilder() {
+    Builder builder = new Builder();
+    builder.hicnHashIterations = hicnHashIterations;
+    builder.hicnHashPepper = hicnHashPepper;
+    builder.databaseUrl = databaseUrl;
+    builder.databaseUsername = databaseUsername;
+    builder.databasePassword = databasePassword;
+    builder.databaseDataSource = databaseDataSource;
+    builder.loaderThreads = loaderThreads;
+    builder.idempotencyRequired = idempotencyRequired;
+    builder.fixupsEnabled = fixupsEnabled;
+    builder.fixupThreads = fixupThreads;
+    builder.loadMode = loadMode;
+    builder.recordBatchSize = recordBatchSize;
+    builder.jdbcBatchSize = jdbcBatchSize;
+    builder.adaptiveLoaderThreadsMin = adaptiveLoaderThreadsMin;
+    builder.beneficiaryShardingEnabled = beneficiaryShardingEnabled;
+    builder.loadCheckpointsEnabled = loadCheckpointsEnabled;
+    builder.loadedBatchesTextEnabled = loadedBatchesTextEnabled;
+    builder.batchTransactionTargetMillis = batchTransactionTargetMillis;
+    builder.maxInFlightBytes = maxInFlightBytes;
+    builder.runMode = runMode;
+    return builder;
   }
 
   /**
@@ -187,6 +273,111 @@ public final class LoadAppOptions implements Serializable {
     return fixupThreads;
   }
 
+  /**
+   * @return the {@link LoadMode} that {@link RifLoader} should use to write records to the database
+   */
+  public LoadMode getLoadMode() {
+    return loadMode;
+  }
+
+  /**
+   * @return the maximum number of records that {@link RifLoader} will process together, in a single
+   *     database transaction
+   */
+  public int getRecordBatchSize() {
+    return recordBatchSize;
+  }
+
+  /**
+   * @return the maximum number of JDBC statements that will be queued up and sent to the database
+   *     together (i.e. the Hibernate <code>hibernate.jdbc.batch_size</code> and the {@link
+   *     LoadMode#JDBC_BATCH} batch size)
+   */
+  public int getJdbcBatchSize() {
+    return jdbcBatchSize;
+  }
+
+  /**
+   * @return the minimum number of record batches that {@link RifLoader} will load concurrently when
+   *     it's adapting its concurrency to the database's performance, with {@link
+   *     #getLoaderThreads()} as the maximum, or <code>0</code> if it should always use {@link
+   *     #getLoaderThreads()}
+   */
+  public int getAdaptiveLoaderThreadsMin() {
+    return adaptiveLoaderThreadsMin;
+  }
+
+  /** @return <code>true</code> if {@link #getAdaptiveLoaderThreadsMin()} is set */
+  public boolean isAdaptiveConcurrencyEnabled() {
+    return adaptiveLoaderThreadsMin > 0;
+  }
+
+  /**
+   * @return <code>true</code> if {@link RifLoader} should route each record to one of {@link
+   *     #getLoaderThreads()} workers by its beneficiary ID, which keeps each beneficiary's records
+   *     in order and lets repeated updates to the same beneficiary within a batch be collapsed into
+   *     a single write, <code>false</code> if records should be batched in file order and spread
+   *     across all workers
+   */
+  public boolean isBeneficiaryShardingEnabled() {
+    return beneficiaryShardingEnabled;
+  }
+
+  /**
+   * @return <code>true</code> if {@link RifLoader} should record a checkpoint for each file as its
+   *     batches are committed, so that a file which was interrupted part way through (e.g. by a
+   *     crash) can be resumed from that checkpoint, rather than started over, <code>false</code> if
+   *     not
+   */
+  public boolean isLoadCheckpointsEnabled() {
+    return loadCheckpointsEnabled;
+  }
+
+  /**
+   * @return <code>true</code> if {@link RifLoader} should also write the beneficiaries of each
+   *     {@link gov.cms.bfd.model.rif.LoadedBatch} as comma-separated text, even when they're stored
+   *     in {@link gov.cms.bfd.model.rif.LoadedBatch#getBeneficiariesEncoded()}, <code>false</code>
+   *     if not. This is only needed while server builds that predate the encoded form are still
+   *     deployed, and should be removed once they're gone.
+   */
+  public boolean isLoadedBatchesTextEnabled() {
+    return loadedBatchesTextEnabled;
+  }
+
+  /**
+   * @return how long (in milliseconds) {@link RifLoader} should aim for each record batch's
+   *     database transaction to take, with batches sized by their estimated payload (rather than
+   *     just their record count) and adjusted separately for each {@link
+   *     gov.cms.bfd.model.rif.RifFileType} to hit that target, or <code>0</code> if every batch
+   *     should simply be {@link #getRecordBatchSize()} records
+   */
+  public int getBatchTransactionTargetMillis() {
+    return batchTransactionTargetMillis;
+  }
+
+  /** @return <code>true</code> if {@link #getBatchTransactionTargetMillis()} is set */
+  public boolean isAdaptiveBatchingEnabled() {
+    return batchTransactionTargetMillis > 0;
+  }
+
+  /**
+   * @return the maximum estimated payload (in bytes) of all of the record batches that {@link
+   *     RifLoader} has queued up or is loading at once, across all files, beyond which it will
+   *     block the reading of further records, or <code>0</code> if only the number of queued
+   *     batches should be limited
+   */
+  public long getMaxInFlightBytes() {
+    return maxInFlightBytes;
+  }
+
+  /**
+   * @return the {@link RunMode} that {@link RifLoader} should run in, which is {@link RunMode#LOAD}
+   *     unless the pipeline's throughput is being measured
+   */
+  public RunMode getRunMode() {
+    return runMode;
+  }
+
   /** @see java.lang.Object#toString() */
   @Override
   public String toString() {
@@ -211,7 +402,312 @@ public final class LoadAppOptions implements Serializable {
     builder.append(fixupsEnabled);
     builder.append(", fixupThreads=");
     builder.append(fixupThreads);
+    builder.append(", loadMode=");
+    builder.append(loadMode);
+    builder.append(", recordBatchSize=");
+    builder.append(recordBatchSize);
+    builder.append(", jdbcBatchSize=");
+    builder.append(jdbcBatchSize);
+    builder.append(", adaptiveLoaderThreadsMin=");
+    builder.append(adaptiveLoaderThreadsMin);
+    builder.append(", beneficiaryShardingEnabled=");
+    builder.append(beneficiaryShardingEnabled);
+    builder.append(", loadCheckpointsEnabled=");
+    builder.append(loadCheckpointsEnabled);
+    builder.append(", loadedBatchesTextEnabled=");
+    builder.append(loadedBatchesTextEnabled);
+    builder.append(", batchTransactionTargetMillis=");
+    builder.append(batchTransactionTargetMillis);
+    builder.append(", maxInFlightBytes=");
+    builder.append(maxInFlightBytes);
+    builder.append(", runMode=");
+    builder.append(runMode);
     builder.append("]");
     return builder.toString();
   }
+
+  /**
+   * Builds {@link LoadAppOptions} instances. Every option starts out with a default that's suitable
+   * for a normal load, other than the database connection and the hashing parameters, which should
+   * always be specified. See the corresponding {@link LoadAppOptions} getters for what each option
+   * does.
+   */
+  public static final class Builder {
+    private int hicnHashIterations;
+    private byte[] hicnHashPepper;
+    private String databaseUrl;
+    private String databaseUsername;
+    private char[] databasePassword;
+    private DataSource databaseDataSource;
+    private int loaderThreads = DEFAULT_LOADER_THREADS;
+    private boolean idempotencyRequired = true;
+    private boolean fixupsEnabled = false;
+    private int fixupThreads = 1;
+    private LoadMode loadMode = LoadMode.JPA;
+    private int recordBatchSize = DEFAULT_RECORD_BATCH_SIZE;
+    private int jdbcBatchSize = DEFAULT_JDBC_BATCH_SIZE;
+    private int adaptiveLoaderThreadsMin = 0;
+    private boolean beneficiaryShardingEnabled = false;
+    private boolean loadCheckpointsEnabled = false;
+    private boolean loadedBatchesTextEnabled = false;
+    private int batchTransactionTargetMillis = 0;
+    private long maxInFlightBytes = 0L;
+    private RunMode runMode = RunMode.LOAD;
+
+    /**
+     * @param hicnHashIterations the value to use for {@link LoadAppOptions#getHicnHashIterations()}
+     * @param hicnHashPepper the value to use for {@link LoadAppOptions#getHicnHashPepper()}
+     * @return this {@link Builder}
+     */
+    public Builder hicnHash(int hicnHashIterations, byte[] hicnHashPepper) {
+      this.hicnHashIterations = hicnHashIterations;
+      this.hicnHashPepper = hicnHashPepper;
+      return this;
+    }
+
+    /**
+     * Sets the database to connect to by its JDBC URL, replacing any {@link
+     * #databaseDataSource(DataSource)} that was set.
+     *
+     * @param databaseUrl the value to use for {@link LoadAppOptions#getDatabaseUrl()}
+     * @param databaseUsername the value to use for {@link LoadAppOptions#getDatabaseUsername()}
+     * @param databasePassword the value to use for {@link LoadAppOptions#getDatabasePassword()}
+     * @return this {@link Builder}
+     */
+    public Builder databaseUrl(
+        String databaseUrl, String databaseUsername, char[] databasePassword) {
+      this.databaseUrl = databaseUrl;
+      this.databaseUsername = databaseUsername;
+      this.databasePassword = databasePassword;
+      this.databaseDataSource = null;
+      return this;
+    }
+
+    /**
+     * Sets the database to connect to via a {@link DataSource}, replacing any {@link
+     * #databaseUrl(String, String, char[])} that was set.
+     *
+     * @param databaseDataSource the value to use for {@link LoadAppOptions#getDatabaseDataSource()}
+     * @return this {@link Builder}
+     */
+    public Builder databaseDataSource(DataSource databaseDataSource) {
+      this.databaseUrl = null;
+      this.databaseUsername = null;
+      this.databasePassword = null;
+      this.databaseDataSource = databaseDataSource;
+      return this;
+    }
+
+    /**
+     * @param loaderThreads the value to use for {@link LoadAppOptions#getLoaderThreads()}
+     * @return this {@link Builder}
+     */
+    public Builder loaderThreads(int loaderThreads) {
+      this.loaderThreads = loaderThreads;
+      return this;
+    }
+
+    /**
+     * @param idempotencyRequired the value to use for {@link
+     *     LoadAppOptions#isIdempotencyRequired()}
+     * @return this {@link Builder}
+     */
+    public Builder idempotencyRequired(boolean idempotencyRequired) {
+      this.idempotencyRequired = idempotencyRequired;
+      return this;
+    }
+
+    /**
+     * @param fixupsEnabled the value to use for {@link LoadAppOptions#isFixupsEnabled()}
+     * @return this {@link Builder}
+     */
+    public Builder fixupsEnabled(boolean fixupsEnabled) {
+      this.fixupsEnabled = fixupsEnabled;
+      return this;
+    }
+
+    /**
+     * @param fixupThreads the value to use for {@link LoadAppOptions#getFixupThreads()}
+     * @return this {@link Builder}
+     */
+    public Builder fixupThreads(int fixupThreads) {
+      this.fixupThreads = fixupThreads;
+      return this;
+    }
+
+    /**
+     * @param loadMode the value to use for {@link LoadAppOptions#getLoadMode()}
+     * @return this {@link Builder}
+     */
+    public Builder loadMode(LoadMode loadMode) {
+      this.loadMode = loadMode;
+      return this;
+    }
+
+    /**
+     * @param recordBatchSize the value to use for {@link LoadAppOptions#getRecordBatchSize()}
+     * @return this {@link Builder}
+     */
+    public Builder recordBatchSize(int recordBatchSize) {
+      this.recordBatchSize = recordBatchSize;
+      return this;
+    }
+
+    /**
+     * @param jdbcBatchSize the value to use for {@link LoadAppOptions#getJdbcBatchSize()}
+     * @return this {@link Builder}
+     */
+    public Builder jdbcBatchSize(int jdbcBatchSize) {
+      this.jdbcBatchSize = jdbcBatchSize;
+      return this;
+    }
+
+    /**
+     * @param adaptiveLoaderThreadsMin the value to use for {@link
+     *     LoadAppOptions#getAdaptiveLoaderThreadsMin()}
+     * @return this {@link Builder}
+     */
+    public Builder adaptiveLoaderThreadsMin(int adaptiveLoaderThreadsMin) {
+      this.adaptiveLoaderThreadsMin = adaptiveLoaderThreadsMin;
+      return this;
+    }
+
+    /**
+     * @param beneficiaryShardingEnabled the value to use for {@link
+     *     LoadAppOptions#isBeneficiaryShardingEnabled()}
+     * @return this {@link Builder}
+     */
+    public Builder beneficiaryShardingEnabled(boolean beneficiaryShardingEnabled) {
+      this.beneficiaryShardingEnabled = beneficiaryShardingEnabled;
+      return this;
+    }
+
+    /**
+     * @param loadCheckpointsEnabled the value to use for {@link
+     *     LoadAppOptions#isLoadCheckpointsEnabled()}
+     * @return this {@link Builder}
+     */
+    public Builder loadCheckpointsEnabled(boolean loadCheckpointsEnabled) {
+      this.loadCheckpointsEnabled = loadCheckpointsEnabled;
+      return this;
+    }
+
+    /**
+     * @param loadedBatchesTextEnabled the value to use for {@link
+     *     LoadAppOptions#isLoadedBatchesTextEnabled()}
+     * @return this {@link Builder}
+     */
+    public Builder loadedBatchesTextEnabled(boolean loadedBatchesTextEnabled) {
+      this.loadedBatchesTextEnabled = loadedBatchesTextEnabled;
+      return this;
+    }
+
+    /**
+     * @param batchTransactionTargetMillis the value to use for {@link
+     *     LoadAppOptions#getBatchTransactionTargetMillis()}
+     * @return this {@link Builder}
+     */
+    public Builder batchTransactionTargetMillis(int batchTransactionTargetMillis) {
+      this.batchTransactionTargetMillis = batchTransactionTargetMillis;
+      return this;
+    }
+
+    /**
+     * @param maxInFlightBytes the value to use for {@link LoadAppOptions#getMaxInFlightBytes()}
+     * @return this {@link Builder}
+     */
+    public Builder maxInFlightBytes(long maxInFlightBytes) {
+      this.maxInFlightBytes = maxInFlightBytes;
+      return this;
+    }
+
+    /**
+     * @param runMode the value to use for {@link LoadAppOptions#getRunMode()}
+     * @return this {@link Builder}
+     */
+    public Builder runMode(RunMode runMode) {
+      this.runMode = runMode;
+      return this;
+    }
+
+    /**
+     * @return a new {@link LoadAppOptions} with the values that have been set
+     * @throws IllegalArgumentException An {@link IllegalArgumentException} will be thrown if any of
+     *     the values are invalid.
+     */
+    public LoadAppOptions build() {
+      return new LoadAppOptions(this);
+    }
+  }
+
+  /** Enumerates the mechanisms that {@link RifLoader} can use to write records to the database. */
+  public static enum LoadMode {
+    /** All records are written via JPA/Hibernate. This is supported by all databases. */
+    JPA,
+
+    /**
+     * Non-idempotent <code>INSERT</code>s are streamed into PostgreSQL via text CSV <code>COPY
+     * </code> operations; everything else is written via JPA/Hibernate. Falls back to {@link #JPA}
+     * for other databases.
+     */
+    POSTGRESQL_COPY_CSV,
+
+    /**
+     * Non-idempotent <code>INSERT</code>s are streamed into PostgreSQL via binary <code>COPY
+     * </code> operations; everything else is written via JPA/Hibernate. Falls back to {@link #JPA}
+     * for other databases.
+     */
+    POSTGRESQL_COPY_BINARY,
+
+    /**
+     * All records are written via the generated <code>*JdbcWriter</code> classes, as batched JDBC
+     * {@link java.sql.PreparedStatement}s that bypass Hibernate. Beneficiary history tracking and
+     * {@link gov.cms.bfd.model.rif.LoadedBatch}es are still handled via JPA/Hibernate. This is
+     * supported by all databases, though for PostgreSQL it additionally enables the driver's <code>
+     * reWriteBatchedInserts</code> option (when connecting via a JDBC URL).
+     */
+    JDBC_BATCH,
+
+    /**
+     * Non-idempotent <code>INSERT</code>s are handled as for {@link #POSTGRESQL_COPY_BINARY}, while
+     * <code>UPDATE</code>s of single-table records (e.g. beneficiaries) are binary <code>COPY
+     * </code>ed into temporary staging tables and then merged in with a few set-based statements,
+     * including their beneficiary history tracking; see {@link PostgreSqlStagedMerger}. Everything
+     * else is written via JPA/Hibernate. Falls back to {@link #JPA} for other databases.
+     */
+    POSTGRESQL_STAGED_MERGE;
+  }
+
+  /**
+   * Enumerates how far {@link RifLoader} takes each record. Every mode other than {@link #LOAD} is
+   * for measuring the throughput of the pipeline's earlier stages on their own: nothing is written
+   * to (or even read from) the database, and the records are discarded once they've made it as far
+   * as the mode goes. Data sets are left pending afterwards, rather than being marked as processed,
+   * so that they'll still be loaded once the application is restarted in {@link #LOAD} mode.
+   */
+  public static enum RunMode {
+    /** Records are loaded into the database, as normal. */
+    LOAD,
+
+    /** Records are parsed and then immediately discarded, without even being batched up. */
+    PARSE_ONLY,
+
+    /**
+     * Records are parsed, batched up, and have their beneficiary identifiers hashed (for the file
+     * types that need it), on the same threads as usual, and are then discarded.
+     */
+    HASH_ONLY,
+
+    /**
+     * Records go through the full loader path (batching, hashing, queueing, the in-flight byte
+     * budget and adaptive concurrency, and result handling), except that each batch's database
+     * transaction is replaced with a no-op.
+     */
+    NULL_SINK;
+
+    /** @return <code>true</code> if records are loaded into the database in this mode */
+    public boolean isDatabaseRequired() {
+      return this == LOAD;
+    }
+  }
 }
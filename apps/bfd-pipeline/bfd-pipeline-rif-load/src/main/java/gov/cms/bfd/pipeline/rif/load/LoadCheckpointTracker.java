@@ -0,0 +1,116 @@
+package gov.cms.bfd.pipeline.rif.load;
+
+import gov.cms.bfd.model.rif.LoadedFile;
+import gov.cms.bfd.model.rif.RifFilePosition;
+import gov.cms.bfd.model.rif.RifRecordEvent;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks which of a file's records have been handed out for loading and which have been committed,
+ * so that {@link RifLoader} can durably record a checkpoint for the file: the position of the first
+ * record that might not have been committed yet. Batches can commit out of order (they're loaded
+ * concurrently), so that's the lowest-numbered record that was handed out but isn't committed yet,
+ * or (if there are none) the last record that was handed out.
+ *
+ * <p>Records after the checkpoint may have been committed already, too. When loading is resumed,
+ * those are found via their {@link gov.cms.bfd.model.rif.LoadedBatch#getRecordNumbers()} and passed
+ * in as {@link #LoadCheckpointTracker(RifFilePosition, Set)}'s already-committed records, which
+ * will then be skipped.
+ *
+ * <p>This class is thread-safe.
+ */
+final class LoadCheckpointTracker {
+  /** The minimum time between the checkpoints returned by {@link #markCommitted(List)}. */
+  static final long CHECKPOINT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+  private final Set<Long> alreadyCommitted;
+  private final TreeMap<Long, RifFilePosition> outstanding;
+  private RifFilePosition lastDispatched;
+  private RifFilePosition lastCheckpoint;
+  private long lastCheckpointNanos;
+
+  /**
+   * Constructs a new {@link LoadCheckpointTracker}.
+   *
+   * @param start the {@link RifFilePosition} that loading is starting (or resuming) from
+   * @param alreadyCommitted the {@link RifFilePosition#getRecordNumber()}s of the records after the
+   *     specified start that were committed by an earlier attempt to load the file
+   */
+  LoadCheckpointTracker(RifFilePosition start, Set<Long> alreadyCommitted) {
+    this.alreadyCommitted = alreadyCommitted;
+    this.outstanding = new TreeMap<>();
+    this.lastDispatched = start;
+    this.lastCheckpoint = start;
+    this.lastCheckpointNanos = System.nanoTime();
+  }
+
+  /**
+   * @param recordEvent the {@link RifRecordEvent} to check
+   * @return <code>true</code> if the specified {@link RifRecordEvent} was committed by an earlier
+   *     attempt to load the file, and so should be skipped, <code>false</code> if it should be
+   *     loaded
+   */
+  boolean isAlreadyCommitted(RifRecordEvent<?> recordEvent) {
+    Optional<RifFilePosition> position = recordEvent.getPosition();
+    return position.isPresent() && alreadyCommitted.contains(position.get().getRecordNumber());
+  }
+
+  /**
+   * Records that the specified {@link RifRecordEvent} has been handed out to be loaded (or
+   * skipped). Must be called in file order.
+   *
+   * @param recordEvent the {@link RifRecordEvent} that is being handed out
+   * @param willLoad <code>true</code> if the record will be loaded (and {@link #markCommitted(List)}
+   *     will be called for it once it's committed), <code>false</code> if it's being skipped
+   */
+  synchronized void markDispatched(RifRecordEvent<?> recordEvent, boolean willLoad) {
+    if (!recordEvent.getPosition().isPresent()) return;
+
+    RifFilePosition position = recordEvent.getPosition().get();
+    if (willLoad) outstanding.put(position.getRecordNumber(), position);
+    lastDispatched = position;
+  }
+
+  /**
+   * Records that the specified {@link RifRecordEvent}s have been committed.
+   *
+   * @param recordsBatch the {@link RifRecordEvent}s that were just committed
+   * @return the new checkpoint, which should be saved to the {@link LoadedFile}, or {@link
+   *     Optional#empty()} if it hasn't moved or was saved too recently (see {@link
+   *     #CHECKPOINT_INTERVAL_NANOS})
+   */
+  Optional<RifFilePosition> markCommitted(List<RifRecordEvent<?>> recordsBatch) {
+    long now = System.nanoTime();
+    synchronized (this) {
+      for (RifRecordEvent<?> recordEvent : recordsBatch)
+        if (recordEvent.getPosition().isPresent())
+          outstanding.remove(recordEvent.getPosition().get().getRecordNumber());
+
+      if (now - lastCheckpointNanos < CHECKPOINT_INTERVAL_NANOS) return Optional.empty();
+
+      RifFilePosition checkpoint = getCheckpoint();
+      if (checkpoint.getRecordNumber() <= lastCheckpoint.getRecordNumber()) return Optional.empty();
+
+      lastCheckpoint = checkpoint;
+      lastCheckpointNanos = now;
+      return Optional.of(checkpoint);
+    }
+  }
+
+  /**
+   * @return the position of the first record that might not have been committed yet, which is
+   *     where loading should resume from
+   */
+  synchronized RifFilePosition getCheckpoint() {
+    return outstanding.isEmpty() ? lastDispatched : outstanding.firstEntry().getValue();
+  }
+
+  /** @return <code>true</code> if every record that was handed out to be loaded was committed */
+  synchronized boolean isAllCommitted() {
+    return outstanding.isEmpty();
+  }
+}
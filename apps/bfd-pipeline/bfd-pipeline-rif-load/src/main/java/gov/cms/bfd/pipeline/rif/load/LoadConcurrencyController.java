@@ -0,0 +1,176 @@
+package gov.cms.bfd.pipeline.rif.load;
+
+import com.codahale.metrics.MetricRegistry;
+import java.util.function.IntConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Limits the number of record batches that {@link RifLoader} will load concurrently, adjusting that
+ * limit at runtime via an AIMD (additive increase, multiplicative decrease) controller.
+ *
+ * <p>The controller works in windows of completed batches. At the end of each window, it treats the
+ * database as congested if any batch in the window failed, if the batches spent a significant
+ * fraction of their time waiting for a database connection, or if the average batch latency rose
+ * well above the best recently seen. When congested, the limit is cut by {@link #DECREASE_FACTOR};
+ * otherwise, if the limit was actually reached during the window, it's raised by one. The limit is
+ * always kept between the configured floor and ceiling.
+ *
+ * <p>The "best recently seen" latency is allowed to drift upwards slowly, so that the controller
+ * will settle at a new level as the database's tables (and thus its latencies) grow, rather than
+ * ratcheting all the way down to the floor.
+ *
+ * <p>This class is thread-safe.
+ */
+final class LoadConcurrencyController {
+  private static final Logger LOGGER = LoggerFactory.getLogger(LoadConcurrencyController.class);
+
+  /** The factor that the limit is multiplied by when congestion is detected. */
+  static final double DECREASE_FACTOR = 0.75;
+
+  /**
+   * How much higher than the baseline latency a window's average batch latency can be before it's
+   * considered a sign of congestion.
+   */
+  static final double LATENCY_TOLERANCE = 2.0;
+
+  /**
+   * The fraction of batch time that can be spent waiting for a database connection before it's
+   * considered a sign of congestion.
+   */
+  static final double CONNECTION_WAIT_TOLERANCE = 0.1;
+
+  /** How much the baseline latency is allowed to rise after each window. */
+  private static final double BASELINE_DRIFT = 1.05;
+
+  /** The minimum number of batches in each window, which keeps the decisions from being noisy. */
+  private static final int MIN_WINDOW_BATCHES = 10;
+
+  private final int floor;
+  private final int ceiling;
+  private final MetricRegistry appMetrics;
+  private final IntConsumer limitListener;
+
+  private int limit;
+  private int inFlight;
+  private double baselineLatencyNanos;
+
+  private int windowBatches;
+  private int windowErrors;
+  private long windowLatencyNanos;
+  private long windowConnectionWaitNanos;
+  private boolean windowSaturated;
+
+  /**
+   * Constructs a new {@link LoadConcurrencyController}, which will start at its ceiling.
+   *
+   * @param floor the minimum concurrency limit
+   * @param ceiling the maximum concurrency limit
+   * @param appMetrics the {@link MetricRegistry} to record the controller's decisions in
+   * @param limitListener the {@link IntConsumer} to pass the new limit to, whenever it changes
+   */
+  LoadConcurrencyController(
+      int floor, int ceiling, MetricRegistry appMetrics, IntConsumer limitListener) {
+    if (floor < 1) throw new IllegalArgumentException();
+    if (ceiling < floor) throw new IllegalArgumentException();
+
+    this.floor = floor;
+    this.ceiling = ceiling;
+    this.appMetrics = appMetrics;
+    this.limitListener = limitListener;
+    this.limit = ceiling;
+    this.baselineLatencyNanos = Double.NaN;
+  }
+
+  /** @return the current concurrency limit */
+  synchronized int getLimit() {
+    return limit;
+  }
+
+  /**
+   * Blocks until another batch can be loaded without exceeding the current limit. Every successful
+   * call must be paired with a call to {@link #release(long, boolean)}.
+   *
+   * @throws InterruptedException An {@link InterruptedException} will be thrown if the calling
+   *     thread is interrupted while waiting.
+   */
+  synchronized void acquire() throws InterruptedException {
+    while (inFlight >= limit) wait();
+
+    inFlight++;
+    if (inFlight >= limit) windowSaturated = true;
+  }
+
+  /**
+   * @param connectionWaitNanos how long (in nanoseconds) a batch had to wait for a database
+   *     connection
+   */
+  synchronized void recordConnectionWait(long connectionWaitNanos) {
+    windowConnectionWaitNanos += connectionWaitNanos;
+  }
+
+  /**
+   * Records that a batch (started via {@link #acquire()}) has completed, and adjusts the limit if
+   * that completes a window.
+   *
+   * @param latencyNanos how long (in nanoseconds) the batch took to load
+   * @param failed <code>true</code> if the batch failed to load, <code>false</code> if it succeeded
+   */
+  synchronized void release(long latencyNanos, boolean failed) {
+    inFlight--;
+    windowBatches++;
+    windowLatencyNanos += latencyNanos;
+    if (failed) windowErrors++;
+
+    if (windowBatches >= Math.max(MIN_WINDOW_BATCHES, limit)) adjustLimit();
+    notifyAll();
+  }
+
+  /** Ends the current window, adjusting the limit according to what was observed during it. */
+  private void adjustLimit() {
+    double averageLatencyNanos = (double) windowLatencyNanos / windowBatches;
+    boolean congested =
+        windowErrors > 0
+            || windowConnectionWaitNanos > CONNECTION_WAIT_TOLERANCE * windowLatencyNanos
+            || averageLatencyNanos > LATENCY_TOLERANCE * baselineLatencyNanos;
+    baselineLatencyNanos =
+        Double.isNaN(baselineLatencyNanos)
+            ? averageLatencyNanos
+            : Math.min(averageLatencyNanos, baselineLatencyNanos * BASELINE_DRIFT);
+
+    int newLimit = limit;
+    if (congested) newLimit = Math.max(floor, (int) (limit * DECREASE_FACTOR));
+    else if (windowSaturated) newLimit = Math.min(ceiling, limit + 1);
+
+    if (newLimit < limit)
+      appMetrics
+          .meter(MetricRegistry.name(RifLoader.class.getSimpleName(), "concurrency", "decreased"))
+          .mark();
+    else if (newLimit > limit)
+      appMetrics
+          .meter(MetricRegistry.name(RifLoader.class.getSimpleName(), "concurrency", "increased"))
+          .mark();
+    appMetrics
+        .histogram(MetricRegistry.name(RifLoader.class.getSimpleName(), "concurrency", "limit"))
+        .update(newLimit);
+
+    if (newLimit != limit) {
+      LOGGER.debug(
+          "Concurrency limit changed from '{}' to '{}' (errors: '{}', average latency: '{}' ms,"
+              + " connection wait: '{}' ms).",
+          limit,
+          newLimit,
+          windowErrors,
+          (long) (averageLatencyNanos / 1_000_000),
+          windowConnectionWaitNanos / 1_000_000);
+      limit = newLimit;
+      limitListener.accept(newLimit);
+    }
+
+    windowBatches = 0;
+    windowErrors = 0;
+    windowLatencyNanos = 0;
+    windowConnectionWaitNanos = 0;
+    windowSaturated = inFlight >= limit;
+  }
+}
@@ -0,0 +1,257 @@
+package gov.cms.bfd.pipeline.rif.load;
+
+import com.codahale.metrics.MetricRegistry;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Manages the long-lived {@link LoaderSession}s that {@link RifLoader}'s load tasks use, so that
+ * each record batch doesn't have to pay for a new {@link EntityManager}, a pool checkout, and
+ * re-preparing all of its statements.
+ *
+ * <p>Each {@link LoaderSession} holds onto a single JDBC {@link Connection} for its whole life.
+ * Sessions are handed out most-recently-used first, and:
+ *
+ * <ul>
+ *   <li>are validated before being reused, if they've sat idle for a while,
+ *   <li>are retired once they reach {@link #MAX_SESSION_AGE_MILLIS}, so that the connection pool's
+ *       own lifetime limits still (eventually) apply,
+ *   <li>must be {@link #discard(LoaderSession)}ed rather than {@link #release(LoaderSession)}d
+ *       after any failure, so that the next batch gets a fresh connection, and
+ *   <li>are closed when they'd put the pool over its maximum size (e.g. after the adaptive
+ *       concurrency limit drops), or when {@link #closeIdle()} is called.
+ * </ul>
+ *
+ * <p>This class is thread-safe, though each {@link LoaderSession} must only be used by one thread
+ * at a time.
+ */
+final class LoaderSessionPool implements AutoCloseable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(LoaderSessionPool.class);
+
+  /** How long a session can sit idle before it has to be validated before being reused. */
+  static final long VALIDATION_IDLE_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+  /** How long a session can be used for before it's retired. */
+  static final long MAX_SESSION_AGE_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+  private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+  private final MetricRegistry appMetrics;
+  private final DataSource dataSource;
+  private final SessionFactory sessionFactory;
+  private final int jdbcBatchSize;
+  private final IntSupplier maxSessions;
+  private final ConcurrentLinkedDeque<LoaderSession> idleSessions;
+  private final AtomicInteger openSessions;
+  private volatile boolean closed;
+
+  /**
+   * Constructs a new {@link LoaderSessionPool}.
+   *
+   * @param appMetrics the {@link MetricRegistry} for the overall application
+   * @param dataSource the {@link DataSource} to get each session's {@link Connection} from
+   * @param sessionFactory the {@link SessionFactory} to open each session's {@link Session} with
+   * @param jdbcBatchSize the value to use for each session's {@link LoaderSession#getJdbcWriter()}
+   * @param maxSessions supplies the maximum number of sessions that should be kept open
+   */
+  LoaderSessionPool(
+      MetricRegistry appMetrics,
+      DataSource dataSource,
+      SessionFactory sessionFactory,
+      int jdbcBatchSize,
+      IntSupplier maxSessions) {
+    this.appMetrics = appMetrics;
+    this.dataSource = dataSource;
+    this.sessionFactory = sessionFactory;
+    this.jdbcBatchSize = jdbcBatchSize;
+    this.maxSessions = maxSessions;
+    this.idleSessions = new ConcurrentLinkedDeque<>();
+    this.openSessions = new AtomicInteger(0);
+  }
+
+  /**
+   * @return a healthy {@link LoaderSession}, which must be passed to either {@link
+   *     #release(LoaderSession)} or {@link #discard(LoaderSession)} once the caller is done with it
+   * @throws SQLException Any {@link SQLException}s encountered while opening a new session will be
+   *     bubbled up.
+   */
+  LoaderSession borrow() throws SQLException {
+    if (closed) throw new IllegalStateException("Pool has been closed.");
+
+    LoaderSession session;
+    while ((session = idleSessions.pollFirst()) != null) {
+      if (session.isHealthy()) return session;
+
+      LOGGER.debug("Discarding unhealthy session.");
+      discard(session);
+    }
+
+    Connection connection = dataSource.getConnection();
+    try {
+      session = new LoaderSession(connection, openSession(connection), jdbcBatchSize);
+    } catch (RuntimeException e) {
+      connection.close();
+      throw e;
+    }
+    openSessions.incrementAndGet();
+    appMetrics
+        .meter(MetricRegistry.name(RifLoader.class.getSimpleName(), "sessions", "opened"))
+        .mark();
+    return session;
+  }
+
+  /**
+   * @param connection the JDBC {@link Connection} that the new {@link Session} should use
+   * @return a new {@link Session}, configured the same way as {@link
+   *     javax.persistence.EntityManagerFactory#createEntityManager()} would, except that it uses
+   *     (but won't close) the specified {@link Connection}
+   */
+  private Session openSession(Connection connection) {
+    return sessionFactory
+        .withOptions()
+        .autoJoinTransactions(true)
+        .connection(connection)
+        .openSession();
+  }
+
+  /**
+   * Returns the specified {@link LoaderSession}, which was used successfully, so that it can be
+   * reused.
+   *
+   * @param session the {@link LoaderSession} to return
+   */
+  void release(LoaderSession session) {
+    if (closed || session.isExpired() || openSessions.get() > maxSessions.getAsInt()) {
+      discard(session);
+      return;
+    }
+
+    session.reset();
+    idleSessions.offerFirst(session);
+  }
+
+  /**
+   * Closes the specified {@link LoaderSession}, which should be done instead of {@link
+   * #release(LoaderSession)} if it might be in a bad state, e.g. after any failure.
+   *
+   * @param session the {@link LoaderSession} to close
+   */
+  void discard(LoaderSession session) {
+    openSessions.decrementAndGet();
+    session.close();
+    appMetrics
+        .meter(MetricRegistry.name(RifLoader.class.getSimpleName(), "sessions", "closed"))
+        .mark();
+  }
+
+  /**
+   * Closes all of the currently-idle {@link LoaderSession}s, releasing their {@link Connection}s
+   * back to the connection pool, e.g. so that other tasks can use them while no loads are running.
+   */
+  void closeIdle() {
+    LoaderSession session;
+    while ((session = idleSessions.pollFirst()) != null) discard(session);
+  }
+
+  /** @see java.lang.AutoCloseable#close() */
+  @Override
+  public void close() {
+    closed = true;
+    closeIdle();
+  }
+
+  /**
+   * A long-lived {@link Session} and its JDBC {@link Connection}, along with the other per-session
+   * state that {@link RifLoader} keeps across batches. Not thread-safe.
+   */
+  static final class LoaderSession {
+    private final Connection connection;
+    private final Session session;
+    private final JdbcBatchWriter jdbcWriter;
+    private final long createdMillis;
+    private long lastUsedMillis;
+
+    /**
+     * Constructs a new {@link LoaderSession}.
+     *
+     * @param connection the value to use for {@link #connection}
+     * @param session the value to use for {@link #getEntityManager()}
+     * @param jdbcBatchSize the JDBC batch size to use for {@link #getJdbcWriter()}
+     */
+    private LoaderSession(Connection connection, Session session, int jdbcBatchSize) {
+      this.connection = connection;
+      this.session = session;
+      this.jdbcWriter = new JdbcBatchWriter(jdbcBatchSize);
+      this.createdMillis = System.currentTimeMillis();
+      this.lastUsedMillis = createdMillis;
+    }
+
+    /** @return the {@link EntityManager} for this session */
+    EntityManager getEntityManager() {
+      return session;
+    }
+
+    /**
+     * @return the {@link JdbcBatchWriter} for this session, which caches its prepared statements
+     *     across batches
+     */
+    JdbcBatchWriter getJdbcWriter() {
+      return jdbcWriter;
+    }
+
+    /**
+     * @return <code>true</code> if this session can be reused, <code>false</code> if it should be
+     *     discarded
+     */
+    private boolean isHealthy() {
+      if (isExpired()) return false;
+      if (System.currentTimeMillis() - lastUsedMillis < VALIDATION_IDLE_MILLIS) return true;
+
+      try {
+        return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+      } catch (SQLException e) {
+        return false;
+      }
+    }
+
+    /** @return <code>true</code> if this session has reached its maximum age */
+    private boolean isExpired() {
+      return System.currentTimeMillis() - createdMillis >= MAX_SESSION_AGE_MILLIS;
+    }
+
+    /** Clears out this session's state from the last batch, so that it's ready for the next. */
+    private void reset() {
+      session.clear();
+      lastUsedMillis = System.currentTimeMillis();
+    }
+
+    /** Closes this session, and returns its {@link Connection} to the connection pool. */
+    private void close() {
+      try {
+        jdbcWriter.close();
+      } catch (SQLException e) {
+        LOGGER.debug("Unable to close cached statements.", e);
+      }
+      try {
+        session.close();
+      } catch (RuntimeException e) {
+        LOGGER.debug("Unable to close session.", e);
+      }
+      try {
+        connection.close();
+      } catch (SQLException e) {
+        LOGGER.warn("Unable to close connection.", e);
+      }
+    }
+  }
+}
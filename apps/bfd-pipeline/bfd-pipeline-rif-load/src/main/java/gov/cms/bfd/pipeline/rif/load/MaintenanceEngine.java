@@ -0,0 +1,551 @@
+package gov.cms.bfd.pipeline.rif.load;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Query;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs {@link MaintenanceJob}s against the database, in time slices, on behalf of {@link
+ * RifLoaderIdleTasks}.
+ *
+ * <p>Each job's table is split into {@link KeyRange}s of its primary key, which are walked in key
+ * order with keyset (i.e. <code>where key &gt; :lastKey order by key</code>) queries, a batch of
+ * {@link #BATCH_SIZE} rows at a time, each in its own transaction. The rows that need updating are
+ * then all updated with a single <code>UPDATE ... FROM (VALUES ...)</code> statement. Every batch
+ * only reads the next few index entries, so a whole job costs about one pass over its table, no
+ * matter how many batches or time slices it takes.
+ *
+ * <p>The ranges and how far each has gotten are stored in the <code>MaintenanceJobRanges</code>
+ * table, which is updated in each batch's transaction. Jobs therefore resume right where they left
+ * off, across both time slices and pipeline restarts, and completed jobs are never re-run (unless
+ * their rows are deleted or the job is renamed).
+ *
+ * <p>Like the fixups that it replaced, this relies on multi-row <code>VALUES</code> lists, and so
+ * only works with PostgreSQL, not HSQL.
+ */
+final class MaintenanceEngine {
+  private static final Logger LOGGER = LoggerFactory.getLogger(MaintenanceEngine.class);
+
+  /**
+   * The default maximum number of rows that are read (and possibly updated) in each transaction.
+   */
+  static final int BATCH_SIZE = 500;
+
+  /**
+   * The number of {@link KeyRange}s to split each table into per worker thread. Using more ranges
+   * than workers keeps all of the workers busy, even when the ranges turn out to be uneven.
+   */
+  static final int RANGES_PER_WORKER = 4;
+
+  private final EntityManagerFactory entityManagerFactory;
+  private final MetricRegistry appMetrics;
+  private final int workerCount;
+  private final int batchSize;
+  private final boolean postgreSql;
+  private final Map<String, List<KeyRange>> rangesByJob;
+
+  /**
+   * Constructs a new {@link MaintenanceEngine}.
+   *
+   * @param entityManagerFactory the {@link EntityManagerFactory} for the database to maintain
+   * @param appMetrics the {@link MetricRegistry} to record each job's progress in
+   * @param workerCount the maximum number of worker threads that will be used
+   */
+  MaintenanceEngine(
+      EntityManagerFactory entityManagerFactory, MetricRegistry appMetrics, int workerCount) {
+    this(entityManagerFactory, appMetrics, workerCount, BATCH_SIZE);
+  }
+
+  /**
+   * Constructs a new {@link MaintenanceEngine}.
+   *
+   * @param entityManagerFactory the {@link EntityManagerFactory} for the database to maintain
+   * @param appMetrics the {@link MetricRegistry} to record each job's progress in
+   * @param workerCount the maximum number of worker threads that will be used
+   * @param batchSize the maximum number of rows to read (and possibly update) in each transaction,
+   *     which is normally {@link #BATCH_SIZE}, but may be lowered to make tests span many batches
+   */
+  MaintenanceEngine(
+      EntityManagerFactory entityManagerFactory,
+      MetricRegistry appMetrics,
+      int workerCount,
+      int batchSize) {
+    if (workerCount < 1) throw new IllegalArgumentException();
+    if (batchSize < 1) throw new IllegalArgumentException();
+
+    this.entityManagerFactory = entityManagerFactory;
+    this.appMetrics = appMetrics;
+    this.workerCount = workerCount;
+    this.batchSize = batchSize;
+    this.postgreSql = RifLoader.isDatabasePostgreSql(entityManagerFactory);
+    this.rangesByJob = new HashMap<>();
+  }
+
+  /**
+   * Creates the workers for one time slice of the specified {@link MaintenanceJob}s. Each worker
+   * processes unfinished {@link KeyRange}s (from any of the jobs) until they've all been finished
+   * or the time slice is over. Must only be called from one thread at a time.
+   *
+   * @param jobs the {@link MaintenanceJob}s to run
+   * @param timeSlice the amount of time that the workers may run for
+   * @return the workers to run, each of which will return <code>true</code> if it stopped because
+   *     there was no more work left for it, or <code>false</code> if it stopped because the time
+   *     slice was over (an empty {@link List} means that all of the jobs are already complete)
+   */
+  List<Callable<Boolean>> createWorkers(List<MaintenanceJob> jobs, Duration timeSlice) {
+    Queue<KeyRange> unfinishedRanges = new ConcurrentLinkedQueue<>();
+    for (MaintenanceJob job : jobs)
+      for (KeyRange range : rangesByJob.computeIfAbsent(job.getName(), name -> loadRanges(job)))
+        if (!range.isCompleted()) unfinishedRanges.add(range);
+    if (unfinishedRanges.isEmpty()) return Collections.emptyList();
+
+    Instant endTime = Instant.now().plus(timeSlice);
+    return IntStream.range(0, Math.min(workerCount, unfinishedRanges.size()))
+        .mapToObj(i -> (Callable<Boolean>) () -> runWorker(unfinishedRanges, endTime))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * @param jobs the {@link MaintenanceJob}s to check
+   * @return <code>true</code> if all of the specified jobs' {@link KeyRange}s have been completed
+   *     (which is only known for jobs that {@link #createWorkers(List, Duration)} has been called
+   *     for), <code>false</code> if not
+   */
+  boolean isCompleted(List<MaintenanceJob> jobs) {
+    for (MaintenanceJob job : jobs) {
+      List<KeyRange> ranges = rangesByJob.get(job.getName());
+      if (ranges == null || ranges.stream().anyMatch(range -> !range.isCompleted())) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Processes the specified {@link KeyRange}s, one batch at a time, until there are no more of them
+   * or the time slice is over.
+   *
+   * @param unfinishedRanges the {@link KeyRange}s to take work from, which are shared by all of the
+   *     time slice's workers
+   * @param endTime when the time slice is over
+   * @return <code>true</code> if this worker ran out of work, <code>false</code> if it ran out of
+   *     time first
+   */
+  private boolean runWorker(Queue<KeyRange> unfinishedRanges, Instant endTime) {
+    // Use a stateless session to avoid the overhead of Hibernate's caches, which aren't needed here
+    final SessionFactory sf = entityManagerFactory.unwrap(SessionFactory.class);
+    final StatelessSession statelessSession = sf.openStatelessSession();
+    Transaction txn = null;
+    try {
+      boolean skippedRanges = false;
+      KeyRange range;
+      while ((range = unfinishedRanges.poll()) != null) {
+        // If an earlier time slice's worker timed out, it may still be working on this range.
+        if (!range.claimed.compareAndSet(false, true)) {
+          skippedRanges = true;
+          continue;
+        }
+        try {
+          while (!range.isCompleted()) {
+            if (!Instant.now().isBefore(endTime)) return false;
+
+            txn = statelessSession.beginTransaction();
+            BatchProgress progress = processBatch(statelessSession, range);
+            txn.commit();
+
+            range.cursorKey = progress.lastKey;
+            range.completed = progress.rangeCompleted;
+            range.meter.mark(progress.updatedCount);
+          }
+        } finally {
+          range.claimed.set(false);
+        }
+      }
+      return !skippedRanges;
+    } finally {
+      if (statelessSession.isOpen()) {
+        if (txn != null && txn.isActive()) {
+          txn.rollback();
+        }
+        statelessSession.close();
+      }
+    }
+  }
+
+  /**
+   * Reads the next batch of the specified {@link KeyRange}'s rows, updates the ones that need it,
+   * and records the range's progress. Executed in the context of a transaction.
+   *
+   * @param session the {@link StatelessSession} to use
+   * @param range the {@link KeyRange} to process the next batch of
+   * @return the {@link BatchProgress} that should be applied to the range if (and only if) the
+   *     transaction is committed
+   */
+  @SuppressWarnings("unchecked")
+  private BatchProgress processBatch(StatelessSession session, KeyRange range) {
+    MaintenanceJob job = range.job;
+    String keyColumn = quote(job.getKeyColumnName());
+
+    StringBuilder select = new StringBuilder("select t.").append(keyColumn);
+    select.append(", case when ").append(job.getPendingCondition()).append(" then 1 else 0 end");
+    for (String inputColumn : job.getInputColumnNames())
+      select.append(", t.").append(quote(inputColumn));
+    select.append(" from ").append(quote(job.getTableName())).append(" t where 1 = 1");
+    if (range.cursorKey != null) select.append(" and t.").append(keyColumn).append(" > :cursorKey");
+    else if (range.lowKey != null) select.append(" and t.").append(keyColumn).append(" >= :lowKey");
+    if (range.highKey != null) select.append(" and t.").append(keyColumn).append(" < :highKey");
+    select.append(" order by t.").append(keyColumn);
+
+    Query query = session.createNativeQuery(select.toString()).setMaxResults(batchSize);
+    if (range.cursorKey != null) query.setParameter("cursorKey", toKey(job, range.cursorKey));
+    else if (range.lowKey != null) query.setParameter("lowKey", toKey(job, range.lowKey));
+    if (range.highKey != null) query.setParameter("highKey", toKey(job, range.highKey));
+    List<Object[]> rows = query.getResultList();
+
+    List<Object[]> updates = new ArrayList<>(rows.size());
+    for (Object[] row : rows) {
+      if (((Number) row[1]).intValue() != 1) continue;
+
+      Object[] outputs = job.computeOutputs(Arrays.copyOfRange(row, 2, row.length));
+      Object[] update = new Object[outputs.length + 1];
+      update[0] = toKey(job, row[0].toString());
+      System.arraycopy(outputs, 0, update, 1, outputs.length);
+      updates.add(update);
+    }
+    if (!updates.isEmpty()) updateRows(session, job, updates);
+
+    String lastKey = rows.isEmpty() ? range.cursorKey : rows.get(rows.size() - 1)[0].toString();
+    boolean rangeCompleted = rows.size() < batchSize;
+    updateRangeProgress(session, range, lastKey, rangeCompleted);
+
+    return new BatchProgress(lastKey, rangeCompleted, updates.size());
+  }
+
+  /**
+   * Updates the specified rows of the specified {@link MaintenanceJob}'s table, all in one
+   * statement. Executed in the context of a transaction.
+   *
+   * @param session the {@link StatelessSession} to use
+   * @param job the {@link MaintenanceJob} being run
+   * @param updates the rows to update, each of which is a key followed by its output values
+   */
+  private static void updateRows(
+      StatelessSession session, MaintenanceJob job, List<Object[]> updates) {
+    List<String> outputColumns = job.getOutputColumnNames();
+    int rowSize = 100; // 64 for a hash, plus the key and parameter names
+    StringBuilder update = new StringBuilder(updates.size() * rowSize + rowSize);
+
+    update.append("update ").append(quote(job.getTableName())).append(" t set ");
+    for (int c = 0; c < outputColumns.size(); c++) {
+      if (c > 0) update.append(", ");
+      update.append(quote(outputColumns.get(c))).append(" = v.output").append(c);
+    }
+    update.append(" from (values ");
+    for (int r = 0; r < updates.size(); r++) {
+      if (r > 0) update.append(", ");
+      update.append("(:key").append(r);
+      for (int c = 0; c < outputColumns.size(); c++)
+        update.append(", :output").append(r).append('_').append(c);
+      update.append(")");
+    }
+    update.append(") as v(key");
+    for (int c = 0; c < outputColumns.size(); c++) update.append(", output").append(c);
+    update.append(") where t.").append(quote(job.getKeyColumnName())).append(" = v.key");
+
+    Query query = session.createNativeQuery(update.toString());
+    for (int r = 0; r < updates.size(); r++) {
+      Object[] row = updates.get(r);
+      query.setParameter("key" + r, row[0]);
+      for (int c = 0; c < outputColumns.size(); c++)
+        query.setParameter("output" + r + "_" + c, row[c + 1]);
+    }
+    query.executeUpdate();
+  }
+
+  /**
+   * Records how far the specified {@link KeyRange} has gotten. Executed in the context of a
+   * transaction.
+   *
+   * @param session the {@link StatelessSession} to use
+   * @param range the {@link KeyRange} to update
+   * @param lastKey the last key that has been processed in the range, if any
+   * @param rangeCompleted whether or not the range is now complete
+   */
+  private static void updateRangeProgress(
+      StatelessSession session, KeyRange range, String lastKey, boolean rangeCompleted) {
+    if (lastKey == null && !rangeCompleted) return;
+
+    List<String> assignments = new ArrayList<>(2);
+    if (lastKey != null) assignments.add("\"cursorKey\" = :cursorKey");
+    if (rangeCompleted) assignments.add("\"completed\" = current_timestamp");
+    Query query =
+        session.createNativeQuery(
+            "update \"MaintenanceJobRanges\" set "
+                + String.join(", ", assignments)
+                + " where \"jobName\" = :jobName and \"rangeNumber\" = :rangeNumber");
+    if (lastKey != null) query.setParameter("cursorKey", lastKey);
+    query.setParameter("jobName", range.job.getName());
+    query.setParameter("rangeNumber", range.rangeNumber);
+    query.executeUpdate();
+  }
+
+  /**
+   * Reads the specified {@link MaintenanceJob}'s {@link KeyRange}s from the database, first
+   * planning and storing them if this is the first time that the job has been run.
+   *
+   * @param job the {@link MaintenanceJob} to get the {@link KeyRange}s of
+   * @return the job's {@link KeyRange}s
+   */
+  @SuppressWarnings("unchecked")
+  private List<KeyRange> loadRanges(MaintenanceJob job) {
+    final SessionFactory sf = entityManagerFactory.unwrap(SessionFactory.class);
+    final StatelessSession statelessSession = sf.openStatelessSession();
+    Transaction txn = null;
+    try {
+      txn = statelessSession.beginTransaction();
+      List<Object[]> rows =
+          statelessSession
+              .createNativeQuery(
+                  "select \"rangeNumber\", \"lowKey\", \"highKey\", \"cursorKey\", \"completed\""
+                      + " from \"MaintenanceJobRanges\" where \"jobName\" = :jobName"
+                      + " order by \"rangeNumber\"")
+              .setParameter("jobName", job.getName())
+              .getResultList();
+
+      Meter meter = appMetrics.meter(MetricRegistry.name("fixups", job.getName(), "rate"));
+      List<KeyRange> ranges = new ArrayList<>();
+      if (!rows.isEmpty()) {
+        for (Object[] row : rows)
+          ranges.add(
+              new KeyRange(
+                  job,
+                  meter,
+                  ((Number) row[0]).intValue(),
+                  (String) row[1],
+                  (String) row[2],
+                  (String) row[3],
+                  row[4] != null));
+        LOGGER.info(
+            "Resuming maintenance job '{}': {} of {} key ranges already completed.",
+            job.getName(),
+            ranges.stream().filter(KeyRange::isCompleted).count(),
+            ranges.size());
+      } else {
+        List<String> boundaries = planBoundaries(statelessSession, job);
+        for (int i = 0; i <= boundaries.size(); i++) {
+          String lowKey = i > 0 ? boundaries.get(i - 1) : null;
+          String highKey = i < boundaries.size() ? boundaries.get(i) : null;
+          insertRange(statelessSession, job, i, lowKey, highKey);
+          ranges.add(new KeyRange(job, meter, i, lowKey, highKey, null, false));
+        }
+        LOGGER.info(
+            "Starting maintenance job '{}' with {} key ranges.", job.getName(), ranges.size());
+      }
+
+      txn.commit();
+      return ranges;
+    } finally {
+      if (statelessSession.isOpen()) {
+        if (txn != null && txn.isActive()) {
+          txn.rollback();
+        }
+        statelessSession.close();
+      }
+    }
+  }
+
+  /**
+   * Picks the keys to split the specified {@link MaintenanceJob}'s table at. On PostgreSQL, these
+   * are taken from the planner's histogram of the key column, which reflects how the keys are
+   * actually distributed, and costs nothing to read. Otherwise (or if the table hasn't been
+   * analyzed yet), numeric keys are split evenly between their minimum and maximum, which the key's
+   * index can provide cheaply, and text keys aren't split at all.
+   *
+   * @param session the {@link StatelessSession} to use
+   * @param job the {@link MaintenanceJob} to plan for
+   * @return the sorted, distinct keys that each {@link KeyRange} after the first should start at
+   */
+  @SuppressWarnings("unchecked")
+  private List<String> planBoundaries(StatelessSession session, MaintenanceJob job) {
+    int rangeCount = workerCount * RANGES_PER_WORKER;
+
+    List<Object> histogram =
+        postgreSql
+            ? session
+                .createNativeQuery(
+                    "select unnest(cast(cast(s.histogram_bounds as text) as text[]))"
+                        + " from pg_stats s where s.schemaname = current_schema()"
+                        + " and s.tablename = :tableName and s.attname = :columnName")
+                .setParameter("tableName", job.getTableName())
+                .setParameter("columnName", job.getKeyColumnName())
+                .getResultList()
+            : Collections.emptyList();
+
+    List<String> boundaries = new ArrayList<>(rangeCount);
+    if (!histogram.isEmpty()) {
+      for (int i = 1; i < rangeCount; i++) {
+        String boundary = histogram.get(i * histogram.size() / rangeCount).toString();
+        if (boundaries.isEmpty() || !boundaries.get(boundaries.size() - 1).equals(boundary))
+          boundaries.add(boundary);
+      }
+    } else if (!job.isTextKey()) {
+      String keyColumn = quote(job.getKeyColumnName());
+      String select =
+          String.format(
+              "select min(t.%s), max(t.%s) from %s t",
+              keyColumn, keyColumn, quote(job.getTableName()));
+      Object[] minMax = (Object[]) session.createNativeQuery(select).getSingleResult();
+      if (minMax[0] != null) {
+        BigInteger min = new BigInteger(minMax[0].toString());
+        BigInteger span = new BigInteger(minMax[1].toString()).subtract(min);
+        for (int i = 1; i < rangeCount; i++) {
+          BigInteger boundary =
+              min.add(span.multiply(BigInteger.valueOf(i)).divide(BigInteger.valueOf(rangeCount)));
+          String boundaryText = boundary.toString();
+          if (!boundary.equals(min)
+              && (boundaries.isEmpty()
+                  || !boundaries.get(boundaries.size() - 1).equals(boundaryText)))
+            boundaries.add(boundaryText);
+        }
+      }
+    }
+    return boundaries;
+  }
+
+  /**
+   * Stores a newly-planned {@link KeyRange}. Executed in the context of a transaction.
+   *
+   * @param session the {@link StatelessSession} to use
+   * @param job the {@link MaintenanceJob} that the range is for
+   * @param rangeNumber the range's number
+   * @param lowKey the range's inclusive lower bound, or <code>null</code> if it has none
+   * @param highKey the range's exclusive upper bound, or <code>null</code> if it has none
+   */
+  private static void insertRange(
+      StatelessSession session,
+      MaintenanceJob job,
+      int rangeNumber,
+      String lowKey,
+      String highKey) {
+    // Null parameters don't bind reliably in native queries, so those are inlined, instead.
+    Query query =
+        session.createNativeQuery(
+            "insert into \"MaintenanceJobRanges\" (\"jobName\", \"rangeNumber\", \"lowKey\","
+                + " \"highKey\") values (:jobName, :rangeNumber, "
+                + (lowKey != null ? ":lowKey" : "null")
+                + ", "
+                + (highKey != null ? ":highKey" : "null")
+                + ")");
+    query.setParameter("jobName", job.getName());
+    query.setParameter("rangeNumber", rangeNumber);
+    if (lowKey != null) query.setParameter("lowKey", lowKey);
+    if (highKey != null) query.setParameter("highKey", highKey);
+    query.executeUpdate();
+  }
+
+  /**
+   * @param job the {@link MaintenanceJob} that the key is for
+   * @param key the text form of a key, as stored in <code>MaintenanceJobRanges</code>
+   * @return the key, in the form that needs to be bound to queries of the job's table
+   */
+  private static Object toKey(MaintenanceJob job, String key) {
+    return job.isTextKey() ? key : Long.valueOf(key);
+  }
+
+  /**
+   * @param name the SQL table or column name to quote
+   * @return the specified name, quoted (as all of the BFD schema's names must be)
+   */
+  private static String quote(String name) {
+    return "\"" + name + "\"";
+  }
+
+  /**
+   * One range of a {@link MaintenanceJob}'s table's primary keys, along with how far it's gotten.
+   * Only one worker processes a given range at a time (see {@link #claimed}).
+   */
+  static final class KeyRange {
+    private final MaintenanceJob job;
+    private final Meter meter;
+    private final int rangeNumber;
+    private final String lowKey;
+    private final String highKey;
+    private final AtomicBoolean claimed;
+    private volatile String cursorKey;
+    private volatile boolean completed;
+
+    /**
+     * Constructs a new {@link KeyRange}.
+     *
+     * @param job the {@link MaintenanceJob} that this range is part of
+     * @param meter the {@link Meter} to mark with the number of rows updated
+     * @param rangeNumber the (zero-based) number of this range within its job
+     * @param lowKey the inclusive lower bound of this range, or <code>null</code> if it has none
+     * @param highKey the exclusive upper bound of this range, or <code>null</code> if it has none
+     * @param cursorKey the last key that's been processed in this range, or <code>null</code> if
+     *     none have been processed yet
+     * @param completed the value to use for {@link #isCompleted()}
+     */
+    KeyRange(
+        MaintenanceJob job,
+        Meter meter,
+        int rangeNumber,
+        String lowKey,
+        String highKey,
+        String cursorKey,
+        boolean completed) {
+      this.job = job;
+      this.meter = meter;
+      this.rangeNumber = rangeNumber;
+      this.lowKey = lowKey;
+      this.highKey = highKey;
+      this.claimed = new AtomicBoolean(false);
+      this.cursorKey = cursorKey;
+      this.completed = completed;
+    }
+
+    /** @return <code>true</code> if every row in this range has been processed */
+    boolean isCompleted() {
+      return completed;
+    }
+  }
+
+  /** The outcome of one {@link #processBatch(StatelessSession, KeyRange)} call. */
+  private static final class BatchProgress {
+    private final String lastKey;
+    private final boolean rangeCompleted;
+    private final int updatedCount;
+
+    /**
+     * Constructs a new {@link BatchProgress}.
+     *
+     * @param lastKey the new cursor key for the range
+     * @param rangeCompleted whether or not the range is now complete
+     * @param updatedCount the number of rows that were updated
+     */
+    BatchProgress(String lastKey, boolean rangeCompleted, int updatedCount) {
+      this.lastKey = lastKey;
+      this.rangeCompleted = rangeCompleted;
+      this.updatedCount = updatedCount;
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package gov.cms.bfd.pipeline.rif.load;
+
+import java.util.List;
+
+/**
+ * A bulk fix-up of one table, such as a backfill of a newly-added column or a re-hash of an
+ * existing one, that is run in the pipeline's idle time: see {@link
+ * RifLoaderIdleTasks#registerJob(MaintenanceJob)}.
+ *
+ * <p>The table's rows are read in primary key order, a batch at a time. The values of {@link
+ * #getInputColumnNames()} for each row that matches {@link #getPendingCondition()} are passed to
+ * {@link #computeOutputs(Object[])}, and its results are written back to {@link
+ * #getOutputColumnNames()}. Each table row is visited once per job, and the job's progress is
+ * persisted under {@link #getName()}.
+ */
+public interface MaintenanceJob {
+  /**
+   * @return a unique, stable name for this job, which its persisted progress is stored under (and
+   *     so a job with a new name will start over from the beginning of its table)
+   */
+  String getName();
+
+  /** @return the SQL name of the table to process, e.g. <code>Beneficiaries</code> */
+  String getTableName();
+
+  /** @return the SQL name of the table's (single-column) primary key */
+  String getKeyColumnName();
+
+  /**
+   * @return <code>true</code> if {@link #getKeyColumnName()} is a <code>varchar</code> column,
+   *     <code>false</code> if it's a <code>bigint</code> column
+   */
+  boolean isTextKey();
+
+  /** @return the SQL names of the columns whose values are passed to {@link #computeOutputs} */
+  List<String> getInputColumnNames();
+
+  /**
+   * @return a SQL condition that matches the rows that need to be updated, where the table's
+   *     columns must be qualified with a <code>t.</code> alias, e.g. <code>
+   *     t."mbiHash" is null</code>
+   */
+  String getPendingCondition();
+
+  /** @return the SQL names of the columns that {@link #computeOutputs} values are written to */
+  List<String> getOutputColumnNames();
+
+  /**
+   * Computes the new values for one of the table's rows. This may be called concurrently.
+   *
+   * @param inputs the row's values for {@link #getInputColumnNames()}, in the same order
+   * @return the row's new (non-<code>null</code>) values for {@link #getOutputColumnNames()}, in
+   *     the same order
+   */
+  Object[] computeOutputs(Object[] inputs);
+}
@@ -0,0 +1,94 @@
+package gov.cms.bfd.pipeline.rif.load;
+
+import gov.cms.bfd.model.rif.Beneficiary;
+import gov.cms.bfd.model.rif.BeneficiaryHistory;
+import java.util.Collections;
+import java.util.List;
+import javax.crypto.SecretKeyFactory;
+
+/**
+ * A {@link MaintenanceJob} that fills in the <code>mbiHash</code> column of the {@link Beneficiary}
+ * or {@link BeneficiaryHistory} rows that were loaded before that column was added.
+ */
+final class MbiHashBackfillJob implements MaintenanceJob {
+  private final String name;
+  private final String tableName;
+  private final String keyColumnName;
+  private final boolean textKey;
+  private final LoadAppOptions options;
+  private final SecretKeyFactory secretKeyFactory;
+
+  /**
+   * Constructs a new {@link MbiHashBackfillJob}.
+   *
+   * @param name the value to use for {@link #getName()}
+   * @param tableName the value to use for {@link #getTableName()}
+   * @param keyColumnName the value to use for {@link #getKeyColumnName()}
+   * @param textKey the value to use for {@link #isTextKey()}
+   * @param options the {@link LoadAppOptions} to hash with
+   * @param secretKeyFactory the {@link SecretKeyFactory} to hash with
+   */
+  MbiHashBackfillJob(
+      String name,
+      String tableName,
+      String keyColumnName,
+      boolean textKey,
+      LoadAppOptions options,
+      SecretKeyFactory secretKeyFactory) {
+    this.name = name;
+    this.tableName = tableName;
+    this.keyColumnName = keyColumnName;
+    this.textKey = textKey;
+    this.options = options;
+    this.secretKeyFactory = secretKeyFactory;
+  }
+
+  /** @see gov.cms.bfd.pipeline.rif.load.MaintenanceJob#getName() */
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  /** @see gov.cms.bfd.pipeline.rif.load.MaintenanceJob#getTableName() */
+  @Override
+  public String getTableName() {
+    return tableName;
+  }
+
+  /** @see gov.cms.bfd.pipeline.rif.load.MaintenanceJob#getKeyColumnName() */
+  @Override
+  public String getKeyColumnName() {
+    return keyColumnName;
+  }
+
+  /** @see gov.cms.bfd.pipeline.rif.load.MaintenanceJob#isTextKey() */
+  @Override
+  public boolean isTextKey() {
+    return textKey;
+  }
+
+  /** @see gov.cms.bfd.pipeline.rif.load.MaintenanceJob#getInputColumnNames() */
+  @Override
+  public List<String> getInputColumnNames() {
+    return Collections.singletonList("medicareBeneficiaryId");
+  }
+
+  /** @see gov.cms.bfd.pipeline.rif.load.MaintenanceJob#getPendingCondition() */
+  @Override
+  public String getPendingCondition() {
+    return "t.\"mbiHash\" is null and t.\"medicareBeneficiaryId\" is not null";
+  }
+
+  /** @see gov.cms.bfd.pipeline.rif.load.MaintenanceJob#getOutputColumnNames() */
+  @Override
+  public List<String> getOutputColumnNames() {
+    return Collections.singletonList("mbiHash");
+  }
+
+  /** @see gov.cms.bfd.pipeline.rif.load.MaintenanceJob#computeOutputs(java.lang.Object[]) */
+  @Override
+  public Object[] computeOutputs(Object[] inputs) {
+    String mbi = (String) inputs[0];
+    return new Object[] {RifLoader.computeMbiHash(options, secretKeyFactory, mbi)};
+  }
+}
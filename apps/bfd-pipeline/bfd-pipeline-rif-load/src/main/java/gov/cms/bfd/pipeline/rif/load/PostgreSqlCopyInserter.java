@@ -0,0 +1,504 @@
+package gov.cms.bfd.pipeline.rif.load;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.justdavis.karl.misc.exceptions.BadCodeMonkeyException;
+import gov.cms.bfd.model.rif.Beneficiary;
+import gov.cms.bfd.model.rif.BeneficiaryCsvWriter;
+import gov.cms.bfd.model.rif.BeneficiaryHistory;
+import gov.cms.bfd.model.rif.BeneficiaryHistoryCsvWriter;
+import gov.cms.bfd.model.rif.CarrierClaim;
+import gov.cms.bfd.model.rif.CarrierClaimCsvWriter;
+import gov.cms.bfd.model.rif.DMEClaim;
+import gov.cms.bfd.model.rif.DMEClaimCsvWriter;
+import gov.cms.bfd.model.rif.HHAClaim;
+import gov.cms.bfd.model.rif.HHAClaimCsvWriter;
+import gov.cms.bfd.model.rif.HospiceClaim;
+import gov.cms.bfd.model.rif.HospiceClaimCsvWriter;
+import gov.cms.bfd.model.rif.InpatientClaim;
+import gov.cms.bfd.model.rif.InpatientClaimCsvWriter;
+import gov.cms.bfd.model.rif.MedicareBeneficiaryIdHistory;
+import gov.cms.bfd.model.rif.MedicareBeneficiaryIdHistoryCsvWriter;
+import gov.cms.bfd.model.rif.OutpatientClaim;
+import gov.cms.bfd.model.rif.OutpatientClaimCsvWriter;
+import gov.cms.bfd.model.rif.PartDEvent;
+import gov.cms.bfd.model.rif.PartDEventCsvWriter;
+import gov.cms.bfd.model.rif.RifRecordBase;
+import gov.cms.bfd.model.rif.SNFClaim;
+import gov.cms.bfd.model.rif.SNFClaimCsvWriter;
+import gov.cms.bfd.pipeline.rif.load.LoadAppOptions.LoadMode;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.stream.Collectors;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.core.BaseConnection;
+
+/**
+ * Provides the state tracking and logic needed for {@link RifLoader} to handle PostgreSQL {@link
+ * gov.cms.bfd.model.rif.RecordAction#INSERT}s via the use of PostgreSQL's non-standard {@link
+ * CopyManager} APIs.
+ *
+ * <p>In <a href="https://www.postgresql.org/docs/9.6/static/populate.html">PostgreSQL 9.6 Manual:
+ * Populating a Database</a>, this is recommended as the fastest way to insert large amounts of
+ * data, as it avoids the per-row statement overhead of <code>INSERT</code>s.
+ *
+ * <p>Each loader thread uses its own {@link PostgreSqlCopyInserter} for each batch of records: the
+ * records are encoded into per-table in-memory streams as they're {@link #add(RifRecordBase)}ed,
+ * and then {@link #submit(Connection, MetricRegistry)} runs one <code>COPY</code> per table, on the
+ * batch's own {@link Connection} and transaction. That keeps header rows ahead of their line rows
+ * (for the foreign keys), and keeps the batch's inserts atomic with the rest of its work (e.g. its
+ * {@link gov.cms.bfd.model.rif.LoadedBatch}). No temp files are used.
+ *
+ * <p>Instances of this class are not thread-safe.
+ */
+final class PostgreSqlCopyInserter {
+  private final LoadMode loadMode;
+  private final String tableNameSuffix;
+
+  /**
+   * The queued rows for each SQL table, in the order that the tables were first seen (which is the
+   * order that they'll need to be <code>COPY</code>ed in).
+   */
+  private final Map<String, TableRows> rowsByTable;
+
+  /**
+   * Constructs a new {@link PostgreSqlCopyInserter} instance.
+   *
+   * @param loadMode the {@link LoadMode} to use, which must be either {@link
+   *     LoadMode#POSTGRESQL_COPY_CSV} or {@link LoadMode#POSTGRESQL_COPY_BINARY}
+   */
+  PostgreSqlCopyInserter(LoadMode loadMode) {
+    this(loadMode, "");
+  }
+
+  /**
+   * Constructs a new {@link PostgreSqlCopyInserter} instance, which will <code>COPY</code> into
+   * tables named after the records' usual tables, plus the specified suffix (e.g. the staging
+   * tables used by {@link PostgreSqlStagedMerger}).
+   *
+   * @param loadMode the {@link LoadMode} to use, which must be either {@link
+   *     LoadMode#POSTGRESQL_COPY_CSV} or {@link LoadMode#POSTGRESQL_COPY_BINARY}
+   * @param tableNameSuffix the suffix to append to each table name
+   */
+  PostgreSqlCopyInserter(LoadMode loadMode, String tableNameSuffix) {
+    if (loadMode != LoadMode.POSTGRESQL_COPY_CSV && loadMode != LoadMode.POSTGRESQL_COPY_BINARY)
+      throw new IllegalArgumentException();
+
+    this.loadMode = loadMode;
+    this.tableNameSuffix = tableNameSuffix;
+    this.rowsByTable = new LinkedHashMap<>();
+  }
+
+  /**
+   * Queues the specified top-level entity instance (e.g. a {@link Beneficiary}, {@link
+   * CarrierClaim}, etc.) for insertion when {@link #submit(Connection, MetricRegistry)} is called.
+   *
+   * @param record the top-level entity instance (e.g. a {@link Beneficiary}, {@link CarrierClaim},
+   *     etc.) to queue for insertion, which must already have its ID (if generated) assigned
+   */
+  public void add(RifRecordBase record) {
+    /*
+     * Use the auto-generated *CsvWriter helpers to convert the JPA entity to its raw column
+     * values. Each Map entry will represent a single SQL table, and each Object[] in there
+     * represents a single row, with the first Object[] containing the (correctly ordered) SQL
+     * column identifiers. So, for a CarrierClaim, there will be two "CarrierClaims" Object[]s: one
+     * column header and one with the claim header values. In addition, there will be multiple
+     * "CarrierClaimLines" Objects[]: one for the column header and then one for each
+     * CarrierClaim.getLines() entry.
+     */
+    Map<String, Object[][]> csvRecordsByTable = toCsvRecordsByTable(record);
+
+    for (Entry<String, Object[][]> tableRecordsEntry : csvRecordsByTable.entrySet()) {
+      Object[][] tableRecords = tableRecordsEntry.getValue();
+      TableRows tableRows =
+          rowsByTable.computeIfAbsent(
+              tableRecordsEntry.getKey(),
+              tableName ->
+                  new TableRows(
+                      tableName, tableName + tableNameSuffix, tableRecords[0], createEncoder()));
+
+      for (int recordIndex = 1; recordIndex < tableRecords.length; recordIndex++)
+        tableRows.encoder.encodeRow(tableRecords[recordIndex]);
+      tableRows.rowCount += tableRecords.length - 1;
+    }
+  }
+
+  /**
+   * @return <code>true</code> if there are no rows queued via {@link #add(RifRecordBase)}, <code>
+   *     false</code> if there are
+   */
+  public boolean isEmpty() {
+    return rowsByTable.values().stream().allMatch(t -> t.rowCount == 0);
+  }
+
+  /**
+   * Uses PostgreSQL's {@link CopyManager} API to bulk-insert all of the rows that have been queued
+   * via {@link #add(RifRecordBase)}, and then clears the queue.
+   *
+   * @param connection the JDBC {@link Connection} to run the <code>COPY</code>s on, which should be
+   *     the one for the transaction that the rows are part of
+   * @param metrics the {@link MetricRegistry} to use
+   * @throws SQLException Any {@link SQLException}s encountered will be bubbled up.
+   */
+  public void submit(Connection connection, MetricRegistry metrics) throws SQLException {
+    /*
+     * The Connection that we get from Hibernate is a pooled one, which we need to unwrap to get at
+     * the raw PostgreSQL one that the CopyManager needs.
+     */
+    CopyManager copyManager = new CopyManager(connection.unwrap(BaseConnection.class));
+
+    for (TableRows tableRows : rowsByTable.values()) {
+      if (tableRows.rowCount == 0) continue;
+
+      Timer.Context copyTimer =
+          metrics
+              .timer(
+                  MetricRegistry.name(
+                      RifLoader.class.getSimpleName(), "postgreSqlCopies", tableRows.tableName))
+              .time();
+      CopyIn copyIn = copyManager.copyIn(tableRows.copySql);
+      try {
+        byte[] encodedRows = tableRows.encoder.finish();
+        copyIn.writeToCopy(encodedRows, 0, tableRows.encoder.size());
+        copyIn.endCopy();
+      } finally {
+        if (copyIn.isActive()) copyIn.cancelCopy();
+      }
+      copyTimer.stop();
+    }
+
+    rowsByTable.clear();
+  }
+
+  /** @return a new {@link CopyRowEncoder} for {@link #loadMode} */
+  private CopyRowEncoder createEncoder() {
+    if (loadMode == LoadMode.POSTGRESQL_COPY_CSV) return new CsvCopyRowEncoder();
+    else if (loadMode == LoadMode.POSTGRESQL_COPY_BINARY) return new BinaryCopyRowEncoder();
+    else throw new BadCodeMonkeyException();
+  }
+
+  /**
+   * @param record the top-level entity instance (e.g. a {@link Beneficiary}, {@link CarrierClaim},
+   *     etc.) to convert
+   * @return the result of passing the specified record to the generated <code>*CsvWriter</code> for
+   *     its type
+   */
+  static Map<String, Object[][]> toCsvRecordsByTable(RifRecordBase record) {
+    if (record instanceof Beneficiary)
+      return BeneficiaryCsvWriter.toCsvRecordsByTable((Beneficiary) record);
+    else if (record instanceof BeneficiaryHistory)
+      return BeneficiaryHistoryCsvWriter.toCsvRecordsByTable((BeneficiaryHistory) record);
+    else if (record instanceof MedicareBeneficiaryIdHistory)
+      return MedicareBeneficiaryIdHistoryCsvWriter.toCsvRecordsByTable(
+          (MedicareBeneficiaryIdHistory) record);
+    else if (record instanceof PartDEvent)
+      return PartDEventCsvWriter.toCsvRecordsByTable((PartDEvent) record);
+    else if (record instanceof CarrierClaim)
+      return CarrierClaimCsvWriter.toCsvRecordsByTable((CarrierClaim) record);
+    else if (record instanceof InpatientClaim)
+      return InpatientClaimCsvWriter.toCsvRecordsByTable((InpatientClaim) record);
+    else if (record instanceof OutpatientClaim)
+      return OutpatientClaimCsvWriter.toCsvRecordsByTable((OutpatientClaim) record);
+    else if (record instanceof HHAClaim)
+      return HHAClaimCsvWriter.toCsvRecordsByTable((HHAClaim) record);
+    else if (record instanceof DMEClaim)
+      return DMEClaimCsvWriter.toCsvRecordsByTable((DMEClaim) record);
+    else if (record instanceof HospiceClaim)
+      return HospiceClaimCsvWriter.toCsvRecordsByTable((HospiceClaim) record);
+    else if (record instanceof SNFClaim)
+      return SNFClaimCsvWriter.toCsvRecordsByTable((SNFClaim) record);
+    else throw new BadCodeMonkeyException("Unhandled record type: " + record.getClass());
+  }
+
+  /** A simple struct for storing all of the state and tracking information for each SQL table. */
+  private static final class TableRows {
+    final String tableName;
+    final String copySql;
+    final CopyRowEncoder encoder;
+    int rowCount = 0;
+
+    /**
+     * Constructs a new {@link TableRows} instance.
+     *
+     * @param tableName the name of the SQL table
+     * @param copyTableName the name of the SQL table to actually <code>COPY</code> the rows into
+     * @param columnIdentifiers the SQL column identifiers for the table, from the generated <code>
+     *     *CsvWriter</code>
+     * @param encoder the {@link CopyRowEncoder} to encode the table's rows with
+     */
+    TableRows(
+        String tableName,
+        String copyTableName,
+        Object[] columnIdentifiers,
+        CopyRowEncoder encoder) {
+      this.tableName = tableName;
+      this.encoder = encoder;
+
+      String columnsList =
+          Arrays.stream(columnIdentifiers).map(c -> (String) c).collect(Collectors.joining(", "));
+      this.copySql =
+          String.format(
+              "COPY \"%s\" (%s) FROM STDIN WITH %s",
+              copyTableName, columnsList, encoder.getCopyOptions());
+    }
+  }
+
+  /**
+   * Encodes rows (as produced by the generated <code>*CsvWriter</code>s) into one of the formats
+   * supported by PostgreSQL's <code>COPY ... FROM STDIN</code>.
+   */
+  abstract static class CopyRowEncoder extends ByteArrayOutputStream {
+    /**
+     * The PostgreSQL epoch (<code>2000-01-01</code>), as a count of days since the Java epoch (
+     * <code>1970-01-01</code>).
+     */
+    static final long POSTGRESQL_EPOCH_DAY = LocalDate.of(2000, 1, 1).toEpochDay();
+
+    /** @return the options for the <code>COPY ... FROM STDIN WITH</code> statement */
+    abstract String getCopyOptions();
+
+    /** @param row the column values for a single row to encode and append */
+    abstract void encodeRow(Object[] row);
+
+    /**
+     * @return the encoded rows, which are only valid up to {@link #size()}, and only until the next
+     *     call to {@link #encodeRow(Object[])}
+     */
+    byte[] finish() {
+      return buf;
+    }
+
+    /**
+     * Hibernate stores {@link Instant}s in the <code>timestamp without time zone</code> columns
+     * using the JVM's default time zone, so we have to, as well.
+     *
+     * @param value the {@link Instant} to convert
+     * @return the {@link LocalDateTime} that will be stored for the specified {@link Instant}
+     */
+    static LocalDateTime toLocalDateTime(Instant value) {
+      return LocalDateTime.ofInstant(value, ZoneId.systemDefault());
+    }
+  }
+
+  /**
+   * A {@link CopyRowEncoder} for PostgreSQL's <code>CSV</code> format. Strings are always quoted,
+   * so that empty strings aren't confused with the (unquoted, empty) <code>NULL</code>s.
+   */
+  static final class CsvCopyRowEncoder extends CopyRowEncoder {
+    /** @see gov.cms.bfd.pipeline.rif.load.PostgreSqlCopyInserter.CopyRowEncoder#getCopyOptions() */
+    @Override
+    String getCopyOptions() {
+      return "(FORMAT csv, ENCODING 'UTF8')";
+    }
+
+    /**
+     * @see
+     *     gov.cms.bfd.pipeline.rif.load.PostgreSqlCopyInserter.CopyRowEncoder#encodeRow(java.lang.Object[])
+     */
+    @Override
+    void encodeRow(Object[] row) {
+      for (int columnIndex = 0; columnIndex < row.length; columnIndex++) {
+        if (columnIndex > 0) write(',');
+
+        Object value = row[columnIndex];
+        if (value == null) continue;
+        else if (value instanceof String) writeQuoted((String) value);
+        else if (value instanceof Character) writeQuoted(value.toString());
+        else if (value instanceof BigDecimal) writeAscii(((BigDecimal) value).toPlainString());
+        else if (value instanceof Number) writeAscii(value.toString());
+        else if (value instanceof LocalDate) writeAscii(value.toString());
+        else if (value instanceof Instant) writeAscii(toLocalDateTime((Instant) value).toString());
+        else if (value instanceof Date) writeAscii(((Date) value).toInstant().toString());
+        else throw new BadCodeMonkeyException("Unhandled column type: " + value.getClass());
+      }
+      write('\n');
+    }
+
+    /** @param value the (plain ASCII) value to append */
+    private void writeAscii(String value) {
+      for (int i = 0; i < value.length(); i++) write(value.charAt(i));
+    }
+
+    /** @param value the value to append as a quoted CSV field */
+    private void writeQuoted(String value) {
+      byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+      write('"');
+      for (byte valueByte : valueBytes) {
+        if (valueByte == '"') write('"');
+        write(valueByte);
+      }
+      write('"');
+    }
+  }
+
+  /**
+   * A {@link CopyRowEncoder} for PostgreSQL's <code>BINARY</code> format, as documented in <a
+   * href="https://www.postgresql.org/docs/9.6/static/sql-copy.html">PostgreSQL 9.6 Manual:
+   * COPY</a>. The binary representation of each value must exactly match its column's type, so this
+   * relies on the schema's (stable) mapping of Java types to SQL types: {@link String} and {@link
+   * Character} to <code>varchar</code>/<code>char</code>, {@link Number} to <code>numeric
+   * </code> (aside from {@link Long}, which is only used for <code>bigint</code> IDs), {@link
+   * LocalDate} to <code>date</code>, {@link Instant} to <code>timestamp</code>, and {@link Date} to
+   * <code>timestamp with time zone</code>.
+   */
+  static final class BinaryCopyRowEncoder extends CopyRowEncoder {
+    private static final byte[] SIGNATURE = {
+      'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0
+    };
+
+    /** The number of microseconds in a second. */
+    private static final long MICROS_PER_SECOND = 1000L * 1000L;
+
+    private static final int NUMERIC_POSITIVE = 0x0000;
+    private static final int NUMERIC_NEGATIVE = 0x4000;
+
+    /** Constructs a new {@link BinaryCopyRowEncoder}, writing out the binary format's header. */
+    BinaryCopyRowEncoder() {
+      write(SIGNATURE, 0, SIGNATURE.length);
+      writeInt(0); // Flags field.
+      writeInt(0); // Header extension area length.
+    }
+
+    /** @see gov.cms.bfd.pipeline.rif.load.PostgreSqlCopyInserter.CopyRowEncoder#getCopyOptions() */
+    @Override
+    String getCopyOptions() {
+      return "(FORMAT binary)";
+    }
+
+    /**
+     * @see
+     *     gov.cms.bfd.pipeline.rif.load.PostgreSqlCopyInserter.CopyRowEncoder#encodeRow(java.lang.Object[])
+     */
+    @Override
+    void encodeRow(Object[] row) {
+      writeShort(row.length);
+      for (Object value : row) {
+        if (value == null) writeInt(-1);
+        else if (value instanceof String) writeText((String) value);
+        else if (value instanceof Character) writeText(value.toString());
+        else if (value instanceof Long) {
+          writeInt(8);
+          writeLong((Long) value);
+        } else if (value instanceof BigDecimal) writeNumeric((BigDecimal) value);
+        else if (value instanceof Integer) writeNumeric(BigDecimal.valueOf((Integer) value));
+        else if (value instanceof LocalDate) {
+          writeInt(4);
+          writeInt((int) (((LocalDate) value).toEpochDay() - POSTGRESQL_EPOCH_DAY));
+        } else if (value instanceof Instant) {
+          LocalDateTime localValue = toLocalDateTime((Instant) value);
+          writeTimestamp(localValue.toEpochSecond(ZoneOffset.UTC), localValue.getNano());
+        } else if (value instanceof Date) {
+          Instant instantValue = ((Date) value).toInstant();
+          writeTimestamp(instantValue.getEpochSecond(), instantValue.getNano());
+        } else throw new BadCodeMonkeyException("Unhandled column type: " + value.getClass());
+      }
+    }
+
+    /** @see gov.cms.bfd.pipeline.rif.load.PostgreSqlCopyInserter.CopyRowEncoder#finish() */
+    @Override
+    byte[] finish() {
+      writeShort(-1); // File trailer.
+      return super.finish();
+    }
+
+    /** @param value the text value to append, as a length-prefixed UTF-8 field */
+    private void writeText(String value) {
+      byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+      writeInt(valueBytes.length);
+      write(valueBytes, 0, valueBytes.length);
+    }
+
+    /**
+     * Appends the specified value as a length-prefixed <code>timestamp</code> field, which is
+     * encoded as the number of microseconds since the PostgreSQL epoch.
+     *
+     * @param epochSecond the number of seconds since the Java epoch
+     * @param nanos the nanosecond-of-second
+     */
+    private void writeTimestamp(long epochSecond, int nanos) {
+      long postgreSqlEpochSecond = epochSecond - (POSTGRESQL_EPOCH_DAY * 24L * 60L * 60L);
+      writeInt(8);
+      writeLong((postgreSqlEpochSecond * MICROS_PER_SECOND) + (nanos / 1000));
+    }
+
+    /**
+     * Appends the specified value as a length-prefixed <code>numeric</code> field, which is encoded
+     * as a sequence of base-10000 digits, along with the weight (i.e. the base-10000 exponent of
+     * the first digit), sign, and display scale.
+     *
+     * @param value the value to append
+     */
+    private void writeNumeric(BigDecimal value) {
+      int displayScale = Math.max(0, value.scale());
+      String unscaledText = value.abs().setScale(displayScale).unscaledValue().toString();
+
+      /*
+       * Pad the digits out so that the decimal point falls on a base-10000 digit boundary, and the
+       * integral and fractional parts are each a whole number of base-10000 digits.
+       */
+      int integralDigitCount = Math.max(0, unscaledText.length() - displayScale);
+      int integralPadding = (4 - (integralDigitCount % 4)) % 4;
+      int fractionalPadding = (4 - (displayScale % 4)) % 4;
+      StringBuilder paddedText = new StringBuilder();
+      for (int i = 0; i < integralPadding; i++) paddedText.append('0');
+      for (int i = unscaledText.length(); i < displayScale; i++) paddedText.append('0');
+      paddedText.append(unscaledText);
+      for (int i = 0; i < fractionalPadding; i++) paddedText.append('0');
+
+      int[] digits = new int[paddedText.length() / 4];
+      for (int i = 0; i < digits.length; i++)
+        digits[i] = Integer.parseInt(paddedText.substring(i * 4, (i * 4) + 4));
+      int weight = ((integralDigitCount + integralPadding) / 4) - 1;
+
+      // Strip the leading and trailing zero digits, which PostgreSQL doesn't store.
+      int firstDigit = 0;
+      while (firstDigit < digits.length && digits[firstDigit] == 0) firstDigit++;
+      int lastDigit = digits.length - 1;
+      while (lastDigit >= firstDigit && digits[lastDigit] == 0) lastDigit--;
+      int digitCount = lastDigit - firstDigit + 1;
+      weight -= firstDigit;
+      if (digitCount == 0) weight = 0;
+
+      writeInt(8 + (2 * digitCount));
+      writeShort(digitCount);
+      writeShort(weight);
+      writeShort(value.signum() < 0 ? NUMERIC_NEGATIVE : NUMERIC_POSITIVE);
+      writeShort(displayScale);
+      for (int i = firstDigit; i <= lastDigit; i++) writeShort(digits[i]);
+    }
+
+    /** @param value the 16-bit value to append, in network byte order */
+    private void writeShort(int value) {
+      write((value >>> 8) & 0xFF);
+      write(value & 0xFF);
+    }
+
+    /** @param value the 32-bit value to append, in network byte order */
+    private void writeInt(int value) {
+      write((value >>> 24) & 0xFF);
+      write((value >>> 16) & 0xFF);
+      write((value >>> 8) & 0xFF);
+      write(value & 0xFF);
+    }
+
+    /** @param value the 64-bit value to append, in network byte order */
+    private void writeLong(long value) {
+      writeInt((int) (value >>> 32));
+      writeInt((int) value);
+    }
+  }
+}
@@ -0,0 +1,236 @@
+package gov.cms.bfd.pipeline.rif.load;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import gov.cms.bfd.model.rif.Beneficiary;
+import gov.cms.bfd.model.rif.BeneficiaryHistory;
+import gov.cms.bfd.model.rif.MedicareBeneficiaryIdHistory;
+import gov.cms.bfd.model.rif.PartDEvent;
+import gov.cms.bfd.model.rif.RifRecordBase;
+import gov.cms.bfd.pipeline.rif.load.LoadAppOptions.LoadMode;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Provides the state tracking and logic needed for {@link RifLoader} to handle {@link
+ * LoadMode#POSTGRESQL_STAGED_MERGE} <code>UPDATE</code>s in bulk, rather than one record at a time.
+ *
+ * <p>The records are {@link #add(RifRecordBase, Object)}ed to a {@link PostgreSqlCopyInserter} that
+ * targets per-connection temporary staging tables (which, like all PostgreSQL temporary tables, are
+ * unlogged). {@link #submit(Connection, MetricRegistry)} then <code>COPY</code>s them in and
+ * applies them to each real table with a handful of set-based statements, on the batch's own {@link
+ * Connection} and transaction:
+ *
+ * <ol>
+ *   <li>for {@link Beneficiary}s, an <code>INSERT ... SELECT</code> that copies each existing row's
+ *       current state into a {@link BeneficiaryHistory} row, exactly as {@link RifLoader} otherwise
+ *       does one record at a time,
+ *   <li>an <code>UPDATE ... FROM</code> the staging table, and
+ *   <li>an <code>INSERT ... SELECT</code> of any staged rows that weren't already present (just as
+ *       a JPA merge would).
+ * </ol>
+ *
+ * <p>Only record types that are stored in a single table are supported: see {@link
+ * #isSupported(RifRecordBase)}. As with {@link JdbcBatchWriter}, that's only equivalent to the
+ * records' original order as long as no record is queued more than once, so callers must check
+ * {@link #isPending(Object)} and {@link #submit(Connection, MetricRegistry)} first, when needed.
+ *
+ * <p>Instances of this class are not thread-safe.
+ */
+final class PostgreSqlStagedMerger {
+  /** The suffix that's appended to each table's name to get its staging table's name. */
+  static final String STAGING_TABLE_SUFFIX = "_staged";
+
+  /**
+   * The SQL primary key column for each supported record type, keyed by that type. Each of these
+   * types is stored in just one table.
+   */
+  private static final Map<Class<?>, String> KEY_COLUMNS = createKeyColumns();
+
+  private final PostgreSqlCopyInserter stagingInserter;
+  private final Map<String, StagedTable> tablesByName;
+  private final Set<Object> pendingRecordIds;
+
+  /** Constructs a new {@link PostgreSqlStagedMerger} instance. */
+  PostgreSqlStagedMerger() {
+    this.stagingInserter =
+        new PostgreSqlCopyInserter(LoadMode.POSTGRESQL_COPY_BINARY, STAGING_TABLE_SUFFIX);
+    this.tablesByName = new LinkedHashMap<>();
+    this.pendingRecordIds = new HashSet<>();
+  }
+
+  /** @return the value to use for {@link #KEY_COLUMNS} */
+  private static Map<Class<?>, String> createKeyColumns() {
+    Map<Class<?>, String> keyColumns = new LinkedHashMap<>();
+    keyColumns.put(Beneficiary.class, "\"beneficiaryId\"");
+    keyColumns.put(MedicareBeneficiaryIdHistory.class, "\"medicareBeneficiaryIdKey\"");
+    keyColumns.put(PartDEvent.class, "\"eventId\"");
+    return keyColumns;
+  }
+
+  /**
+   * @param record the record to check
+   * @return <code>true</code> if the specified record's type can be {@link #add(RifRecordBase,
+   *     Object)}ed, <code>false</code> if it must be updated some other way
+   */
+  static boolean isSupported(RifRecordBase record) {
+    return KEY_COLUMNS.containsKey(record.getClass());
+  }
+
+  /**
+   * @param recordId the ID of the record to check for
+   * @return <code>true</code> if a record with the specified ID has been queued and not yet {@link
+   *     #submit(Connection, MetricRegistry)}ted, <code>false</code> if not
+   */
+  public boolean isPending(Object recordId) {
+    return pendingRecordIds.contains(recordId);
+  }
+
+  /** @return <code>true</code> if there are no records queued, <code>false</code> if there are */
+  public boolean isEmpty() {
+    return pendingRecordIds.isEmpty();
+  }
+
+  /**
+   * Queues the specified top-level entity instance (e.g. a {@link Beneficiary}) to be merged into
+   * its table when {@link #submit(Connection, MetricRegistry)} is called.
+   *
+   * @param record the top-level entity to queue, which must be {@link #isSupported(RifRecordBase)}
+   * @param recordId the ID of the record being queued
+   */
+  public void add(RifRecordBase record, Object recordId) {
+    if (!isSupported(record)) throw new IllegalArgumentException();
+    if (!pendingRecordIds.add(recordId))
+      throw new IllegalStateException(
+          String.format("Record '%s' is already pending and must be submitted first.", recordId));
+
+    for (Entry<String, Object[][]> tableRecordsEntry :
+        PostgreSqlCopyInserter.toCsvRecordsByTable(record).entrySet())
+      tablesByName.computeIfAbsent(
+          tableRecordsEntry.getKey(),
+          tableName ->
+              new StagedTable(
+                  tableName,
+                  KEY_COLUMNS.get(record.getClass()),
+                  tableRecordsEntry.getValue()[0],
+                  record instanceof Beneficiary));
+    stagingInserter.add(record);
+  }
+
+  /**
+   * Merges all of the queued records into their tables, and then clears the queue.
+   *
+   * @param connection the JDBC {@link Connection} to use, which should be the one for the
+   *     transaction that the records are part of
+   * @param metrics the {@link MetricRegistry} to use
+   * @throws SQLException Any {@link SQLException}s encountered will be bubbled up.
+   */
+  public void submit(Connection connection, MetricRegistry metrics) throws SQLException {
+    if (isEmpty()) return;
+
+    try (Statement statement = connection.createStatement()) {
+      for (StagedTable table : tablesByName.values())
+        statement.execute(table.createStagingTableSql);
+      stagingInserter.submit(connection, metrics);
+
+      for (StagedTable table : tablesByName.values()) {
+        Timer.Context mergeTimer =
+            metrics
+                .timer(
+                    MetricRegistry.name(
+                        RifLoader.class.getSimpleName(), "postgreSqlStagedMerges", table.tableName))
+                .time();
+        for (String mergeSql : table.mergeSql) statement.execute(mergeSql);
+        mergeTimer.stop();
+      }
+    }
+
+    pendingRecordIds.clear();
+  }
+
+  /** A simple struct for storing the SQL needed to stage and merge each table's rows. */
+  static final class StagedTable {
+    final String tableName;
+    final String createStagingTableSql;
+    final List<String> mergeSql;
+
+    /**
+     * Constructs a new {@link StagedTable} instance.
+     *
+     * @param tableName the name of the SQL table
+     * @param keyColumn the SQL identifier of the table's primary key column
+     * @param columnIdentifiers the SQL column identifiers for the table, from the generated <code>
+     *     *CsvWriter</code>
+     * @param beneficiaryHistoryRequired <code>true</code> if a {@link BeneficiaryHistory} row
+     *     should be created for each existing row before it's updated, <code>false</code> if not
+     */
+    StagedTable(
+        String tableName,
+        String keyColumn,
+        Object[] columnIdentifiers,
+        boolean beneficiaryHistoryRequired) {
+      this.tableName = tableName;
+
+      String stagingTableName = tableName + STAGING_TABLE_SUFFIX;
+      List<String> columns =
+          Arrays.stream(columnIdentifiers).map(c -> (String) c).collect(Collectors.toList());
+
+      /*
+       * Temporary tables live as long as the connection does, so they're created on first use.
+       * Their rows are deleted after each merge, and again at commit, just in case.
+       */
+      this.createStagingTableSql =
+          String.format(
+              "CREATE TEMPORARY TABLE IF NOT EXISTS \"%s\" (LIKE \"%s\") ON COMMIT DELETE ROWS",
+              stagingTableName, tableName);
+
+      String historySql =
+          String.format(
+              "INSERT INTO \"BeneficiariesHistory\" (\"beneficiaryHistoryId\", \"beneficiaryId\","
+                  + " \"birthDate\", \"sex\", \"hicn\", \"hicnUnhashed\", \"medicareBeneficiaryId\","
+                  + " lastUpdated)"
+                  + " SELECT nextval('beneficiaryhistory_beneficiaryhistoryid_seq'),"
+                  + " t.\"beneficiaryId\", t.\"birthDate\", t.\"sex\", t.\"hicn\","
+                  + " t.\"hicnUnhashed\", t.\"medicareBeneficiaryId\", s.lastUpdated"
+                  + " FROM \"%s\" t INNER JOIN \"%s\" s ON t.%s = s.%s",
+              tableName, stagingTableName, keyColumn, keyColumn);
+      String updateSql =
+          String.format(
+              "UPDATE \"%s\" t SET %s FROM \"%s\" s WHERE t.%s = s.%s",
+              tableName,
+              columns.stream()
+                  .filter(c -> !c.equals(keyColumn))
+                  .map(c -> String.format("%s = s.%s", c, c))
+                  .collect(Collectors.joining(", ")),
+              stagingTableName,
+              keyColumn,
+              keyColumn);
+      String insertMissingSql =
+          String.format(
+              "INSERT INTO \"%s\" (%s) SELECT %s FROM \"%s\" s"
+                  + " WHERE NOT EXISTS (SELECT 1 FROM \"%s\" t WHERE t.%s = s.%s)",
+              tableName,
+              String.join(", ", columns),
+              columns.stream().map(c -> "s." + c).collect(Collectors.joining(", ")),
+              stagingTableName,
+              tableName,
+              keyColumn,
+              keyColumn);
+      String truncateSql = String.format("TRUNCATE \"%s\"", stagingTableName);
+
+      this.mergeSql =
+          beneficiaryHistoryRequired
+              ? Arrays.asList(historySql, updateSql, insertMissingSql, truncateSql)
+              : Arrays.asList(updateSql, insertMissingSql, truncateSql);
+    }
+  }
+}
@@ -5,30 +5,28 @@ import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
 import com.justdavis.karl.misc.exceptions.BadCodeMonkeyException;
 import com.zaxxer.hikari.HikariDataSource;
-import com.zaxxer.hikari.pool.HikariProxyConnection;
 import gov.cms.bfd.model.rif.Beneficiary;
-import gov.cms.bfd.model.rif.BeneficiaryCsvWriter;
 import gov.cms.bfd.model.rif.BeneficiaryHistory;
-import gov.cms.bfd.model.rif.CarrierClaim;
-import gov.cms.bfd.model.rif.CarrierClaimCsvWriter;
-import gov.cms.bfd.model.rif.CarrierClaimLine;
 import gov.cms.bfd.model.rif.LoadedBatch;
 import gov.cms.bfd.model.rif.LoadedBatchBuilder;
+import gov.cms.bfd.model.rif.LoadedBatchCodec;
 import gov.cms.bfd.model.rif.LoadedFile;
+import gov.cms.bfd.model.rif.LoadedFileBloomFilter;
+import gov.cms.bfd.model.rif.LoadedFileBloomFilterBuilder;
 import gov.cms.bfd.model.rif.RecordAction;
 import gov.cms.bfd.model.rif.RifFileEvent;
+import gov.cms.bfd.model.rif.RifFilePosition;
 import gov.cms.bfd.model.rif.RifFileRecords;
 import gov.cms.bfd.model.rif.RifFileType;
-import gov.cms.bfd.model.rif.RifFilesEvent;
 import gov.cms.bfd.model.rif.RifRecordBase;
 import gov.cms.bfd.model.rif.RifRecordEvent;
 import gov.cms.bfd.model.rif.schema.DatabaseSchemaManager;
+import gov.cms.bfd.pipeline.rif.extract.PipelineStage;
+import gov.cms.bfd.pipeline.rif.extract.PipelineStageMetrics;
+import gov.cms.bfd.pipeline.rif.load.LoadAppOptions.LoadMode;
+import gov.cms.bfd.pipeline.rif.load.LoadAppOptions.RunMode;
+import gov.cms.bfd.pipeline.rif.load.LoaderSessionPool.LoaderSession;
 import gov.cms.bfd.pipeline.rif.load.RifRecordLoadResult.LoadAction;
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.io.UncheckedIOException;
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
 import java.sql.Connection;
@@ -36,20 +34,25 @@ import java.sql.SQLException;
 import java.time.Instant;
 import java.time.Period;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.crypto.SecretKey;
@@ -60,18 +63,20 @@ import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.EntityTransaction;
 import javax.persistence.Persistence;
-import javax.persistence.Table;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Root;
 import javax.sql.DataSource;
 import org.apache.commons.codec.binary.Hex;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVPrinter;
 import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.id.Assigned;
+import org.hibernate.id.IdentifierGenerator;
 import org.hibernate.jdbc.Work;
+import org.hibernate.persister.entity.EntityPersister;
 import org.hibernate.tool.schema.Action;
-import org.postgresql.copy.CopyManager;
-import org.postgresql.core.BaseConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -80,14 +85,33 @@ import org.slf4j.LoggerFactory;
  * database.
  */
 public final class RifLoader implements AutoCloseable {
+  private static final Period MAX_FILE_AGE_DAYS = Period.ofDays(40);
+
   /**
-   * The number of {@link RifRecordEvent}s that will be included in each processing batch. Note that
-   * larger batch sizes mean that more {@link RifRecordEvent}s will be held in memory
-   * simultaneously.
+   * The maximum number of record IDs that will be included in each of the <code>IN (...)</code>
+   * queries run by {@link #findExistingRecordIds(EntityManager, List, MetricRegistry)}, which keeps
+   * those queries well under the databases' limits on statement parameters.
    */
-  private static final int RECORD_BATCH_SIZE = 100;
+  private static final int MAX_IDEMPOTENCY_QUERY_IDS = 1000;
 
-  private static final Period MAX_FILE_AGE_DAYS = Period.ofDays(40);
+  /**
+   * The placeholder {@link LoadedFile#getLoadedFileId()} that's used for files which are being run
+   * through the pipeline without being loaded into the database, which never get a {@link
+   * LoadedFile} of their own.
+   */
+  private static final long NO_LOADED_FILE_ID = -1L;
+
+  /**
+   * The number of connections that the pool keeps on top of {@link
+   * LoadAppOptions#getLoaderThreads()}. The {@link LoaderSessionPool} sessions can hold a
+   * connection for each loader thread, so the per-file bookkeeping (the {@link LoadedFile} inserts
+   * and updates, trimming, Bloom filters, etc.) needs connections of its own, or it would wait for
+   * one until the pool timed out. Up to one file per {@link RifFileType} can be loading at once,
+   * each of which needs at most one bookkeeping connection at a time, and may also be given one
+   * more loader thread than its share of {@link LoadAppOptions#getLoaderThreads()} (as every file
+   * gets at least one).
+   */
+  static final int BOOKKEEPING_CONNECTIONS = 2 * RifFileType.values().length;
 
   private static final Logger LOGGER = LoggerFactory.getLogger(RifLoader.class);
   private static final Logger LOGGER_RECORD_COUNTS =
@@ -98,10 +122,57 @@ public final class RifLoader implements AutoCloseable {
   private final HikariDataSource dataSource;
   private final EntityManagerFactory entityManagerFactory;
   private final SecretKeyFactory secretKeyFactory;
+  private final IdentifierHasher identifierHasher;
   private final RifLoaderIdleTasks idleTasks;
+  private final PipelineStageMetrics stageMetrics;
+
+  /**
+   * The {@link LoadConcurrencyController} that limits the number of batches loaded at once, or
+   * <code>null</code> if {@link LoadAppOptions#isAdaptiveConcurrencyEnabled()} is not set.
+   */
+  private final LoadConcurrencyController concurrencyController;
+
+  /**
+   * The {@link AdaptiveBatchSizer} that sizes the record batches, or <code>null</code> if {@link
+   * LoadAppOptions#isAdaptiveBatchingEnabled()} is not set.
+   */
+  private final AdaptiveBatchSizer batchSizer;
+
+  /**
+   * The {@link InFlightByteBudget} that limits the payload of the queued and loading record
+   * batches, or <code>null</code> if {@link LoadAppOptions#getMaxInFlightBytes()} is not set.
+   */
+  private final InFlightByteBudget inFlightBytes;
+
+  /**
+   * The long-lived sessions that the load tasks borrow for each record batch, or <code>null</code>
+   * if the {@link LoadAppOptions#getRunMode()} doesn't use the database.
+   */
+  private final LoaderSessionPool loaderSessions;
+
+  /**
+   * The {@link LoadMode} actually in use, which may differ from {@link
+   * LoadAppOptions#getLoadMode()} if the configured one isn't supported by the database.
+   */
+  private final LoadMode loadMode;
+
+  /**
+   * The {@link LoadedFileBloomFilterBuilder}s for the files currently being loaded, keyed by their
+   * {@link LoadedFile#getLoadedFileId()}s. Each successfully loaded batch is added to its file's
+   * builder, and the result is published once the file is complete.
+   */
+  private final Map<Long, LoadedFileBloomFilterBuilder> fileFilterBuilders;
 
   /**
-   * Constructs a new {@link RifLoader} instance.
+   * The {@link LoadCheckpointTracker}s for the files currently being loaded via {@link
+   * #processResumable(RifFileEvent, Function, int, Consumer, Consumer)}, keyed by their {@link
+   * LoadedFile#getLoadedFileId()}s.
+   */
+  private final Map<Long, LoadCheckpointTracker> checkpointTrackers;
+
+  /**
+   * Constructs a new {@link RifLoader} instance. If the {@link LoadAppOptions#getRunMode()} doesn't
+   * use the database, it won't be connected to at all.
    *
    * @param appMetrics the {@link MetricRegistry} being used for the overall application (as opposed
    *     to a specific data set)
@@ -110,20 +181,70 @@ public final class RifLoader implements AutoCloseable {
   public RifLoader(MetricRegistry appMetrics, LoadAppOptions options) {
     this.appMetrics = appMetrics;
     this.options = options;
-
-    this.dataSource = createDataSource(options, appMetrics);
-    DatabaseSchemaManager.createOrUpdateSchema(dataSource);
-    this.entityManagerFactory = createEntityManagerFactory(dataSource);
+    this.stageMetrics = new PipelineStageMetrics(appMetrics);
+
+    boolean databaseRequired = options.getRunMode().isDatabaseRequired();
+    if (databaseRequired) {
+      this.dataSource = createDataSource(options, appMetrics);
+      DatabaseSchemaManager.createOrUpdateSchema(dataSource);
+      this.entityManagerFactory =
+          createEntityManagerFactory(dataSource, options.getJdbcBatchSize());
+    } else {
+      LOGGER.info(
+          "Configured to run in '{}' mode: nothing will be loaded into the database.",
+          options.getRunMode());
+      this.dataSource = null;
+      this.entityManagerFactory = null;
+    }
 
     this.secretKeyFactory = createSecretKeyFactory();
+    this.identifierHasher =
+        new IdentifierHasher(options, appMetrics, IdentifierHasher.DEFAULT_CACHE_SIZE);
     this.idleTasks =
-        new RifLoaderIdleTasks(options, appMetrics, entityManagerFactory, secretKeyFactory);
+        databaseRequired
+            ? new RifLoaderIdleTasks(options, appMetrics, entityManagerFactory, secretKeyFactory)
+            : null;
+    this.loadMode = databaseRequired ? selectLoadMode() : options.getLoadMode();
+    this.concurrencyController =
+        options.isAdaptiveConcurrencyEnabled()
+            ? new LoadConcurrencyController(
+                options.getAdaptiveLoaderThreadsMin(),
+                options.getLoaderThreads(),
+                appMetrics,
+                limit -> {
+                  if (dataSource != null)
+                    dataSource
+                        .getHikariConfigMXBean()
+                        .setMaximumPoolSize(computeConnectionPoolSize(limit));
+                })
+            : null;
+    this.batchSizer =
+        options.isAdaptiveBatchingEnabled() ? new AdaptiveBatchSizer(options, appMetrics) : null;
+    this.inFlightBytes =
+        options.getMaxInFlightBytes() > 0
+            ? new InFlightByteBudget(options.getMaxInFlightBytes())
+            : null;
+    this.loaderSessions =
+        databaseRequired
+            ? new LoaderSessionPool(
+                appMetrics,
+                dataSource,
+                entityManagerFactory.unwrap(SessionFactory.class),
+                options.getJdbcBatchSize(),
+                () ->
+                    concurrencyController != null
+                        ? concurrencyController.getLimit()
+                        : options.getLoaderThreads())
+            : null;
+    this.fileFilterBuilders = new ConcurrentHashMap<>();
+    this.checkpointTrackers = new ConcurrentHashMap<>();
   }
 
   /**
    * Get the IdleTask manager associated with this loader. Useful for testing.
    *
-   * @return the RifLoaderIdleTasks associated with this
+   * @return the RifLoaderIdleTasks associated with this, or <code>null</code> if the {@link
+   *     LoadAppOptions#getRunMode()} doesn't use the database
    */
   public RifLoaderIdleTasks getIdleTasks() {
     return idleTasks;
@@ -137,12 +258,7 @@ public final class RifLoader implements AutoCloseable {
   static HikariDataSource createDataSource(LoadAppOptions options, MetricRegistry metrics) {
     HikariDataSource dataSource = new HikariDataSource();
 
-    /*
-     * FIXME The pool size needs to be double the number of loader threads
-     * when idempotent loads are being used. Apparently, the queries need a
-     * separate Connection?
-     */
-    dataSource.setMaximumPoolSize(options.getLoaderThreads());
+    dataSource.setMaximumPoolSize(computeConnectionPoolSize(options.getLoaderThreads()));
 
     if (options.getDatabaseDataSource() != null) {
       dataSource.setDataSource(options.getDatabaseDataSource());
@@ -150,6 +266,14 @@ public final class RifLoader implements AutoCloseable {
       dataSource.setJdbcUrl(options.getDatabaseUrl());
       dataSource.setUsername(options.getDatabaseUsername());
       dataSource.setPassword(String.valueOf(options.getDatabasePassword()));
+
+      /*
+       * Have the PostgreSQL driver collapse each batch of INSERTs into multi-row INSERTs, which
+       * greatly cuts down on the number of network roundtrips needed.
+       */
+      if (options.getLoadMode() == LoadMode.JDBC_BATCH
+          && options.getDatabaseUrl().startsWith("jdbc:postgresql:"))
+        dataSource.addDataSourceProperty("reWriteBatchedInserts", "true");
     }
 
     dataSource.setRegisterMbeans(true);
@@ -158,20 +282,31 @@ public final class RifLoader implements AutoCloseable {
     return dataSource;
   }
 
+  /**
+   * @param loaderThreads the maximum number of batches that will be loaded at once
+   * @return the maximum size for the connection pool: enough for one {@link LoaderSessionPool}
+   *     session per loader thread, plus {@link #BOOKKEEPING_CONNECTIONS}
+   */
+  static int computeConnectionPoolSize(int loaderThreads) {
+    return loaderThreads + BOOKKEEPING_CONNECTIONS;
+  }
+
   /**
    * @param jdbcDataSource the JDBC {@link DataSource} for the Blue Button API backend database
    * @return a JPA {@link EntityManagerFactory} for the Blue Button API backend database
    */
   public static EntityManagerFactory createEntityManagerFactory(DataSource jdbcDataSource) {
-    /*
-     * The number of JDBC statements that will be queued/batched within a
-     * single transaction. Most recommendations suggest this should be 5-30.
-     * Paradoxically, setting it higher seems to actually slow things down.
-     * Presumably, it's delaying work that could be done earlier in a batch,
-     * and that starts to cost more than the extra network roundtrips.
-     */
-    int jdbcBatchSize = 10;
+    return createEntityManagerFactory(jdbcDataSource, LoadAppOptions.DEFAULT_JDBC_BATCH_SIZE);
+  }
 
+  /**
+   * @param jdbcDataSource the JDBC {@link DataSource} for the Blue Button API backend database
+   * @param jdbcBatchSize the number of JDBC statements that will be queued/batched within a single
+   *     transaction (see {@link LoadAppOptions#DEFAULT_JDBC_BATCH_SIZE})
+   * @return a JPA {@link EntityManagerFactory} for the Blue Button API backend database
+   */
+  public static EntityManagerFactory createEntityManagerFactory(
+      DataSource jdbcDataSource, int jdbcBatchSize) {
     Map<String, Object> hibernateProperties = new HashMap<>();
     hibernateProperties.put(org.hibernate.cfg.AvailableSettings.DATASOURCE, jdbcDataSource);
     hibernateProperties.put(org.hibernate.cfg.AvailableSettings.HBM2DDL_AUTO, Action.VALIDATE);
@@ -185,15 +320,17 @@ public final class RifLoader implements AutoCloseable {
 
   /**
    * @param options the {@link LoadAppOptions} to use
+   * @param loaderThreads the number of loader threads to use
    * @return the {@link BlockingThreadPoolExecutor} to use for asynchronous load tasks
    */
-  private static BlockingThreadPoolExecutor createLoadExecutor(LoadAppOptions options) {
+  private static BlockingThreadPoolExecutor createLoadExecutor(
+      LoadAppOptions options, int loaderThreads) {
     /*
      * A 16 vCPU ETL server can handle 400 loader threads at less than 30%
      * CPU usage (once a steady state is hit). The biggest limit here is
      * what the DB will allow.
      */
-    int threadPoolSize = options.getLoaderThreads();
+    int threadPoolSize = loaderThreads;
 
     /*
      * It's tempting to think that a large queue will improve performance,
@@ -205,10 +342,25 @@ public final class RifLoader implements AutoCloseable {
     int taskQueueSize = 10 * threadPoolSize;
 
     LOGGER.info(
-        "Configured to load with '{}' threads, a queue of '{}', and a batch size of '{}'.",
-        options.getLoaderThreads(),
+        "Configured to load with '{}' threads, a queue of '{}', a batch size of '{}', and a load"
+            + " mode of '{}'.",
+        threadPoolSize,
         taskQueueSize,
-        RECORD_BATCH_SIZE);
+        options.getRecordBatchSize(),
+        options.getLoadMode());
+    if (options.isAdaptiveConcurrencyEnabled())
+      LOGGER.info(
+          "Configured to adapt the overall load concurrency between '{}' and '{}'.",
+          options.getAdaptiveLoaderThreadsMin(),
+          options.getLoaderThreads());
+    if (options.isAdaptiveBatchingEnabled())
+      LOGGER.info(
+          "Configured to adapt the batch sizes to a transaction duration of '{}' ms.",
+          options.getBatchTransactionTargetMillis());
+    if (options.getMaxInFlightBytes() > 0)
+      LOGGER.info(
+          "Configured to limit the queued and loading batches to '{}' bytes.",
+          options.getMaxInFlightBytes());
 
     /*
      * I feel like a hipster using "found" code like
@@ -222,6 +374,44 @@ public final class RifLoader implements AutoCloseable {
     return loadExecutor;
   }
 
+  /**
+   * @return the {@link BlockingThreadPoolExecutor} to use for the asynchronous hashing of
+   *     beneficiary identifiers, which runs ahead of the load tasks
+   */
+  private static BlockingThreadPoolExecutor createHashingExecutor() {
+    /*
+     * Hashing is pure CPU work, so there's no point in having more threads
+     * than there are cores. The bounded queue blocks the producer when the
+     * hashing falls behind, just like the load executor does.
+     */
+    int threadPoolSize = Runtime.getRuntime().availableProcessors();
+    int taskQueueSize = 10 * threadPoolSize;
+
+    LOGGER.info("Configured to hash with '{}' threads.", threadPoolSize);
+    return new BlockingThreadPoolExecutor(
+        threadPoolSize, taskQueueSize, 100, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * @return the {@link LoadMode} to use, which will be the {@link LoadAppOptions#getLoadMode()}
+   *     unless that isn't supported by the database
+   */
+  private LoadMode selectLoadMode() {
+    LoadMode configuredLoadMode = options.getLoadMode();
+    if ((configuredLoadMode == LoadMode.POSTGRESQL_COPY_CSV
+            || configuredLoadMode == LoadMode.POSTGRESQL_COPY_BINARY
+            || configuredLoadMode == LoadMode.POSTGRESQL_STAGED_MERGE)
+        && !isDatabasePostgreSql(entityManagerFactory)) {
+      LOGGER.warn(
+          "Load mode '{}' requires PostgreSQL. Falling back to '{}'.",
+          configuredLoadMode,
+          LoadMode.JPA);
+      return LoadMode.JPA;
+    }
+
+    return configuredLoadMode;
+  }
+
   /**
    * @param recordAction the {@link RecordAction} of the specific record being processed
    * @return the {@link LoadStrategy} that should be used for the record being processed
@@ -236,10 +426,11 @@ public final class RifLoader implements AutoCloseable {
   }
 
   /**
-   * @return <code>true</code> if {@link #entityManagerFactory} is connected to a PostgreSQL
-   *     database, <code>false</code> if it is not
+   * @param entityManagerFactory the {@link EntityManagerFactory} to check
+   * @return <code>true</code> if the specified {@link EntityManagerFactory} is connected to a
+   *     PostgreSQL database, <code>false</code> if it is not
    */
-  private boolean isDatabasePostgreSql() {
+  static boolean isDatabasePostgreSql(EntityManagerFactory entityManagerFactory) {
     AtomicBoolean result = new AtomicBoolean(false);
 
     EntityManager entityManager = null;
@@ -264,6 +455,10 @@ public final class RifLoader implements AutoCloseable {
 
   /** Do the idle tasks on the database. */
   public void doIdleTask() {
+    if (idleTasks == null) return;
+
+    // No loads are running, so let the idle tasks have the connections.
+    loaderSessions.closeIdle();
     idleTasks.doIdleTask();
   }
 
@@ -288,48 +483,314 @@ public final class RifLoader implements AutoCloseable {
       RifFileRecords dataToLoad,
       Consumer<Throwable> errorHandler,
       Consumer<RifRecordLoadResult> resultHandler) {
-    BlockingThreadPoolExecutor loadExecutor = createLoadExecutor(options);
-
-    MetricRegistry fileEventMetrics = dataToLoad.getSourceEvent().getEventMetrics();
-    Timer.Context timerDataSetFile =
-        appMetrics
-            .timer(MetricRegistry.name(getClass().getSimpleName(), "dataSet", "file", "processed"))
-            .time();
-    LOGGER.info("Processing '{}'...", dataToLoad);
+    process(dataToLoad, options.getLoaderThreads(), errorHandler, resultHandler);
+  }
 
-    dataToLoad
-        .getSourceEvent()
-        .getEventMetrics()
-        .register(
-            MetricRegistry.name(getClass().getSimpleName(), "loadExecutorService", "queueSize"),
-            new Gauge<Integer>() {
-              /** @see com.codahale.metrics.Gauge#getValue() */
-              @Override
-              public Integer getValue() {
-                return loadExecutor.getQueue().size();
-              }
-            });
-    dataToLoad
-        .getSourceEvent()
-        .getEventMetrics()
-        .register(
-            MetricRegistry.name(getClass().getSimpleName(), "loadExecutorService", "activeBatches"),
-            new Gauge<Integer>() {
-              /** @see com.codahale.metrics.Gauge#getValue() */
-              @Override
-              public Integer getValue() {
-                return loadExecutor.getActiveCount();
-              }
-            });
+  /**
+   * Consumes the input {@link Stream} of {@link RifRecordEvent}s, pushing each {@link
+   * RifRecordEvent}'s record to the database, and passing the result for each of those bundles to
+   * the specified error handler and result handler, as appropriate.
+   *
+   * <p>This is a <a href=
+   * "https://docs.oracle.com/javase/8/docs/api/java/util/stream/package-summary.html#StreamOps">
+   * terminal operation</a>.
+   *
+   * <p>This method may be called concurrently for different files, in which case the caller is
+   * responsible for splitting {@link LoadAppOptions#getLoaderThreads()} between those calls.
+   *
+   * @param dataToLoad the FHIR {@link RifRecordEvent}s to be loaded
+   * @param loaderThreads the number of loader threads to use for this file, which overrides {@link
+   *     LoadAppOptions#getLoaderThreads()}
+   * @param errorHandler the {@link Consumer} to pass each error that occurs to (possibly one error
+   *     per {@link RifRecordEvent}, if every input element fails to load), which will be run on the
+   *     caller's thread
+   * @param resultHandler the {@link Consumer} to pass each the {@link RifRecordLoadResult} for each
+   *     of the successfully-processed input {@link RifRecordEvent}s, which will be run on the
+   *     caller's thread
+   */
+  public void process(
+      RifFileRecords dataToLoad,
+      int loaderThreads,
+      Consumer<Throwable> errorHandler,
+      Consumer<RifRecordLoadResult> resultHandler) {
+    if (loaderThreads < 1) throw new IllegalArgumentException();
+    if (!options.getRunMode().isDatabaseRequired()) {
+      processWithoutDatabase(dataToLoad, loaderThreads, errorHandler, resultHandler);
+      return;
+    }
 
     // Trim the LoadedFiles & LoadedBatches table
     trimLoadedFiles(errorHandler);
 
     // Insert a LoadedFiles entry
-    final long loadedFileId = insertLoadedFile(dataToLoad.getSourceEvent(), errorHandler);
+    final long loadedFileId =
+        insertLoadedFile(dataToLoad.getSourceEvent(), Optional.empty(), errorHandler);
     if (loadedFileId < 0) {
       return; // Something went wrong, the error handler was called.
     }
+    fileFilterBuilders.put(loadedFileId, new LoadedFileBloomFilterBuilder(loadedFileId));
+
+    loadFile(dataToLoad, loadedFileId, loaderThreads, errorHandler, resultHandler);
+  }
+
+  /**
+   * Loads the specified {@link RifFileEvent}'s records, as with {@link #process(RifFileRecords,
+   * int, Consumer, Consumer)}, but records a checkpoint for the file as its batches are committed,
+   * so that it can be resumed after a crash. If an earlier attempt to load the same file (from the
+   * same data set) was interrupted, this picks up where that left off: it reuses that attempt's
+   * {@link LoadedFile}, asks for the file's records from the checkpoint onwards, and skips any
+   * records after the checkpoint that were committed anyway. If the earlier attempt completed,
+   * nothing is loaded at all. (If the {@link LoadAppOptions#getRunMode()} doesn't use the database,
+   * there are no checkpoints, and the whole file is always run through the pipeline.)
+   *
+   * @param fileEvent the {@link RifFileEvent} to load
+   * @param recordsProducer produces the {@link RifFileRecords} for the specified {@link
+   *     RifFileEvent}, starting at the specified {@link RifFilePosition}, with {@link
+   *     RifRecordEvent#getPosition()} populated for each record
+   * @param loaderThreads the number of loader threads to use for this file, which overrides {@link
+   *     LoadAppOptions#getLoaderThreads()}
+   * @param errorHandler the {@link Consumer} to pass each error that occurs to (possibly one error
+   *     per {@link RifRecordEvent}, if every input element fails to load), which will be run on the
+   *     caller's thread
+   * @param resultHandler the {@link Consumer} to pass each the {@link RifRecordLoadResult} for each
+   *     of the successfully-processed input {@link RifRecordEvent}s, which will be run on the
+   *     caller's thread
+   */
+  public void processResumable(
+      RifFileEvent fileEvent,
+      Function<RifFilePosition, RifFileRecords> recordsProducer,
+      int loaderThreads,
+      Consumer<Throwable> errorHandler,
+      Consumer<RifRecordLoadResult> resultHandler) {
+    if (loaderThreads < 1) throw new IllegalArgumentException();
+    if (!options.getRunMode().isDatabaseRequired()) {
+      processWithoutDatabase(
+          recordsProducer.apply(RifFilePosition.START), loaderThreads, errorHandler, resultHandler);
+      return;
+    }
+
+    // Trim the LoadedFiles & LoadedBatches table
+    trimLoadedFiles(errorHandler);
+
+    // Find any earlier attempt to load this file.
+    Optional<LoadedFile> previousAttempt;
+    try {
+      previousAttempt = findPreviousAttempt(fileEvent);
+    } catch (Exception e) {
+      errorHandler.accept(e);
+      return;
+    }
+    if (previousAttempt.isPresent() && previousAttempt.get().getCompleted() != null) {
+      LOGGER.info(
+          "Skipping '{}', which was already loaded as LoadedFile {}.",
+          fileEvent,
+          previousAttempt.get().getLoadedFileId());
+      return;
+    }
+
+    final long loadedFileId;
+    RifFilePosition startAt;
+    Set<Long> alreadyCommitted = new HashSet<>();
+    LoadedFileBloomFilterBuilder fileFilterBuilder;
+    if (previousAttempt.isPresent()) {
+      loadedFileId = previousAttempt.get().getLoadedFileId();
+      startAt = previousAttempt.get().getCheckpoint().orElse(RifFilePosition.START);
+      fileFilterBuilder = new LoadedFileBloomFilterBuilder(loadedFileId);
+      try {
+        readPreviousBatches(loadedFileId, startAt, alreadyCommitted, fileFilterBuilder);
+      } catch (Exception e) {
+        errorHandler.accept(e);
+        return;
+      }
+      LOGGER.info(
+          "Resuming '{}' as LoadedFile {} from {}, skipping {} later records that were already"
+              + " committed.",
+          fileEvent,
+          loadedFileId,
+          startAt,
+          alreadyCommitted.size());
+    } else {
+      loadedFileId =
+          insertLoadedFile(fileEvent, Optional.of(RifFilePosition.START), errorHandler);
+      if (loadedFileId < 0) {
+        return; // Something went wrong, the error handler was called.
+      }
+      startAt = RifFilePosition.START;
+      fileFilterBuilder = new LoadedFileBloomFilterBuilder(loadedFileId);
+    }
+
+    /*
+     * Note every record that's handed out, in order, so that the tracker knows which records are
+     * still outstanding, and drop the ones that are already in the database.
+     */
+    LoadCheckpointTracker checkpointTracker = new LoadCheckpointTracker(startAt, alreadyCommitted);
+    RifFileRecords producedRecords = recordsProducer.apply(startAt);
+    RifFileRecords dataToLoad =
+        new RifFileRecords(
+            fileEvent,
+            producedRecords
+                .getRecords()
+                .filter(
+                    record -> {
+                      boolean willLoad = !checkpointTracker.isAlreadyCommitted(record);
+                      checkpointTracker.markDispatched(record, willLoad);
+                      return willLoad;
+                    }));
+
+    AtomicBoolean failed = new AtomicBoolean(false);
+    Consumer<Throwable> failureTrackingErrorHandler =
+        error -> {
+          failed.set(true);
+          errorHandler.accept(error);
+        };
+    fileFilterBuilders.put(loadedFileId, fileFilterBuilder);
+    checkpointTrackers.put(loadedFileId, checkpointTracker);
+    boolean finished = false;
+    try {
+      loadFile(
+          dataToLoad, loadedFileId, loaderThreads, failureTrackingErrorHandler, resultHandler);
+      finished = true;
+    } finally {
+      checkpointTrackers.remove(loadedFileId);
+      boolean completed = finished && !failed.get() && checkpointTracker.isAllCommitted();
+      updateLoadedFileCheckpoint(
+          loadedFileId, checkpointTracker.getCheckpoint(), completed, errorHandler);
+    }
+  }
+
+  /**
+   * Runs the specified records through as much of the pipeline as the {@link
+   * LoadAppOptions#getRunMode()} calls for, and then discards them, without touching the database.
+   * Each discarded record is counted in {@link PipelineStageMetrics#markRecords(RifFileType, long)}
+   * and passed to the result handler as {@link LoadAction#DID_NOTHING}, so the pipeline's
+   * throughput can be measured just as it would be for a real load.
+   *
+   * @param dataToLoad the FHIR {@link RifRecordEvent}s to be run through the pipeline
+   * @param loaderThreads the number of loader threads to use for this file
+   * @param errorHandler the {@link Consumer} to pass each error that occurs to
+   * @param resultHandler the {@link Consumer} to pass each {@link RifRecordLoadResult} to
+   */
+  private void processWithoutDatabase(
+      RifFileRecords dataToLoad,
+      int loaderThreads,
+      Consumer<Throwable> errorHandler,
+      Consumer<RifRecordLoadResult> resultHandler) {
+    if (options.getRunMode() != RunMode.PARSE_ONLY) {
+      loadFile(dataToLoad, NO_LOADED_FILE_ID, loaderThreads, errorHandler, resultHandler);
+      return;
+    }
+
+    RifFileType rifFileType = dataToLoad.getSourceEvent().getFile().getFileType();
+    Timer.Context timerDataSetFile =
+        appMetrics
+            .timer(MetricRegistry.name(getClass().getSimpleName(), "dataSet", "file", "processed"))
+            .time();
+    LOGGER.info("Parsing '{}'...", dataToLoad);
+    dataToLoad
+        .getRecords()
+        .forEach(
+            record -> {
+              stageMetrics.markRecords(rifFileType, 1);
+              resultHandler.accept(new RifRecordLoadResult(record, LoadAction.DID_NOTHING));
+            });
+
+    LOGGER.info("Parsed '{}'.", dataToLoad);
+    timerDataSetFile.stop();
+  }
+
+  /**
+   * Loads the specified records into the specified {@link LoadedFile}, whose entry in {@link
+   * #fileFilterBuilders} must already have been set up (unless the {@link
+   * LoadAppOptions#getRunMode()} doesn't use the database, in which case the records are discarded,
+   * rather than loaded).
+   *
+   * @param dataToLoad the FHIR {@link RifRecordEvent}s to be loaded
+   * @param loadedFileId the ID of the {@link LoadedFile} to load the records as part of
+   * @param loaderThreads the number of loader threads to use for this file
+   * @param errorHandler the {@link Consumer} to pass each error that occurs to
+   * @param resultHandler the {@link Consumer} to pass each {@link RifRecordLoadResult} to
+   */
+  private void loadFile(
+      RifFileRecords dataToLoad,
+      long loadedFileId,
+      int loaderThreads,
+      Consumer<Throwable> errorHandler,
+      Consumer<RifRecordLoadResult> resultHandler) {
+    /*
+     * When sharding by beneficiary, each shard's single worker thread does
+     * all of the work for its batches, so neither pool is needed. When only
+     * hashing, the batches are discarded as soon as they've been hashed, so
+     * there's nothing for the load pool to do.
+     */
+    boolean sharded = options.isBeneficiaryShardingEnabled();
+    boolean hashOnly = options.getRunMode() == RunMode.HASH_ONLY;
+    BlockingThreadPoolExecutor loadExecutor =
+        sharded || hashOnly ? null : createLoadExecutor(options, loaderThreads);
+
+    /*
+     * Beneficiary identifiers have to be hashed before they're loaded, which
+     * is expensive CPU work. That's done in a separate stage, on its own
+     * pool, so that the loader threads spend their time waiting on the
+     * database, rather than on the CPU.
+     */
+    RifFileType rifFileType = dataToLoad.getSourceEvent().getFile().getFileType();
+    boolean hashingRequired =
+        rifFileType == RifFileType.BENEFICIARY || rifFileType == RifFileType.BENEFICIARY_HISTORY;
+    BlockingThreadPoolExecutor hashingExecutor =
+        hashingRequired && !sharded ? createHashingExecutor() : null;
+
+    Timer.Context timerDataSetFile =
+        appMetrics
+            .timer(MetricRegistry.name(getClass().getSimpleName(), "dataSet", "file", "processed"))
+            .time();
+    LOGGER.info("Processing '{}'...", dataToLoad);
+
+    if (loadExecutor != null)
+      registerLoadGauges(
+          dataToLoad, () -> loadExecutor.getQueue().size(), loadExecutor::getActiveCount);
+
+    if (concurrencyController != null)
+      dataToLoad
+          .getSourceEvent()
+          .getEventMetrics()
+          .register(
+              MetricRegistry.name(getClass().getSimpleName(), "concurrency", "currentLimit"),
+              new Gauge<Integer>() {
+                /** @see com.codahale.metrics.Gauge#getValue() */
+                @Override
+                public Integer getValue() {
+                  return concurrencyController.getLimit();
+                }
+              });
+
+    if (inFlightBytes != null)
+      dataToLoad
+          .getSourceEvent()
+          .getEventMetrics()
+          .register(
+              MetricRegistry.name(getClass().getSimpleName(), "inFlightBytes"),
+              new Gauge<Long>() {
+                /** @see com.codahale.metrics.Gauge#getValue() */
+                @Override
+                public Long getValue() {
+                  return inFlightBytes.getInFlightBytes();
+                }
+              });
+
+    if (hashingExecutor != null)
+      dataToLoad
+          .getSourceEvent()
+          .getEventMetrics()
+          .register(
+              MetricRegistry.name(
+                  getClass().getSimpleName(), "hashingExecutorService", "queueSize"),
+              new Gauge<Integer>() {
+                /** @see com.codahale.metrics.Gauge#getValue() */
+                @Override
+                public Integer getValue() {
+                  return hashingExecutor.getQueue().size();
+                }
+              });
 
     /*
      * Design history note: Initially, this function just returned a stream
@@ -343,44 +804,130 @@ public final class RifLoader implements AutoCloseable {
      * always run in a consistent manner.
      */
 
-    try (PostgreSqlCopyInserter postgresBatch =
-        new PostgreSqlCopyInserter(entityManagerFactory, fileEventMetrics)) {
-      // Define the Consumer that will handle each batch.
-      Consumer<List<RifRecordEvent<?>>> batchProcessor =
-          recordsBatch -> {
-            /*
-             * Submit the RifRecordEvent for asynchronous processing. Note
-             * that, due to the ExecutorService's configuration (see in
-             * constructor), this will block if too many tasks are already
-             * pending. That's desirable behavior, as it prevents
-             * OutOfMemoryErrors.
-             */
+    // Define the Consumer that will handle each batch.
+    Consumer<List<RifRecordEvent<?>>> batchProcessor =
+        recordsBatch -> {
+          /*
+           * Submit the RifRecordEvent for asynchronous processing. Note
+           * that, due to the ExecutorService's configuration (see in
+           * constructor), this will block if too many tasks are already
+           * pending. That's desirable behavior, as it prevents
+           * OutOfMemoryErrors. For the same reason, this will also block
+           * if the batches already in flight are too large, in total.
+           */
+          long chargedBytes = 0L;
+          if (inFlightBytes != null) {
+            try {
+              chargedBytes =
+                  inFlightBytes.acquire(AdaptiveBatchSizer.estimateBatchBytes(recordsBatch));
+            } catch (InterruptedException e) {
+              // Interrupts should not be used on this thread, so go boom.
+              throw new RuntimeException(e);
+            }
+          }
+
+          if (hashingExecutor != null)
+            hashAsync(
+                hashingExecutor,
+                loadExecutor,
+                recordsBatch,
+                chargedBytes,
+                loadedFileId,
+                resultHandler,
+                errorHandler);
+          else if (hashOnly) discardBatch(recordsBatch, chargedBytes, resultHandler, errorHandler);
+          else
             processAsync(
                 loadExecutor,
                 recordsBatch,
+                chargedBytes,
                 loadedFileId,
-                postgresBatch,
                 resultHandler,
                 errorHandler);
-          };
+        };
+
+    BeneficiaryShardRouter shardRouter = null;
+    if (sharded) {
+      LOGGER.info(
+          "Configured to load with '{}' beneficiary shards, a batch size of '{}', and a load mode"
+              + " of '{}'.",
+          loaderThreads,
+          options.getRecordBatchSize(),
+          options.getLoadMode());
 
+      /*
+       * Route each record to its beneficiary's shard, which will batch it up
+       * and then hash and load those batches, in order, on its own thread.
+       */
+      shardRouter =
+          new BeneficiaryShardRouter(
+              loaderThreads,
+              options.getRecordBatchSize(),
+              recordsBatch -> {
+                if (hashingRequired) {
+                  try {
+                    hashIdentifiers(recordsBatch);
+                  } catch (Throwable e) {
+                    errorHandler.accept(e);
+                    return;
+                  }
+                }
+
+                if (hashOnly) discardBatch(recordsBatch, 0L, resultHandler, errorHandler);
+                else loadBatch(recordsBatch, 0L, loadedFileId, resultHandler, errorHandler);
+              });
+      registerLoadGauges(dataToLoad, shardRouter::getQueueSize, shardRouter::getActiveCount);
+
+      dataToLoad.getRecords().forEach(shardRouter::route);
+      shardRouter.flush();
+    } else if (batchSizer != null)
+      // Collect records into batches sized by their payload, and submit each to batchProcessor.
+      BatchSpliterator.batches(
+              dataToLoad.getRecords(),
+              () -> batchSizer.getBatchSize(rifFileType),
+              AdaptiveBatchSizer::estimateBytes,
+              () -> batchSizer.getBatchBytes(rifFileType))
+          .forEach(batchProcessor);
+    else if (options.getRecordBatchSize() > 1)
       // Collect records into batches and submit each to batchProcessor.
-      if (RECORD_BATCH_SIZE > 1)
-        BatchSpliterator.batches(dataToLoad.getRecords(), RECORD_BATCH_SIZE)
-            .forEach(batchProcessor);
-      else
-        dataToLoad
-            .getRecords()
-            .map(
-                record -> {
-                  List<RifRecordEvent<?>> ittyBittyBatch = new LinkedList<>();
-                  ittyBittyBatch.add(record);
-                  return ittyBittyBatch;
-                })
-            .forEach(batchProcessor);
+      BatchSpliterator.batches(dataToLoad.getRecords(), options.getRecordBatchSize())
+          .forEach(batchProcessor);
+    else
+      dataToLoad
+          .getRecords()
+          .map(
+              record -> {
+                List<RifRecordEvent<?>> ittyBittyBatch = new LinkedList<>();
+                ittyBittyBatch.add(record);
+                return ittyBittyBatch;
+              })
+          .forEach(batchProcessor);
+
+    // Wait for all submitted batches to complete.
+    try {
+      if (shardRouter != null) {
+        boolean terminatedSuccessfully =
+            shardRouter.shutdownAndAwaitTermination(72, TimeUnit.HOURS);
+        if (!terminatedSuccessfully)
+          throw new IllegalStateException(
+              String.format(
+                  "%s failed to complete processing the records in time: '%s'.",
+                  this.getClass().getSimpleName(), dataToLoad));
+      }
 
-      // Wait for all submitted batches to complete.
-      try {
+      // The hashing tasks submit the load tasks, so they must finish first.
+      if (hashingExecutor != null) {
+        hashingExecutor.shutdown();
+        boolean hashingTerminatedSuccessfully =
+            hashingExecutor.awaitTermination(72, TimeUnit.HOURS);
+        if (!hashingTerminatedSuccessfully)
+          throw new IllegalStateException(
+              String.format(
+                  "%s failed to complete hashing the records in time: '%s'.",
+                  this.getClass().getSimpleName(), dataToLoad));
+      }
+
+      if (loadExecutor != null) {
         loadExecutor.shutdown();
         boolean terminatedSuccessfully = loadExecutor.awaitTermination(72, TimeUnit.HOURS);
         if (!terminatedSuccessfully)
@@ -388,80 +935,273 @@ public final class RifLoader implements AutoCloseable {
               String.format(
                   "%s failed to complete processing the records in time: '%s'.",
                   this.getClass().getSimpleName(), dataToLoad));
-      } catch (InterruptedException e) {
-        // Interrupts should not be used on this thread, so go boom.
-        throw new RuntimeException(e);
       }
+    } catch (InterruptedException e) {
+      // Interrupts should not be used on this thread, so go boom.
+      throw new RuntimeException(e);
+    } finally {
+      /*
+       * Hand the sessions' connections back to the pool, rather than holding onto them until the
+       * next file (or the idle tasks) gets around to it. If other files are still loading, their
+       * idle sessions get closed, too, but they'll just open new ones as needed.
+       */
+      if (loaderSessions != null) loaderSessions.closeIdle();
 
-      // Submit the queued PostgreSQL COPY operations, if any.
-      if (!postgresBatch.isEmpty()) {
-        postgresBatch.submit();
-      }
+      /*
+       * Only batches that were committed were added to the filter, so it's safe to publish even if
+       * some of them failed: it won't be missing anything that's in the database.
+       */
+      LoadedFileBloomFilterBuilder fileFilterBuilder = fileFilterBuilders.remove(loadedFileId);
+      if (fileFilterBuilder != null && fileFilterBuilder.getBatchCount() > 0)
+        insertLoadedFileBloomFilter(fileFilterBuilder, errorHandler);
     }
 
     LOGGER.info("Processed '{}'.", dataToLoad);
     timerDataSetFile.stop();
 
-    logRecordCounts();
+    if (options.getRunMode().isDatabaseRequired()) logRecordCounts();
   }
 
   /**
-   * @param loadExecutor the {@link BlockingThreadPoolExecutor} to use for asynchronous load tasks
+   * Registers the per-file {@link Gauge}s that track how much work is queued up for and running in
+   * the load tasks.
+   *
+   * @param dataToLoad the {@link RifFileRecords} being loaded
+   * @param queueSize supplies the number of batches waiting to be loaded
+   * @param activeBatches supplies the number of batches currently being loaded
+   */
+  private void registerLoadGauges(
+      RifFileRecords dataToLoad, IntSupplier queueSize, IntSupplier activeBatches) {
+    dataToLoad
+        .getSourceEvent()
+        .getEventMetrics()
+        .register(
+            MetricRegistry.name(getClass().getSimpleName(), "loadExecutorService", "queueSize"),
+            new Gauge<Integer>() {
+              /** @see com.codahale.metrics.Gauge#getValue() */
+              @Override
+              public Integer getValue() {
+                return queueSize.getAsInt();
+              }
+            });
+    dataToLoad
+        .getSourceEvent()
+        .getEventMetrics()
+        .register(
+            MetricRegistry.name(getClass().getSimpleName(), "loadExecutorService", "activeBatches"),
+            new Gauge<Integer>() {
+              /** @see com.codahale.metrics.Gauge#getValue() */
+              @Override
+              public Integer getValue() {
+                return activeBatches.getAsInt();
+              }
+            });
+  }
+
+  /**
+   * Hashes the beneficiary identifiers in the specified batch on the hashing pool and then, once
+   * that's complete, hands the batch off to {@link #processAsync(BlockingThreadPoolExecutor, List,
+   * long, long, Consumer, Consumer)} (or discards it, if there's no load pool).
+   *
+   * @param hashingExecutor the {@link BlockingThreadPoolExecutor} to use for asynchronous hashing
+   *     tasks
+   * @param loadExecutor the {@link BlockingThreadPoolExecutor} to use for asynchronous load tasks,
+   *     or <code>null</code> if the batch should be discarded once it's been hashed
    * @param recordsBatch the {@link RifRecordEvent}s to process
-   * @param loadedFileBuilder the builder for the {@LoadedFiled} associated with this batch
-   * @param postgresBatch the {@link PostgreSqlCopyInserter} for the current set of {@link
-   *     RifFilesEvent}s being processed
+   * @param chargedBytes the number of bytes that the batch was charged against {@link
+   *     #inFlightBytes}, which will be released once it's done
+   * @param loadedFileId the ID of the {@link LoadedFile} associated with this batch
    * @param resultHandler the {@link Consumer} to notify when the batch completes successfully
    * @param errorHandler the {@link Consumer} to notify when the batch fails for any reason
    */
-  private void processAsync(
+  private void hashAsync(
+      BlockingThreadPoolExecutor hashingExecutor,
       BlockingThreadPoolExecutor loadExecutor,
       List<RifRecordEvent<?>> recordsBatch,
+      long chargedBytes,
       long loadedFileId,
-      PostgreSqlCopyInserter postgresBatch,
       Consumer<RifRecordLoadResult> resultHandler,
       Consumer<Throwable> errorHandler) {
-    loadExecutor.submit(
+    long submitNanos = System.nanoTime();
+    hashingExecutor.submit(
         () -> {
+          stageMetrics.recordSince(
+              PipelineStage.QUEUE_WAIT, getFileType(recordsBatch), submitNanos);
           try {
-            List<RifRecordLoadResult> processResults =
-                process(recordsBatch, loadedFileId, postgresBatch);
-            processResults.forEach(resultHandler::accept);
+            hashIdentifiers(recordsBatch);
           } catch (Throwable e) {
+            releaseInFlightBytes(chargedBytes);
             errorHandler.accept(e);
+            return;
+          }
+
+          if (loadExecutor == null) {
+            // Only hashing: the batch has gone as far as it's going to.
+            discardBatch(recordsBatch, chargedBytes, resultHandler, errorHandler);
+            return;
           }
+
+          /*
+           * Note that this will block the hashing thread if the load
+           * executor's queue is full, which keeps the hashing from running
+           * too far ahead of the loading.
+           */
+          processAsync(
+              loadExecutor, recordsBatch, chargedBytes, loadedFileId, resultHandler, errorHandler);
         });
   }
 
   /**
+   * @param loadExecutor the {@link BlockingThreadPoolExecutor} to use for asynchronous load tasks
    * @param recordsBatch the {@link RifRecordEvent}s to process
-   * @param loadedFileBuilder the builder for the {@LoadedFile} associated with this batch
-   * @param postgresBatch the {@link PostgreSqlCopyInserter} for the current set of {@link
-   *     RifFilesEvent}s being processed
-   * @return the {@link RifRecordLoadResult}s that model the results of the operation
+   * @param chargedBytes the number of bytes that the batch was charged against {@link
+   *     #inFlightBytes}, which will be released once it's done
+   * @param loadedFileBuilder the builder for the {@LoadedFiled} associated with this batch
+   * @param resultHandler the {@link Consumer} to notify when the batch completes successfully
+   * @param errorHandler the {@link Consumer} to notify when the batch fails for any reason
    */
-  private List<RifRecordLoadResult> process(
+  private void processAsync(
+      BlockingThreadPoolExecutor loadExecutor,
       List<RifRecordEvent<?>> recordsBatch,
+      long chargedBytes,
       long loadedFileId,
-      PostgreSqlCopyInserter postgresBatch) {
-    RifFileEvent fileEvent = recordsBatch.get(0).getFileEvent();
-    MetricRegistry fileEventMetrics = fileEvent.getEventMetrics();
-
-    RifFileType rifFileType = fileEvent.getFile().getFileType();
+      Consumer<RifRecordLoadResult> resultHandler,
+      Consumer<Throwable> errorHandler) {
+    long submitNanos = System.nanoTime();
+    loadExecutor.submit(
+        () -> {
+          stageMetrics.recordSince(
+              PipelineStage.QUEUE_WAIT, getFileType(recordsBatch), submitNanos);
+          loadBatch(recordsBatch, chargedBytes, loadedFileId, resultHandler, errorHandler);
+        });
+  }
 
-    // If these are Beneficiary records, first hash their HICNs.
-    if (rifFileType == RifFileType.BENEFICIARY) {
-      for (RifRecordEvent<?> rifRecordEvent : recordsBatch) {
-        hashBeneficiaryHicn(fileEventMetrics, rifRecordEvent);
-        hashBeneficiaryMbi(fileEventMetrics, rifRecordEvent);
-      }
-    } else if (rifFileType == RifFileType.BENEFICIARY_HISTORY) {
-      for (RifRecordEvent<?> rifRecordEvent : recordsBatch) {
-        hashBeneficiaryHistoryHicn(fileEventMetrics, rifRecordEvent);
-        hashBeneficiaryHistoryMbi(fileEventMetrics, rifRecordEvent);
+  /**
+   * Loads the specified batch on the calling thread, passing its results or error to the specified
+   * handlers.
+   *
+   * @param recordsBatch the {@link RifRecordEvent}s to process
+   * @param chargedBytes the number of bytes that the batch was charged against {@link
+   *     #inFlightBytes}, which will be released once it's done, or <code>0</code> if none
+   * @param loadedFileId the ID of the {@link LoadedFile} associated with this batch
+   * @param resultHandler the {@link Consumer} to notify when the batch completes successfully
+   * @param errorHandler the {@link Consumer} to notify when the batch fails for any reason
+   */
+  private void loadBatch(
+      List<RifRecordEvent<?>> recordsBatch,
+      long chargedBytes,
+      long loadedFileId,
+      Consumer<RifRecordLoadResult> resultHandler,
+      Consumer<Throwable> errorHandler) {
+    /*
+     * When the concurrency is adaptive, the loader threads are only the ceiling: each batch
+     * also has to wait for the controller to let it through.
+     */
+    if (concurrencyController != null) {
+      try {
+        concurrencyController.acquire();
+      } catch (InterruptedException e) {
+        releaseInFlightBytes(chargedBytes);
+        errorHandler.accept(e);
+        return;
       }
     }
 
+    long batchStartTime = System.nanoTime();
+    boolean batchFailed = true;
+    try {
+      List<RifRecordLoadResult> processResults =
+          options.getRunMode() == RunMode.NULL_SINK
+              ? discard(recordsBatch)
+              : process(recordsBatch, loadedFileId);
+      batchFailed = false;
+      long resultHandlingStartNanos = System.nanoTime();
+      processResults.forEach(resultHandler::accept);
+      stageMetrics.recordSince(
+          PipelineStage.RESULT_HANDLING, getFileType(recordsBatch), resultHandlingStartNanos);
+    } catch (Throwable e) {
+      errorHandler.accept(e);
+    } finally {
+      if (concurrencyController != null)
+        concurrencyController.release(System.nanoTime() - batchStartTime, batchFailed);
+      releaseInFlightBytes(chargedBytes);
+    }
+  }
+
+  /**
+   * Discards the specified batch on the calling thread, as it's gone as far through the pipeline as
+   * the {@link LoadAppOptions#getRunMode()} calls for, passing its results or error to the
+   * specified handlers.
+   *
+   * @param recordsBatch the {@link RifRecordEvent}s to discard
+   * @param chargedBytes the number of bytes that the batch was charged against {@link
+   *     #inFlightBytes}, which will be released once it's done, or <code>0</code> if none
+   * @param resultHandler the {@link Consumer} to notify when the batch completes successfully
+   * @param errorHandler the {@link Consumer} to notify when the batch fails for any reason
+   */
+  private void discardBatch(
+      List<RifRecordEvent<?>> recordsBatch,
+      long chargedBytes,
+      Consumer<RifRecordLoadResult> resultHandler,
+      Consumer<Throwable> errorHandler) {
+    try {
+      List<RifRecordLoadResult> discardResults = discard(recordsBatch);
+      long resultHandlingStartNanos = System.nanoTime();
+      discardResults.forEach(resultHandler::accept);
+      stageMetrics.recordSince(
+          PipelineStage.RESULT_HANDLING, getFileType(recordsBatch), resultHandlingStartNanos);
+    } catch (Throwable e) {
+      errorHandler.accept(e);
+    } finally {
+      releaseInFlightBytes(chargedBytes);
+    }
+  }
+
+  /**
+   * Stands in for {@link #process(List, long)} when the {@link LoadAppOptions#getRunMode()} doesn't
+   * use the database, counting the specified batch's records as done without loading them.
+   *
+   * @param recordsBatch the {@link RifRecordEvent}s to discard
+   * @return a {@link LoadAction#DID_NOTHING} {@link RifRecordLoadResult} for each of the specified
+   *     {@link RifRecordEvent}s
+   */
+  private List<RifRecordLoadResult> discard(List<RifRecordEvent<?>> recordsBatch) {
+    List<RifRecordLoadResult> discardResults = new ArrayList<>(recordsBatch.size());
+    for (RifRecordEvent<?> rifRecordEvent : recordsBatch)
+      discardResults.add(new RifRecordLoadResult(rifRecordEvent, LoadAction.DID_NOTHING));
+    stageMetrics.markRecords(getFileType(recordsBatch), recordsBatch.size());
+    return discardResults;
+  }
+
+  /**
+   * @param recordsBatch a (non-empty) batch of {@link RifRecordEvent}s, which will all be from the
+   *     same file
+   * @return the {@link RifFileType} of the specified batch's {@link RifRecordEvent}s
+   */
+  private static RifFileType getFileType(List<RifRecordEvent<?>> recordsBatch) {
+    return recordsBatch.get(0).getFileEvent().getFile().getFileType();
+  }
+
+  /**
+   * @param chargedBytes the number of bytes that a finished batch was charged against {@link
+   *     #inFlightBytes}, or <code>0</code> if none
+   */
+  private void releaseInFlightBytes(long chargedBytes) {
+    if (inFlightBytes != null && chargedBytes > 0) inFlightBytes.release(chargedBytes);
+  }
+
+  /**
+   * @param recordsBatch the {@link RifRecordEvent}s to process
+   * @param loadedFileBuilder the builder for the {@LoadedFile} associated with this batch
+   * @return the {@link RifRecordLoadResult}s that model the results of the operation
+   */
+  private List<RifRecordLoadResult> process(
+      List<RifRecordEvent<?>> recordsBatch, long loadedFileId) {
+    RifFileEvent fileEvent = recordsBatch.get(0).getFileEvent();
+    MetricRegistry fileEventMetrics = fileEvent.getEventMetrics();
+
+    RifFileType rifFileType = fileEvent.getFile().getFileType();
+
     // Only one of each failure/success Timer.Contexts will be applied.
     Timer.Context timerBatchSuccess =
         appMetrics.timer(MetricRegistry.name(getClass().getSimpleName(), "recordBatches")).time();
@@ -476,14 +1216,25 @@ public final class RifLoader implements AutoCloseable {
             .timer(MetricRegistry.name(getClass().getSimpleName(), "recordBatches", "failed"))
             .time();
 
+    LoaderSession loaderSession = null;
+    boolean batchSucceeded = false;
+    boolean checkpointFailed = false;
     EntityManager entityManager = null;
     EntityTransaction txn = null;
 
     // TODO: refactor the following to be less of an indented mess
     try {
-      entityManager = entityManagerFactory.createEntityManager();
+      // This will only wait on the connection pool when a new session has to be opened.
+      long connectionWaitStartTime = System.nanoTime();
+      loaderSession = loaderSessions.borrow();
+      if (concurrencyController != null)
+        concurrencyController.recordConnectionWait(System.nanoTime() - connectionWaitStartTime);
+
+      entityManager = loaderSession.getEntityManager();
       txn = entityManager.getTransaction();
+      long transactionStartNanos = System.nanoTime();
       txn.begin();
+
       List<RifRecordLoadResult> loadResults = new ArrayList<>(recordsBatch.size());
 
       /*
@@ -492,6 +1243,39 @@ public final class RifLoader implements AutoCloseable {
        */
       LoadedBatchBuilder loadedBatchBuilder =
           new LoadedBatchBuilder(loadedFileId, recordsBatch.size());
+
+      /*
+       * For idempotent inserts, find out which of the batch's records are already in the DB up
+       * front, with a single query, rather than with a query per record.
+       */
+      Set<Object> existingRecordIds =
+          options.isIdempotencyRequired()
+              ? findExistingRecordIds(entityManager, recordsBatch, fileEventMetrics)
+              : new HashSet<>();
+      PostgreSqlCopyInserter copyInserter =
+          loadMode == LoadMode.POSTGRESQL_COPY_CSV || loadMode == LoadMode.POSTGRESQL_COPY_BINARY
+              ? new PostgreSqlCopyInserter(loadMode)
+              : loadMode == LoadMode.POSTGRESQL_STAGED_MERGE
+                  ? new PostgreSqlCopyInserter(LoadMode.POSTGRESQL_COPY_BINARY)
+                  : null;
+      PostgreSqlStagedMerger stagedMerger =
+          loadMode == LoadMode.POSTGRESQL_STAGED_MERGE ? new PostgreSqlStagedMerger() : null;
+      JdbcBatchWriter jdbcWriter =
+          loadMode == LoadMode.JDBC_BATCH ? loaderSession.getJdbcWriter() : null;
+
+      /*
+       * When sharding by beneficiary, all of a beneficiary's records are in order within the
+       * batch, so any updates that are immediately superseded by another can be skipped. Their
+       * state is held here, so that the BeneficiaryHistory rows still match what the skipped
+       * writes would have produced.
+       */
+      Set<RifRecordEvent<?>> supersededUpdates =
+          options.isBeneficiaryShardingEnabled() && rifFileType == RifFileType.BENEFICIARY
+              ? findSupersededUpdates(recordsBatch)
+              : Collections.emptySet();
+      Map<String, Beneficiary> collapsedBeneficiaries = new HashMap<>();
+      long[] loadActionCounts = new long[LoadAction.values().length];
+      long collapsedCount = 0L;
       for (RifRecordEvent<?> rifRecordEvent : recordsBatch) {
         RecordAction recordAction = rifRecordEvent.getRecordAction();
         RifRecordBase record = rifRecordEvent.getRecord();
@@ -503,31 +1287,82 @@ public final class RifLoader implements AutoCloseable {
 
         // Associate the beneficiary with this file loaded
         loadedBatchBuilder.associateBeneficiary(rifRecordEvent.getBeneficiaryId());
+        if (rifRecordEvent.getPosition().isPresent())
+          loadedBatchBuilder.associateRecordNumber(
+              rifRecordEvent.getPosition().get().getRecordNumber());
+
+        /*
+         * When writing via JDBC, the record's writes will be deferred until the end of the batch, so
+         * any earlier (still pending) writes for the same record need to be pushed to the DB first.
+         */
+        Object jdbcRecordId = null;
+        if (jdbcWriter != null) {
+          assignGeneratedId(entityManager, record);
+          jdbcRecordId = entityManagerFactory.getPersistenceUnitUtil().getIdentifier(record);
+          if (jdbcWriter.isPending(jdbcRecordId))
+            submitJdbcWrites(entityManager, jdbcWriter, fileEventMetrics);
+        }
+
+        // The same goes for the staged merges.
+        Object stagedRecordId = null;
+        if (stagedMerger != null) {
+          stagedRecordId = entityManagerFactory.getPersistenceUnitUtil().getIdentifier(record);
+          if (stagedMerger.isPending(stagedRecordId))
+            submitStagedMerges(entityManager, stagedMerger, fileEventMetrics);
+        }
 
         LoadStrategy strategy = selectStrategy(recordAction);
         LoadAction loadAction;
-        if (strategy == LoadStrategy.INSERT_IDEMPOTENT) {
+        if (copyInserter != null
+            && strategy == LoadStrategy.INSERT_UPDATE_NON_IDEMPOTENT
+            && recordAction == RecordAction.INSERT) {
+          /*
+           * Queue the record up for PostgreSQL COPY, which (unlike a JPA persist) won't assign any
+           * generated ID for us.
+           */
+          loadAction = LoadAction.INSERTED;
+          assignGeneratedId(entityManager, record);
+          copyInserter.add(record);
+        } else if (strategy == LoadStrategy.INSERT_IDEMPOTENT) {
+          /*
+           * The rows queued for COPY need to make it to the DB ahead of any other changes, to
+           * preserve the records' order.
+           */
+          submitCopies(entityManager, copyInserter, fileEventMetrics);
+
           // Check to see if record already exists.
-          Timer.Context timerIdempotencyQuery =
-              fileEventMetrics
-                  .timer(MetricRegistry.name(getClass().getSimpleName(), "idempotencyQueries"))
-                  .time();
           Object recordId = entityManagerFactory.getPersistenceUnitUtil().getIdentifier(record);
           Objects.requireNonNull(recordId);
-          Object recordInDb = entityManager.find(record.getClass(), recordId);
-          timerIdempotencyQuery.close();
 
-          if (recordInDb == null) {
+          if (!existingRecordIds.contains(recordId)) {
             loadAction = LoadAction.INSERTED;
-            entityManager.persist(record);
-            Object recordInDbAfterUpdate = entityManager.find(record.getClass(), recordId);
+            if (jdbcWriter != null) jdbcWriter.insert(record, jdbcRecordId);
+            else entityManager.persist(record);
+
+            /*
+             * Any later copies of this record in the same batch should be skipped. Note that the
+             * record's ID may only have just been generated by the persist.
+             */
+            existingRecordIds.add(
+                entityManagerFactory.getPersistenceUnitUtil().getIdentifier(record));
           } else {
             loadAction = LoadAction.DID_NOTHING;
           }
         } else if (strategy == LoadStrategy.INSERT_UPDATE_NON_IDEMPOTENT) {
+          submitCopies(entityManager, copyInserter, fileEventMetrics);
           if (rifRecordEvent.getRecordAction().equals(RecordAction.INSERT)) {
             loadAction = LoadAction.INSERTED;
-            entityManager.persist(record);
+            if (jdbcWriter != null) jdbcWriter.insert(record, jdbcRecordId);
+            else entityManager.persist(record);
+          } else if (rifRecordEvent.getRecordAction().equals(RecordAction.UPDATE)
+              && stagedMerger != null
+              && PostgreSqlStagedMerger.isSupported(record)) {
+            /*
+             * Queue the record up to be merged in bulk, which will also take care of any
+             * BeneficiaryHistory records.
+             */
+            loadAction = LoadAction.UPDATED;
+            stagedMerger.add(record, stagedRecordId);
           } else if (rifRecordEvent.getRecordAction().equals(RecordAction.UPDATE)) {
             loadAction = LoadAction.UPDATED;
 
@@ -536,11 +1371,19 @@ public final class RifLoader implements AutoCloseable {
              * current/previous state as a BeneficiaryHistory record.
              */
             if (record instanceof Beneficiary) {
+              Beneficiary beneficiary = (Beneficiary) record;
               updateBeneficaryHistory(
-                  entityManager, (Beneficiary) record, loadedBatchBuilder.getTimestamp());
+                  entityManager,
+                  beneficiary,
+                  collapsedBeneficiaries.remove(beneficiary.getBeneficiaryId()),
+                  loadedBatchBuilder.getTimestamp());
             }
 
-            entityManager.merge(record);
+            if (supersededUpdates.contains(rifRecordEvent)) {
+              collapsedBeneficiaries.put(rifRecordEvent.getBeneficiaryId(), (Beneficiary) record);
+              collapsedCount++;
+            } else if (jdbcWriter != null) jdbcWriter.update(record, jdbcRecordId);
+            else entityManager.merge(record);
           } else {
             throw new BadCodeMonkeyException(
                 String.format(
@@ -550,20 +1393,68 @@ public final class RifLoader implements AutoCloseable {
 
         LOGGER.trace("Loaded '{}' record.", rifFileType);
 
-        fileEventMetrics
-            .meter(MetricRegistry.name(getClass().getSimpleName(), "records", loadAction.name()))
-            .mark(1);
-
+        loadActionCounts[loadAction.ordinal()]++;
         loadResults.add(new RifRecordLoadResult(rifRecordEvent, loadAction));
       }
+      submitCopies(entityManager, copyInserter, fileEventMetrics);
+      submitStagedMerges(entityManager, stagedMerger, fileEventMetrics);
+      submitJdbcWrites(entityManager, jdbcWriter, fileEventMetrics);
       LoadedBatch loadedBatch = loadedBatchBuilder.build();
+      if (options.isLoadedBatchesTextEnabled() && loadedBatch.getBeneficiariesEncoded() != null)
+        loadedBatch.setBeneficiaries(
+            String.join(LoadedBatch.SEPARATOR, loadedBatchBuilder.getBeneficiaries()));
       entityManager.persist(loadedBatch);
 
+      long commitStartNanos =
+          stageMetrics.recordSince(PipelineStage.TRANSACTION, rifFileType, transactionStartNanos);
       txn.commit();
+      long commitEndNanos =
+          stageMetrics.recordSince(PipelineStage.COMMIT, rifFileType, commitStartNanos);
+      batchSucceeded = true;
+      if (batchSizer != null)
+        batchSizer.recordTransaction(
+            rifFileType,
+            AdaptiveBatchSizer.estimateBatchBytes(recordsBatch),
+            commitEndNanos - transactionStartNanos);
+
+      // Now that the batch is in the DB, it's safe to add it to the file's published filter.
+      fileFilterBuilders
+          .get(loadedFileId)
+          .addBatch(loadedBatchBuilder.getBeneficiaries(), loadedBatch.getCreated());
+
+      /*
+       * Likewise, the file's checkpoint can now move past the batch's records. That's done on the
+       * batch's own session, rather than on another connection from the pool, which could be
+       * exhausted while every loader thread is busy. If it fails, the batch is still fine, but the
+       * session is replaced, just in case; a later batch (or the end of the file) will move the
+       * checkpoint along.
+       */
+      LoadCheckpointTracker checkpointTracker = checkpointTrackers.get(loadedFileId);
+      if (checkpointTracker != null) {
+        Optional<RifFilePosition> checkpoint = checkpointTracker.markCommitted(recordsBatch);
+        if (checkpoint.isPresent()) {
+          try {
+            updateLoadedFileCheckpoint(entityManager, loadedFileId, checkpoint.get(), false);
+          } catch (RuntimeException e) {
+            LOGGER.warn("Unable to update checkpoint for LoadedFile {}.", loadedFileId, e);
+            checkpointFailed = true;
+          }
+        }
+      }
 
       // Update the metrics now that things have been pushed.
       timerBatchSuccess.stop();
       timerBatchTypeSuccess.stop();
+      for (LoadAction loadAction : LoadAction.values())
+        if (loadActionCounts[loadAction.ordinal()] > 0)
+          fileEventMetrics
+              .meter(MetricRegistry.name(getClass().getSimpleName(), "records", loadAction.name()))
+              .mark(loadActionCounts[loadAction.ordinal()]);
+      if (collapsedCount > 0)
+        fileEventMetrics
+            .meter(MetricRegistry.name(getClass().getSimpleName(), "records", "collapsed"))
+            .mark(collapsedCount);
+      stageMetrics.markRecords(rifFileType, recordsBatch.size());
 
       return loadResults;
     } catch (Throwable t) {
@@ -590,10 +1481,188 @@ public final class RifLoader implements AutoCloseable {
         LOGGER.warn("Failed to load '{}' record.", rifFileType, t);
 
         throw new RifLoadFailure(recordsBatch, t);
+      } finally {
+        /*
+         * After any failure, the session (and its connection) might be in a bad state, so it's
+         * replaced with a fresh one.
+         */
+        if (loaderSession != null) {
+          if (batchSucceeded && !checkpointFailed) loaderSessions.release(loaderSession);
+          else loaderSessions.discard(loaderSession);
+        }
       }
+    }
+  }
 
-      if (entityManager != null) entityManager.close();
+  /**
+   * Finds which of the specified batch's {@link RecordAction#INSERT} records are already in the
+   * database, using <code>IN (...)</code> queries of (up to) {@link #MAX_IDEMPOTENCY_QUERY_IDS} IDs
+   * each.
+   *
+   * @param entityManager the {@link EntityManager} for the current transaction
+   * @param recordsBatch the {@link RifRecordEvent}s being processed, all of which must be for the
+   *     same record type
+   * @param metrics the {@link MetricRegistry} to use
+   * @return a mutable {@link Set} of the IDs of the batch's records that are already in the
+   *     database
+   */
+  private Set<Object> findExistingRecordIds(
+      EntityManager entityManager, List<RifRecordEvent<?>> recordsBatch, MetricRegistry metrics) {
+    Set<Object> existingRecordIds = new HashSet<>();
+
+    // Records with generated IDs can't have been inserted already.
+    RifRecordBase firstRecord = recordsBatch.get(0).getRecord();
+    SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+    EntityPersister persister = session.getEntityPersister(null, firstRecord);
+    if (!(persister.getIdentifierGenerator() instanceof Assigned)) return existingRecordIds;
+
+    List<Object> recordIds =
+        recordsBatch.stream()
+            .filter(e -> e.getRecordAction() == RecordAction.INSERT)
+            .map(e -> entityManagerFactory.getPersistenceUnitUtil().getIdentifier(e.getRecord()))
+            .distinct()
+            .collect(Collectors.toList());
+    if (recordIds.isEmpty()) return existingRecordIds;
+
+    Timer.Context timerIdempotencyQuery =
+        metrics.timer(MetricRegistry.name(getClass().getSimpleName(), "idempotencyQueries")).time();
+    CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+    for (int fromIndex = 0; fromIndex < recordIds.size(); fromIndex += MAX_IDEMPOTENCY_QUERY_IDS) {
+      List<Object> recordIdsChunk =
+          recordIds.subList(
+              fromIndex, Math.min(fromIndex + MAX_IDEMPOTENCY_QUERY_IDS, recordIds.size()));
+
+      CriteriaQuery<Object> criteria = criteriaBuilder.createQuery(Object.class);
+      Root<? extends RifRecordBase> root = criteria.from(firstRecord.getClass());
+      Path<Object> idPath = root.get(persister.getIdentifierPropertyName());
+      criteria.select(idPath).where(idPath.in(recordIdsChunk));
+      existingRecordIds.addAll(entityManager.createQuery(criteria).getResultList());
+    }
+    timerIdempotencyQuery.stop();
+
+    return existingRecordIds;
+  }
+
+  /**
+   * Assigns a generated ID to the specified JPA entity (if its ID is generated), in exactly the
+   * same way that a JPA persist would have.
+   *
+   * @param entityManager the {@link EntityManager} to use
+   * @param record the JPA entity to assign an ID to
+   */
+  private static void assignGeneratedId(EntityManager entityManager, Object record) {
+    SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+    EntityPersister persister = session.getEntityPersister(null, record);
+    IdentifierGenerator identifierGenerator = persister.getIdentifierGenerator();
+    if (identifierGenerator instanceof Assigned) return;
+
+    persister.setIdentifier(record, identifierGenerator.generate(session, record), session);
+  }
+
+  /**
+   * Submits any rows queued in the specified {@link PostgreSqlCopyInserter}, after first flushing
+   * any pending JPA changes, so that everything makes it to the database in order.
+   *
+   * @param entityManager the {@link EntityManager} for the current transaction
+   * @param copyInserter the {@link PostgreSqlCopyInserter} to submit, or <code>null</code> if COPY
+   *     isn't being used
+   * @param metrics the {@link MetricRegistry} to use
+   */
+  private static void submitCopies(
+      EntityManager entityManager, PostgreSqlCopyInserter copyInserter, MetricRegistry metrics) {
+    if (copyInserter == null || copyInserter.isEmpty()) return;
+
+    entityManager.flush();
+    Session session = entityManager.unwrap(Session.class);
+    session.doWork(
+        new Work() {
+          /** @see org.hibernate.jdbc.Work#execute(java.sql.Connection) */
+          @Override
+          public void execute(Connection connection) throws SQLException {
+            copyInserter.submit(connection, metrics);
+          }
+        });
+  }
+
+  /**
+   * Submits any records queued in the specified {@link PostgreSqlStagedMerger}, after first
+   * flushing any pending JPA changes, so that everything makes it to the database in order.
+   * Afterwards, the {@link EntityManager}'s persistence context is cleared, as any entities in it
+   * may no longer match what's in the database.
+   *
+   * @param entityManager the {@link EntityManager} for the current transaction
+   * @param stagedMerger the {@link PostgreSqlStagedMerger} to submit, or <code>null</code> if
+   *     staged merges aren't being used
+   * @param metrics the {@link MetricRegistry} to use
+   */
+  private static void submitStagedMerges(
+      EntityManager entityManager, PostgreSqlStagedMerger stagedMerger, MetricRegistry metrics) {
+    if (stagedMerger == null || stagedMerger.isEmpty()) return;
+
+    entityManager.flush();
+    Session session = entityManager.unwrap(Session.class);
+    session.doWork(
+        new Work() {
+          /** @see org.hibernate.jdbc.Work#execute(java.sql.Connection) */
+          @Override
+          public void execute(Connection connection) throws SQLException {
+            stagedMerger.submit(connection, metrics);
+          }
+        });
+    entityManager.clear();
+  }
+
+  /**
+   * Submits any records queued in the specified {@link JdbcBatchWriter}, after first flushing any
+   * pending JPA changes, so that everything makes it to the database in order. Afterwards, the
+   * {@link EntityManager}'s persistence context is cleared, as any entities in it may no longer
+   * match what's in the database.
+   *
+   * @param entityManager the {@link EntityManager} for the current transaction
+   * @param jdbcWriter the {@link JdbcBatchWriter} to submit, or <code>null</code> if JDBC batches
+   *     aren't being used
+   * @param metrics the {@link MetricRegistry} to use
+   */
+  private static void submitJdbcWrites(
+      EntityManager entityManager, JdbcBatchWriter jdbcWriter, MetricRegistry metrics) {
+    if (jdbcWriter == null || jdbcWriter.isEmpty()) return;
+
+    entityManager.flush();
+    Session session = entityManager.unwrap(Session.class);
+    session.doWork(
+        new Work() {
+          /** @see org.hibernate.jdbc.Work#execute(java.sql.Connection) */
+          @Override
+          public void execute(Connection connection) throws SQLException {
+            jdbcWriter.submit(connection, metrics);
+          }
+        });
+    entityManager.clear();
+  }
+
+  /**
+   * Finds the {@link Beneficiary} updates in the specified batch that are superseded, i.e. that are
+   * followed by another update to the same {@link Beneficiary}, with no other changes to it in
+   * between. Writing only the last update in each such run gives the same end result.
+   *
+   * @param recordsBatch the {@link RifRecordEvent}s to check
+   * @return the superseded {@link RifRecordEvent}s, which are compared by identity
+   */
+  static Set<RifRecordEvent<?>> findSupersededUpdates(List<RifRecordEvent<?>> recordsBatch) {
+    Set<RifRecordEvent<?>> supersededUpdates = Collections.newSetFromMap(new IdentityHashMap<>());
+    Set<String> laterUpdates = new HashSet<>();
+    for (ListIterator<RifRecordEvent<?>> recordsIterator =
+            recordsBatch.listIterator(recordsBatch.size());
+        recordsIterator.hasPrevious(); ) {
+      RifRecordEvent<?> rifRecordEvent = recordsIterator.previous();
+      if (!(rifRecordEvent.getRecord() instanceof Beneficiary)) continue;
+
+      if (rifRecordEvent.getRecordAction() != RecordAction.UPDATE)
+        laterUpdates.remove(rifRecordEvent.getBeneficiaryId());
+      else if (!laterUpdates.add(rifRecordEvent.getBeneficiaryId()))
+        supersededUpdates.add(rifRecordEvent);
     }
+    return supersededUpdates;
   }
 
   /**
@@ -602,12 +1671,20 @@ public final class RifLoader implements AutoCloseable {
    *
    * @param entityManager the {@link EntityManager} to use
    * @param newBeneficiaryRecord the {@link Beneficiary} record being processed
+   * @param collapsedBeneficiaryRecord the {@link Beneficiary} state from an earlier update in the
+   *     same batch whose write was skipped (and thus that's the actual previous state), or <code>
+   *     null</code> if the previous state should be read from the database
    * @param batchTimestamp the timestamp of the batch
    */
   private static void updateBeneficaryHistory(
-      EntityManager entityManager, Beneficiary newBeneficiaryRecord, Date batchTimestamp) {
+      EntityManager entityManager,
+      Beneficiary newBeneficiaryRecord,
+      Beneficiary collapsedBeneficiaryRecord,
+      Date batchTimestamp) {
     Beneficiary oldBeneficiaryRecord =
-        entityManager.find(Beneficiary.class, newBeneficiaryRecord.getBeneficiaryId());
+        collapsedBeneficiaryRecord != null
+            ? collapsedBeneficiaryRecord
+            : entityManager.find(Beneficiary.class, newBeneficiaryRecord.getBeneficiaryId());
 
     if (oldBeneficiaryRecord != null) {
       BeneficiaryHistory oldBeneCopy = new BeneficiaryHistory();
@@ -627,10 +1704,14 @@ public final class RifLoader implements AutoCloseable {
    * Insert the LoadedFile into the database
    *
    * @param fileEvent to base this new LoadedFile
+   * @param checkpoint the initial checkpoint to record, if checkpoints are being tracked
    * @param errorHandler to call if something bad happens
    * @return the loadedFileId of the new LoadedFile record
    */
-  private long insertLoadedFile(RifFileEvent fileEvent, Consumer<Throwable> errorHandler) {
+  private long insertLoadedFile(
+      RifFileEvent fileEvent,
+      Optional<RifFilePosition> checkpoint,
+      Consumer<Throwable> errorHandler) {
     if (fileEvent == null || fileEvent.getFile().getFileType() == null) {
       throw new IllegalArgumentException();
     }
@@ -638,6 +1719,9 @@ public final class RifLoader implements AutoCloseable {
     final LoadedFile loadedFile = new LoadedFile();
     loadedFile.setRifType(fileEvent.getFile().getFileType().toString());
     loadedFile.setCreated(new Date());
+    loadedFile.setDataSetTimestamp(Date.from(fileEvent.getParentFilesEvent().getTimestamp()));
+    loadedFile.setRifFileName(fileEvent.getFile().getDisplayName());
+    checkpoint.ifPresent(loadedFile::setCheckpoint);
 
     try {
       EntityManager em = entityManagerFactory.createEntityManager();
@@ -669,6 +1753,174 @@ public final class RifLoader implements AutoCloseable {
     }
   }
 
+  /**
+   * Find the LoadedFile from an earlier attempt to load the specified file, if any
+   *
+   * @param fileEvent the file being loaded
+   * @return the most recent {@link LoadedFile} for the same data set and file name that was loaded
+   *     with checkpoints, or {@link Optional#empty()} if there isn't one
+   */
+  private Optional<LoadedFile> findPreviousAttempt(RifFileEvent fileEvent) {
+    EntityManager em = entityManagerFactory.createEntityManager();
+    try {
+      List<LoadedFile> loadedFiles =
+          em.createQuery(
+                  "select f from LoadedFile f where f.dataSetTimestamp = :dataSetTimestamp"
+                      + " and f.rifFileName = :rifFileName"
+                      + " and f.checkpointRecordNumber is not null order by f.created desc",
+                  LoadedFile.class)
+              .setParameter(
+                  "dataSetTimestamp", Date.from(fileEvent.getParentFilesEvent().getTimestamp()))
+              .setParameter("rifFileName", fileEvent.getFile().getDisplayName())
+              .setMaxResults(1)
+              .getResultList();
+      return loadedFiles.stream().findFirst();
+    } finally {
+      em.close();
+    }
+  }
+
+  /**
+   * Read the batches from an earlier attempt to load a file, to resume it
+   *
+   * @param loadedFileId the file being resumed
+   * @param startAt the checkpoint that loading is resuming from
+   * @param alreadyCommitted the {@link Set} to add the record numbers to of every record at or
+   *     after the checkpoint that was already committed
+   * @param fileFilterBuilder the filter builder to add all of the file's batches to
+   */
+  private void readPreviousBatches(
+      long loadedFileId,
+      RifFilePosition startAt,
+      Set<Long> alreadyCommitted,
+      LoadedFileBloomFilterBuilder fileFilterBuilder) {
+    EntityManager em = entityManagerFactory.createEntityManager();
+    try {
+      List<LoadedBatch> batches =
+          em.createQuery(
+                  "select b from LoadedBatch b where b.loadedFileId = :loadedFileId",
+                  LoadedBatch.class)
+              .setParameter("loadedFileId", loadedFileId)
+              .getResultList();
+      for (LoadedBatch batch : batches) {
+        fileFilterBuilder.addBatch(batch.getBeneficiariesAsList(), batch.getCreated());
+        if (batch.getRecordNumbers() != null
+            && batch.getMaxRecordNumber() != null
+            && batch.getMaxRecordNumber() >= startAt.getRecordNumber())
+          LoadedBatchCodec.decode(
+              batch.getRecordNumbers(),
+              recordNumber -> {
+                if (recordNumber >= startAt.getRecordNumber()) alreadyCommitted.add(recordNumber);
+              });
+      }
+    } finally {
+      em.close();
+    }
+  }
+
+  /**
+   * Update the checkpoint of a LoadedFile, unless it's already further along
+   *
+   * @param loadedFileId the file to update
+   * @param checkpoint the new checkpoint
+   * @param completed <code>true</code> to also mark the file as completely loaded
+   * @param errorHandler to call if something bad happens
+   */
+  private void updateLoadedFileCheckpoint(
+      long loadedFileId,
+      RifFilePosition checkpoint,
+      boolean completed,
+      Consumer<Throwable> errorHandler) {
+    try {
+      EntityManager em = entityManagerFactory.createEntityManager();
+      try {
+        updateLoadedFileCheckpoint(em, loadedFileId, checkpoint, completed);
+      } finally {
+        if (em != null && em.isOpen()) em.close();
+      }
+    } catch (Exception ex) {
+      errorHandler.accept(ex);
+    }
+  }
+
+  /**
+   * Update the checkpoint of a LoadedFile, unless it's already further along, in a transaction of
+   * its own on the specified {@link EntityManager}, which is left open.
+   *
+   * @param em the {@link EntityManager} to use, which must not have a transaction in progress
+   * @param loadedFileId the file to update
+   * @param checkpoint the new checkpoint
+   * @param completed <code>true</code> to also mark the file as completely loaded
+   */
+  private static void updateLoadedFileCheckpoint(
+      EntityManager em, long loadedFileId, RifFilePosition checkpoint, boolean completed) {
+    EntityTransaction txn = null;
+    try {
+      txn = em.getTransaction();
+      txn.begin();
+      em.createQuery(
+              "update LoadedFile f set f.checkpointRecordNumber = :recordNumber,"
+                  + " f.checkpointByteOffset = :byteOffset where f.loadedFileId = :loadedFileId"
+                  + " and (f.checkpointRecordNumber is null"
+                  + " or f.checkpointRecordNumber < :recordNumber)")
+          .setParameter("recordNumber", checkpoint.getRecordNumber())
+          .setParameter("byteOffset", checkpoint.getByteOffset())
+          .setParameter("loadedFileId", loadedFileId)
+          .executeUpdate();
+      if (completed)
+        em.createQuery(
+                "update LoadedFile f set f.completed = :completed"
+                    + " where f.loadedFileId = :loadedFileId")
+            .setParameter("completed", new Date())
+            .setParameter("loadedFileId", loadedFileId)
+            .executeUpdate();
+      txn.commit();
+      LOGGER.debug(
+          "Updated LoadedFile {} checkpoint to {} (completed: {})",
+          loadedFileId,
+          checkpoint,
+          completed);
+    } finally {
+      if (txn != null && txn.isActive()) txn.rollback();
+    }
+  }
+
+  /**
+   * Insert the finished Bloom filter for a LoadedFile into the database
+   *
+   * @param fileFilterBuilder the builder that the file's loaded batches were added to
+   * @param errorHandler to call if something bad happens
+   */
+  private void insertLoadedFileBloomFilter(
+      LoadedFileBloomFilterBuilder fileFilterBuilder, Consumer<Throwable> errorHandler) {
+    try {
+      final LoadedFileBloomFilter fileFilter = fileFilterBuilder.build();
+      EntityManager em = entityManagerFactory.createEntityManager();
+      EntityTransaction txn = null;
+      try {
+        txn = em.getTransaction();
+        txn.begin();
+        // A resumed file may already have a filter from an earlier attempt, which this replaces.
+        em.merge(fileFilter);
+        txn.commit();
+        LOGGER.info(
+            "Inserting LoadedFileBloomFilter for {} with {} batches and {} bytes",
+            fileFilter.getLoadedFileId(),
+            fileFilter.getBatchCount(),
+            fileFilter.getBloomFilter().length);
+      } finally {
+        if (em != null && em.isOpen()) {
+          if (txn != null && txn.isActive()) {
+            txn.rollback();
+          }
+          em.close();
+        }
+      }
+    } catch (Exception ex) {
+      errorHandler.accept(ex);
+    }
+  }
+
   /**
    * Trim the LoadedFiles and LoadedBatches tables if necessary
    *
@@ -692,6 +1944,9 @@ public final class RifLoader implements AutoCloseable {
 
         if (oldIds.size() > 0) {
           LOGGER.info("Deleting old files: {}", oldIds.size());
+          em.createQuery("delete from LoadedFileBloomFilter where loadedFileId in :ids")
+              .setParameter("ids", oldIds)
+              .executeUpdate();
           em.createQuery("delete from LoadedBatch where loadedFileId in :ids")
               .setParameter("ids", oldIds)
               .executeUpdate();
@@ -756,6 +2011,39 @@ public final class RifLoader implements AutoCloseable {
     }
   }
 
+  /**
+   * Hashes the HICNs and MBIs of the specified batch's records, if they're {@link Beneficiary} or
+   * {@link BeneficiaryHistory} records. All other records are left unmodified.
+   *
+   * @param recordsBatch the {@link RifRecordEvent}s to (possibly) modify
+   */
+  private void hashIdentifiers(List<RifRecordEvent<?>> recordsBatch) {
+    RifFileEvent fileEvent = recordsBatch.get(0).getFileEvent();
+    MetricRegistry fileEventMetrics = fileEvent.getEventMetrics();
+    RifFileType rifFileType = fileEvent.getFile().getFileType();
+
+    if (rifFileType != RifFileType.BENEFICIARY && rifFileType != RifFileType.BENEFICIARY_HISTORY)
+      return;
+
+    long startNanos = System.nanoTime();
+    Timer hicnTimer =
+        fileEventMetrics.timer(MetricRegistry.name(getClass().getSimpleName(), "hicnsHashed"));
+    Timer mbiTimer =
+        fileEventMetrics.timer(MetricRegistry.name(getClass().getSimpleName(), "mbisHashed"));
+    if (rifFileType == RifFileType.BENEFICIARY) {
+      for (RifRecordEvent<?> rifRecordEvent : recordsBatch) {
+        hashBeneficiaryHicn(hicnTimer, rifRecordEvent);
+        hashBeneficiaryMbi(mbiTimer, rifRecordEvent);
+      }
+    } else {
+      for (RifRecordEvent<?> rifRecordEvent : recordsBatch) {
+        hashBeneficiaryHistoryHicn(hicnTimer, rifRecordEvent);
+        hashBeneficiaryHistoryMbi(mbiTimer, rifRecordEvent);
+      }
+    }
+    stageMetrics.recordSince(PipelineStage.HASH, rifFileType, startNanos);
+  }
+
   /**
    * For {@link RifRecordEvent}s where the {@link RifRecordEvent#getRecord()} is a {@link
    * Beneficiary}, switches the {@link Beneficiary#getHicn()} property to a cryptographic hash of
@@ -765,20 +2053,19 @@ public final class RifLoader implements AutoCloseable {
    *
    * <p>All other {@link RifRecordEvent}s are left unmodified.
    *
-   * @param metrics the {@link MetricRegistry} to use
+   * @param timer the {@link Timer} to record the hashing in
    * @param rifRecordEvent the {@link RifRecordEvent} to (possibly) modify
    */
-  private void hashBeneficiaryHicn(MetricRegistry metrics, RifRecordEvent<?> rifRecordEvent) {
+  private void hashBeneficiaryHicn(Timer timer, RifRecordEvent<?> rifRecordEvent) {
     if (rifRecordEvent.getFileEvent().getFile().getFileType() != RifFileType.BENEFICIARY) return;
 
-    Timer.Context timerHashing =
-        metrics.timer(MetricRegistry.name(getClass().getSimpleName(), "hicnsHashed")).time();
+    Timer.Context timerHashing = timer.time();
 
     Beneficiary beneficiary = (Beneficiary) rifRecordEvent.getRecord();
     // set the unhashed Hicn
     beneficiary.setHicnUnhashed(Optional.of(beneficiary.getHicn()));
     // set the hashed Hicn
-    beneficiary.setHicn(computeHicnHash(options, secretKeyFactory, beneficiary.getHicn()));
+    beneficiary.setHicn(identifierHasher.computeIdentifierHash(beneficiary.getHicn()));
 
     timerHashing.stop();
   }
@@ -792,14 +2079,13 @@ public final class RifLoader implements AutoCloseable {
    *
    * <p>All other {@link RifRecordEvent}s are left unmodified.
    *
-   * @param metrics the {@link MetricRegistry} to use
+   * @param timer the {@link Timer} to record the hashing in
    * @param rifRecordEvent the {@link RifRecordEvent} to (possibly) modify
    */
-  private void hashBeneficiaryMbi(MetricRegistry metrics, RifRecordEvent<?> rifRecordEvent) {
+  private void hashBeneficiaryMbi(Timer timer, RifRecordEvent<?> rifRecordEvent) {
     if (rifRecordEvent.getFileEvent().getFile().getFileType() != RifFileType.BENEFICIARY) return;
 
-    Timer.Context timerHashing =
-        metrics.timer(MetricRegistry.name(getClass().getSimpleName(), "mbisHashed")).time();
+    Timer.Context timerHashing = timer.time();
 
     Beneficiary beneficiary = (Beneficiary) rifRecordEvent.getRecord();
 
@@ -808,7 +2094,7 @@ public final class RifLoader implements AutoCloseable {
         .getMedicareBeneficiaryId()
         .ifPresent(
             mbi -> {
-              String mbiHash = computeMbiHash(options, secretKeyFactory, mbi);
+              String mbiHash = identifierHasher.computeIdentifierHash(mbi);
               beneficiary.setMbiHash(Optional.of(mbiHash));
             });
 
@@ -824,16 +2110,14 @@ public final class RifLoader implements AutoCloseable {
    *
    * <p>All other {@link RifRecordEvent}s are left unmodified.
    *
-   * @param metrics the {@link MetricRegistry} to use
+   * @param timer the {@link Timer} to record the hashing in
    * @param rifRecordEvent the {@link RifRecordEvent} to (possibly) modify
    */
-  private void hashBeneficiaryHistoryHicn(
-      MetricRegistry metrics, RifRecordEvent<?> rifRecordEvent) {
+  private void hashBeneficiaryHistoryHicn(Timer timer, RifRecordEvent<?> rifRecordEvent) {
     if (rifRecordEvent.getFileEvent().getFile().getFileType() != RifFileType.BENEFICIARY_HISTORY)
       return;
 
-    Timer.Context timerHashing =
-        metrics.timer(MetricRegistry.name(getClass().getSimpleName(), "hicnsHashed")).time();
+    Timer.Context timerHashing = timer.time();
 
     BeneficiaryHistory beneficiaryHistory = (BeneficiaryHistory) rifRecordEvent.getRecord();
 
@@ -842,7 +2126,7 @@ public final class RifLoader implements AutoCloseable {
 
     // set the hashed Hicn
     beneficiaryHistory.setHicn(
-        computeHicnHash(options, secretKeyFactory, beneficiaryHistory.getHicn()));
+        identifierHasher.computeIdentifierHash(beneficiaryHistory.getHicn()));
 
     timerHashing.stop();
   }
@@ -856,15 +2140,14 @@ public final class RifLoader implements AutoCloseable {
    *
    * <p>All other {@link RifRecordEvent}s are left unmodified.
    *
-   * @param metrics the {@link MetricRegistry} to use
+   * @param timer the {@link Timer} to record the hashing in
    * @param rifRecordEvent the {@link RifRecordEvent} to (possibly) modify
    */
-  private void hashBeneficiaryHistoryMbi(MetricRegistry metrics, RifRecordEvent<?> rifRecordEvent) {
+  private void hashBeneficiaryHistoryMbi(Timer timer, RifRecordEvent<?> rifRecordEvent) {
     if (rifRecordEvent.getFileEvent().getFile().getFileType() != RifFileType.BENEFICIARY_HISTORY)
       return;
 
-    Timer.Context timerHashing =
-        metrics.timer(MetricRegistry.name(getClass().getSimpleName(), "mbisHashed")).time();
+    Timer.Context timerHashing = timer.time();
 
     BeneficiaryHistory beneficiaryHistory = (BeneficiaryHistory) rifRecordEvent.getRecord();
 
@@ -873,7 +2156,7 @@ public final class RifLoader implements AutoCloseable {
         .getMedicareBeneficiaryId()
         .ifPresent(
             mbi -> {
-              String mbiHash = computeMbiHash(options, secretKeyFactory, mbi);
+              String mbiHash = identifierHasher.computeIdentifierHash(mbi);
               beneficiaryHistory.setMbiHash(Optional.of(mbiHash));
             });
 
@@ -917,7 +2200,16 @@ public final class RifLoader implements AutoCloseable {
     return computeIdentifierHash(options, secretKeyFactory, mbi);
   }
 
-  private static String computeIdentifierHash(
+  /**
+   * Computes a one-way cryptographic hash of the specified HICN or MBI value. Both identifiers are
+   * hashed with exactly the same algorithm, pepper, and iterations.
+   *
+   * @param options the {@link LoadAppOptions} to use
+   * @param secretKeyFactory the {@link SecretKeyFactory} to use
+   * @param identifier the Medicare beneficiary HICN or MBI to be hashed
+   * @return a one-way cryptographic hash of the specified value, exactly 64 characters long
+   */
+  static String computeIdentifierHash(
       LoadAppOptions options, SecretKeyFactory secretKeyFactory, String identifier) {
     try {
       /*
@@ -956,316 +2248,16 @@ public final class RifLoader implements AutoCloseable {
   /** @see java.lang.AutoCloseable#close() */
   @Override
   public void close() {
+    if (this.loaderSessions != null) this.loaderSessions.close();
     if (this.entityManagerFactory != null && this.entityManagerFactory.isOpen())
       this.entityManagerFactory.close();
     if (this.dataSource != null && !this.dataSource.isClosed()) this.dataSource.close();
   }
 
-  /**
-   * Provides the state tracking and logic needed for {@link RifLoader} to handle PostgreSQL {@link
-   * RecordAction#INSERT}s via the use of PostgreSQL's non-standard {@link CopyManager} APIs.
-   *
-   * <p>In <a href="https://www.postgresql.org/docs/9.6/static/populate.html">PostgreSQL 9.6 Manual:
-   * Populating a Database</a>, this is recommended as the fastest way to insert large amounts of
-   * data. However, real-world testing with Blue Button data has shown that to be not be exactly
-   * true: highly parallelized <code>INSERT</code>s (e.g. hundreds of simultaneous connections) can
-   * actually be about 18% faster. Even still, this code may eventually be useful for some
-   * situations, so we'll keep it around.
-   */
-  private static final class PostgreSqlCopyInserter implements AutoCloseable {
-    private final EntityManagerFactory entityManagerFactory;
-    private final MetricRegistry metrics;
-    private final List<CsvPrinterBundle> csvPrinterBundles;
-
-    /**
-     * Constructs a new {@link PostgreSqlCopyInserter} instance.
-     *
-     * @param entityManagerFactory the {@link EntityManagerFactory} to use
-     * @param metrics the {@link MetricRegistry} to use
-     */
-    public PostgreSqlCopyInserter(
-        EntityManagerFactory entityManagerFactory, MetricRegistry metrics) {
-      this.entityManagerFactory = entityManagerFactory;
-      this.metrics = metrics;
-
-      List<CsvPrinterBundle> csvPrinters = new LinkedList<>();
-      csvPrinters.add(createCsvPrinter(Beneficiary.class));
-      csvPrinters.add(createCsvPrinter(CarrierClaim.class));
-      csvPrinters.add(createCsvPrinter(CarrierClaimLine.class));
-      this.csvPrinterBundles = csvPrinters;
-    }
-
-    /**
-     * @param entityType the JPA {@link Entity} to create a {@link CSVPrinter} for
-     * @return the {@link CSVPrinter} for the specified SQL table
-     */
-    private CsvPrinterBundle createCsvPrinter(Class<?> entityType) {
-      Table tableAnnotation = entityType.getAnnotation(Table.class);
-      String tableName = tableAnnotation.name().replaceAll("`", "");
-
-      CSVFormat baseCsvFormat = CSVFormat.DEFAULT;
-
-      try {
-        CsvPrinterBundle csvPrinterBundle = new CsvPrinterBundle();
-        csvPrinterBundle.tableName = tableName;
-        csvPrinterBundle.backingTempFile = File.createTempFile(tableName, ".postgreSqlCsv");
-        csvPrinterBundle.csvPrinter =
-            new CSVPrinter(new FileWriter(csvPrinterBundle.backingTempFile), baseCsvFormat);
-        return csvPrinterBundle;
-      } catch (IOException e) {
-        throw new UncheckedIOException(e);
-      } finally {
-      }
-    }
-
-    /**
-     * Queues the specified {@link RifRecordEvent#getRecord()} top-level entity instance (e.g. a
-     * {@link Beneficiary}, {@link CarrierClaim}, etc.) for insertion when {@link #submit()} is
-     * called.
-     *
-     * @param record the {@link RifRecordEvent#getRecord()} top-level entity instance (e.g. a {@link
-     *     Beneficiary}, {@link CarrierClaim} , etc.) to queue for insertion
-     */
-    public void add(Object record) {
-      /*
-       * Use the auto-generated *CsvWriter helpers to convert the JPA
-       * entity to its raw field values, in a format suitable for use with
-       * PostgreSQL's CopyManager. Each Map entry will represent a single
-       * JPA table, and each Object[] in there represents a single entity
-       * instance, with the first Object[] containing the (correctly
-       * ordered) SQL column names. So, for a CarrierClaim, there will be
-       * two "CarrerClaims" Object[]s: one column header and one with the
-       * claim header values. In addition, there will be multiple
-       * "CarrierClaimLines" Objects[]: one for the column header and then
-       * one for each CarrierClaim.getLines() entry.
-       */
-      Map<String, Object[][]> csvRecordsByTable;
-      if (record instanceof Beneficiary) {
-        csvRecordsByTable = BeneficiaryCsvWriter.toCsvRecordsByTable((Beneficiary) record);
-      } else if (record instanceof CarrierClaim) {
-        csvRecordsByTable = CarrierClaimCsvWriter.toCsvRecordsByTable((CarrierClaim) record);
-      } else throw new BadCodeMonkeyException();
-
-      /*
-       * Hand off the *CsvWriter results to the appropriate
-       * CsvPrinterBundle entries.
-       */
-      for (Entry<String, Object[][]> tableRecordsEntry : csvRecordsByTable.entrySet()) {
-        String tableName = tableRecordsEntry.getKey();
-        CsvPrinterBundle tablePrinterBundle =
-            csvPrinterBundles.stream().filter(b -> tableName.equals(b.tableName)).findAny().get();
-
-        // Set the column header if it hasn't been yet.
-        if (tablePrinterBundle.columnNames == null) {
-          Object[] columnNamesAsObjects = tableRecordsEntry.getValue()[0];
-          String[] columnNames =
-              Arrays.copyOf(columnNamesAsObjects, columnNamesAsObjects.length, String[].class);
-          tablePrinterBundle.columnNames = columnNames;
-        }
-
-        /*
-         * Write out each Object[] entity row to the temp CSV for the
-         * appropriate SQL table. These HAVE to be written out now, as
-         * there isn't enough RAM to store all of them in memory until
-         * submit() gets called.
-         */
-        for (int recordIndex = 1;
-            recordIndex < tableRecordsEntry.getValue().length;
-            recordIndex++) {
-          Object[] csvRecord = tableRecordsEntry.getValue()[recordIndex];
-          tablePrinterBundle.recordsPrinted.getAndIncrement();
-
-          try {
-            /*
-             * This will be called by multiple loader threads
-             * (possibly hundreds), so it must be synchronized to
-             * ensure that writes aren't corrupted. This isn't the
-             * most efficient possible strategy, but has proven to
-             * not be a bottleneck.
-             */
-            synchronized (tablePrinterBundle.csvPrinter) {
-              tablePrinterBundle.csvPrinter.printRecord(csvRecord);
-            }
-          } catch (IOException e) {
-            throw new UncheckedIOException(e);
-          }
-        }
-      }
-    }
-
-    /**
-     * @return <code>true</code> if {@link #add(Object)} hasn't been called yet, <code>false</code>
-     *     if it has
-     */
-    public boolean isEmpty() {
-      return !csvPrinterBundles.stream()
-          .filter(b -> b.recordsPrinted.get() > 0)
-          .findAny()
-          .isPresent();
-    }
-
-    /**
-     * Uses PostgreSQL's {@link CopyManager} API to bulk-insert all of the JPA entities that have
-     * been queued via {@link #add(Object)}.
-     *
-     * <p>Note: this is an <em>efficient</em> operation, but still not necessarily a <em>fast</em>
-     * one: it can take hours to run for large amounts of data.
-     */
-    public void submit() {
-      Timer.Context submitTimer =
-          metrics
-              .timer(
-                  MetricRegistry.name(
-                      getClass().getSimpleName(), "postgresSqlBatches", "submitted"))
-              .time();
-
-      EntityManager entityManager = null;
-      try {
-        entityManager = entityManagerFactory.createEntityManager();
-
-        /*
-         * PostgreSQL's CopyManager needs a raw PostgreSQL
-         * BaseConnection. So here we unwrap one from the EntityManager.
-         */
-        Session session = entityManager.unwrap(Session.class);
-        session.doWork(
-            new Work() {
-              /** @see org.hibernate.jdbc.Work#execute(java.sql.Connection) */
-              @Override
-              public void execute(Connection connection) throws SQLException {
-                /*
-                 * Further connection unwrapping: go from a pooled
-                 * Hikari connection to a raw PostgreSQL one.
-                 */
-                HikariProxyConnection pooledConnection = (HikariProxyConnection) connection;
-                BaseConnection postgreSqlConnection = pooledConnection.unwrap(BaseConnection.class);
-
-                /*
-                 * Use that PostgreSQL connection to construct a
-                 * CopyManager instance. Finally!
-                 */
-                CopyManager copyManager = new CopyManager(postgreSqlConnection);
-
-                /*
-                 * Run the CopyManager against each CsvPrinterBundle
-                 * with queued records.
-                 */
-                csvPrinterBundles.stream()
-                    .filter(b -> b.recordsPrinted.get() > 0)
-                    .forEach(
-                        b -> {
-                          try {
-                            LOGGER.debug(
-                                "Flushing PostgreSQL COPY queue: '{}'.", b.backingTempFile);
-                            /*
-                             * First, flush the CSVPrinter to ensure that
-                             * all queued records are available on disk.
-                             */
-                            b.csvPrinter.flush();
-
-                            /*
-                             * Crack open the queued CSV records and feed
-                             * them into the CopyManager.
-                             */
-                            Timer.Context postgresCopyTimer =
-                                metrics
-                                    .timer(
-                                        MetricRegistry.name(
-                                            getClass().getSimpleName(),
-                                            "postgresCopy",
-                                            "completed"))
-                                    .time();
-                            LOGGER.info("Submitting PostgreSQL COPY queue: '{}'...", b.tableName);
-                            FileReader reader = new FileReader(b.backingTempFile);
-                            String columnsList =
-                                Arrays.stream(b.columnNames)
-                                    .map(c -> "\"" + c + "\"")
-                                    .collect(Collectors.joining(", "));
-                            copyManager.copyIn(
-                                String.format(
-                                    "COPY \"%s\" (%s) FROM STDIN DELIMITERS ',' CSV ENCODING 'UTF8'",
-                                    b.tableName, columnsList),
-                                reader);
-                            LOGGER.info("Submitted PostgreSQL COPY queue: '{}'.", b.tableName);
-                            postgresCopyTimer.stop();
-                          } catch (Exception e) {
-                            throw new RifLoadFailure(e);
-                          }
-                        });
-              }
-            });
-      } finally {
-        if (entityManager != null) entityManager.close();
-      }
-
-      submitTimer.stop();
-    }
-
-    /** @see java.lang.AutoCloseable#close() */
-    @Override
-    public void close() {
-      csvPrinterBundles.stream()
-          .forEach(
-              b -> {
-                try {
-                  b.csvPrinter.close();
-                  b.backingTempFile.delete();
-                } catch (IOException e) {
-                  throw new UncheckedIOException(e);
-                }
-              });
-    }
-
-    /**
-     * A simple struct for storing all of the state and tracking information for each SQL table's
-     * {@link CSVPrinter}.
-     */
-    private static final class CsvPrinterBundle {
-      String tableName = null;
-      CSVPrinter csvPrinter = null;
-      File backingTempFile = null;
-      String[] columnNames = null;
-      AtomicInteger recordsPrinted = new AtomicInteger(0);
-    }
-  }
-
   /** Enumerates the {@link RifLoader} record handling strategies. */
   private static enum LoadStrategy {
     INSERT_IDEMPOTENT,
 
     INSERT_UPDATE_NON_IDEMPOTENT;
   }
-
-  /** Encapsulates the {@link RifLoader} record handling preferences. */
-  private static final class LoadFeatures {
-    private final boolean idempotencyRequired;
-    private final boolean copyDesired;
-
-    /**
-     * Constructs a new {@link LoadFeatures} instance.
-     *
-     * @param idempotencyRequired the value to use for {@link #isIdempotencyRequired()}
-     * @param copyDesired the value to use for {@link #isCopyDesired()}
-     */
-    public LoadFeatures(boolean idempotencyRequired, boolean copyDesired) {
-      this.idempotencyRequired = idempotencyRequired;
-      this.copyDesired = copyDesired;
-    }
-
-    /**
-     * @return <code>true</code> if record inserts must be idempotent, <code>false</code> if that's
-     *     not required
-     */
-    public boolean isIdempotencyRequired() {
-      return idempotencyRequired;
-    }
-
-    /**
-     * @return <code>true</code> if PostgreSQL's {@link CopyManager} APIs should be used to load
-     *     data when possible, <code>false</code> if not
-     */
-    public boolean isCopyDesired() {
-      return copyDesired;
-    }
-  }
 }
@@ -1,12 +1,12 @@
 package gov.cms.bfd.pipeline.rif.load;
 
-import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -14,10 +14,8 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 import javax.crypto.SecretKeyFactory;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
@@ -39,8 +37,10 @@ public class RifLoaderIdleTasks {
    * maintenance tasks in future.
    *
    * There are about a billion mbiHash fields to fill. So time was spent to come up with
-   * a fast method to fixup fields. In the end, batching large number of updates and doing these
-   * batches in parallel worked well enough.
+   * a fast method to fixup fields. Batching large number of updates and doing these
+   * batches in parallel worked well enough at first, but finding each batch's rows with a
+   * MOD(id, partitionCount) filter meant a full table scan per batch. The fixups are now
+   * MaintenanceJobs, which the MaintenanceEngine runs by walking primary key ranges in order.
    *
    * There is a hierarchy in the names and concepts used in this class.
    *
@@ -49,10 +49,10 @@ public class RifLoaderIdleTasks {
    *    A task can take many time slices to complete.
    *  Executor - Within a time slice, work is given to an executor.
    *    Instead of another interface, a generic Callable interface is used.
-   *  Partition - Fixup work is divide among partitions of a table.
-   *    Partitions are numbered 0 ... PARTITION_COUNT-1;
-   *    Each partition is given its own executor.
-   *  Batch - A group of records to update in one DB transaction. All records come from a single partition.
+   *  Key Range - Fixup work is divided among ranges of a table's primary key.
+   *    There are several ranges per executor, and each executor works through them until
+   *    they're all done. The ranges' progress is persisted, so work resumes across restarts.
+   *  Batch - A group of records to update in one DB transaction. All records come from a single key range.
    */
 
   /** Time slice that a task can take before returning/yielding to the main pipeline */
@@ -64,15 +64,12 @@ public class RifLoaderIdleTasks {
   /** Max amount of time before a timeout occurs. */
   private static final int MAX_EXECUTOR_TIME_SECONDS = 300; // Allow for large table scans
 
-  /** The record count of a db update batch */
-  private static final int BATCH_COUNT = 100;
-
   /** An executor list that does no work and always completes */
   private static final List<Callable<Boolean>> NULL_EXECUTORS = Collections.emptyList();
 
   private static final Logger LOGGER = LoggerFactory.getLogger(RifLoaderIdleTasks.class);
 
-  /** The number of partitions to run by default. It is an option. */
+  /** The number of fixup executors to run by default. It is an option. */
   public static final int DEFAULT_PARTITION_COUNT = 20;
 
   /** Enum to tell what the current task is being executed. */
@@ -89,6 +86,9 @@ public class RifLoaderIdleTasks {
     /** A sub-task to fixup BeneficiariesHistory table */
     POST_STARTUP_FIXUP_BENEFICIARY_HISTORY,
 
+    /** A sub-task to run the jobs added via {@link #registerJob(MaintenanceJob)}, if any */
+    POST_STARTUP_REGISTERED_JOBS,
+
     /** Run the normal task */
     NORMAL,
   }
@@ -96,11 +96,12 @@ public class RifLoaderIdleTasks {
   /* Hashing entities */
   private final LoadAppOptions options;
   private final EntityManagerFactory entityManagerFactory;
-  private final SecretKeyFactory secretKeyFactory;
 
-  /* Metrics */
-  private final Meter beneficaryMeter;
-  private final Meter historyMeter;
+  /* Fixup jobs */
+  private final MaintenanceEngine maintenanceEngine;
+  private final MaintenanceJob beneficiaryFixupJob;
+  private final MaintenanceJob historyFixupJob;
+  private final List<MaintenanceJob> registeredJobs;
 
   /* Thread pool for post startup tasks */
   private final ExecutorService executorService;
@@ -123,10 +124,21 @@ public class RifLoaderIdleTasks {
       final SecretKeyFactory secretKeyFactory) {
     this.options = options;
     this.entityManagerFactory = entityManagerFactory;
-    this.secretKeyFactory = secretKeyFactory;
 
-    this.beneficaryMeter = appMetrics.meter("fixups.beneficiary.rate");
-    this.historyMeter = appMetrics.meter("fixups.beneficiary_history.rate");
+    this.maintenanceEngine =
+        new MaintenanceEngine(entityManagerFactory, appMetrics, options.getFixupThreads());
+    this.beneficiaryFixupJob =
+        new MbiHashBackfillJob(
+            "beneficiary", "Beneficiaries", "beneficiaryId", true, options, secretKeyFactory);
+    this.historyFixupJob =
+        new MbiHashBackfillJob(
+            "beneficiary_history",
+            "BeneficiariesHistory",
+            "beneficiaryHistoryId",
+            false,
+            options,
+            secretKeyFactory);
+    this.registeredJobs = new CopyOnWriteArrayList<>();
 
     this.executorService = Executors.newFixedThreadPool(options.getFixupThreads());
   }
@@ -140,6 +152,24 @@ public class RifLoaderIdleTasks {
     return currentTask;
   }
 
+  /**
+   * Adds a {@link MaintenanceJob} (e.g. a backfill of a new column, or a re-hash of an existing
+   * one) to be run after the built-in fixups, when fixups are enabled. Jobs must be registered
+   * before the idle tasks get past the post-startup fixups, i.e. before the first few idle time
+   * slots.
+   *
+   * @param job the {@link MaintenanceJob} to run, whose {@link MaintenanceJob#getName()} must not
+   *     have been used by any other job
+   */
+  public void registerJob(MaintenanceJob job) {
+    if (job.getName().equals(beneficiaryFixupJob.getName())
+        || job.getName().equals(historyFixupJob.getName())
+        || registeredJobs.stream().anyMatch(j -> j.getName().equals(job.getName())))
+      throw new IllegalArgumentException("Duplicate maintenance job name: " + job.getName());
+
+    registeredJobs.add(job);
+  }
+
   /**
    * Run the current idle task. This method is expected to be called whenever no RIF files are
    * present for process. It will respect the TASK_TIME_LIMIT to allow checking of RIF files and to
@@ -165,9 +195,13 @@ public class RifLoaderIdleTasks {
       case POST_STARTUP:
         return NULL_EXECUTORS;
       case POST_STARTUP_FIXUP_BENEFICIARIES:
-        return makeExecutorsForPartitions(this::fixupBeneficiaryExecutor);
+        return maintenanceEngine.createWorkers(
+            Collections.singletonList(beneficiaryFixupJob), TIME_SLICE_LIMIT);
       case POST_STARTUP_FIXUP_BENEFICIARY_HISTORY:
-        return makeExecutorsForPartitions(this::fixupHistoryExecutor);
+        return maintenanceEngine.createWorkers(
+            Collections.singletonList(historyFixupJob), TIME_SLICE_LIMIT);
+      case POST_STARTUP_REGISTERED_JOBS:
+        return maintenanceEngine.createWorkers(registeredJobs, TIME_SLICE_LIMIT);
       case NORMAL:
         return NULL_EXECUTORS;
       default:
@@ -175,18 +209,6 @@ public class RifLoaderIdleTasks {
     }
   }
 
-  /**
-   * Form a list of executors, one for each partition
-   *
-   * @param executor for a single partition
-   * @return the list of executors
-   */
-  private List<Callable<Boolean>> makeExecutorsForPartitions(Function<Integer, Boolean> executor) {
-    return IntStream.range(0, options.getFixupThreads())
-        .mapToObj((partition) -> (Callable<Boolean>) () -> executor.apply(partition))
-        .collect(Collectors.toList());
-  }
-
   /**
    * Execute the work in parallel threads. Wait for all executors to complete.
    *
@@ -240,6 +262,8 @@ public class RifLoaderIdleTasks {
       case POST_STARTUP_FIXUP_BENEFICIARIES:
         return Task.POST_STARTUP_FIXUP_BENEFICIARY_HISTORY;
       case POST_STARTUP_FIXUP_BENEFICIARY_HISTORY:
+        return registeredJobs.isEmpty() ? Task.NORMAL : Task.POST_STARTUP_REGISTERED_JOBS;
+      case POST_STARTUP_REGISTERED_JOBS:
         return Task.NORMAL;
       case NORMAL:
       default:
@@ -277,48 +301,6 @@ public class RifLoaderIdleTasks {
     return true;
   }
 
-  /**
-   * Executor for the Beneficiaries table.
-   *
-   * @param partition to work on
-   * @return true if done with the work on this partition
-   */
-  public Boolean fixupBeneficiaryExecutor(final Integer partition) {
-    LOGGER.debug("Start a Beneficiary executor: partition {}", partition);
-    final AtomicInteger counter = new AtomicInteger(0);
-    final Boolean isDone =
-        doBatches(
-            session ->
-                fixupBatch(session, "Beneficiaries", "beneficiaryId", true, partition, counter));
-    beneficaryMeter.mark(counter.get());
-    LOGGER.debug("Finished a Beneficiary executor: {}, count {}", partition, counter.get());
-    return isDone;
-  }
-
-  /**
-   * Executor for the BeneficiariesHistory table.
-   *
-   * @param partition to work on
-   * @return true if done with the work on this partition
-   */
-  public Boolean fixupHistoryExecutor(final Integer partition) {
-    LOGGER.debug("Start a BeneficiariesHistory partition {}", partition);
-    final AtomicInteger counter = new AtomicInteger(0);
-    final Boolean isDone =
-        doBatches(
-            session ->
-                fixupBatch(
-                    session,
-                    "BeneficiariesHistory",
-                    "beneficiaryHistoryId",
-                    false,
-                    partition,
-                    counter));
-    historyMeter.mark(counter.get());
-    LOGGER.debug("Finished a History executor: {}, count {}", partition, counter.get());
-    return isDone;
-  }
-
   /**
    * Break up the work into a series of batches of record to update. Each batch is done in a
    * transaction. After each batch, check the amount of time taken. Return after the
@@ -352,112 +334,6 @@ public class RifLoaderIdleTasks {
     }
   }
 
-  /**
-   * Fixup a batch of records. Executed in the context of a transaction.
-   *
-   * @param session to use
-   * @param tableName to fetch from
-   * @param idName of the table
-   * @param hasTextId is true if the id is a varchar, false if the id is a bigint
-   * @param partition to fetch from
-   * @param counter to increment with the record count
-   * @return the number of records fixed up;
-   */
-  private boolean fixupBatch(
-      final StatelessSession session,
-      final String tableName,
-      final String idName,
-      final boolean hasTextId,
-      final int partition,
-      final AtomicInteger counter) {
-    List<Object[]> rows = fetchBatchRows(session, tableName, idName, hasTextId, partition);
-    if (rows.size() == 0) return true;
-    updateBatchMbiHash(session, rows, tableName, idName, hasTextId);
-    counter.addAndGet(rows.size());
-    return false;
-  }
-
-  /**
-   * Fetch the rows of a batch. Each row contains the tableId and a medicareBeneficiaryId.
-   *
-   * @param session to use
-   * @param tableName to fetch from
-   * @param idName of the table
-   * @param hasTextId is true if the id is a varchar, false if the id is a bigint
-   * @param partition to fetch from
-   * @return a list of rows
-   */
-  @SuppressWarnings("unchecked")
-  private List<Object[]> fetchBatchRows(
-      final StatelessSession session,
-      final String tableName,
-      final String idName,
-      final boolean hasTextId,
-      final int partition) {
-    final String select =
-        "SELECT b.\""
-            + idName
-            + "\", b.\"medicareBeneficiaryId\" "
-            + "FROM \""
-            + tableName
-            + "\" b "
-            + "WHERE b.\"mbiHash\" IS NULL AND b.\"medicareBeneficiaryId\" IS NOT NULL AND "
-            + (hasTextId
-                ? "MOD(CAST(b.\""
-                    + idName
-                    + "\" AS numeric), "
-                    + options.getFixupThreads()
-                    + ") = "
-                    + partition
-                : "MOD(b.\"" + idName + "\", " + options.getFixupThreads() + ") = " + partition);
-
-    return session.createNativeQuery(select).setMaxResults(BATCH_COUNT).getResultList();
-  }
-
-  /**
-   * Update the mbiHash field of the batch.
-   *
-   * @param session to use
-   * @param rows rows of id and medicareBeneficiaryId tuples
-   * @param tableName to update
-   * @param idName of the table
-   * @param hasTextId is true if the id is a varchar, false if the id is a bigint
-   */
-  private void updateBatchMbiHash(
-      final StatelessSession session,
-      final List<Object[]> rows,
-      String tableName,
-      String idName,
-      boolean hasTextId) {
-    final int rowSize = 100; // 64 for hash and 14 for MBI
-    StringBuilder update = new StringBuilder(rows.size() * rowSize + rowSize);
-
-    /*
-     * Developer Note:
-     * VALUES is a allows single statement update statement to update mulitple values.
-     * It's a common operator, but does not work on HSQLDB.
-     */
-    update
-        .append("UPDATE \"")
-        .append(tableName)
-        .append("\" b SET \"mbiHash\" = mbi_hash FROM (VALUES ");
-    for (int i = 0; i < rows.size(); i++) {
-      Object[] row = rows.get(i);
-      String mbi = (String) row[1];
-      String mbiHash = RifLoader.computeMbiHash(options, secretKeyFactory, mbi);
-      if (i > 0) update.append(",");
-      update
-          .append(hasTextId ? "('" : "(")
-          .append(row[0].toString())
-          .append(hasTextId ? "','" : ",'")
-          .append(mbiHash)
-          .append("')");
-    }
-    update.append(") AS t(id, mbi_hash) WHERE b.\"").append(idName).append("\" = id");
-
-    session.createNativeQuery(update.toString()).executeUpdate();
-  }
-
   /**
    * Any time left in this time slice?
    *
@@ -0,0 +1,106 @@
+package gov.cms.bfd.pipeline.rif.load;
+
+import com.codahale.metrics.MetricRegistry;
+import gov.cms.bfd.model.rif.RifFileType;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Unit tests for {@link AdaptiveBatchSizer} and {@link InFlightByteBudget}. */
+public final class AdaptiveBatchSizerTest {
+  private static final int RECORD_BATCH_SIZE = 100;
+  private static final int TARGET_MILLIS = 1000;
+
+  /**
+   * Verifies that {@link AdaptiveBatchSizer} starts out with the configured batch size, and then
+   * settles on the batch payload that hits the target transaction duration, even when each
+   * transaction has a large fixed overhead.
+   */
+  @Test
+  public void convergesOnTargetDuration() {
+    MetricRegistry appMetrics = new MetricRegistry();
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(createOptions(), appMetrics);
+    Assert.assertEquals(RECORD_BATCH_SIZE, sizer.getBatchSize(RifFileType.CARRIER));
+    Assert.assertEquals(Long.MAX_VALUE, sizer.getBatchBytes(RifFileType.CARRIER));
+
+    long overheadNanos = TimeUnit.MILLISECONDS.toNanos(200);
+    long nanosPerByte = 100;
+    sizer.recordTransaction(
+        RifFileType.CARRIER, 1_000_000L, overheadNanos + 1_000_000L * nanosPerByte);
+    Assert.assertEquals(
+        RECORD_BATCH_SIZE * AdaptiveBatchSizer.MAX_BATCH_SIZE_FACTOR,
+        sizer.getBatchSize(RifFileType.CARRIER));
+    for (int i = 0; i < 100; i++) {
+      long batchBytes = sizer.getBatchBytes(RifFileType.CARRIER);
+      sizer.recordTransaction(
+          RifFileType.CARRIER, batchBytes, overheadNanos + batchBytes * nanosPerByte);
+    }
+
+    long expectedBytes =
+        (TimeUnit.MILLISECONDS.toNanos(TARGET_MILLIS) - overheadNanos) / nanosPerByte;
+    Assert.assertEquals(
+        expectedBytes, sizer.getBatchBytes(RifFileType.CARRIER), expectedBytes * 0.01);
+
+    // The other types are sized independently.
+    Assert.assertEquals(RECORD_BATCH_SIZE, sizer.getBatchSize(RifFileType.PDE));
+    Assert.assertEquals(Long.MAX_VALUE, sizer.getBatchBytes(RifFileType.PDE));
+    Assert.assertEquals(101, appMetrics.histogram("RifLoader.batchBytes.CARRIER").getCount());
+  }
+
+  /**
+   * Verifies that a single very slow transaction can't shrink {@link AdaptiveBatchSizer}'s target
+   * payload by more than {@link AdaptiveBatchSizer#MAX_ADJUSTMENT}.
+   */
+  @Test
+  public void limitsEachAdjustment() {
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(createOptions(), new MetricRegistry());
+    sizer.recordTransaction(RifFileType.PDE, 1_000_000L, TimeUnit.MINUTES.toNanos(10));
+    Assert.assertEquals(
+        (long) (1_000_000L / AdaptiveBatchSizer.MAX_ADJUSTMENT),
+        sizer.getBatchBytes(RifFileType.PDE));
+  }
+
+  /**
+   * Verifies that {@link InFlightByteBudget} blocks batches that would exceed its budget until
+   * enough of the in-flight ones are released, and lets oversized batches through on their own.
+   *
+   * @throws InterruptedException (indicates a test error)
+   */
+  @Test
+  public void inFlightByteBudgetBlocksUntilReleased() throws InterruptedException {
+    InFlightByteBudget budget = new InFlightByteBudget(1000L);
+    long firstCharge = budget.acquire(600L);
+    Assert.assertEquals(600L, firstCharge);
+
+    Thread blocked =
+        new Thread(
+            () -> {
+              try {
+                budget.release(budget.acquire(5000L));
+              } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+              }
+            });
+    blocked.start();
+    blocked.join(200);
+    Assert.assertTrue(blocked.isAlive());
+    Assert.assertEquals(600L, budget.getInFlightBytes());
+
+    budget.release(firstCharge);
+    blocked.join(TimeUnit.SECONDS.toMillis(10));
+    Assert.assertFalse(blocked.isAlive());
+    Assert.assertEquals(0L, budget.getInFlightBytes());
+  }
+
+  /** @return the {@link LoadAppOptions} to test with, with adaptive batching enabled */
+  private static LoadAppOptions createOptions() {
+    return new LoadAppOptions.Builder()
+        .hicnHash(1, "nottherealpepper".getBytes(StandardCharsets.UTF_8))
+        .databaseUrl("jdbc:hsqldb:mem:test", null, null)
+        .loaderThreads(1)
+        .recordBatchSize(RECORD_BATCH_SIZE)
+        .batchTransactionTargetMillis(TARGET_MILLIS)
+        .build();
+  }
+}
@@ -0,0 +1,102 @@
+package gov.cms.bfd.pipeline.rif.load;
+
+import gov.cms.bfd.model.rif.Beneficiary;
+import gov.cms.bfd.model.rif.RecordAction;
+import gov.cms.bfd.model.rif.RifFileEvent;
+import gov.cms.bfd.model.rif.RifRecordEvent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Unit tests for {@link BeneficiaryShardRouter}. */
+public final class BeneficiaryShardRouterTest {
+  /**
+   * Verifies that {@link BeneficiaryShardRouter} hands every record to the batch processor, in
+   * batches that each only contain records from a single shard, and with each beneficiary's records
+   * in their original order.
+   *
+   * @throws InterruptedException (indicates a test error)
+   */
+  @Test
+  public void preservesOrderPerBeneficiary() throws InterruptedException {
+    RifFileEvent fileEvent = RifLoaderTestUtils.createDummyFilesEvent().getFileEvents().get(0);
+    int shards = 4;
+    List<List<RifRecordEvent<?>>> batches = Collections.synchronizedList(new ArrayList<>());
+    BeneficiaryShardRouter router = new BeneficiaryShardRouter(shards, 3, batches::add);
+
+    List<RifRecordEvent<?>> events = new ArrayList<>();
+    for (int i = 0; i < 100; i++)
+      events.add(createEvent(fileEvent, RecordAction.UPDATE, Integer.toString(i % 7)));
+    events.forEach(router::route);
+    router.flush();
+    Assert.assertTrue(router.shutdownAndAwaitTermination(1, TimeUnit.MINUTES));
+
+    List<RifRecordEvent<?>> routedEvents = new ArrayList<>();
+    for (List<RifRecordEvent<?>> batch : batches) {
+      Assert.assertTrue(batch.size() <= 3);
+      int shard = BeneficiaryShardRouter.selectShard(batch.get(0).getBeneficiaryId(), shards);
+      for (RifRecordEvent<?> event : batch)
+        Assert.assertEquals(
+            shard, BeneficiaryShardRouter.selectShard(event.getBeneficiaryId(), shards));
+      routedEvents.addAll(batch);
+    }
+    Assert.assertEquals(events.size(), routedEvents.size());
+
+    for (int beneficiary = 0; beneficiary < 7; beneficiary++) {
+      String beneficiaryId = Integer.toString(beneficiary);
+      List<RifRecordEvent<?>> expected = new ArrayList<>();
+      events.stream()
+          .filter(e -> e.getBeneficiaryId().equals(beneficiaryId))
+          .forEach(expected::add);
+      List<RifRecordEvent<?>> actual = new ArrayList<>();
+      routedEvents.stream()
+          .filter(e -> e.getBeneficiaryId().equals(beneficiaryId))
+          .forEach(actual::add);
+      Assert.assertEquals(expected, actual);
+    }
+  }
+
+  /**
+   * Verifies that {@link RifLoader#findSupersededUpdates(List)} only flags the {@link Beneficiary}
+   * updates that are directly followed by another update to the same {@link Beneficiary}.
+   */
+  @Test
+  public void findSupersededUpdates() {
+    RifFileEvent fileEvent = RifLoaderTestUtils.createDummyFilesEvent().getFileEvents().get(0);
+    RifRecordEvent<?> insertA = createEvent(fileEvent, RecordAction.INSERT, "a");
+    RifRecordEvent<?> updateA1 = createEvent(fileEvent, RecordAction.UPDATE, "a");
+    RifRecordEvent<?> updateB1 = createEvent(fileEvent, RecordAction.UPDATE, "b");
+    RifRecordEvent<?> updateA2 = createEvent(fileEvent, RecordAction.UPDATE, "a");
+    RifRecordEvent<?> updateB2 = createEvent(fileEvent, RecordAction.UPDATE, "b");
+    RifRecordEvent<?> insertB = createEvent(fileEvent, RecordAction.INSERT, "b");
+    RifRecordEvent<?> updateB3 = createEvent(fileEvent, RecordAction.UPDATE, "b");
+    RifRecordEvent<?> updateA3 = createEvent(fileEvent, RecordAction.UPDATE, "a");
+
+    Set<RifRecordEvent<?>> superseded =
+        RifLoader.findSupersededUpdates(
+            Arrays.asList(
+                insertA, updateA1, updateB1, updateA2, updateB2, insertB, updateB3, updateA3));
+    Assert.assertEquals(3, superseded.size());
+    Assert.assertTrue(superseded.contains(updateA1));
+    Assert.assertTrue(superseded.contains(updateA2));
+    Assert.assertTrue(superseded.contains(updateB1));
+  }
+
+  /**
+   * @param fileEvent the {@link RifFileEvent} that the new event should be from
+   * @param recordAction the {@link RecordAction} for the new event
+   * @param beneficiaryId the {@link Beneficiary#getBeneficiaryId()} for the new event's record
+   * @return a new {@link RifRecordEvent} for a {@link Beneficiary} record
+   */
+  private static RifRecordEvent<Beneficiary> createEvent(
+      RifFileEvent fileEvent, RecordAction recordAction, String beneficiaryId) {
+    Beneficiary beneficiary = new Beneficiary();
+    beneficiary.setBeneficiaryId(beneficiaryId);
+    return new RifRecordEvent<>(fileEvent, recordAction, beneficiaryId, beneficiary);
+  }
+}
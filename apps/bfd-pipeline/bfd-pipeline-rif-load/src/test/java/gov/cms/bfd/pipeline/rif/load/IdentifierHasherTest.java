@@ -0,0 +1,52 @@
+package gov.cms.bfd.pipeline.rif.load;
+
+import com.codahale.metrics.MetricRegistry;
+import gov.cms.bfd.model.rif.schema.DatabaseTestHelper;
+import java.nio.charset.StandardCharsets;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Unit tests for {@link IdentifierHasher}. */
+public final class IdentifierHasherTest {
+  /**
+   * Verifies that {@link IdentifierHasher#computeIdentifierHash(String)} produces the same results
+   * as {@link RifLoader#computeHicnHash(LoadAppOptions, javax.crypto.SecretKeyFactory, String)},
+   * and that its cache hits, misses, and evicts as expected.
+   */
+  @Test
+  public void computeIdentifierHashWithCache() {
+    LoadAppOptions options =
+        RifLoaderTestUtils.getLoadOptions(DatabaseTestHelper.getTestDatabase());
+    options =
+        new LoadAppOptions(
+            1000,
+            "nottherealpepper".getBytes(StandardCharsets.UTF_8),
+            options.getDatabaseUrl(),
+            options.getDatabaseUsername(),
+            options.getDatabasePassword(),
+            options.getLoaderThreads(),
+            options.isIdempotencyRequired(),
+            options.isFixupsEnabled(),
+            options.getFixupThreads());
+    MetricRegistry appMetrics = new MetricRegistry();
+    IdentifierHasher hasher = new IdentifierHasher(options, appMetrics, 2);
+
+    // These are the same samples used in RifLoaderTest.
+    String hashA = "d95a418b0942c7910fb1d0e84f900fe12e5a7fd74f312fa10730cc0fda230e9a";
+    String hashE = "6357f16ebd305103cf9f2864c56435ad0de5e50f73631159772f4a4fcdfe39a5";
+    Assert.assertEquals(hashA, hasher.computeIdentifierHash("123456789A"));
+    Assert.assertEquals(hashE, hasher.computeIdentifierHash("987654321E"));
+    Assert.assertEquals(hashA, hasher.computeIdentifierHash("123456789A"));
+    Assert.assertEquals(2, hasher.getCacheSize());
+
+    // Pushes out "987654321E", which is now the least recently used entry.
+    hasher.computeIdentifierHash("1EG4-TE5-MK73");
+    Assert.assertEquals(hashA, hasher.computeIdentifierHash("123456789A"));
+    Assert.assertEquals(hashE, hasher.computeIdentifierHash("987654321E"));
+    Assert.assertEquals(2, hasher.getCacheSize());
+
+    Assert.assertEquals(2, appMetrics.meter("IdentifierHasher.cache.hits").getCount());
+    Assert.assertEquals(4, appMetrics.meter("IdentifierHasher.cache.misses").getCount());
+    Assert.assertEquals(2, appMetrics.meter("IdentifierHasher.cache.evictions").getCount());
+  }
+}
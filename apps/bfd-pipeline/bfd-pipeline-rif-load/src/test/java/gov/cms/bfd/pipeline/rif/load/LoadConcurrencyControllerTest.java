@@ -0,0 +1,84 @@
+package gov.cms.bfd.pipeline.rif.load;
+
+import com.codahale.metrics.MetricRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Unit tests for {@link LoadConcurrencyController}. */
+public final class LoadConcurrencyControllerTest {
+  private static final long BATCH_LATENCY = TimeUnit.MILLISECONDS.toNanos(100);
+
+  /**
+   * Verifies that {@link LoadConcurrencyController} backs off multiplicatively (but not below its
+   * floor) when batches fail, and then climbs back additively (but not above its ceiling) once
+   * they're healthy again, reporting each change.
+   *
+   * @throws InterruptedException (indicates a test error)
+   */
+  @Test
+  public void decreasesOnErrorsAndRecovers() throws InterruptedException {
+    MetricRegistry appMetrics = new MetricRegistry();
+    List<Integer> limits = new ArrayList<>();
+    LoadConcurrencyController controller =
+        new LoadConcurrencyController(5, 20, appMetrics, limits::add);
+    Assert.assertEquals(20, controller.getLimit());
+
+    runWindow(controller, BATCH_LATENCY, true);
+    Assert.assertEquals(15, controller.getLimit());
+    for (int i = 0; i < 10; i++) runWindow(controller, BATCH_LATENCY, true);
+    Assert.assertEquals(5, controller.getLimit());
+
+    for (int i = 0; i < 100; i++) runWindow(controller, BATCH_LATENCY, false);
+    Assert.assertEquals(20, controller.getLimit());
+
+    Assert.assertEquals(Integer.valueOf(15), limits.get(0));
+    Assert.assertEquals(Integer.valueOf(20), limits.get(limits.size() - 1));
+    Assert.assertTrue(appMetrics.meter("RifLoader.concurrency.decreased").getCount() > 0);
+    Assert.assertEquals(15, appMetrics.meter("RifLoader.concurrency.increased").getCount());
+  }
+
+  /**
+   * Verifies that {@link LoadConcurrencyController} backs off when batch latency jumps well above
+   * its baseline, and when batches spend too long waiting for connections.
+   *
+   * @throws InterruptedException (indicates a test error)
+   */
+  @Test
+  public void decreasesOnLatencyAndConnectionWaits() throws InterruptedException {
+    LoadConcurrencyController controller =
+        new LoadConcurrencyController(1, 20, new MetricRegistry(), limit -> {});
+
+    runWindow(controller, BATCH_LATENCY, false);
+    Assert.assertEquals(20, controller.getLimit());
+    runWindow(controller, BATCH_LATENCY * 3, false);
+    Assert.assertEquals(15, controller.getLimit());
+
+    controller.recordConnectionWait(BATCH_LATENCY * 10);
+    runWindow(controller, BATCH_LATENCY * 3, false);
+    Assert.assertEquals(11, controller.getLimit());
+  }
+
+  /**
+   * Runs one full window of batches through the specified {@link LoadConcurrencyController}, with
+   * as many in flight at once as it allows.
+   *
+   * @param controller the {@link LoadConcurrencyController} to run the batches through
+   * @param latencyNanos the latency to report for each batch
+   * @param failed whether or not each batch should be reported as failed
+   * @throws InterruptedException (indicates a test error)
+   */
+  private static void runWindow(
+      LoadConcurrencyController controller, long latencyNanos, boolean failed)
+      throws InterruptedException {
+    int batchesRemaining = Math.max(10, controller.getLimit());
+    while (batchesRemaining > 0) {
+      int batchesInFlight = Math.min(batchesRemaining, controller.getLimit());
+      for (int i = 0; i < batchesInFlight; i++) controller.acquire();
+      for (int i = 0; i < batchesInFlight; i++) controller.release(latencyNanos, failed);
+      batchesRemaining -= batchesInFlight;
+    }
+  }
+}
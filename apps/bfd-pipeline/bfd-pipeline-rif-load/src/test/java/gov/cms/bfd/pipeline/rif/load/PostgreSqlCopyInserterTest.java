@@ -0,0 +1,85 @@
+package gov.cms.bfd.pipeline.rif.load;
+
+import gov.cms.bfd.pipeline.rif.load.PostgreSqlCopyInserter.BinaryCopyRowEncoder;
+import gov.cms.bfd.pipeline.rif.load.PostgreSqlCopyInserter.CopyRowEncoder;
+import gov.cms.bfd.pipeline.rif.load.PostgreSqlCopyInserter.CsvCopyRowEncoder;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Unit tests for {@link PostgreSqlCopyInserter}. */
+public final class PostgreSqlCopyInserterTest {
+  /**
+   * Verifies that {@link CsvCopyRowEncoder} quotes text values and leaves <code>NULL</code>s
+   * unquoted, per PostgreSQL's <code>CSV</code> format.
+   */
+  @Test
+  public void encodeCsvRow() {
+    CsvCopyRowEncoder encoder = new CsvCopyRowEncoder();
+    encoder.encodeRow(
+        new Object[] {
+          "a\"b", 'c', null, "", new BigDecimal("12.50"), 42, LocalDate.of(2019, 2, 3)
+        });
+
+    Assert.assertEquals(
+        "\"a\"\"b\",\"c\",,\"\",12.50,42,2019-02-03\n",
+        new String(encoder.finish(), 0, encoder.size(), StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Verifies that {@link BinaryCopyRowEncoder} encodes <code>numeric</code> values exactly as
+   * PostgreSQL's <code>numeric_send(...)</code> would.
+   */
+  @Test
+  public void encodeBinaryNumerics() {
+    // ndigits, weight, sign, dscale, digits...
+    assertNumericEncoding(new BigDecimal("0"), 0, 0, 0x0000, 0);
+    assertNumericEncoding(new BigDecimal("12345"), 2, 1, 0x0000, 0, 1, 2345);
+    assertNumericEncoding(new BigDecimal("12.50"), 2, 0, 0x0000, 2, 12, 5000);
+    assertNumericEncoding(new BigDecimal("-0.05"), 1, -1, 0x4000, 2, 500);
+    assertNumericEncoding(new BigDecimal("10000.0001"), 3, 1, 0x0000, 4, 1, 0, 1);
+  }
+
+  /**
+   * @param value the value to encode
+   * @param expectedHeaderAndDigits the expected <code>numeric</code> header fields and digits, each
+   *     of which should be encoded as a 16-bit integer
+   */
+  private static void assertNumericEncoding(BigDecimal value, int... expectedHeaderAndDigits) {
+    BinaryCopyRowEncoder encoder = new BinaryCopyRowEncoder();
+    int headerSize = encoder.size();
+    encoder.encodeRow(new Object[] {value});
+    byte[] encoded = Arrays.copyOfRange(encoder.finish(), headerSize, encoder.size());
+
+    // Expect: field count, field length, numeric fields, then the file trailer.
+    int expectedLength = 2 + 4 + (2 * expectedHeaderAndDigits.length) + 2;
+    Assert.assertEquals(expectedLength, encoded.length);
+    Assert.assertEquals(1, readShort(encoded, 0));
+    Assert.assertEquals(2 * expectedHeaderAndDigits.length, readShort(encoded, 4));
+    for (int i = 0; i < expectedHeaderAndDigits.length; i++)
+      Assert.assertEquals(
+          "Mismatch at index " + i + " for " + value,
+          (short) expectedHeaderAndDigits[i],
+          (short) readShort(encoded, 6 + (2 * i)));
+    Assert.assertEquals(-1, (short) readShort(encoded, encoded.length - 2));
+  }
+
+  /**
+   * @param bytes the encoded bytes to read from
+   * @param offset the offset to read at
+   * @return the 16-bit big-endian value at the specified offset (for 32-bit length fields, only the
+   *     low 16 bits are read, which is plenty for these tests)
+   */
+  private static int readShort(byte[] bytes, int offset) {
+    return ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+  }
+
+  /** Ensures that {@link CopyRowEncoder#POSTGRESQL_EPOCH_DAY} is correct. */
+  @Test
+  public void postgreSqlEpoch() {
+    Assert.assertEquals(10957L, CopyRowEncoder.POSTGRESQL_EPOCH_DAY);
+  }
+}
@@ -0,0 +1,56 @@
+package gov.cms.bfd.pipeline.rif.load;
+
+import gov.cms.bfd.model.rif.Beneficiary;
+import gov.cms.bfd.model.rif.CarrierClaim;
+import gov.cms.bfd.model.rif.PartDEvent;
+import gov.cms.bfd.pipeline.rif.load.PostgreSqlStagedMerger.StagedTable;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Unit tests for {@link PostgreSqlStagedMerger}. */
+public final class PostgreSqlStagedMergerTest {
+  /**
+   * Verifies that {@link PostgreSqlStagedMerger#isSupported(gov.cms.bfd.model.rif.RifRecordBase)}
+   * only accepts the record types that are stored in a single table.
+   */
+  @Test
+  public void isSupported() {
+    Assert.assertTrue(PostgreSqlStagedMerger.isSupported(new Beneficiary()));
+    Assert.assertTrue(PostgreSqlStagedMerger.isSupported(new PartDEvent()));
+    Assert.assertFalse(PostgreSqlStagedMerger.isSupported(new CarrierClaim()));
+  }
+
+  /**
+   * Verifies that {@link StagedTable} captures the {@link gov.cms.bfd.model.rif.BeneficiaryHistory}
+   * before updating the existing rows, never updates the key column, and then inserts any missing
+   * rows.
+   */
+  @Test
+  public void beneficiaryMergeSql() {
+    StagedTable table =
+        new StagedTable(
+            "Beneficiaries",
+            "\"beneficiaryId\"",
+            new Object[] {"\"beneficiaryId\"", "\"birthDate\"", "lastUpdated"},
+            true);
+
+    Assert.assertEquals(
+        "CREATE TEMPORARY TABLE IF NOT EXISTS \"Beneficiaries_staged\" (LIKE \"Beneficiaries\")"
+            + " ON COMMIT DELETE ROWS",
+        table.createStagingTableSql);
+    Assert.assertEquals(4, table.mergeSql.size());
+    Assert.assertTrue(table.mergeSql.get(0).startsWith("INSERT INTO \"BeneficiariesHistory\" "));
+    Assert.assertEquals(
+        "UPDATE \"Beneficiaries\" t SET \"birthDate\" = s.\"birthDate\", lastUpdated ="
+            + " s.lastUpdated FROM \"Beneficiaries_staged\" s"
+            + " WHERE t.\"beneficiaryId\" = s.\"beneficiaryId\"",
+        table.mergeSql.get(1));
+    Assert.assertEquals(
+        "INSERT INTO \"Beneficiaries\" (\"beneficiaryId\", \"birthDate\", lastUpdated)"
+            + " SELECT s.\"beneficiaryId\", s.\"birthDate\", s.lastUpdated"
+            + " FROM \"Beneficiaries_staged\" s WHERE NOT EXISTS"
+            + " (SELECT 1 FROM \"Beneficiaries\" t WHERE t.\"beneficiaryId\" = s.\"beneficiaryId\")",
+        table.mergeSql.get(2));
+    Assert.assertEquals("TRUNCATE \"Beneficiaries_staged\"", table.mergeSql.get(3));
+  }
+}
@@ -9,22 +9,39 @@ import gov.cms.bfd.model.rif.CarrierClaim;
 import gov.cms.bfd.model.rif.CarrierClaimLine;
 import gov.cms.bfd.model.rif.LoadedBatch;
 import gov.cms.bfd.model.rif.LoadedFile;
+import gov.cms.bfd.model.rif.LoadedFileBloomFilter;
 import gov.cms.bfd.model.rif.RifFileEvent;
+import gov.cms.bfd.model.rif.RifFilePosition;
 import gov.cms.bfd.model.rif.RifFileRecords;
 import gov.cms.bfd.model.rif.RifFilesEvent;
+import gov.cms.bfd.model.rif.RifRecordEvent;
+import gov.cms.bfd.model.rif.ScalableBloomFilter;
 import gov.cms.bfd.model.rif.samples.StaticRifResource;
 import gov.cms.bfd.model.rif.samples.StaticRifResourceGroup;
 import gov.cms.bfd.model.rif.schema.DatabaseTestHelper;
 import gov.cms.bfd.pipeline.rif.extract.RifFilesProcessor;
+import gov.cms.bfd.pipeline.rif.load.LoadAppOptions.LoadMode;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.Month;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -36,6 +53,7 @@ import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Root;
 import javax.sql.DataSource;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.slf4j.Logger;
@@ -45,6 +63,27 @@ import org.slf4j.LoggerFactory;
 public final class RifLoaderIT {
   private static final Logger LOGGER = LoggerFactory.getLogger(RifLoaderIT.class);
 
+  /**
+   * The (lower-cased) names of the bookkeeping tables that {@link
+   * #snapshotRecordTables(DataSource)} skips, as their contents vary from load to load.
+   */
+  private static final Set<String> SNAPSHOT_EXCLUDED_TABLES =
+      new HashSet<>(
+          Arrays.asList(
+              "loadedfiles",
+              "loadedbatches",
+              "loadedfilebloomfilters",
+              "maintenancejobranges",
+              "flyway_schema_history",
+              "schema_version"));
+
+  /**
+   * The (lower-cased) names of the columns that {@link #snapshotRecordTables(DataSource)} skips:
+   * load timestamps and generated IDs.
+   */
+  private static final Set<String> SNAPSHOT_EXCLUDED_COLUMNS =
+      new HashSet<>(Arrays.asList("lastupdated", "beneficiaryhistoryid"));
+
   /**
    * Runs {@link gov.cms.bfd.pipeline.rif.load.RifLoader} against the {@link
    * StaticRifResourceGroup#SAMPLE_A} data.
@@ -55,6 +94,91 @@ public final class RifLoaderIT {
     loadSample(dataSource, StaticRifResourceGroup.SAMPLE_A);
   }
 
+  /**
+   * Runs {@link gov.cms.bfd.pipeline.rif.load.RifLoader} against the {@link
+   * StaticRifResourceGroup#SAMPLE_A} data, using {@link LoadMode#POSTGRESQL_COPY_CSV}. (Against
+   * databases other than PostgreSQL, this just verifies the fallback to {@link LoadMode#JPA}.)
+   */
+  @Test
+  public void loadSampleAWithCopyCsv() {
+    DataSource dataSource = DatabaseTestHelper.getTestDatabaseAfterClean();
+    loadSample(
+        StaticRifResourceGroup.SAMPLE_A,
+        createLoadOptions(dataSource, false, LoadMode.POSTGRESQL_COPY_CSV));
+  }
+
+  /**
+   * Runs {@link gov.cms.bfd.pipeline.rif.load.RifLoader} against the {@link
+   * StaticRifResourceGroup#SAMPLE_A} data, using {@link LoadMode#POSTGRESQL_COPY_BINARY}. (Against
+   * databases other than PostgreSQL, this just verifies the fallback to {@link LoadMode#JPA}.)
+   */
+  @Test
+  public void loadSampleAWithCopyBinary() {
+    DataSource dataSource = DatabaseTestHelper.getTestDatabaseAfterClean();
+    loadSample(
+        StaticRifResourceGroup.SAMPLE_A,
+        createLoadOptions(dataSource, false, LoadMode.POSTGRESQL_COPY_BINARY));
+  }
+
+  /**
+   * Runs {@link gov.cms.bfd.pipeline.rif.load.RifLoader} against the {@link
+   * StaticRifResourceGroup#SAMPLE_A} data, using {@link LoadMode#JPA}, then {@link
+   * LoadMode#POSTGRESQL_COPY_CSV}, and then {@link LoadMode#POSTGRESQL_COPY_BINARY}, and verifies
+   * that the <code>COPY</code> loads produce exactly the same rows as the JPA one. This test only
+   * runs against PostgreSQL, as the <code>COPY</code> modes fall back to JPA everywhere else.
+   */
+  @Test
+  public void loadSampleAWithCopyMatchesJpa() {
+    DataSource dataSource = DatabaseTestHelper.getTestDatabaseAfterClean();
+    assumePostgreSql(dataSource);
+
+    loadSample(StaticRifResourceGroup.SAMPLE_A, createLoadOptions(dataSource, false, LoadMode.JPA));
+    Map<String, List<String>> jpaRows = snapshotRecordTables(dataSource);
+    Assert.assertFalse(jpaRows.get("Beneficiaries").isEmpty());
+
+    for (LoadMode copyMode :
+        Arrays.asList(LoadMode.POSTGRESQL_COPY_CSV, LoadMode.POSTGRESQL_COPY_BINARY)) {
+      dataSource = DatabaseTestHelper.getTestDatabaseAfterClean();
+      RifFilesEvent rifFilesEvent =
+          loadSample(
+              StaticRifResourceGroup.SAMPLE_A, createLoadOptions(dataSource, false, copyMode));
+
+      long copies =
+          rifFilesEvent.getFileEvents().stream()
+              .flatMap(e -> e.getEventMetrics().getTimers().entrySet().stream())
+              .filter(t -> t.getKey().startsWith("RifLoader.postgreSqlCopies."))
+              .mapToLong(t -> t.getValue().getCount())
+              .sum();
+      Assert.assertTrue("No COPYs were run for: " + copyMode, copies > 0);
+      Assert.assertEquals(
+          "Rows don't match JPA's for: " + copyMode, jpaRows, snapshotRecordTables(dataSource));
+    }
+  }
+
+  /**
+   * Runs {@link gov.cms.bfd.pipeline.rif.load.RifLoader} against the {@link
+   * StaticRifResourceGroup#SAMPLE_A} data, using {@link LoadMode#JDBC_BATCH}.
+   */
+  @Test
+  public void loadSampleAWithJdbcBatches() {
+    DataSource dataSource = DatabaseTestHelper.getTestDatabaseAfterClean();
+    loadSample(
+        StaticRifResourceGroup.SAMPLE_A, createLoadOptions(dataSource, false, LoadMode.JDBC_BATCH));
+  }
+
+  /**
+   * Runs {@link gov.cms.bfd.pipeline.rif.load.RifLoader} against the {@link
+   * StaticRifResourceGroup#SAMPLE_A} data twice, with {@link
+   * LoadAppOptions#isIdempotencyRequired()} enabled, verifying that the second load skips the
+   * already-loaded records.
+   */
+  @Test
+  public void loadSampleATwiceIdempotently() {
+    DataSource dataSource = DatabaseTestHelper.getTestDatabaseAfterClean();
+    loadSample(dataSource, StaticRifResourceGroup.SAMPLE_A);
+    loadSample(dataSource, StaticRifResourceGroup.SAMPLE_A);
+  }
+
   @Ignore
   @Test
   public void loadSampleAWithoutClean() {
@@ -83,6 +207,15 @@ public final class RifLoaderIT {
               "Expected to match the sample-a beneficiary",
               "567834",
               allBatches.getBeneficiariesAsList().get(0));
+
+          // Verify that the file's Bloom filter was published
+          final LoadedFileBloomFilter fileFilter =
+              entityManager.find(LoadedFileBloomFilter.class, loadedFile.getLoadedFileId());
+          Assert.assertNotNull("Expected a published filter for the file", fileFilter);
+          Assert.assertEquals(batches.size(), fileFilter.getBatchCount());
+          Assert.assertTrue(
+              ScalableBloomFilter.readFrom(fileFilter.getBloomFilter())
+                  .mightContainString("567834"));
         });
   }
 
@@ -150,6 +283,172 @@ public final class RifLoaderIT {
         });
   }
 
+  /**
+   * Verifies that {@link RifLoader#processResumable(RifFileEvent, java.util.function.Function, int,
+   * java.util.function.Consumer, java.util.function.Consumer)} skips files that were already
+   * completely loaded, and resumes interrupted ones from their checkpoint, without re-inserting the
+   * records that were already committed.
+   */
+  @Test
+  public void resumeFromCheckpoint() {
+    RifLoaderTestUtils.doTestWithDb(
+        (dataSource, entityManager) -> {
+          // Use small batches and non-idempotent inserts, so that any re-inserts would fail.
+          LoadAppOptions options =
+              RifLoaderTestUtils.getLoadOptions(dataSource)
+                  .toBuilder()
+                  .idempotencyRequired(false)
+                  .recordBatchSize(10)
+                  .loadCheckpointsEnabled(true)
+                  .build();
+          RifFilesEvent rifFilesEvent =
+              new RifFilesEvent(Instant.now(), StaticRifResource.SAMPLE_B_BENES.toRifFile());
+          RifFileEvent rifFileEvent = rifFilesEvent.getFileEvents().get(0);
+          RifFilesProcessor processor = new RifFilesProcessor();
+          RifLoader loader = new RifLoader(new MetricRegistry(), options);
+
+          // Load the whole file, and then try to load it again, which should do nothing.
+          Assert.assertEquals(100, loadResumable(loader, processor, rifFileEvent, null));
+          LoadedFile loadedFile = RifLoaderTestUtils.findLoadedFiles(entityManager).get(0);
+          Assert.assertNotNull(loadedFile.getCompleted());
+          Assert.assertEquals(0, loadResumable(loader, processor, rifFileEvent, null));
+
+          // Simulate a crash after the first 50 records were committed.
+          RifFilePosition checkpoint;
+          List<String> laterBeneficiaryIds;
+          try (Stream<RifRecordEvent<?>> records =
+              processor.produceRecords(rifFileEvent, RifFilePosition.START).getRecords()) {
+            List<RifRecordEvent<?>> laterRecords =
+                records.skip(50).collect(Collectors.toList());
+            checkpoint = laterRecords.get(0).getPosition().get();
+            laterBeneficiaryIds =
+                laterRecords.stream()
+                    .map(RifRecordEvent::getBeneficiaryId)
+                    .collect(Collectors.toList());
+          }
+          EntityTransaction txn = entityManager.getTransaction();
+          txn.begin();
+          loadedFile = entityManager.find(LoadedFile.class, loadedFile.getLoadedFileId());
+          loadedFile.setCompleted(null);
+          loadedFile.setCheckpoint(checkpoint);
+          entityManager
+              .createQuery(
+                  "delete from LoadedBatch b where b.loadedFileId = :loadedFileId"
+                      + " and b.maxRecordNumber >= :recordNumber")
+              .setParameter("loadedFileId", loadedFile.getLoadedFileId())
+              .setParameter("recordNumber", checkpoint.getRecordNumber())
+              .executeUpdate();
+          entityManager
+              .createQuery("delete from Beneficiary b where b.beneficiaryId in :beneficiaryIds")
+              .setParameter("beneficiaryIds", laterBeneficiaryIds)
+              .executeUpdate();
+          txn.commit();
+
+          // Resume, which should only load the last 50 records.
+          Assert.assertEquals(50, loadResumable(loader, processor, rifFileEvent, checkpoint));
+          loadedFile = RifLoaderTestUtils.findLoadedFiles(entityManager).get(0);
+          Assert.assertNotNull(loadedFile.getCompleted());
+          loader.close();
+        });
+  }
+
+  /**
+   * Loads the specified file via {@link RifLoader#processResumable(RifFileEvent,
+   * java.util.function.Function, int, java.util.function.Consumer, java.util.function.Consumer)},
+   * and verifies that there were no failures.
+   *
+   * @param loader the {@link RifLoader} to use
+   * @param processor the {@link RifFilesProcessor} to use
+   * @param rifFileEvent the {@link RifFileEvent} to load
+   * @param expectedStart the {@link RifFilePosition} that loading should resume from, or <code>
+   *     null</code> to not check that
+   * @return the number of records that were loaded
+   */
+  private static int loadResumable(
+      RifLoader loader,
+      RifFilesProcessor processor,
+      RifFileEvent rifFileEvent,
+      RifFilePosition expectedStart) {
+    AtomicInteger failureCount = new AtomicInteger(0);
+    AtomicInteger loadCount = new AtomicInteger(0);
+    loader.processResumable(
+        rifFileEvent,
+        startAt -> {
+          if (expectedStart != null) {
+            Assert.assertEquals(expectedStart.getRecordNumber(), startAt.getRecordNumber());
+            Assert.assertEquals(expectedStart.getByteOffset(), startAt.getByteOffset());
+          }
+          return processor.produceRecords(rifFileEvent, startAt);
+        },
+        LoadAppOptions.DEFAULT_LOADER_THREADS,
+        error -> {
+          failureCount.incrementAndGet();
+          LOGGER.warn("Record(s) failed to load.", error);
+        },
+        result -> loadCount.incrementAndGet());
+    Assert.assertEquals(0, failureCount.get());
+    return loadCount.get();
+  }
+
+  /**
+   * Verifies that {@link RifLoader} can load one file after another when each has more batches than
+   * there are loader threads, with the connection pool at its configured size: the {@link
+   * LoaderSessionPool}'s sessions mustn't keep hold of the connections that the next file's
+   * bookkeeping needs.
+   */
+  @Test
+  public void loadMoreBatchesThanLoaderThreads() {
+    RifLoaderTestUtils.doTestWithDb(
+        (dataSource, entityManager) -> {
+          LoadAppOptions options =
+              RifLoaderTestUtils.getLoadOptions(dataSource)
+                  .toBuilder()
+                  .loaderThreads(2)
+                  .recordBatchSize(10)
+                  .build();
+          MetricRegistry appMetrics = new MetricRegistry();
+          RifFilesEvent rifFilesEvent =
+              new RifFilesEvent(
+                  Instant.now(),
+                  StaticRifResource.SAMPLE_B_BENES.toRifFile(),
+                  StaticRifResource.SAMPLE_B_CARRIER.toRifFile());
+          RifFilesProcessor processor = new RifFilesProcessor();
+          AtomicInteger failureCount = new AtomicInteger(0);
+          AtomicInteger loadCount = new AtomicInteger(0);
+          try (RifLoader loader = new RifLoader(appMetrics, options)) {
+            for (RifFileEvent rifFileEvent : rifFilesEvent.getFileEvents()) {
+              loader.process(
+                  processor.produceRecords(rifFileEvent),
+                  error -> {
+                    failureCount.incrementAndGet();
+                    LOGGER.warn("Record(s) failed to load.", error);
+                  },
+                  result -> loadCount.incrementAndGet());
+
+              // Every session should have been closed once the file was done.
+              Assert.assertEquals(
+                  appMetrics
+                      .meter(
+                          MetricRegistry.name(
+                              RifLoader.class.getSimpleName(), "sessions", "opened"))
+                      .getCount(),
+                  appMetrics
+                      .meter(
+                          MetricRegistry.name(
+                              RifLoader.class.getSimpleName(), "sessions", "closed"))
+                      .getCount());
+            }
+          }
+
+          Assert.assertEquals(0, failureCount.get());
+          Assert.assertEquals(
+              StaticRifResource.SAMPLE_B_BENES.getRecordCount()
+                  + StaticRifResource.SAMPLE_B_CARRIER.getRecordCount(),
+              loadCount.get());
+          Assert.assertEquals(2, RifLoaderTestUtils.findLoadedFiles(entityManager).size());
+        });
+  }
+
   @Ignore
   @Test
   public void buildSyntheticLoadedFiles() {
@@ -172,13 +471,85 @@ public final class RifLoaderIT {
   @Test
   public void loadSampleU() {
     DataSource dataSource = DatabaseTestHelper.getTestDatabaseAfterClean();
-    loadSample(dataSource, StaticRifResourceGroup.SAMPLE_A);
-    loadSample(dataSource, StaticRifResourceGroup.SAMPLE_U);
+    loadSampleU(RifLoaderTestUtils.getLoadOptions(dataSource));
+  }
+
+  /**
+   * Runs {@link gov.cms.bfd.pipeline.rif.load.RifLoader} against the {@link
+   * StaticRifResourceGroup#SAMPLE_U} data, using {@link LoadMode#JDBC_BATCH}.
+   */
+  @Test
+  public void loadSampleUWithJdbcBatches() {
+    DataSource dataSource = DatabaseTestHelper.getTestDatabaseAfterClean();
+    loadSampleU(createLoadOptions(dataSource, true, LoadMode.JDBC_BATCH));
+  }
+
+  /**
+   * Runs {@link gov.cms.bfd.pipeline.rif.load.RifLoader} against the {@link
+   * StaticRifResourceGroup#SAMPLE_U} data, using {@link LoadMode#POSTGRESQL_STAGED_MERGE}. (Against
+   * databases other than PostgreSQL, this just verifies the fallback to {@link LoadMode#JPA}.)
+   */
+  @Test
+  public void loadSampleUWithStagedMerges() {
+    DataSource dataSource = DatabaseTestHelper.getTestDatabaseAfterClean();
+    loadSampleU(createLoadOptions(dataSource, true, LoadMode.POSTGRESQL_STAGED_MERGE));
+  }
+
+  /**
+   * Runs {@link gov.cms.bfd.pipeline.rif.load.RifLoader} against the {@link
+   * StaticRifResourceGroup#SAMPLE_U} data, using {@link LoadMode#JPA} and then {@link
+   * LoadMode#POSTGRESQL_STAGED_MERGE}, and verifies that the staged merges actually ran, updated
+   * the expected rows and history, and left exactly the same rows behind as the JPA updates. This
+   * test only runs against PostgreSQL, as staged merges fall back to JPA everywhere else.
+   */
+  @Test
+  public void loadSampleUWithStagedMergesMatchesJpa() {
+    DataSource dataSource = DatabaseTestHelper.getTestDatabaseAfterClean();
+    assumePostgreSql(dataSource);
+
+    loadSampleU(createLoadOptions(dataSource, true, LoadMode.JPA));
+    Map<String, List<String>> jpaRows = snapshotRecordTables(dataSource);
+
+    dataSource = DatabaseTestHelper.getTestDatabaseAfterClean();
+    RifFilesEvent updateEvent =
+        loadSampleU(createLoadOptions(dataSource, true, LoadMode.POSTGRESQL_STAGED_MERGE));
+
+    long merges =
+        updateEvent.getFileEvents().stream()
+            .flatMap(e -> e.getEventMetrics().getTimers().entrySet().stream())
+            .filter(t -> t.getKey().startsWith("RifLoader.postgreSqlStagedMerges."))
+            .mapToLong(t -> t.getValue().getCount())
+            .sum();
+    Assert.assertTrue("No staged merges were run.", merges > 0);
+    Assert.assertEquals(jpaRows, snapshotRecordTables(dataSource));
+  }
+
+  /**
+   * Runs {@link gov.cms.bfd.pipeline.rif.load.RifLoader} against the {@link
+   * StaticRifResourceGroup#SAMPLE_U} data, with {@link
+   * LoadAppOptions#isBeneficiaryShardingEnabled()} enabled.
+   */
+  @Test
+  public void loadSampleUWithBeneficiarySharding() {
+    DataSource dataSource = DatabaseTestHelper.getTestDatabaseAfterClean();
+    loadSampleU(createLoadOptions(dataSource, true, LoadMode.JPA, true));
+  }
+
+  /**
+   * Runs {@link gov.cms.bfd.pipeline.rif.load.RifLoader} against the {@link
+   * StaticRifResourceGroup#SAMPLE_A} and then {@link StaticRifResourceGroup#SAMPLE_U} data, and
+   * verifies that the updates worked as expected.
+   *
+   * @param options the {@link LoadAppOptions} to use
+   * @return the {@link RifFilesEvent} for the {@link StaticRifResourceGroup#SAMPLE_U} load
+   */
+  private RifFilesEvent loadSampleU(LoadAppOptions options) {
+    loadSample(StaticRifResourceGroup.SAMPLE_A, options);
+    RifFilesEvent updateEvent = loadSample(StaticRifResourceGroup.SAMPLE_U, options);
 
     /*
      * Verify that the updates worked as expected by manually checking some fields.
      */
-    LoadAppOptions options = RifLoaderTestUtils.getLoadOptions(dataSource);
     EntityManagerFactory entityManagerFactory =
         RifLoaderTestUtils.createEntityManagerFactory(options);
     EntityManager entityManager = null;
@@ -256,6 +627,8 @@ public final class RifLoaderIT {
     } finally {
       if (entityManager != null) entityManager.close();
     }
+
+    return updateEvent;
   }
 
   /**
@@ -359,10 +732,161 @@ public final class RifLoaderIT {
     Assert.assertTrue(
         "Should all mbiHash should have been filled",
         em.createQuery(selectHistory, BeneficiaryHistory.class).getResultList().isEmpty());
+    Assert.assertEquals(
+        "Expect every key range to have been recorded as completed",
+        0L,
+        ((Number)
+                em.createNativeQuery(
+                        "select count(*) from \"MaintenanceJobRanges\" where \"completed\" is null")
+                    .getSingleResult())
+            .longValue());
 
     loader.close();
   }
 
+  /**
+   * Verifies that a {@link MaintenanceEngine} backfill of nulled <code>mbiHash</code>es that's cut
+   * short at the end of one time slice resumes from the cursor stored in <code>
+   * MaintenanceJobRanges</code> in the next one, even from a fresh {@link MaintenanceEngine} (as
+   * after a pipeline restart). The engine's <code>UPDATE ... FROM (VALUES ...)</code> statements
+   * only work with PostgreSQL, so this test only runs there.
+   */
+  @Test
+  public void resumeMaintenanceJobAcrossTimeSlices() throws Exception {
+    DataSource dataSource = DatabaseTestHelper.getTestDatabaseAfterClean();
+    assumePostgreSql(dataSource);
+    LoadAppOptions options = RifLoaderTestUtils.getLoadOptions(dataSource);
+    loadSample(StaticRifResourceGroup.SAMPLE_A, options);
+    executeUpdate(dataSource, "update \"BeneficiariesHistory\" set \"mbiHash\" = null");
+    long historyCount = queryForLong(dataSource, "select count(*) from \"BeneficiariesHistory\"");
+    Assert.assertTrue("Need several rows to span batches.", historyCount > 1);
+
+    /*
+     * Run one batch of one row, and have it overrun the first time slice, so that the slice ends
+     * with the job only partially done.
+     */
+    Duration timeSlice = Duration.ofMillis(500);
+    AtomicInteger hashesComputed = new AtomicInteger(0);
+    MaintenanceJob historyJob =
+        new MbiHashBackfillJob(
+            "test_beneficiary_history",
+            "BeneficiariesHistory",
+            "beneficiaryHistoryId",
+            false,
+            options,
+            RifLoader.createSecretKeyFactory());
+    MaintenanceJob backfillJob =
+        new MaintenanceJob() {
+          @Override
+          public String getName() {
+            return historyJob.getName();
+          }
+
+          @Override
+          public String getTableName() {
+            return historyJob.getTableName();
+          }
+
+          @Override
+          public String getKeyColumnName() {
+            return historyJob.getKeyColumnName();
+          }
+
+          @Override
+          public boolean isTextKey() {
+            return historyJob.isTextKey();
+          }
+
+          @Override
+          public List<String> getInputColumnNames() {
+            return historyJob.getInputColumnNames();
+          }
+
+          @Override
+          public String getPendingCondition() {
+            return historyJob.getPendingCondition();
+          }
+
+          @Override
+          public List<String> getOutputColumnNames() {
+            return historyJob.getOutputColumnNames();
+          }
+
+          @Override
+          public Object[] computeOutputs(Object[] inputs) {
+            if (hashesComputed.incrementAndGet() == 1)
+              RifLoaderTestUtils.pauseMillis(2 * timeSlice.toMillis());
+            return historyJob.computeOutputs(inputs);
+          }
+        };
+    EntityManagerFactory entityManagerFactory =
+        RifLoaderTestUtils.createEntityManagerFactory(options);
+    try {
+      MaintenanceEngine firstEngine =
+          new MaintenanceEngine(entityManagerFactory, new MetricRegistry(), 1, 1);
+      for (Callable<Boolean> worker :
+          firstEngine.createWorkers(Arrays.asList(backfillJob), timeSlice))
+        Assert.assertFalse("Expected the time slice to run out.", worker.call());
+      Assert.assertFalse(firstEngine.isCompleted(Arrays.asList(backfillJob)));
+      Assert.assertEquals(1, hashesComputed.get());
+
+      // The one row that was updated should be the one that the stored cursor points at.
+      String cursorKey =
+          queryForString(
+              dataSource,
+              "select \"cursorKey\" from \"MaintenanceJobRanges\""
+                  + " where \"jobName\" = 'test_beneficiary_history'"
+                  + " and \"cursorKey\" is not null");
+      Assert.assertEquals(
+          0L,
+          queryForLong(
+              dataSource,
+              "select count(*) from \"MaintenanceJobRanges\""
+                  + " where \"jobName\" = 'test_beneficiary_history'"
+                  + " and \"completed\" is not null"));
+      Assert.assertEquals(
+          cursorKey,
+          queryForString(
+              dataSource,
+              "select cast(\"beneficiaryHistoryId\" as varchar(20)) from \"BeneficiariesHistory\""
+                  + " where \"mbiHash\" is not null"));
+
+      /*
+       * Null that row out again: if the next time slice resumes from the stored cursor (rather than
+       * rescanning the range), it won't see that row, and so it'll be left null.
+       */
+      executeUpdate(
+          dataSource,
+          "update \"BeneficiariesHistory\" set \"mbiHash\" = null"
+              + " where \"beneficiaryHistoryId\" = "
+              + cursorKey);
+
+      MaintenanceEngine secondEngine =
+          new MaintenanceEngine(entityManagerFactory, new MetricRegistry(), 1, 1);
+      for (Callable<Boolean> worker :
+          secondEngine.createWorkers(Arrays.asList(backfillJob), Duration.ofMinutes(5)))
+        Assert.assertTrue("Expected the job to finish.", worker.call());
+      Assert.assertTrue(secondEngine.isCompleted(Arrays.asList(backfillJob)));
+      Assert.assertEquals(historyCount, hashesComputed.get());
+
+      Assert.assertEquals(
+          cursorKey,
+          queryForString(
+              dataSource,
+              "select cast(\"beneficiaryHistoryId\" as varchar(20)) from \"BeneficiariesHistory\""
+                  + " where \"mbiHash\" is null"));
+      Assert.assertEquals(
+          0L,
+          queryForLong(
+              dataSource,
+              "select count(*) from \"MaintenanceJobRanges\""
+                  + " where \"jobName\" = 'test_beneficiary_history'"
+                  + " and \"completed\" is null"));
+    } finally {
+      entityManagerFactory.close();
+    }
+  }
+
   /** Tests the RifLoaderIdleTasks with no fixups needed. */
   @Test
   public void runIdleTasksWithNoFixups() {
@@ -448,6 +972,18 @@ public final class RifLoaderIT {
    * @param sampleGroup the {@link StaticRifResourceGroup} to load
    */
   private void loadSample(DataSource dataSource, StaticRifResourceGroup sampleGroup) {
+    loadSample(sampleGroup, RifLoaderTestUtils.getLoadOptions(dataSource));
+  }
+
+  /**
+   * Runs {@link RifLoader} against the specified {@link StaticRifResourceGroup}.
+   *
+   * @param sampleGroup the {@link StaticRifResourceGroup} to load
+   * @param options the {@link LoadAppOptions} to use
+   * @return the {@link RifFilesEvent} that was loaded, whose {@link RifFileEvent#getEventMetrics()}
+   *     can be checked to see how the load went
+   */
+  private RifFilesEvent loadSample(StaticRifResourceGroup sampleGroup, LoadAppOptions options) {
     // Generate the sample RIF data to feed through the pipeline.
     List<StaticRifResource> sampleResources =
         Arrays.stream(sampleGroup.getResources()).collect(Collectors.toList());
@@ -461,7 +997,6 @@ public final class RifLoaderIT {
     // Create the processors that will handle each stage of the pipeline.
     MetricRegistry appMetrics = new MetricRegistry();
     RifFilesProcessor processor = new RifFilesProcessor();
-    LoadAppOptions options = RifLoaderTestUtils.getLoadOptions(dataSource);
     RifLoader loader = new RifLoader(appMetrics, options);
 
     // Link up the pipeline and run it.
@@ -517,6 +1052,7 @@ public final class RifLoaderIT {
     }
     LOGGER.info("All records found in DB.");
     loader.close();
+    return rifFilesEvent;
   }
 
   /**
@@ -601,6 +1137,117 @@ public final class RifLoaderIT {
     }
   }
 
+  /**
+   * Skips the current test unless the specified test DB is PostgreSQL, e.g. because it's exercising
+   * a {@link LoadMode} that's only supported there. (Run the ITs with the <code>its.db.*</code>
+   * properties pointed at a PostgreSQL instance to include such tests.)
+   *
+   * @param dataSource the {@link DataSource} for the test DB being used
+   */
+  private static void assumePostgreSql(DataSource dataSource) {
+    EntityManagerFactory entityManagerFactory =
+        RifLoaderTestUtils.createEntityManagerFactory(
+            RifLoaderTestUtils.getLoadOptions(dataSource));
+    try {
+      Assume.assumeTrue(
+          "This test requires a PostgreSQL test DB.",
+          RifLoader.isDatabasePostgreSql(entityManagerFactory));
+    } finally {
+      entityManagerFactory.close();
+    }
+  }
+
+  /**
+   * @param dataSource the {@link DataSource} for the test DB to read from
+   * @return the rows of every RIF record table in the specified DB, keyed by table name, with each
+   *     row rendered as a {@link String} and sorted, omitting the bookkeeping tables and the
+   *     columns (listed in {@link #SNAPSHOT_EXCLUDED_COLUMNS}) whose values vary from load to load
+   */
+  private static Map<String, List<String>> snapshotRecordTables(DataSource dataSource) {
+    Map<String, List<String>> rowsByTable = new TreeMap<>();
+    try (Connection connection = dataSource.getConnection()) {
+      List<String> tableNames = new ArrayList<>();
+      try (ResultSet tables =
+          connection.getMetaData().getTables(null, null, "%", new String[] {"TABLE"})) {
+        while (tables.next()) tableNames.add(tables.getString("TABLE_NAME"));
+      }
+
+      for (String tableName : tableNames) {
+        if (SNAPSHOT_EXCLUDED_TABLES.contains(tableName.toLowerCase())) continue;
+
+        List<String> rows = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+            ResultSet resultSet =
+                statement.executeQuery(String.format("select * from \"%s\"", tableName))) {
+          ResultSetMetaData metaData = resultSet.getMetaData();
+          while (resultSet.next()) {
+            StringBuilder row = new StringBuilder();
+            for (int column = 1; column <= metaData.getColumnCount(); column++) {
+              String columnName = metaData.getColumnName(column);
+              if (SNAPSHOT_EXCLUDED_COLUMNS.contains(columnName.toLowerCase())) continue;
+              row.append(columnName).append('=').append(resultSet.getObject(column)).append(';');
+            }
+            rows.add(row.toString());
+          }
+        }
+        Collections.sort(rows);
+        rowsByTable.put(tableName, rows);
+      }
+    } catch (SQLException e) {
+      throw new IllegalStateException(e);
+    }
+    return rowsByTable;
+  }
+
+  /**
+   * @param dataSource the {@link DataSource} for the test DB
+   * @param sql the SQL statement to run
+   */
+  private static void executeUpdate(DataSource dataSource, String sql) {
+    try (Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement()) {
+      statement.executeUpdate(sql);
+    } catch (SQLException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * @param dataSource the {@link DataSource} for the test DB
+   * @param sql the SQL query to run, which must return exactly one row
+   * @return the value of the first column of the query's single result row
+   */
+  private static Object querySingleValue(DataSource dataSource, String sql) {
+    try (Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement();
+        ResultSet resultSet = statement.executeQuery(sql)) {
+      Assert.assertTrue("No rows for: " + sql, resultSet.next());
+      Object value = resultSet.getObject(1);
+      Assert.assertFalse("Too many rows for: " + sql, resultSet.next());
+      return value;
+    } catch (SQLException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * @param dataSource the {@link DataSource} for the test DB
+   * @param sql the SQL query to run, which must return exactly one numeric value
+   * @return the query's result
+   */
+  private static long queryForLong(DataSource dataSource, String sql) {
+    return ((Number) querySingleValue(dataSource, sql)).longValue();
+  }
+
+  /**
+   * @param dataSource the {@link DataSource} for the test DB
+   * @param sql the SQL query to run, which must return exactly one text value
+   * @return the query's result
+   */
+  private static String queryForString(DataSource dataSource, String sql) {
+    return (String) querySingleValue(dataSource, sql);
+  }
+
   /**
    * Create a RIF loader
    *
@@ -622,6 +1269,38 @@ public final class RifLoaderIT {
             defaultOptions.getFixupThreads()));
   }
 
+  /**
+   * @param dataSource the {@link DataSource} to use
+   * @param idempotencyRequired the value to use for {@link LoadAppOptions#isIdempotencyRequired()}
+   * @param loadMode the value to use for {@link LoadAppOptions#getLoadMode()}
+   * @return the {@link LoadAppOptions} to use
+   */
+  private static LoadAppOptions createLoadOptions(
+      DataSource dataSource, boolean idempotencyRequired, LoadMode loadMode) {
+    return createLoadOptions(dataSource, idempotencyRequired, loadMode, false);
+  }
+
+  /**
+   * @param dataSource the {@link DataSource} to use
+   * @param idempotencyRequired the value to use for {@link LoadAppOptions#isIdempotencyRequired()}
+   * @param loadMode the value to use for {@link LoadAppOptions#getLoadMode()}
+   * @param beneficiaryShardingEnabled the value to use for {@link
+   *     LoadAppOptions#isBeneficiaryShardingEnabled()}
+   * @return the {@link LoadAppOptions} to use
+   */
+  private static LoadAppOptions createLoadOptions(
+      DataSource dataSource,
+      boolean idempotencyRequired,
+      LoadMode loadMode,
+      boolean beneficiaryShardingEnabled) {
+    return RifLoaderTestUtils.getLoadOptions(dataSource)
+        .toBuilder()
+        .idempotencyRequired(idempotencyRequired)
+        .loadMode(loadMode)
+        .beneficiaryShardingEnabled(beneficiaryShardingEnabled)
+        .build();
+  }
+
   /**
    * Clear the MBI hash fields in the db
    *
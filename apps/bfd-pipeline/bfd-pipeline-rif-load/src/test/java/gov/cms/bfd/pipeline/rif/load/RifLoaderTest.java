@@ -1,8 +1,20 @@
 package gov.cms.bfd.pipeline.rif.load;
 
+import com.codahale.metrics.MetricRegistry;
+import gov.cms.bfd.model.rif.RifFileEvent;
+import gov.cms.bfd.model.rif.RifFilesEvent;
+import gov.cms.bfd.model.rif.samples.StaticRifResource;
+import gov.cms.bfd.model.rif.samples.StaticRifResourceGroup;
 import gov.cms.bfd.model.rif.schema.DatabaseTestHelper;
+import gov.cms.bfd.pipeline.rif.extract.PipelineStageMetrics;
+import gov.cms.bfd.pipeline.rif.extract.RifFilesProcessor;
+import gov.cms.bfd.pipeline.rif.load.LoadAppOptions.RunMode;
+import gov.cms.bfd.pipeline.rif.load.RifRecordLoadResult.LoadAction;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 import javax.crypto.SecretKeyFactory;
 import org.junit.Assert;
 import org.junit.Test;
@@ -86,4 +98,66 @@ public final class RifLoaderTest {
         "742086db6bf338dedda6175ea3af8ca5e85b81fda9cc7078004a4d3e4792494b",
         RifLoader.computeMbiHash(options, secretKeyFactory, "2456689"));
   }
+
+  /**
+   * Verifies that {@link RifLoader} runs every {@link StaticRifResourceGroup#SAMPLE_A} record
+   * through the pipeline (and counts it) in each of the {@link RunMode}s that don't use the
+   * database, without needing one to be configured.
+   */
+  @Test
+  public void processWithoutDatabase() {
+    for (RunMode runMode : RunMode.values()) {
+      if (runMode.isDatabaseRequired()) continue;
+
+      LoadAppOptions options =
+          new LoadAppOptions.Builder()
+              .hicnHash(1000, "nottherealpepper".getBytes(StandardCharsets.UTF_8))
+              .loaderThreads(2)
+              .idempotencyRequired(false)
+              .runMode(runMode)
+              .build();
+      MetricRegistry appMetrics = new MetricRegistry();
+      RifFilesProcessor processor = new RifFilesProcessor();
+      AtomicInteger failureCount = new AtomicInteger(0);
+      AtomicInteger discardCount = new AtomicInteger(0);
+      RifFilesEvent rifFilesEvent =
+          new RifFilesEvent(
+              Instant.now(),
+              Arrays.stream(StaticRifResourceGroup.SAMPLE_A.getResources())
+                  .map(r -> r.toRifFile())
+                  .collect(Collectors.toList()));
+      try (RifLoader loader = new RifLoader(appMetrics, options)) {
+        for (RifFileEvent rifFileEvent : rifFilesEvent.getFileEvents())
+          loader.process(
+              processor.produceRecords(rifFileEvent),
+              error -> {
+                failureCount.incrementAndGet();
+                LOGGER.warn("Record(s) failed.", error);
+              },
+              result -> {
+                Assert.assertEquals(LoadAction.DID_NOTHING, result.getLoadAction());
+                discardCount.incrementAndGet();
+              });
+      }
+
+      Assert.assertEquals(runMode.name(), 0, failureCount.get());
+      for (StaticRifResource rifResource : StaticRifResourceGroup.SAMPLE_A.getResources())
+        Assert.assertEquals(
+            runMode.name(),
+            rifResource.getRecordCount(),
+            appMetrics
+                .meter(
+                    MetricRegistry.name(
+                        PipelineStageMetrics.METRIC_NAME_PREFIX,
+                        "records",
+                        rifResource.getRifFileType().name()))
+                .getCount());
+      Assert.assertEquals(
+          runMode.name(),
+          Arrays.stream(StaticRifResourceGroup.SAMPLE_A.getResources())
+              .mapToInt(r -> r.getRecordCount())
+              .sum(),
+          discardCount.get());
+    }
+  }
 }
@@ -179,6 +179,9 @@ public final class QueryLoggingListener implements QueryExecutionListener {
 
     LOADED_FILE("loaded_file", (s -> s.contains(" from \"LoadedFiles\" "))),
 
+    LOADED_FILE_BLOOM_FILTER(
+        "loaded_file_bloom_filter", (s -> s.contains(" from \"LoadedFileBloomFilters\" "))),
+
     UNKNOWN("unknown", null);
 
     private final String id;
@@ -2,7 +2,9 @@ package gov.cms.bfd.server.war.stu3.providers;
 
 import ca.uhn.fhir.rest.param.DateParam;
 import ca.uhn.fhir.rest.param.DateRangeParam;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 import org.apache.spark.util.sketch.BloomFilter;
 
 /**
@@ -23,8 +25,8 @@ public class LoadedFileFilter {
   private final Date firstUpdated;
   private final Date lastUpdated;
 
-  // The beneficiaries that were updated in the RIF load
-  private final BloomFilter updatedBeneficiaries;
+  // The beneficiaries that were updated in the RIF load. More than one for published filters.
+  private final List<BloomFilter> updatedBeneficiaries;
 
   /**
    * Build a filter for a LoadedFile
@@ -41,6 +43,31 @@ public class LoadedFileFilter {
       Date firstUpdated,
       Date lastUpdated,
       BloomFilter updatedBeneficiaries) {
+    this(
+        loadedFileId,
+        batchesCount,
+        firstUpdated,
+        lastUpdated,
+        Collections.singletonList(updatedBeneficiaries));
+  }
+
+  /**
+   * Build a filter for a LoadedFile from the segments of a {@link
+   * gov.cms.bfd.model.rif.ScalableBloomFilter}, such as the one the loader publishes for each file
+   *
+   * @param loadedFileId for this filter
+   * @param batchesCount of the number of batches in this filter
+   * @param firstUpdated for this filter
+   * @param lastUpdated for this filter
+   * @param updatedBeneficiaries bloom filters for this filter, any of which may contain a
+   *     beneficiary
+   */
+  public LoadedFileFilter(
+      long loadedFileId,
+      int batchesCount,
+      Date firstUpdated,
+      Date lastUpdated,
+      List<BloomFilter> updatedBeneficiaries) {
     this.loadedFileId = loadedFileId;
     this.batchesCount = batchesCount;
     this.firstUpdated = firstUpdated;
@@ -103,7 +130,10 @@ public class LoadedFileFilter {
    * @return true if the filter may contain the beneficiary
    */
   public boolean mightContain(String beneficiaryId) {
-    return updatedBeneficiaries.mightContain(beneficiaryId);
+    for (BloomFilter filter : updatedBeneficiaries) {
+      if (filter.mightContainString(beneficiaryId)) return true;
+    }
+    return false;
   }
 
   /** @return the fileId */
@@ -122,7 +152,7 @@ public class LoadedFileFilter {
   }
 
   /** @return the updatedBeneficiaries */
-  public BloomFilter getUpdatedBeneficiaries() {
+  public List<BloomFilter> getUpdatedBeneficiaries() {
     return updatedBeneficiaries;
   }
 
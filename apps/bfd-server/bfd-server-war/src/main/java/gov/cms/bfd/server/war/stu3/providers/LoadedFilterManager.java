@@ -2,13 +2,17 @@ package gov.cms.bfd.server.war.stu3.providers;
 
 import ca.uhn.fhir.rest.param.DateRangeParam;
 import gov.cms.bfd.model.rif.LoadedBatch;
+import gov.cms.bfd.model.rif.LoadedBatchCodec;
 import gov.cms.bfd.model.rif.LoadedFile;
+import gov.cms.bfd.model.rif.LoadedFileBloomFilter;
+import gov.cms.bfd.model.rif.ScalableBloomFilter;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Function;
+import java.util.function.LongConsumer;
 import java.util.stream.Collectors;
 import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
@@ -25,7 +29,9 @@ import org.springframework.stereotype.Component;
 
 /**
  * Monitors the loaded files and their associated batches in the database. Creates Bloom filters to
- * match these files.
+ * match these files, using the ones that the pipeline published (see {@link
+ * LoadedFileBloomFilter}) where they're up to date, and building them from the files' batches
+ * otherwise.
  */
 @Component
 public class LoadedFilterManager {
@@ -35,9 +41,6 @@ public class LoadedFilterManager {
   private static final Date BEFORE_LAST_UPDATED_FEATURE =
       Date.from(Instant.parse("2020-01-01T00:00:00Z"));
 
-  // The size of the beneficiaryId column
-  private static final int BENE_ID_SIZE = 15;
-
   // The connection to the DB
   private EntityManager entityManager;
 
@@ -224,7 +227,11 @@ public class LoadedFilterManager {
             currentLastBatchCreated);
         List<LoadedTuple> loadedTuples = fetchLoadedTuples(this.lastBatchCreated);
         List<LoadedFileFilter> newFilters =
-            updateFilters(this.filters, loadedTuples, this::fetchLoadedBatches);
+            updateFilters(
+                this.filters,
+                loadedTuples,
+                this::fetchLoadedFileBloomFilter,
+                this::fetchLoadedBatches);
 
         // If batches been trimmed, then remove filters which are no longer present
         final Date currentFirstBatchUpdate =
@@ -294,8 +301,26 @@ public class LoadedFilterManager {
       List<LoadedFileFilter> existingFilters,
       List<LoadedTuple> loadedTuples,
       Function<Long, List<LoadedBatch>> fetchById) {
+    return updateFilters(existingFilters, loadedTuples, id -> Optional.empty(), fetchById);
+  }
+
+  /**
+   * Create an updated {@link LoadedFileFilter} list from existing filters and newly loaded files
+   * and batches
+   *
+   * @param existingFilters that should be included
+   * @param loadedTuples that come from new LoadedBatch
+   * @param fetchPublishedById to use to retrieve the published filter for a file, if any
+   * @param fetchById to use retrieve list of LoadedBatch by id
+   * @return a new filter list
+   */
+  public static List<LoadedFileFilter> updateFilters(
+      List<LoadedFileFilter> existingFilters,
+      List<LoadedTuple> loadedTuples,
+      Function<Long, Optional<LoadedFileBloomFilter>> fetchPublishedById,
+      Function<Long, List<LoadedBatch>> fetchById) {
     List<LoadedFileFilter> result = new ArrayList<>(existingFilters);
-    List<LoadedFileFilter> newFilters = buildFilters(loadedTuples, fetchById);
+    List<LoadedFileFilter> newFilters = buildFilters(loadedTuples, fetchPublishedById, fetchById);
     newFilters.forEach(
         filter -> {
           result.removeIf(f -> f.getLoadedFileId() == filter.getLoadedFileId());
@@ -314,8 +339,23 @@ public class LoadedFilterManager {
    */
   public static List<LoadedFileFilter> buildFilters(
       List<LoadedTuple> loadedTuples, Function<Long, List<LoadedBatch>> fetchById) {
+    return buildFilters(loadedTuples, id -> Optional.empty(), fetchById);
+  }
+
+  /**
+   * Build a new {@link LoadedFileFilter} list
+   *
+   * @param loadedTuples that come from new LoadedBatch
+   * @param fetchPublishedById to use to retrieve the published filter for a file, if any
+   * @param fetchById to use retrieve list of LoadedBatch by id
+   * @return a new filter list
+   */
+  public static List<LoadedFileFilter> buildFilters(
+      List<LoadedTuple> loadedTuples,
+      Function<Long, Optional<LoadedFileBloomFilter>> fetchPublishedById,
+      Function<Long, List<LoadedBatch>> fetchById) {
     return loadedTuples.stream()
-        .map(t -> buildFilter(t.getLoadedFileId(), t.getFirstUpdated(), fetchById))
+        .map(t -> buildFilter(t, fetchPublishedById, fetchById))
         .collect(Collectors.toList());
   }
 
@@ -335,6 +375,40 @@ public class LoadedFilterManager {
     return newFilters;
   }
 
+  /**
+   * Build a filter for this loaded file, from its published filter if that includes all of the
+   * file's batches, or from its batches otherwise. Should be a pure function.
+   *
+   * @param loadedTuple of the file to build a filter for
+   * @param fetchPublishedById a function which returns the published filter for a file, if any
+   * @param fetchById a function which returns a list of batches
+   * @return a new filter
+   */
+  public static LoadedFileFilter buildFilter(
+      LoadedTuple loadedTuple,
+      Function<Long, Optional<LoadedFileBloomFilter>> fetchPublishedById,
+      Function<Long, List<LoadedBatch>> fetchById) {
+    final long fileId = loadedTuple.getLoadedFileId();
+    final Optional<LoadedFileBloomFilter> published = fetchPublishedById.apply(fileId);
+    if (published.isPresent()
+        && !loadedTuple.getLastUpdated().after(published.get().getLastBatchCreated())) {
+      final ScalableBloomFilter bloomFilter =
+          ScalableBloomFilter.readFrom(published.get().getBloomFilter());
+      LOGGER.info(
+          "Read the published filter for {} with {} batches",
+          fileId,
+          published.get().getBatchCount());
+      return new LoadedFileFilter(
+          fileId,
+          published.get().getBatchCount(),
+          loadedTuple.getFirstUpdated(),
+          published.get().getLastBatchCreated(),
+          bloomFilter.getSegments());
+    }
+
+    return buildFilter(fileId, loadedTuple.getFirstUpdated(), fetchById);
+  }
+
   /**
    * Build a filter for this loaded file. Should be a pure function.
    *
@@ -350,8 +424,7 @@ public class LoadedFilterManager {
     if (batchCount == 0) {
       throw new IllegalArgumentException("Batches cannot be empty for a filter");
     }
-    final int batchSize =
-        (loadedBatches.get(0).getBeneficiaries().length() + BENE_ID_SIZE) / BENE_ID_SIZE;
+    final int batchSize = Math.max(1, loadedBatches.get(0).getBeneficiaryCount());
 
     // It is important to get a good estimate of the number of entries for
     // an accurate FFP and minimal memory size. This one assumes that all batches are of equal size.
@@ -359,9 +432,14 @@ public class LoadedFilterManager {
 
     // Loop through all batches, filling the bloom filter and finding the lastUpdated
     Date lastUpdated = firstUpdated;
+    final DecimalFilterWriter encodedBatchWriter = new DecimalFilterWriter(bloomFilter);
     for (LoadedBatch batch : loadedBatches) {
-      for (String beneficiary : batch.getBeneficiariesAsList()) {
-        bloomFilter.putString(beneficiary);
+      if (batch.getBeneficiariesEncoded() != null) {
+        LoadedBatchCodec.decode(batch.getBeneficiariesEncoded(), encodedBatchWriter);
+      } else {
+        for (String beneficiary : batch.getBeneficiariesAsList()) {
+          bloomFilter.putString(beneficiary);
+        }
       }
       if (batch.getCreated().after(lastUpdated)) {
         lastUpdated = batch.getCreated();
@@ -439,7 +517,20 @@ public class LoadedFilterManager {
   }
 
   /**
-   * Fetch all the batches associated with LoadedFile.
+   * Fetch the filter that the pipeline published for a LoadedFile.
+   *
+   * @param loadedFileId of the LoadedFile
+   * @return the LoadedFileBloomFilter, or empty if the file hasn't finished loading (or was loaded
+   *     before filters were published)
+   */
+  private Optional<LoadedFileBloomFilter> fetchLoadedFileBloomFilter(long loadedFileId) {
+    return Optional.ofNullable(entityManager.find(LoadedFileBloomFilter.class, loadedFileId));
+  }
+
+  /**
+   * Fetch all the batches associated with LoadedFile. Only the beneficiaries are needed, and the
+   * text column is only read for batches that weren't encoded, as it may also have been written for
+   * encoded batches (for older server builds), where it would just be a much larger duplicate.
    *
    * @param loadedFileId of the LoadedFile
    * @return a list of LoadedBatches or an empty list
@@ -447,8 +538,56 @@ public class LoadedFilterManager {
   private List<LoadedBatch> fetchLoadedBatches(long loadedFileId) {
     return entityManager
         .createQuery(
-            "select b from LoadedBatch b where b.loadedFileId = :loadedFileId", LoadedBatch.class)
+            "select new gov.cms.bfd.model.rif.LoadedBatch(b.loadedBatchId, b.loadedFileId,"
+                + " case when b.beneficiariesEncoded is null then b.beneficiaries else '' end,"
+                + " b.beneficiariesEncoded, b.created)"
+                + " from LoadedBatch b where b.loadedFileId = :loadedFileId",
+            LoadedBatch.class)
         .setParameter("loadedFileId", loadedFileId)
         .getResultList();
   }
+
+  /**
+   * Puts beneficiary IDs that were decoded from a {@link LoadedBatch#getBeneficiariesEncoded()}
+   * into a {@link BloomFilter}, exactly as {@link BloomFilter#putString(String)} would have put
+   * their decimal text (which is just its UTF-8 bytes), but without creating a {@link String} or
+   * new array for each one.
+   */
+  private static final class DecimalFilterWriter implements LongConsumer {
+    /** The maximum length of a <code>long</code>'s decimal text, including its sign. */
+    private static final int MAX_LENGTH = 20;
+
+    private final BloomFilter bloomFilter;
+    private final byte[] digits;
+    private final byte[][] buffersByLength;
+
+    /**
+     * Constructs a new {@link DecimalFilterWriter}.
+     *
+     * @param bloomFilter the {@link BloomFilter} to put values into
+     */
+    DecimalFilterWriter(BloomFilter bloomFilter) {
+      this.bloomFilter = bloomFilter;
+      this.digits = new byte[MAX_LENGTH];
+      this.buffersByLength = new byte[MAX_LENGTH + 1][];
+    }
+
+    /** @see java.util.function.LongConsumer#accept(long) */
+    @Override
+    public void accept(long beneficiaryId) {
+      // Work with the negative magnitude, as Long.MIN_VALUE has no positive counterpart.
+      int start = MAX_LENGTH;
+      long remaining = beneficiaryId < 0 ? beneficiaryId : -beneficiaryId;
+      do {
+        digits[--start] = (byte) ('0' - (remaining % 10));
+        remaining /= 10;
+      } while (remaining != 0);
+      if (beneficiaryId < 0) digits[--start] = '-';
+
+      int length = MAX_LENGTH - start;
+      if (buffersByLength[length] == null) buffersByLength[length] = new byte[length];
+      System.arraycopy(digits, start, buffersByLength[length], 0, length);
+      bloomFilter.putBinary(buffersByLength[length]);
+    }
+  }
 }
@@ -3,6 +3,8 @@ package gov.cms.bfd.server.war.stu3.providers;
 import ca.uhn.fhir.rest.param.DateRangeParam;
 import gov.cms.bfd.model.rif.LoadedBatch;
 import gov.cms.bfd.model.rif.LoadedFile;
+import gov.cms.bfd.model.rif.LoadedFileBloomFilter;
+import gov.cms.bfd.model.rif.LoadedFileBloomFilterBuilder;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
@@ -80,6 +82,33 @@ public final class LoadedFilterManagerTest {
     Assert.assertEquals(1, filters.get(2).getBatchesCount());
   }
 
+  @Test
+  public void buildFromPublishedFilter() {
+    final MockDb mockDb = new MockDb().insert(1, preDates[0]).insert(preBatches[0], preBatches[1]);
+    final LoadedFileBloomFilterBuilder builder = new LoadedFileBloomFilterBuilder(1);
+    builder.addBatch(Collections.singletonList("1234"), preBatches[0].getCreated());
+    builder.addBatch(Collections.singletonList("5678"), preBatches[1].getCreated());
+    final LoadedFileBloomFilter published = builder.build();
+
+    // The published filter is used instead of the batches, when it's up to date
+    final List<LoadedFileFilter> filters =
+        LoadedFilterManager.buildFilters(
+            mockDb.fetchAllTuples(), id -> Optional.of(published), mockDb::fetchById);
+    Assert.assertEquals(1, filters.size());
+    Assert.assertEquals(2, filters.get(0).getBatchesCount());
+    Assert.assertEquals(preBatches[1].getCreated(), filters.get(0).getLastUpdated());
+    Assert.assertTrue(filters.get(0).mightContain("1234"));
+    Assert.assertFalse(filters.get(0).mightContain(SAMPLE_BENE));
+
+    // But not once more batches have been added to the file
+    mockDb.insert(new LoadedBatch(9, 1, Collections.singletonList(SAMPLE_BENE), preDates[20]));
+    final List<LoadedFileFilter> staleFilters =
+        LoadedFilterManager.buildFilters(
+            mockDb.fetchAllTuples(), id -> Optional.of(published), mockDb::fetchById);
+    Assert.assertEquals(3, staleFilters.get(0).getBatchesCount());
+    Assert.assertTrue(staleFilters.get(0).mightContain(SAMPLE_BENE));
+  }
+
   @Test
   public void updateManyFilters() {
     final MockDb mockDb1 =